@@ -0,0 +1,87 @@
+package com.ecommerce.analytics.benchmarks;
+
+import com.ecommerce.analytics.dto.SalesByCategoryDTO;
+import com.ecommerce.analytics.dto.TopSendersDTO;
+import org.jooq.*;
+import org.jooq.impl.DSL;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.ecommerce.analytics.constants.AnalyticsConstants.*;
+import static com.ecommerce.analytics.jooq.Tables.*;
+import static org.jooq.impl.DSL.*;
+
+// Deterministic rows shaped like the repository results, so runs with the same size are comparable
+final class BenchmarkData {
+
+    private static final DSLContext CONTEXT = DSL.using(SQLDialect.POSTGRES);
+
+    private BenchmarkData() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    static Result<Record2<String, Long>> salesByCategory(int size) {
+        Field<Long> categorySales = field(name(CATEGORY_SALES_FIELD), Long.class);
+        Result<Record2<String, Long>> result = CONTEXT.newResult(PRODUCTS.CATEGORY, categorySales);
+        for (int i = 0; i < size; i++) {
+            result.add(CONTEXT.newRecord(PRODUCTS.CATEGORY, categorySales)
+                    .values("Category " + i, money(i)));
+        }
+        return result;
+    }
+
+    static Result<Record3<Integer, String, BigDecimal>> topSellingProducts(int size) {
+        Field<BigDecimal> quantitySold = field(name(TOTAL_PRODUCT_QUANTITY_FIELD), BigDecimal.class);
+        Result<Record3<Integer, String, BigDecimal>> result = CONTEXT.newResult(PRODUCTS.ID, PRODUCTS.NAME, quantitySold);
+        for (int i = 0; i < size; i++) {
+            result.add(CONTEXT.newRecord(PRODUCTS.ID, PRODUCTS.NAME, quantitySold)
+                    .values(i + 1, "Product " + i, BigDecimal.valueOf(size - i)));
+        }
+        return result;
+    }
+
+    static Result<Record4<Integer, String, String, Long>> topSpenders(int size) {
+        Field<String> fullName = field(name(FULL_NAME_FIELD), String.class);
+        Field<Long> totalSpend = field(name(TOTAL_SPEND_FIELD), Long.class);
+        Result<Record4<Integer, String, String, Long>> result = CONTEXT.newResult(
+                CUSTOMERS.ID, CUSTOMERS.EMAIL, fullName, totalSpend);
+        for (int i = 0; i < size; i++) {
+            result.add(CONTEXT.newRecord(CUSTOMERS.ID, CUSTOMERS.EMAIL, fullName, totalSpend)
+                    .values(i + 1, "customer" + i + "@example.com", "First" + i + " Last" + i, money(i)));
+        }
+        return result;
+    }
+
+    static Result<Record2<String, Long>> statusSummary(int size) {
+        Field<Long> orderCount = field(name(ORDER_COUNT_FIELD), Long.class);
+        Result<Record2<String, Long>> result = CONTEXT.newResult(ORDER_STATUSES.STATUS_NAME, orderCount);
+        for (int i = 0; i < size; i++) {
+            result.add(CONTEXT.newRecord(ORDER_STATUSES.STATUS_NAME, orderCount)
+                    .values("Status " + i, (long) (size - i) * 10));
+        }
+        return result;
+    }
+
+    static List<SalesByCategoryDTO> salesByCategoryDTOs(int size) {
+        List<SalesByCategoryDTO> dtos = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            dtos.add(new SalesByCategoryDTO("Category " + i, money(i)));
+        }
+        return dtos;
+    }
+
+    static List<TopSendersDTO> topSendersDTOs(int size) {
+        List<TopSendersDTO> dtos = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            dtos.add(new TopSendersDTO(i + 1, "customer" + i + "@example.com", "First" + i + " Last" + i, money(i)));
+        }
+        return dtos;
+    }
+
+    // In cents, like every money sum the repositories return
+    static long money(int i) {
+        return 1_000_000L - i * 37L;
+    }
+}
@@ -0,0 +1,79 @@
+package com.ecommerce.analytics.benchmarks;
+
+import com.ecommerce.analytics.config.AnalyticsProtobufHttpMessageConverter;
+import com.ecommerce.analytics.dto.SalesByCategoryDTO;
+import com.ecommerce.analytics.dto.TopSendersDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The same response bodies as JSON and as columnar protobuf. payloadSizes encodes each once and reports the sizes in
+// bytes as counters, since the timed benchmarks only report times
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinarySerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<SalesByCategoryDTO> salesByCategory;
+    private List<TopSendersDTO> topSenders;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        salesByCategory = BenchmarkData.salesByCategoryDTOs(size);
+        topSenders = BenchmarkData.topSendersDTOs(size);
+    }
+
+    // Set rather than added to, so the single measured call leaves one size in each
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PayloadBytes {
+
+        public long salesByCategoryJson;
+        public long salesByCategoryProtobuf;
+        public long topSendersJson;
+        public long topSendersProtobuf;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public void payloadSizes(PayloadBytes bytes) throws JsonProcessingException {
+        bytes.salesByCategoryJson = jsonSalesByCategory().length;
+        bytes.salesByCategoryProtobuf = protobufSalesByCategory().length;
+        bytes.topSendersJson = jsonTopSenders().length;
+        bytes.topSendersProtobuf = protobufTopSenders().length;
+    }
+
+    @Benchmark
+    public byte[] jsonSalesByCategory() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(salesByCategory);
+    }
+
+    @Benchmark
+    public byte[] protobufSalesByCategory() {
+        return AnalyticsProtobufHttpMessageConverter.encode(salesByCategory, SalesByCategoryDTO.class);
+    }
+
+    @Benchmark
+    public byte[] jsonTopSenders() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(topSenders);
+    }
+
+    @Benchmark
+    public byte[] protobufTopSenders() {
+        return AnalyticsProtobufHttpMessageConverter.encode(topSenders, TopSendersDTO.class);
+    }
+}
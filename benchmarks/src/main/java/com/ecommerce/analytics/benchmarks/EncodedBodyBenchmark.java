@@ -0,0 +1,71 @@
+package com.ecommerce.analytics.benchmarks;
+
+import com.ecommerce.analytics.dto.TopSendersDTO;
+import com.ecommerce.analytics.service.EncodedBody;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// A cache hit on the top spenders endpoint as the bytes written to the response, serialized per request against
+// copied from the EncodedBody kept with the cached result. The buffer stands in for the servlet output buffer
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodedBodyBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<TopSendersDTO> topSenders;
+    private EncodedBody encodedBody;
+    private ByteArrayOutputStream response;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        topSenders = BenchmarkData.topSendersDTOs(size);
+        encodedBody = new EncodedBody(objectMapper.writeValueAsBytes(topSenders));
+        encodedBody.gzip();
+        response = new ByteArrayOutputStream(encodedBody.json().length);
+    }
+
+    @Benchmark
+    public int serializedPerHit() throws IOException {
+        response.reset();
+        objectMapper.writeValue(response, topSenders);
+        return response.size();
+    }
+
+    @Benchmark
+    public int gzippedPerHit() throws IOException {
+        response.reset();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(response)) {
+            objectMapper.writeValue(gzip, topSenders);
+        }
+        return response.size();
+    }
+
+    @Benchmark
+    public int encodedHit() {
+        response.reset();
+        response.writeBytes(encodedBody.json());
+        return response.size();
+    }
+
+    @Benchmark
+    public int encodedGzipHit() {
+        response.reset();
+        response.writeBytes(encodedBody.gzip());
+        return response.size();
+    }
+}
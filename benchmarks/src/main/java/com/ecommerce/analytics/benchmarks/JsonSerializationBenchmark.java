@@ -0,0 +1,45 @@
+package com.ecommerce.analytics.benchmarks;
+
+import com.ecommerce.analytics.dto.SalesByCategoryDTO;
+import com.ecommerce.analytics.dto.TopSendersDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Response bodies as the controller writes them, with an ObjectMapper configured like Spring Boot's default one
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<SalesByCategoryDTO> salesByCategory;
+    private List<TopSendersDTO> topSenders;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        salesByCategory = BenchmarkData.salesByCategoryDTOs(size);
+        topSenders = BenchmarkData.topSendersDTOs(size);
+    }
+
+    @Benchmark
+    public byte[] salesByCategory() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(salesByCategory);
+    }
+
+    @Benchmark
+    public byte[] topSenders() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(topSenders);
+    }
+}
@@ -0,0 +1,109 @@
+package com.ecommerce.analytics.benchmarks;
+
+import com.ecommerce.analytics.admission.DatabaseAdmissionLimiter;
+import com.ecommerce.analytics.dto.DateRangeDTO;
+import com.ecommerce.analytics.ranking.CategoryRankIndex;
+import com.ecommerce.analytics.repository.AnalyticsRepository;
+import com.ecommerce.analytics.repository.RollupRepository;
+import com.ecommerce.analytics.service.AnalyticsEngine;
+import com.ecommerce.analytics.service.AnalyticsService;
+import com.ecommerce.analytics.sketch.OrderValueDigests;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.conf.Settings;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockDataProvider;
+import org.jooq.tools.jdbc.MockResult;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.jooq.impl.DSL.*;
+
+// The money endpoints from JDBC row to JSON bytes. The mock driver hands every column over as text, like Postgres
+// does, so reading it as a BigDecimal or a long costs what it would with the real driver. Run with -prof gc
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyPathBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    private AnalyticsService analyticsService;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        DSLContext mockContext = DSL.using(SQLDialect.POSTGRES);
+        Result<Record> salesByCategory = textResult(mockContext, 2);
+        Result<Record> topSpenders = textResult(mockContext, 4);
+        for (int i = 0; i < size; i++) {
+            String money = String.valueOf(BenchmarkData.money(i));
+            salesByCategory.add(textRecord(mockContext, "Category " + i, money));
+            topSpenders.add(textRecord(mockContext, String.valueOf(i + 1), "customer" + i + "@example.com",
+                    "First" + i + " Last" + i, money));
+        }
+
+        MockDataProvider provider = context -> new MockResult[]{
+                context.sql().contains("daily_category_sales")
+                        ? new MockResult(size, salesByCategory)
+                        : new MockResult(size, topSpenders)
+        };
+        DSLContext context = DSL.using(new MockConnection(provider), SQLDialect.POSTGRES,
+                new Settings().withExecuteLogging(false));
+
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        analyticsService = new AnalyticsService(
+                new AnalyticsRepository(context, new RollupRepository(context, false), true, false, false),
+                new DatabaseAdmissionLimiter(new SimpleMeterRegistry(), 2, 10, 1000, 20, Duration.ofSeconds(5)),
+                beanFactory.getBeanProvider(AnalyticsEngine.class),
+                beanFactory.getBeanProvider(OrderValueDigests.class),
+                beanFactory.getBeanProvider(CategoryRankIndex.class));
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    @Benchmark
+    public byte[] salesByCategory() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(analyticsService.getSalesByCategory(DateRangeDTO.ALL_TIME));
+    }
+
+    @Benchmark
+    public byte[] topSenders() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(analyticsService.getTopSenders(size, DateRangeDTO.ALL_TIME));
+    }
+
+    private static Result<Record> textResult(DSLContext context, int columns) {
+        return context.newResult(textFields(columns));
+    }
+
+    private static Record textRecord(DSLContext context, String... values) {
+        Record record = context.newRecord(textFields(values.length));
+        for (int i = 0; i < values.length; i++) {
+            record.set(textFields(values.length)[i], values[i]);
+        }
+        return record;
+    }
+
+    private static Field<String>[] textFields(int columns) {
+        @SuppressWarnings("unchecked")
+        Field<String>[] fields = new Field[columns];
+        for (int i = 0; i < columns; i++) {
+            fields[i] = field(name("c" + i), String.class);
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,96 @@
+package com.ecommerce.analytics.benchmarks;
+
+import com.ecommerce.analytics.dto.DateRangeDTO;
+import com.ecommerce.analytics.repository.AnalyticsRepository;
+import com.ecommerce.analytics.repository.RollupRepository;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.jooq.Record1;
+import org.jooq.Record2;
+import org.jooq.Record3;
+import org.jooq.Record4;
+import org.jooq.Record5;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.conf.Settings;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockDataProvider;
+import org.jooq.tools.jdbc.MockResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static org.jooq.impl.DSL.*;
+
+// Builds, renders and binds each AnalyticsRepository query against a mock JDBC connection that answers instantly,
+// so the time measured is what jOOQ adds on top of the database round trip
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryRenderingBenchmark {
+
+    @Param({"true", "false"})
+    private boolean rollupEnabled;
+
+    @Param({"all-time", "one-month"})
+    private String range;
+
+    private AnalyticsRepository analyticsRepository;
+    private DateRangeDTO dateRange;
+
+    @Setup
+    public void setUp() {
+        DSLContext mockContext = DSL.using(SQLDialect.POSTGRES);
+        Result<Record> empty = mockContext.newResult();
+        Result<Record1<BigDecimal>> noAverage = mockContext.newResult(field(name("avg"), BigDecimal.class));
+        noAverage.add(mockContext.newRecord(field(name("avg"), BigDecimal.class)).values((BigDecimal) null));
+
+        // The average order value query always returns exactly one row, everything else gets an empty result
+        MockDataProvider provider = context -> new MockResult[]{
+                context.sql().startsWith("select avg(") ? new MockResult(1, noAverage) : new MockResult(0, empty)
+        };
+
+        DSLContext context = DSL.using(new MockConnection(provider), SQLDialect.POSTGRES,
+                new Settings().withExecuteLogging(false));
+        analyticsRepository = new AnalyticsRepository(context, new RollupRepository(context, false), rollupEnabled, false, false);
+        dateRange = "all-time".equals(range)
+                ? DateRangeDTO.ALL_TIME
+                : new DateRangeDTO(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31));
+    }
+
+    @Benchmark
+    public Result<Record2<String, Long>> salesByCategory() {
+        return analyticsRepository.getSalesByCategory(dateRange);
+    }
+
+    @Benchmark
+    public Result<Record3<Integer, String, BigDecimal>> topSellingProducts() {
+        return analyticsRepository.getTopSellingProducts(10, dateRange);
+    }
+
+    @Benchmark
+    public Result<Record4<Integer, String, String, Long>> topSpenders() {
+        return analyticsRepository.getTopSpenders(10, dateRange);
+    }
+
+    @Benchmark
+    public Result<Record2<String, Long>> orderCountByStatusName() {
+        return analyticsRepository.getOrderCountByStatusName(dateRange);
+    }
+
+    @Benchmark
+    public Record1<BigDecimal> averageOrderValue() {
+        return analyticsRepository.getAverageOrderValue(dateRange);
+    }
+
+    @Benchmark
+    public Result<Record5<Integer, String, String, BigDecimal, Integer>> productRankByCategory() {
+        return analyticsRepository.getProductRankByCategory(10);
+    }
+}
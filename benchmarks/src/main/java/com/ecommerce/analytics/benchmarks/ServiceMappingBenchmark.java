@@ -0,0 +1,112 @@
+package com.ecommerce.analytics.benchmarks;
+
+import com.ecommerce.analytics.admission.DatabaseAdmissionLimiter;
+import com.ecommerce.analytics.dto.*;
+import com.ecommerce.analytics.ranking.CategoryRankIndex;
+import com.ecommerce.analytics.repository.AnalyticsRepository;
+import com.ecommerce.analytics.service.AnalyticsEngine;
+import com.ecommerce.analytics.service.AnalyticsService;
+import com.ecommerce.analytics.sketch.OrderValueDigests;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jooq.Record2;
+import org.jooq.Record3;
+import org.jooq.Record4;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Record to DTO mapping in AnalyticsService, the repository hands back prebuilt results so no query runs
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceMappingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    private AnalyticsService analyticsService;
+
+    @Setup
+    public void setUp() {
+        FixedResultRepository repository = new FixedResultRepository(
+                BenchmarkData.salesByCategory(size),
+                BenchmarkData.topSellingProducts(size),
+                BenchmarkData.topSpenders(size),
+                BenchmarkData.statusSummary(size));
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        analyticsService = new AnalyticsService(repository,
+                new DatabaseAdmissionLimiter(new SimpleMeterRegistry(), 2, 10, 1000, 20, Duration.ofSeconds(5)),
+                beanFactory.getBeanProvider(AnalyticsEngine.class),
+                beanFactory.getBeanProvider(OrderValueDigests.class),
+                beanFactory.getBeanProvider(CategoryRankIndex.class));
+    }
+
+    @Benchmark
+    public List<SalesByCategoryDTO> salesByCategory() {
+        return analyticsService.getSalesByCategory(DateRangeDTO.ALL_TIME);
+    }
+
+    @Benchmark
+    public List<TopSellingProductsDTO> topSellingProducts() {
+        return analyticsService.getTopSellingProducts(size, DateRangeDTO.ALL_TIME);
+    }
+
+    @Benchmark
+    public List<TopSendersDTO> topSenders() {
+        return analyticsService.getTopSenders(size, DateRangeDTO.ALL_TIME);
+    }
+
+    @Benchmark
+    public List<StatusSummaryDTO> statusSummary() {
+        return analyticsService.getOrderCountByStatusName(DateRangeDTO.ALL_TIME);
+    }
+
+    private static class FixedResultRepository extends AnalyticsRepository {
+
+        private final Result<Record2<String, Long>> salesByCategory;
+        private final Result<Record3<Integer, String, BigDecimal>> topSellingProducts;
+        private final Result<Record4<Integer, String, String, Long>> topSpenders;
+        private final Result<Record2<String, Long>> statusSummary;
+
+        FixedResultRepository(Result<Record2<String, Long>> salesByCategory,
+                              Result<Record3<Integer, String, BigDecimal>> topSellingProducts,
+                              Result<Record4<Integer, String, String, Long>> topSpenders,
+                              Result<Record2<String, Long>> statusSummary) {
+            super(DSL.using(SQLDialect.POSTGRES), null, false, false, false);
+            this.salesByCategory = salesByCategory;
+            this.topSellingProducts = topSellingProducts;
+            this.topSpenders = topSpenders;
+            this.statusSummary = statusSummary;
+        }
+
+        @Override
+        public Result<Record2<String, Long>> getSalesByCategory(DateRangeDTO range) {
+            return salesByCategory;
+        }
+
+        @Override
+        public Result<Record3<Integer, String, BigDecimal>> getTopSellingProducts(int limit, DateRangeDTO range) {
+            return topSellingProducts;
+        }
+
+        @Override
+        public Result<Record4<Integer, String, String, Long>> getTopSpenders(int limit, DateRangeDTO range) {
+            return topSpenders;
+        }
+
+        @Override
+        public Result<Record2<String, Long>> getOrderCountByStatusName(DateRangeDTO range) {
+            return statusSummary;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.ecommerce.analytics.benchmarks;
+
+import com.ecommerce.analytics.util.ValidationUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Every limited endpoint normalizes its limit, one case per branch of validateAndNormalizeLimit
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    @Param({"null", "-1", "5", "1000"})
+    private String limit;
+
+    private Integer value;
+
+    @Setup
+    public void setUp() {
+        value = "null".equals(limit) ? null : Integer.valueOf(limit);
+    }
+
+    @Benchmark
+    public int validateAndNormalizeLimit() {
+        return ValidationUtils.validateAndNormalizeLimit(value);
+    }
+}
@@ -0,0 +1,7 @@
+package com.ecommerce.analytics.admission;
+
+// Order in which queued queries are given a freed slot, and in which they are shed when the queues fill up
+public enum AdmissionPriority {
+    CHEAP,
+    EXPENSIVE
+}
@@ -0,0 +1,309 @@
+package com.ecommerce.analytics.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import static com.ecommerce.analytics.constants.AnalyticsConstants.DATABASE_OVERLOADED_ERROR;
+
+// A counting semaphore in front of the analytics queries whose size adapts to query latency, at most the connection
+// pool. With virtual threads a request costs no platform thread while it waits here instead of on the pool. Callers
+// queue per endpoint, a freed slot goes to cheap queries first and to the next endpoint of a class in turn, so a
+// burst on one endpoint cannot hold up the others. A caller whose class already has a full queue, or who has waited
+// max-queue-time without a slot, is shed with a 503. Only calls that query the database belong here, their latency
+// is what sizes the limit
+@Component
+public class DatabaseAdmissionLimiter {
+
+    // Gradient limit: the limit shrinks by the ratio of the long-run latency to the latest one, at most by half
+    // per sample, and grows by half its square root while latency holds, smoothed over several samples
+    private static final double LONG_RTT_WINDOW = 100;
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double SMOOTHING = 0.2;
+
+    private static final class Waiter {
+
+        private final Condition admitted;
+        private boolean granted;
+
+        private Waiter(Condition admitted) {
+            this.admitted = admitted;
+        }
+    }
+
+    private static final class Waiting {
+
+        private final Map<String, Queue<Waiter>> byEndpoint = new HashMap<>();
+        // Endpoints with waiters, in the order they are next given a slot
+        private final Queue<String> turns = new ArrayDeque<>();
+        private final int capacity;
+        private int size;
+
+        private Waiting(int capacity) {
+            this.capacity = capacity;
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> waitTimes = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rejections = new ConcurrentHashMap<>();
+
+    // Not a synchronized monitor, a virtual thread blocked on one pins its carrier thread on Java 21
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<AdmissionPriority, Waiting> waiting = new EnumMap<>(AdmissionPriority.class);
+    private final int minLimit;
+    private final int maxLimit;
+    private final long maxQueueNanos;
+    private double estimatedLimit;
+    private double longRttNanos;
+    private int active;
+
+    public DatabaseAdmissionLimiter(MeterRegistry meterRegistry,
+                                    @Value("${app.analytics.db.admission.min-limit}") int minLimit,
+                                    @Value("${app.analytics.db.max-concurrent-queries}") int maxLimit,
+                                    @Value("${app.analytics.db.admission.max-queued}") int maxQueued,
+                                    @Value("${app.analytics.db.admission.max-queued-expensive}") int maxQueuedExpensive,
+                                    @Value("${app.analytics.db.admission.max-queue-time}") Duration maxQueueTime) {
+        this.meterRegistry = meterRegistry;
+        this.minLimit = Math.min(minLimit, maxLimit);
+        this.maxLimit = maxLimit;
+        this.maxQueueNanos = maxQueueTime.toNanos();
+        this.estimatedLimit = maxLimit;
+        waiting.put(AdmissionPriority.CHEAP, new Waiting(maxQueued));
+        waiting.put(AdmissionPriority.EXPENSIVE, new Waiting(maxQueuedExpensive));
+
+        meterRegistry.gauge("analytics.db.admission.limit", this, DatabaseAdmissionLimiter::limit);
+        meterRegistry.gauge("analytics.db.admission.active", this, DatabaseAdmissionLimiter::active);
+        for (AdmissionPriority priority : AdmissionPriority.values()) {
+            meterRegistry.gauge("analytics.db.admission.queued", Tags.of("priority", tag(priority)),
+                    this, limiter -> limiter.queued(priority));
+        }
+    }
+
+    public <T> T call(String endpoint, AdmissionPriority priority, Supplier<T> query) {
+        int inFlight = acquire(endpoint, priority);
+        long started = System.nanoTime();
+        T result;
+        try {
+            result = query.get();
+        } catch (RuntimeException | Error e) {
+            // A query that failed, often before reaching the database, says nothing about its latency
+            release();
+            throw e;
+        }
+        release(System.nanoTime() - started, inFlight);
+        return result;
+    }
+
+    // Queries running once this one is admitted, itself included
+    private int acquire(String endpoint, AdmissionPriority priority) {
+        long started = System.nanoTime();
+        lock.lock();
+        try {
+            // Queued callers go first, a newcomer only takes a free slot when nobody is waiting for one
+            if (active < currentLimit() && queued() == 0) {
+                active++;
+            } else {
+                await(endpoint, priority);
+            }
+            waitTime(endpoint).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void await(String endpoint, AdmissionPriority priority) {
+        Waiting queue = waiting.get(priority);
+        if (queue.size >= queue.capacity) {
+            throw reject(endpoint, priority);
+        }
+
+        Waiter waiter = new Waiter(lock.newCondition());
+        queue.byEndpoint.computeIfAbsent(endpoint, key -> {
+            queue.turns.add(key);
+            return new ArrayDeque<>();
+        }).add(waiter);
+        queue.size++;
+
+        // The slot is handed over by release. A caller that runs out of time, or is interrupted, leaves the queue
+        // unless release got to it first
+        long remainingNanos = maxQueueNanos;
+        boolean interrupted = false;
+        try {
+            while (!waiter.granted) {
+                if (remainingNanos <= 0 || interrupted) {
+                    withdraw(queue, endpoint, waiter);
+                    throw reject(endpoint, priority);
+                }
+                try {
+                    remainingNanos = waiter.admitted.awaitNanos(remainingNanos);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void withdraw(Waiting queue, String endpoint, Waiter waiter) {
+        Queue<Waiter> waiters = queue.byEndpoint.get(endpoint);
+        waiters.remove(waiter);
+        if (waiters.isEmpty()) {
+            queue.byEndpoint.remove(endpoint);
+            queue.turns.remove(endpoint);
+        }
+        queue.size--;
+    }
+
+    private ResponseStatusException reject(String endpoint, AdmissionPriority priority) {
+        rejections.computeIfAbsent(endpoint, key -> meterRegistry.counter("analytics.db.admission.rejected",
+                "endpoint", key, "priority", tag(priority))).increment();
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, DATABASE_OVERLOADED_ERROR);
+    }
+
+    private void release(long rttNanos, int inFlight) {
+        lock.lock();
+        try {
+            active--;
+            adjustLimit(rttNanos, inFlight);
+            admitWaiters();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            active--;
+            admitWaiters();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A grown limit admits several waiters at once, a shrunk one none until enough queries finish
+    private void admitWaiters() {
+        while (active < currentLimit()) {
+            Waiter next = nextWaiter();
+            if (next == null) {
+                break;
+            }
+            active++;
+            next.granted = true;
+            next.admitted.signal();
+        }
+    }
+
+    private void adjustLimit(long sampleNanos, int inFlight) {
+        double rttNanos = Math.max(sampleNanos, 1);
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+        } else {
+            longRttNanos += (rttNanos - longRttNanos) / LONG_RTT_WINDOW;
+        }
+        // Back from an overload the long-run latency is still inflated, let it catch up faster
+        if (longRttNanos / rttNanos > 2) {
+            longRttNanos *= 0.95;
+        }
+
+        // A query that ran well below the limit says nothing about how far the limit can go
+        if (inFlight < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, RTT_TOLERANCE * longRttNanos / rttNanos));
+        // Scaled like the gradient's floor, so that headroom stays below what the floor takes off down to a limit of
+        // one. A whole square root would balance it at four, and no min-limit below that could be reached
+        double headroom = MIN_GRADIENT * Math.sqrt(estimatedLimit);
+        double target = estimatedLimit * gradient + headroom;
+        estimatedLimit = Math.clamp(estimatedLimit * (1 - SMOOTHING) + target * SMOOTHING, minLimit, maxLimit);
+    }
+
+    private Waiter nextWaiter() {
+        for (Waiting queue : waiting.values()) {
+            String endpoint = queue.turns.poll();
+            if (endpoint == null) {
+                continue;
+            }
+            Queue<Waiter> waiters = queue.byEndpoint.get(endpoint);
+            Waiter next = waiters.poll();
+            if (waiters.isEmpty()) {
+                queue.byEndpoint.remove(endpoint);
+            } else {
+                queue.turns.add(endpoint);
+            }
+            queue.size--;
+            return next;
+        }
+        return null;
+    }
+
+    private int currentLimit() {
+        return (int) estimatedLimit;
+    }
+
+    private int queued() {
+        int queued = 0;
+        for (Waiting queue : waiting.values()) {
+            queued += queue.size;
+        }
+        return queued;
+    }
+
+    private Timer waitTime(String endpoint) {
+        return waitTimes.computeIfAbsent(endpoint, key -> meterRegistry.timer("analytics.db.admission.wait", "endpoint", key));
+    }
+
+    private int limit() {
+        lock.lock();
+        try {
+            return currentLimit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int active() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int queued(AdmissionPriority priority) {
+        lock.lock();
+        try {
+            return waiting.get(priority).size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String tag(AdmissionPriority priority) {
+        return priority.name().toLowerCase();
+    }
+}
@@ -0,0 +1,216 @@
+package com.ecommerce.analytics.cdc;
+
+import com.ecommerce.analytics.dto.*;
+import com.ecommerce.analytics.service.AnalyticsEngine;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+@Component
+@ConditionalOnProperty(name = "app.analytics.engine", havingValue = "cdc")
+public class CdcAnalyticsEngine implements AnalyticsEngine, PgOutputDecoder.Listener {
+
+    // Only held while a committed transaction is folded in, the replication thread reads and decodes it unlocked
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile LiveAggregates aggregates;
+    // Changes of the open transaction, only touched by the replication thread
+    private List<Consumer<LiveAggregates>> pending;
+    private boolean skipTransaction;
+
+    void restore(LiveAggregates restored) {
+        lock.writeLock().lock();
+        try {
+            aggregates = restored;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Nothing of the open transaction has reached the aggregates yet, the slot replays it after a reconnect
+    void abort() {
+        pending = null;
+    }
+
+    <T> T snapshot(Supplier<T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    boolean isInTransaction() {
+        return pending != null;
+    }
+
+    LiveAggregates getAggregates() {
+        return aggregates;
+    }
+
+    @Override
+    public boolean isReady() {
+        return aggregates != null;
+    }
+
+    @Override
+    public List<SalesByCategoryDTO> getSalesByCategory() {
+        return snapshot(() -> aggregates.getSalesByCategory());
+    }
+
+    @Override
+    public List<TopSellingProductsDTO> getTopSellingProducts(int limit) {
+        return snapshot(() -> aggregates.getTopSellingProducts(limit));
+    }
+
+    @Override
+    public List<TopSendersDTO> getTopSenders(int limit) {
+        return snapshot(() -> aggregates.getTopSenders(limit));
+    }
+
+    @Override
+    public List<StatusSummaryDTO> getOrderCountByStatusName() {
+        return snapshot(() -> aggregates.getOrderCountByStatusName());
+    }
+
+    @Override
+    public AverageOrderValueDTO getAverageOrderValue() {
+        return snapshot(() -> aggregates.getAverageOrderValue());
+    }
+
+    @Override
+    public void begin(long finalLsn) {
+        pending = new ArrayList<>();
+        // After a reconnect the slot replays everything past the last flushed checkpoint
+        skipTransaction = finalLsn < aggregates.getLastCommitLsn();
+    }
+
+    @Override
+    public void commit(long endLsn) {
+        List<Consumer<LiveAggregates>> changes = pending;
+        pending = null;
+        if (skipTransaction) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            changes.forEach(change -> change.accept(aggregates));
+            aggregates.commit(endLsn);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void insert(String table, Map<String, String> newRow) {
+        if (skipTransaction) {
+            return;
+        }
+        switch (table) {
+            case "order_statuses" -> {
+                int id = intValue(newRow, "id");
+                String name = newRow.get("status_name");
+                pending.add(aggregates -> aggregates.putStatus(id, name));
+            }
+            case "products" -> {
+                int id = intValue(newRow, "id");
+                String name = newRow.get("name");
+                String category = newRow.get("category");
+                pending.add(aggregates -> aggregates.putProduct(id, name, category));
+            }
+            case "customers" -> {
+                int id = intValue(newRow, "id");
+                String email = newRow.get("email");
+                String firstName = newRow.get("first_name");
+                String lastName = newRow.get("last_name");
+                pending.add(aggregates -> aggregates.putCustomer(id, email, firstName, lastName));
+            }
+            case "orders" -> {
+                int id = intValue(newRow, "id");
+                Integer customerId = integerValue(newRow, "customer_id");
+                int statusId = intValue(newRow, "status_id");
+                pending.add(aggregates -> aggregates.putOrder(id, customerId, statusId));
+            }
+            case "order_items" -> applyItem(newRow, 1);
+            default -> {
+                // not part of the publication
+            }
+        }
+    }
+
+    @Override
+    public void update(String table, Map<String, String> oldRow, Map<String, String> newRow) {
+        if (skipTransaction) {
+            return;
+        }
+        if (table.equals("order_items")) {
+            applyItem(oldRow, -1);
+            applyItem(newRow, 1);
+        } else {
+            insert(table, newRow);
+        }
+    }
+
+    @Override
+    public void delete(String table, Map<String, String> oldRow) {
+        if (skipTransaction) {
+            return;
+        }
+        switch (table) {
+            case "order_statuses" -> {
+                int id = intValue(oldRow, "id");
+                pending.add(aggregates -> aggregates.removeStatus(id));
+            }
+            case "products" -> {
+                int id = intValue(oldRow, "id");
+                pending.add(aggregates -> aggregates.removeProduct(id));
+            }
+            case "customers" -> {
+                int id = intValue(oldRow, "id");
+                pending.add(aggregates -> aggregates.removeCustomer(id));
+            }
+            case "orders" -> {
+                int id = intValue(oldRow, "id");
+                pending.add(aggregates -> aggregates.removeOrder(id));
+            }
+            case "order_items" -> applyItem(oldRow, -1);
+            default -> {
+                // not part of the publication
+            }
+        }
+    }
+
+    @Override
+    public void truncate(List<String> tables) {
+        if (!skipTransaction) {
+            List<String> truncated = List.copyOf(tables);
+            pending.add(aggregates -> truncated.forEach(aggregates::truncate));
+        }
+    }
+
+    private void applyItem(Map<String, String> row, int sign) {
+        int orderId = intValue(row, "order_id");
+        Integer productId = integerValue(row, "product_id");
+        int quantity = intValue(row, "quantity");
+        BigDecimal price = new BigDecimal(row.get("price_at_purchase"));
+        pending.add(aggregates -> aggregates.applyItem(orderId, productId, quantity, price, sign));
+    }
+
+    private static int intValue(Map<String, String> row, String column) {
+        return Integer.parseInt(row.get(column));
+    }
+
+    private static Integer integerValue(Map<String, String> row, String column) {
+        String value = row.get(column);
+        return value != null ? Integer.valueOf(value) : null;
+    }
+}
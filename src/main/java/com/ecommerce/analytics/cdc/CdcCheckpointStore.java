@@ -0,0 +1,64 @@
+package com.ecommerce.analytics.cdc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+import static com.ecommerce.analytics.constants.AnalyticsConstants.*;
+
+@Component
+@ConditionalOnProperty(name = "app.analytics.engine", havingValue = "cdc")
+public class CdcCheckpointStore {
+
+    private static final Logger log = LoggerFactory.getLogger(CdcCheckpointStore.class);
+
+    private final Path checkpointFile;
+
+    public CdcCheckpointStore(@Value("${app.analytics.cdc.checkpoint-file}") Path checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+
+    // A truncated file, or one written before LiveAggregates changed shape, can never be read. It is deleted so the
+    // caller bootstraps from a fresh snapshot instead of failing on it forever
+    public Optional<LiveAggregates> read() {
+        if (!Files.exists(checkpointFile)) {
+            return Optional.empty();
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(checkpointFile)))) {
+            return Optional.of((LiveAggregates) in.readObject());
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            log.warn("{} {}, deleting it", CDC_CHECKPOINT_READ_ERROR, checkpointFile, e);
+            delete();
+            return Optional.empty();
+        }
+    }
+
+    // The slot is only advanced after this returns, so a crash mid-write replays from the previous checkpoint
+    public void write(LiveAggregates aggregates) {
+        Path temporaryFile = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try {
+            try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                out.writeObject(aggregates);
+            }
+            Files.move(temporaryFile, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(CDC_CHECKPOINT_WRITE_ERROR, e);
+        }
+    }
+
+    public void delete() {
+        try {
+            Files.deleteIfExists(checkpointFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(CDC_CHECKPOINT_WRITE_ERROR, e);
+        }
+    }
+}
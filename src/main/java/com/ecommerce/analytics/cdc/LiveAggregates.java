@@ -0,0 +1,269 @@
+package com.ecommerce.analytics.cdc;
+
+import com.ecommerce.analytics.dto.*;
+import com.ecommerce.analytics.util.MoneyUtils;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+
+import static com.ecommerce.analytics.constants.AnalyticsConstants.*;
+
+// Mirrors the raw-table analytics queries, folded one row change at a time. Not thread safe, see CdcAnalyticsEngine.
+public class LiveAggregates implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 2L;
+
+    private record ProductInfo(String name, String category, boolean deleted) implements Serializable {
+    }
+
+    private record CustomerInfo(String email, String firstName, String lastName) {
+    }
+
+    private static final class OrderInfo implements Serializable {
+        private Integer customerId;
+        private int statusId;
+        private long itemCount;
+        private BigDecimal spend = BigDecimal.ZERO;
+        private BigDecimal total = BigDecimal.ZERO;
+    }
+
+    private final Map<Integer, String> statuses = new HashMap<>();
+    private final Map<Integer, ProductInfo> products = new HashMap<>();
+    // Contact details are not checkpointed, they are read back from customers on restore, see LogicalReplicationConsumer
+    private transient Map<Integer, CustomerInfo> customers = new HashMap<>();
+    private final Map<Integer, OrderInfo> orders = new HashMap<>();
+    private final Map<Integer, Long> statusCounts = new HashMap<>();
+    private final Map<Integer, BigDecimal> productSales = new HashMap<>();
+    private final RankedTotals<Integer> productQuantities = new RankedTotals<>();
+    private final RankedTotals<String> categorySales = new RankedTotals<>();
+    private final RankedTotals<Integer> customerSpend = new RankedTotals<>();
+    private BigDecimal orderTotalSum = BigDecimal.ZERO;
+    private long ordersWithItems;
+    // End of the last applied commit record, the position replication resumes from
+    private long lastCommitLsn;
+
+    public void putStatus(int id, String name) {
+        statuses.put(id, name);
+    }
+
+    public void removeStatus(int id) {
+        statuses.remove(id);
+    }
+
+    public void putProduct(int id, String name, String category) {
+        ProductInfo previous = products.put(id, new ProductInfo(name, category, false));
+
+        if (previous != null && !previous.category().equals(category)) {
+            BigDecimal sales = productSales.getOrDefault(id, BigDecimal.ZERO);
+            long items = productQuantities.count(id);
+            categorySales.add(previous.category(), sales.negate(), -items);
+            categorySales.add(category, sales, items);
+        }
+    }
+
+    public void removeProduct(int id) {
+        // Its order items are set to NULL right after the delete and still need the category, see commit()
+        products.computeIfPresent(id, (key, product) -> new ProductInfo(product.name(), product.category(), true));
+    }
+
+    public void putCustomer(int id, String email, String firstName, String lastName) {
+        customers.put(id, new CustomerInfo(email, firstName, lastName));
+    }
+
+    public void removeCustomer(int id) {
+        customers.remove(id);
+    }
+
+    public void putOrder(int id, Integer customerId, int statusId) {
+        OrderInfo order = orders.get(id);
+
+        if (order == null) {
+            order = new OrderInfo();
+            order.customerId = customerId;
+            order.statusId = statusId;
+            orders.put(id, order);
+            statusCounts.merge(statusId, 1L, Long::sum);
+            return;
+        }
+
+        if (!Objects.equals(order.customerId, customerId)) {
+            if (order.customerId != null) {
+                customerSpend.add(order.customerId, order.spend.negate(), -order.itemCount);
+            }
+            if (customerId != null) {
+                customerSpend.add(customerId, order.spend, order.itemCount);
+            }
+            order.customerId = customerId;
+        }
+
+        if (order.statusId != statusId) {
+            decrementStatus(order.statusId);
+            statusCounts.merge(statusId, 1L, Long::sum);
+            order.statusId = statusId;
+        }
+    }
+
+    public void removeOrder(int id) {
+        OrderInfo order = orders.remove(id);
+        if (order == null) {
+            return;
+        }
+
+        decrementStatus(order.statusId);
+        if (order.customerId != null) {
+            customerSpend.add(order.customerId, order.spend.negate(), -order.itemCount);
+        }
+        if (order.itemCount > 0) {
+            orderTotalSum = orderTotalSum.subtract(order.total);
+            ordersWithItems--;
+        }
+    }
+
+    public void applyItem(int orderId, Integer productId, int quantity, BigDecimal price, int sign) {
+        BigDecimal signedPrice = sign > 0 ? price : price.negate();
+        BigDecimal lineTotal = signedPrice.multiply(BigDecimal.valueOf(quantity));
+
+        if (productId != null) {
+            productQuantities.add(productId, BigDecimal.valueOf((long) sign * quantity), sign);
+            productSales.merge(productId, lineTotal, BigDecimal::add);
+            if (productQuantities.count(productId) == 0) {
+                productSales.remove(productId);
+            }
+
+            ProductInfo product = products.get(productId);
+            if (product != null) {
+                categorySales.add(product.category(), lineTotal, sign);
+            }
+        }
+
+        // The order is gone when its items arrive as part of an ON DELETE CASCADE, removeOrder() already took them out
+        OrderInfo order = orders.get(orderId);
+        if (order == null) {
+            return;
+        }
+
+        if (order.itemCount > 0) {
+            orderTotalSum = orderTotalSum.subtract(order.total);
+            ordersWithItems--;
+        }
+
+        order.itemCount += sign;
+        order.spend = order.spend.add(signedPrice);
+        order.total = order.total.add(lineTotal);
+
+        if (order.itemCount > 0) {
+            orderTotalSum = orderTotalSum.add(order.total);
+            ordersWithItems++;
+        }
+
+        if (order.customerId != null) {
+            customerSpend.add(order.customerId, signedPrice, sign);
+        }
+    }
+
+    public void truncate(String table) {
+        switch (table) {
+            case "order_items" -> {
+                productQuantities.clear();
+                productSales.clear();
+                categorySales.clear();
+                customerSpend.clear();
+                orders.values().forEach(order -> {
+                    order.itemCount = 0;
+                    order.spend = BigDecimal.ZERO;
+                    order.total = BigDecimal.ZERO;
+                });
+                orderTotalSum = BigDecimal.ZERO;
+                ordersWithItems = 0;
+            }
+            case "orders" -> {
+                orders.clear();
+                statusCounts.clear();
+                customerSpend.clear();
+                orderTotalSum = BigDecimal.ZERO;
+                ordersWithItems = 0;
+            }
+            case "products" -> products.clear();
+            case "customers" -> customers.clear();
+            case "order_statuses" -> statuses.clear();
+            default -> {
+                // not part of the publication
+            }
+        }
+    }
+
+    public void commit(long endLsn) {
+        products.entrySet().removeIf(entry -> entry.getValue().deleted() && productQuantities.count(entry.getKey()) == 0);
+        lastCommitLsn = endLsn;
+    }
+
+    public long getLastCommitLsn() {
+        return lastCommitLsn;
+    }
+
+    public List<SalesByCategoryDTO> getSalesByCategory() {
+        return categorySales.top(Integer.MAX_VALUE, category -> true)
+                .stream()
+                .map(total -> new SalesByCategoryDTO(total.key(), MoneyUtils.toCents(total.value())))
+                .toList();
+    }
+
+    public List<TopSellingProductsDTO> getTopSellingProducts(int limit) {
+        return productQuantities.top(limit, this::isLiveProduct)
+                .stream()
+                .map(total -> new TopSellingProductsDTO(
+                        total.key(),
+                        products.get(total.key()).name(),
+                        total.value().longValue()))
+                .toList();
+    }
+
+    public List<TopSendersDTO> getTopSenders(int limit) {
+        return customerSpend.top(limit, customers::containsKey)
+                .stream()
+                .map(total -> {
+                    CustomerInfo customer = customers.get(total.key());
+                    String fullName = customer.firstName() + " " + customer.lastName();
+                    return new TopSendersDTO(total.key(), customer.email(), fullName, MoneyUtils.toCents(total.value()));
+                })
+                .toList();
+    }
+
+    public List<StatusSummaryDTO> getOrderCountByStatusName() {
+        return statusCounts.entrySet()
+                .stream()
+                .filter(entry -> statuses.containsKey(entry.getKey()))
+                .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed())
+                .map(entry -> new StatusSummaryDTO(statuses.get(entry.getKey()), entry.getValue()))
+                .toList();
+    }
+
+    public AverageOrderValueDTO getAverageOrderValue() {
+        if (ordersWithItems == 0) {
+            return new AverageOrderValueDTO(null);
+        }
+        return new AverageOrderValueDTO(orderTotalSum.divide(
+                BigDecimal.valueOf(ordersWithItems), AVERAGE_ORDER_VALUE_SCALE, RoundingMode.HALF_UP));
+    }
+
+    private boolean isLiveProduct(int productId) {
+        ProductInfo product = products.get(productId);
+        return product != null && !product.deleted();
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        customers = new HashMap<>();
+    }
+
+    private void decrementStatus(int statusId) {
+        statusCounts.computeIfPresent(statusId, (key, count) -> count == 1 ? null : count - 1);
+    }
+}
@@ -0,0 +1,262 @@
+package com.ecommerce.analytics.cdc;
+
+import org.jooq.*;
+import org.jooq.impl.DSL;
+import org.postgresql.PGConnection;
+import org.postgresql.PGProperty;
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.replication.PGReplicationStream;
+import org.postgresql.replication.ReplicationSlotInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static com.ecommerce.analytics.jooq.Tables.*;
+import static org.jooq.impl.DSL.*;
+
+@Component
+@ConditionalOnProperty(name = "app.analytics.engine", havingValue = "cdc")
+public class LogicalReplicationConsumer implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(LogicalReplicationConsumer.class);
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(10);
+    private static final Duration RETRY_INTERVAL = Duration.ofSeconds(5);
+    private static final int BOOTSTRAP_FETCH_SIZE = 10_000;
+
+    private final DSLContext context;
+    private final DataSource dataSource;
+    private final CdcAnalyticsEngine engine;
+    private final CdcCheckpointStore checkpointStore;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final String slotName;
+    private final String publicationName;
+    private final Duration checkpointInterval;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public LogicalReplicationConsumer(DSLContext context,
+                                      DataSource dataSource,
+                                      CdcAnalyticsEngine engine,
+                                      CdcCheckpointStore checkpointStore,
+                                      @Value("${spring.datasource.url}") String url,
+                                      @Value("${spring.datasource.username}") String username,
+                                      @Value("${spring.datasource.password}") String password,
+                                      @Value("${app.analytics.cdc.slot-name}") String slotName,
+                                      @Value("${app.analytics.cdc.publication-name}") String publicationName,
+                                      @Value("${app.analytics.cdc.checkpoint-interval}") Duration checkpointInterval) {
+        this.context = context;
+        this.dataSource = dataSource;
+        this.engine = engine;
+        this.checkpointStore = checkpointStore;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.slotName = slotName;
+        this.publicationName = publicationName;
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        worker = new Thread(this::run, "cdc-" + slotName);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (worker == null) {
+            return;
+        }
+        try {
+            worker.join(RETRY_INTERVAL.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        while (running) {
+            try (Connection connection = openReplicationConnection()) {
+                LogSequenceNumber startPosition = restoreOrBootstrap(connection.unwrap(PGConnection.class));
+                stream(connection.unwrap(PGConnection.class), startPosition);
+            } catch (Exception e) {
+                engine.abort();
+                log.error("Logical replication from slot {} failed, retrying in {}", slotName, RETRY_INTERVAL, e);
+                sleep(RETRY_INTERVAL);
+            }
+        }
+    }
+
+    private LogSequenceNumber restoreOrBootstrap(PGConnection connection) throws SQLException {
+        boolean slotExists = context.fetchExists(
+                table(name("pg_replication_slots")),
+                field(name("slot_name")).eq(slotName));
+        LiveAggregates checkpoint = slotExists ? checkpointStore.read().orElse(null) : null;
+
+        if (checkpoint != null) {
+            // Rows changed since the checkpoint are current already and replaying their changes puts them again
+            loadCustomers(context, checkpoint);
+            engine.restore(checkpoint);
+            log.info("Resuming slot {} from checkpoint at {}", slotName, LogSequenceNumber.valueOf(checkpoint.getLastCommitLsn()));
+            return LogSequenceNumber.valueOf(checkpoint.getLastCommitLsn());
+        }
+
+        // Without a matching checkpoint the slot position is meaningless, start over from a consistent snapshot
+        if (slotExists) {
+            context.select(function("pg_drop_replication_slot", Object.class, val(slotName))).fetch();
+        }
+        if (!context.fetchExists(table(name("pg_publication")), field(name("pubname")).eq(publicationName))) {
+            // Partitioned tables publish their changes under the parent name, see db/partition_orders_by_month.sql
+            context.execute("CREATE PUBLICATION {0} FOR TABLE {1} WITH (publish_via_partition_root = true)",
+                    name(publicationName),
+                    list(ORDER_STATUSES, PRODUCTS, CUSTOMERS, ORDERS, ORDER_ITEMS));
+        }
+
+        ReplicationSlotInfo slot = connection.getReplicationAPI()
+                .createReplicationSlot()
+                .logical()
+                .withSlotName(slotName)
+                .withOutputPlugin("pgoutput")
+                .make();
+
+        LiveAggregates aggregates = bootstrap(slot.getSnapshotName());
+        aggregates.commit(slot.getConsistentPoint().asLong());
+        checkpointStore.write(aggregates);
+        engine.restore(aggregates);
+        log.info("Bootstrapped slot {} at {}", slotName, slot.getConsistentPoint());
+
+        return slot.getConsistentPoint();
+    }
+
+    // Reads every table once inside the snapshot exported by the new slot, nothing is re-scanned after this
+    private LiveAggregates bootstrap(String snapshotName) throws SQLException {
+        LiveAggregates aggregates = new LiveAggregates();
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            DSLContext snapshot = DSL.using(connection, SQLDialect.POSTGRES);
+            snapshot.execute("SET TRANSACTION SNAPSHOT {0}", inline(snapshotName));
+
+            snapshot.selectFrom(ORDER_STATUSES)
+                    .forEach(status -> aggregates.putStatus(status.getId(), status.getStatusName()));
+            snapshot.selectFrom(PRODUCTS)
+                    .forEach(product -> aggregates.putProduct(product.getId(), product.getName(), product.getCategory()));
+
+            loadCustomers(snapshot, aggregates);
+
+            try (Cursor<Record3<Integer, Integer, Integer>> orders = snapshot
+                    .select(ORDERS.ID, ORDERS.CUSTOMER_ID, ORDERS.STATUS_ID)
+                    .from(ORDERS)
+                    .fetchSize(BOOTSTRAP_FETCH_SIZE)
+                    .fetchLazy()) {
+                orders.forEach(order -> aggregates.putOrder(order.value1(), order.value2(), order.value3()));
+            }
+
+            try (Cursor<Record4<Integer, Integer, Integer, BigDecimal>> items = snapshot
+                    .select(ORDER_ITEMS.ORDER_ID, ORDER_ITEMS.PRODUCT_ID, ORDER_ITEMS.QUANTITY, ORDER_ITEMS.PRICE_AT_PURCHASE)
+                    .from(ORDER_ITEMS)
+                    .fetchSize(BOOTSTRAP_FETCH_SIZE)
+                    .fetchLazy()) {
+                items.forEach(item -> aggregates.applyItem(item.value1(), item.value2(), item.value3(), item.value4(), 1));
+            }
+
+            connection.commit();
+        }
+
+        return aggregates;
+    }
+
+    private void loadCustomers(DSLContext snapshot, LiveAggregates aggregates) {
+        try (Cursor<Record4<Integer, String, String, String>> customers = snapshot
+                .select(CUSTOMERS.ID, CUSTOMERS.EMAIL, CUSTOMERS.FIRST_NAME, CUSTOMERS.LAST_NAME)
+                .from(CUSTOMERS)
+                .fetchSize(BOOTSTRAP_FETCH_SIZE)
+                .fetchLazy()) {
+            customers.forEach(customer -> aggregates.putCustomer(
+                    customer.value1(), customer.value2(), customer.value3(), customer.value4()));
+        }
+    }
+
+    private void stream(PGConnection connection, LogSequenceNumber startPosition) throws SQLException {
+        PgOutputDecoder decoder = new PgOutputDecoder();
+        long lastCheckpoint = System.nanoTime();
+        long checkpointedLsn = startPosition.asLong();
+
+        try (PGReplicationStream stream = connection.getReplicationAPI()
+                .replicationStream()
+                .logical()
+                .withSlotName(slotName)
+                .withSlotOption("proto_version", 1)
+                .withSlotOption("publication_names", publicationName)
+                .withStartPosition(startPosition)
+                .withStatusInterval(10, TimeUnit.SECONDS)
+                .start()) {
+
+            while (running) {
+                ByteBuffer message = stream.readPending();
+                if (message == null) {
+                    sleep(POLL_INTERVAL);
+                } else {
+                    decoder.decode(message, engine);
+                }
+
+                // Only checkpoint between transactions. Readers are not blocked, nothing else writes the aggregates
+                LiveAggregates aggregates = engine.getAggregates();
+                boolean due = System.nanoTime() - lastCheckpoint >= checkpointInterval.toNanos();
+                if ((due || !running) && !engine.isInTransaction() && aggregates.getLastCommitLsn() > checkpointedLsn) {
+                    checkpointStore.write(aggregates);
+                    checkpointedLsn = aggregates.getLastCommitLsn();
+                    stream.setFlushedLSN(LogSequenceNumber.valueOf(checkpointedLsn));
+                    stream.setAppliedLSN(LogSequenceNumber.valueOf(checkpointedLsn));
+                    stream.forceUpdateStatus();
+                    lastCheckpoint = System.nanoTime();
+                }
+            }
+        }
+    }
+
+    private Connection openReplicationConnection() throws SQLException {
+        Properties properties = new Properties();
+        PGProperty.USER.set(properties, username);
+        PGProperty.PASSWORD.set(properties, password);
+        PGProperty.ASSUME_MIN_SERVER_VERSION.set(properties, "10");
+        PGProperty.REPLICATION.set(properties, "database");
+        PGProperty.PREFER_QUERY_MODE.set(properties, "simple");
+        return DriverManager.getConnection(url, properties);
+    }
+
+    private void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.ecommerce.analytics.cdc;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Decodes pgoutput protocol version 1 messages, see "Logical Replication Message Formats" in the PostgreSQL docs
+public class PgOutputDecoder {
+
+    public interface Listener {
+
+        void begin(long finalLsn);
+
+        void commit(long endLsn);
+
+        void insert(String table, Map<String, String> newRow);
+
+        void update(String table, Map<String, String> oldRow, Map<String, String> newRow);
+
+        void delete(String table, Map<String, String> oldRow);
+
+        void truncate(List<String> tables);
+    }
+
+    private record Relation(String name, List<String> columns) {
+    }
+
+    private final Map<Integer, Relation> relations = new HashMap<>();
+
+    public void decode(ByteBuffer buffer, Listener listener) {
+        char type = (char) buffer.get();
+
+        switch (type) {
+            case 'B' -> {
+                long finalLsn = buffer.getLong();
+                listener.begin(finalLsn);
+            }
+            case 'C' -> {
+                buffer.get();
+                buffer.getLong();
+                long endLsn = buffer.getLong();
+                listener.commit(endLsn);
+            }
+            case 'R' -> {
+                int relationId = buffer.getInt();
+                readString(buffer);
+                String name = readString(buffer);
+                buffer.get();
+                int columnCount = buffer.getShort();
+                List<String> columns = new ArrayList<>(columnCount);
+                for (int i = 0; i < columnCount; i++) {
+                    buffer.get();
+                    columns.add(readString(buffer));
+                    buffer.getInt();
+                    buffer.getInt();
+                }
+                relations.put(relationId, new Relation(name, columns));
+            }
+            case 'I' -> {
+                Relation relation = relation(buffer.getInt());
+                buffer.get();
+                listener.insert(relation.name(), readTuple(buffer, relation));
+            }
+            case 'U' -> {
+                Relation relation = relation(buffer.getInt());
+                char kind = (char) buffer.get();
+                Map<String, String> oldRow = null;
+                if (kind == 'K' || kind == 'O') {
+                    oldRow = readTuple(buffer, relation);
+                    buffer.get();
+                }
+                Map<String, String> newRow = readTuple(buffer, relation);
+                listener.update(relation.name(), oldRow != null ? oldRow : newRow, newRow);
+            }
+            case 'D' -> {
+                Relation relation = relation(buffer.getInt());
+                buffer.get();
+                listener.delete(relation.name(), readTuple(buffer, relation));
+            }
+            case 'T' -> {
+                int relationCount = buffer.getInt();
+                buffer.get();
+                List<String> tables = new ArrayList<>(relationCount);
+                for (int i = 0; i < relationCount; i++) {
+                    tables.add(relation(buffer.getInt()).name());
+                }
+                listener.truncate(tables);
+            }
+            default -> {
+                // Origin, type and logical decoding messages carry nothing the aggregates need
+            }
+        }
+    }
+
+    private Relation relation(int relationId) {
+        Relation relation = relations.get(relationId);
+        if (relation == null) {
+            throw new IllegalStateException("Unknown relation id " + relationId);
+        }
+        return relation;
+    }
+
+    private Map<String, String> readTuple(ByteBuffer buffer, Relation relation) {
+        int columnCount = buffer.getShort();
+        Map<String, String> row = new HashMap<>(columnCount * 2);
+        for (int i = 0; i < columnCount; i++) {
+            char kind = (char) buffer.get();
+            if (kind == 't') {
+                byte[] value = new byte[buffer.getInt()];
+                buffer.get(value);
+                row.put(relation.columns().get(i), new String(value, StandardCharsets.UTF_8));
+            } else if (kind == 'n') {
+                row.put(relation.columns().get(i), null);
+            }
+        }
+        return row;
+    }
+
+    private String readString(ByteBuffer buffer) {
+        int start = buffer.position();
+        while (buffer.get() != 0) {
+            // scan to the terminating zero byte
+        }
+        byte[] value = new byte[buffer.position() - start - 1];
+        buffer.get(start, value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,84 @@
+package com.ecommerce.analytics.cdc;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.Predicate;
+
+// Running totals per key, kept in descending order so top-N reads never sort
+class RankedTotals<K extends Comparable<K>> implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    record Total<K>(K key, BigDecimal value, long count) implements Serializable {
+    }
+
+    private final Map<K, Total<K>> totals = new HashMap<>();
+    private transient NavigableSet<Total<K>> ranking = newRanking();
+
+    void add(K key, BigDecimal valueDelta, long countDelta) {
+        Total<K> current = totals.get(key);
+        BigDecimal value = valueDelta;
+        long count = countDelta;
+
+        if (current != null) {
+            ranking.remove(current);
+            value = current.value().add(valueDelta);
+            count = current.count() + countDelta;
+        }
+
+        if (count == 0) {
+            totals.remove(key);
+            return;
+        }
+
+        Total<K> updated = new Total<>(key, value, count);
+        totals.put(key, updated);
+        ranking.add(updated);
+    }
+
+    BigDecimal value(K key) {
+        Total<K> total = totals.get(key);
+        return total != null ? total.value() : BigDecimal.ZERO;
+    }
+
+    long count(K key) {
+        Total<K> total = totals.get(key);
+        return total != null ? total.count() : 0;
+    }
+
+    List<Total<K>> top(int limit, Predicate<K> include) {
+        List<Total<K>> top = new ArrayList<>(Math.min(limit, totals.size()));
+        for (Total<K> total : ranking) {
+            if (top.size() == limit) {
+                break;
+            }
+            if (include.test(total.key())) {
+                top.add(total);
+            }
+        }
+        return top;
+    }
+
+    void clear() {
+        totals.clear();
+        ranking.clear();
+    }
+
+    private NavigableSet<Total<K>> newRanking() {
+        return new TreeSet<>(Comparator
+                .comparing((Total<K> total) -> total.value()).reversed()
+                .thenComparing(Total::key));
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        ranking = newRanking();
+        ranking.addAll(totals.values());
+    }
+}
@@ -0,0 +1,153 @@
+package com.ecommerce.analytics.config;
+
+import com.ecommerce.analytics.dto.*;
+import com.ecommerce.analytics.util.MoneyUtils;
+import com.ecommerce.analytics.util.ProtobufWriter;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+// Answers Accept: application/x-protobuf for the analytics results with the messages of src/main/proto/analytics.proto.
+// Every list is sent as one repeated field per DTO property and money as integer cents, so clients decode varints
+// instead of parsing a decimal string per value
+public class AnalyticsProtobufHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final MediaType APPLICATION_PROTOBUF = new MediaType("application", "x-protobuf");
+
+    // Field numbers and varints of a typical row, only used to size the buffer up front
+    private static final int BYTES_PER_ROW = 32;
+
+    private static final Set<Class<?>> ROW_TYPES = Set.of(
+            SalesByCategoryDTO.class,
+            TopSellingProductsDTO.class,
+            TopSendersDTO.class,
+            StatusSummaryDTO.class,
+            ProductRankByCategoryDTO.class);
+
+    public AnalyticsProtobufHttpMessageConverter() {
+        super(APPLICATION_PROTOBUF);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == AverageOrderValueDTO.class || ROW_TYPES.contains(clazz);
+    }
+
+    // Spring asks with the raw class before the declared type, and a list's row type is only known from the latter
+    @Override
+    public List<MediaType> getSupportedMediaTypes(Class<?> clazz) {
+        return getSupportedMediaTypes();
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return canWrite(mediaType) && bodyType(type, clazz) != null;
+    }
+
+    @Override
+    protected void writeInternal(Object body, Type type, HttpOutputMessage outputMessage) throws IOException {
+        Class<?> bodyType = bodyType(type, body.getClass());
+        if (bodyType == List.class) {
+            bodyType = rowType((List<?>) body);
+        }
+        outputMessage.getBody().write(encode(body, bodyType));
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Protobuf request bodies are not supported", inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Protobuf request bodies are not supported", inputMessage);
+    }
+
+    // The row type of a list body, or the DTO type itself. Taken from the declared type since lists can be empty, a
+    // list declared without a row type comes back as List and is told apart by its rows
+    private static Class<?> bodyType(Type type, Class<?> clazz) {
+        ResolvableType resolved = type != null ? ResolvableType.forType(type) : ResolvableType.forClass(clazz);
+        Class<?> rawType = resolved.resolve(clazz);
+        if (rawType == AverageOrderValueDTO.class) {
+            return rawType;
+        }
+        if (rawType != null && List.class.isAssignableFrom(rawType)) {
+            Class<?> rowType = resolved.asCollection().resolveGeneric(0);
+            if (rowType == null || rowType == Object.class) {
+                return List.class;
+            }
+            return ROW_TYPES.contains(rowType) ? rowType : null;
+        }
+        return null;
+    }
+
+    // Every message of an empty list is the same empty one, whichever row type it is encoded as
+    private static Class<?> rowType(List<?> rows) {
+        Class<?> rowType = rows.isEmpty() ? SalesByCategoryDTO.class : rows.get(0).getClass();
+        if (!ROW_TYPES.contains(rowType)) {
+            throw new HttpMessageNotWritableException("No protobuf message for rows of " + rowType.getName());
+        }
+        return rowType;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static byte[] encode(Object body, Class<?> bodyType) {
+        if (bodyType == AverageOrderValueDTO.class) {
+            ProtobufWriter out = new ProtobufWriter(BYTES_PER_ROW);
+            BigDecimal averageOrderValue = ((AverageOrderValueDTO) body).getAverageOrderValue();
+            // Left out without orders in the range, proto3 optional tells that apart from zero
+            if (averageOrderValue != null) {
+                out.writeSint64(1, MoneyUtils.toCents(averageOrderValue));
+            }
+            return out.toByteArray();
+        }
+
+        List<?> rows = (List<?>) body;
+        ProtobufWriter out = new ProtobufWriter(rows.size() * BYTES_PER_ROW);
+        if (bodyType == SalesByCategoryDTO.class) {
+            List<SalesByCategoryDTO> sales = (List<SalesByCategoryDTO>) rows;
+            out.writeRepeatedString(1, sales, SalesByCategoryDTO::getCategory);
+            out.writePackedSint64(2, sales, SalesByCategoryDTO::getTotalSales);
+        } else if (bodyType == TopSellingProductsDTO.class) {
+            List<TopSellingProductsDTO> products = (List<TopSellingProductsDTO>) rows;
+            out.writePackedInt64(1, products, TopSellingProductsDTO::getProductId);
+            out.writeRepeatedString(2, products, TopSellingProductsDTO::getProductName);
+            out.writePackedInt64(3, products, TopSellingProductsDTO::getTotalQuantitySold);
+        } else if (bodyType == TopSendersDTO.class) {
+            List<TopSendersDTO> spenders = (List<TopSendersDTO>) rows;
+            out.writePackedInt64(1, spenders, TopSendersDTO::getCustomerId);
+            out.writeRepeatedString(2, spenders, TopSendersDTO::getEmail);
+            out.writeRepeatedString(3, spenders, TopSendersDTO::getFullName);
+            out.writePackedSint64(4, spenders, TopSendersDTO::getTotalSpend);
+        } else if (bodyType == StatusSummaryDTO.class) {
+            List<StatusSummaryDTO> statuses = (List<StatusSummaryDTO>) rows;
+            out.writeRepeatedString(1, statuses, StatusSummaryDTO::getStatusName);
+            out.writePackedInt64(2, statuses, StatusSummaryDTO::getOrderCount);
+        } else if (bodyType == ProductRankByCategoryDTO.class) {
+            List<ProductRankByCategoryDTO> ranks = (List<ProductRankByCategoryDTO>) rows;
+            out.writePackedInt64(1, ranks, ProductRankByCategoryDTO::getProductId);
+            out.writeRepeatedString(2, ranks, ProductRankByCategoryDTO::getProductName);
+            out.writeRepeatedString(3, ranks, ProductRankByCategoryDTO::getCategory);
+            out.writePackedInt64(4, ranks, row -> row.getTotalQuantitySold().longValue());
+            out.writePackedInt64(5, ranks, ProductRankByCategoryDTO::getCategoryRank);
+        } else {
+            throw new IllegalArgumentException("No protobuf message for " + bodyType);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,17 @@
+package com.ecommerce.analytics.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Map;
+
+// Named API keys besides app.api-key, a quota left unset falls back to the app.rate-limit defaults
+@ConfigurationProperties(prefix = "app")
+public record ApiClientProperties(Map<String, ApiClient> apiClients) {
+
+    public record ApiClient(String key, Double requestsPerSecond, Long burst) {
+    }
+
+    public ApiClientProperties {
+        apiClients = apiClients != null ? Map.copyOf(apiClients) : Map.of();
+    }
+}
@@ -1,31 +1,57 @@
 package com.ecommerce.analytics.config;
 
+import com.ecommerce.analytics.ratelimit.ApiKeyRateLimiter;
+import com.ecommerce.analytics.ratelimit.TokenBucket;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 
+import static com.ecommerce.analytics.constants.AnalyticsConstants.*;
+
 public class ApiKeyAuthFilter extends OncePerRequestFilter {
 
-    private final String correctApiKey;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final ApiKeyRateLimiter rateLimiter;
 
-    public ApiKeyAuthFilter(String correctApiKey) {
-        this.correctApiKey = correctApiKey;
+    public ApiKeyAuthFilter(ApiKeyRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
-        String providedKey = request.getHeader("X-API-KEY");
+        String providedKey = request.getHeader(API_KEY_HEADER);
+
+        ApiKeyRateLimiter.Result result = providedKey != null ? rateLimiter.tryAcquire(providedKey) : null;
+        if (result != null) {
+            TokenBucket.Decision decision = result.decision();
+            response.setHeader(RATE_LIMIT_LIMIT_HEADER, String.valueOf(result.limit()));
+            response.setHeader(RATE_LIMIT_REMAINING_HEADER, String.valueOf(decision.remaining()));
+            response.setHeader(RATE_LIMIT_RESET_HEADER, String.valueOf(seconds(decision.resetNanos())));
+
+            // Turned away before the request reaches anything that could query the database
+            if (!decision.allowed()) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(seconds(decision.retryAfterNanos())));
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                return;
+            }
 
-        if (providedKey != null && providedKey.equals(correctApiKey)) {
             var auth = new ApiKeyAuthentication(providedKey, true);
             SecurityContextHolder.getContext().setAuthentication(auth);
         }
 
         filterChain.doFilter(request, response);
     }
+
+    // Whole seconds, rounded up so a client waiting that long is never early
+    private static long seconds(long nanos) {
+        return Math.max(1, (nanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND);
+    }
 }
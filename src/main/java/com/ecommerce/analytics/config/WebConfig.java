@@ -0,0 +1,17 @@
+package com.ecommerce.analytics.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    // Last, so a request that accepts anything still gets JSON and only an explicit Accept gets protobuf
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new AnalyticsProtobufHttpMessageConverter());
+    }
+}
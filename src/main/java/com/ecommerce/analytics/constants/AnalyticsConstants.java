@@ -10,8 +10,16 @@ public final class AnalyticsConstants {
     public static final int MAX_LIMIT = 100;
     public static final int MIN_LIMIT = 1;
 
+    // A dashboard's worth of metrics, each one is a query when it is not cached
+    public static final int MAX_BATCH_METRICS = 20;
+
+    public static final int DEFAULT_HISTOGRAM_BUCKETS = 10;
+    public static final int MAX_HISTOGRAM_BUCKETS = 100;
+    public static final int MIN_HISTOGRAM_BUCKETS = 1;
+
     public static final String CATEGORY_SALES_FIELD = "categorySales";
     public static final String TOTAL_PRODUCT_QUANTITY_FIELD = "totalProductQuantity";
+    public static final String FULL_NAME_FIELD = "fullName";
     public static final String TOTAL_SPEND_FIELD = "totalSpend";
     public static final String ORDER_COUNT_FIELD = "orderCount";
     public static final String ORDER_TOTAL_FIELD = "orderTotal";
@@ -19,5 +27,52 @@ public final class AnalyticsConstants {
     public static final String RANKED_PRODUCTS_CTE = "ranked_products";
     public static final String CATEGORY_RANK_FIELD = "categoryRank";
 
+    public static final int AVERAGE_ORDER_VALUE_SCALE = 16;
+    // Percentiles and histogram bounds are estimates, cents are as precise as they get
+    public static final int ORDER_VALUE_ESTIMATE_SCALE = 2;
+    // Money leaves the service as a whole number of cents, rounded half up
+    public static final int MONEY_SCALE = 2;
+    public static final long CENTS_PER_UNIT = 100;
+
+    // Channel notify_analytics_change() in init_scheme.sql sends to
+    public static final String ANALYTICS_CHANGES_CHANNEL = "analytics_changes";
+
+    // Header carrying the caller's key, responses vary by it so shared caches never hand one client's answer to another
+    public static final String API_KEY_HEADER = "X-API-Key";
+
+    // Smallest cached JSON body sent gzip compressed to clients that accept it
+    public static final int GZIP_MIN_BYTES = 1024;
+
+    // Largest overestimate among the rows of an approximate top-N response
+    public static final String APPROXIMATION_ERROR_HEADER = "X-Approximation-Error-Bound";
+
+    // Quota of the calling API key, after the IETF RateLimit header fields draft
+    public static final String RATE_LIMIT_LIMIT_HEADER = "RateLimit-Limit";
+    public static final String RATE_LIMIT_REMAINING_HEADER = "RateLimit-Remaining";
+    public static final String RATE_LIMIT_RESET_HEADER = "RateLimit-Reset";
+    // Client name of app.api-key in the per-client request counters
+    public static final String DEFAULT_API_CLIENT = "default";
+
+    public static final String INVALID_DATE_RANGE_ERROR = "'from' must not be after 'to'";
+    public static final String EMPTY_METRIC_BATCH_ERROR = "At least one metric is required";
+    public static final String INVALID_METRIC_BATCH_ENTRY_ERROR = "Every entry needs a metric";
+    public static final String METRIC_BATCH_TOO_LARGE_ERROR = "More metrics than a batch may hold";
+    public static final String EMPTY_INGEST_BATCH_ERROR = "At least one order is required";
+    public static final String INVALID_INGEST_ORDER_ERROR = "Every order needs an orderDate, a statusId and at least one item";
+    public static final String INVALID_INGEST_ITEM_ERROR = "Every item needs a positive quantity and a non-negative priceAtPurchase";
+    public static final String UNKNOWN_INGEST_REFERENCE_ERROR = "Every statusId, customerId and productId must exist";
+    public static final String INGEST_BATCH_TOO_LARGE_ERROR = "More orders than the ingestion queue can hold";
+    public static final String DATABASE_OVERLOADED_ERROR = "Too many analytics queries waiting, retry shortly";
+    public static final String EXPORTS_BUSY_ERROR = "Too many exports running, retry shortly";
+    public static final String UNKNOWN_EXPORT_DATASET_ERROR = "No such export, expected product-quantities or customer-spend";
+    public static final String UNKNOWN_EXPORT_FORMAT_ERROR = "Export format must be ndjson or csv";
     public static final String AVERAGE_ORDER_VALUE_ERROR = "Failed to get Average Order Value";
+    public static final String CDC_CHECKPOINT_READ_ERROR = "Failed to read CDC checkpoint";
+    public static final String CDC_CHECKPOINT_WRITE_ERROR = "Failed to write CDC checkpoint";
+    public static final String SEED_COPY_ERROR = "Failed to bulk load generated data";
+    public static final String SEED_INTERRUPTED_ERROR = "Interrupted while generating data";
+    public static final String MIGRATION_FAILED_ERROR = "Failed to apply schema migration";
+    public static final String MIGRATION_CHANGED_ERROR = "Applied schema migration was edited, add a new migration instead";
+    public static final String MIGRATION_NAME_ERROR = "Schema migrations must be named V<version>__<description>.sql";
+    public static final String MIGRATION_DUPLICATE_ERROR = "Schema migrations must not share a version";
 }
@@ -1,43 +1,293 @@
 package com.ecommerce.analytics.controller;
 
 import com.ecommerce.analytics.dto.*;
-import com.ecommerce.analytics.service.AnalyticsService;
+import com.ecommerce.analytics.service.EncodedBody;
+import com.ecommerce.analytics.service.AnalyticsExportService;
+import com.ecommerce.analytics.service.ApproximateAnalyticsService;
+import com.ecommerce.analytics.service.BatchAnalyticsService;
+import com.ecommerce.analytics.service.CachedAnalyticsService;
+import com.ecommerce.analytics.service.CachedAnalyticsService.Versioned;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.regex.Pattern;
+
+import static com.ecommerce.analytics.config.AnalyticsProtobufHttpMessageConverter.APPLICATION_PROTOBUF;
+import static com.ecommerce.analytics.constants.AnalyticsConstants.API_KEY_HEADER;
+import static com.ecommerce.analytics.constants.AnalyticsConstants.APPROXIMATION_ERROR_HEADER;
 
 @RestController
 @RequestMapping("/v1/analytics")
 public class AnalyticsController {
 
-    private final AnalyticsService analyticsService;
+    private static final String GZIP = "gzip";
+    // Appended to the version in the ETag, each representation of a result needs a tag of its own
+    private static final String JSON_REPRESENTATION = "json";
+    private static final String JSON_GZIP_REPRESENTATION = "json-gz";
+    private static final String PROTOBUF_REPRESENTATION = "protobuf";
+    private static final Pattern ZERO_QUALITY = Pattern.compile("q\\s*=\\s*0(\\.0*)?\\s*$");
+
+    private final CachedAnalyticsService analyticsService;
+    private final ApproximateAnalyticsService approximateAnalyticsService;
+    private final BatchAnalyticsService batchAnalyticsService;
+    private final AnalyticsExportService exportService;
+    private final CacheControl cacheControl;
 
-    public AnalyticsController(AnalyticsService analyticsService) {
+    public AnalyticsController(CachedAnalyticsService analyticsService,
+                               ApproximateAnalyticsService approximateAnalyticsService,
+                               BatchAnalyticsService batchAnalyticsService,
+                               AnalyticsExportService exportService,
+                               @Value("${app.analytics.http.max-age}") Duration maxAge) {
         this.analyticsService = analyticsService;
+        this.approximateAnalyticsService = approximateAnalyticsService;
+        this.batchAnalyticsService = batchAnalyticsService;
+        this.exportService = exportService;
+        this.cacheControl = CacheControl.maxAge(maxAge).cachePublic();
     }
 
     @GetMapping("/sales-by-category")
-    public List<SalesByCategoryDTO> getSalesByCategory(){
-        return analyticsService.getSalesByCategory();
+    public ResponseEntity<?> getSalesByCategory(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest webRequest){
+        return conditional(webRequest, AnalyticsMetric.SALES_BY_CATEGORY, null, new DateRangeDTO(from, to));
+    }
+
+    // Same result as the POST form, but a URL that HTTP caches can key on and revalidate
+    @GetMapping("/top-selling-products")
+    public ResponseEntity<?> getTopSellingProductsByQuery(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "false") boolean approximate,
+            WebRequest webRequest){
+        DateRangeDTO range = new DateRangeDTO(from, to);
+        if (!approximate) {
+            return conditional(webRequest, AnalyticsMetric.TOP_SELLING_PRODUCTS, limit, range);
+        }
+
+        ApproximateTopSellingProductsDTO result = approximateAnalyticsService.getTopSellingProducts(limit, range);
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .varyBy(API_KEY_HEADER)
+                .header(APPROXIMATION_ERROR_HEADER, String.valueOf(result.getErrorBound()))
+                .body(result.getProducts());
     }
 
     @PostMapping("/top-selling-products")
-    public List<TopSellingProductsDTO> getTopSellingProducts(@RequestBody LimitRequestDTO request){
-        return analyticsService.getTopSellingProducts(request.getLimit());
+    public ResponseEntity<List<TopSellingProductsDTO>> getTopSellingProducts(
+            @RequestBody LimitRequestDTO request,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "false") boolean approximate){
+        DateRangeDTO range = new DateRangeDTO(from, to);
+        if (!approximate) {
+            return ResponseEntity.ok(analyticsService.getTopSellingProducts(request.getLimit(), range));
+        }
+
+        ApproximateTopSellingProductsDTO result = approximateAnalyticsService.getTopSellingProducts(request.getLimit(), range);
+        return ResponseEntity.ok()
+                .header(APPROXIMATION_ERROR_HEADER, String.valueOf(result.getErrorBound()))
+                .body(result.getProducts());
+    }
+
+    @GetMapping("/top-spenders")
+    public ResponseEntity<?> getTopSpendersByQuery(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest webRequest){
+        return conditional(webRequest, AnalyticsMetric.TOP_SPENDERS, limit, new DateRangeDTO(from, to));
     }
 
     @PostMapping("/top-spenders")
-    public List<TopSendersDTO> getTopSpenders(@RequestBody LimitRequestDTO request){
-        return analyticsService.getTopSenders(request.getLimit());
+    public List<TopSendersDTO> getTopSpenders(
+            @RequestBody LimitRequestDTO request,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
+        return analyticsService.getTopSenders(request.getLimit(), new DateRangeDTO(from, to));
+    }
+
+    @GetMapping("/product-rank-by-category")
+    public ResponseEntity<?> getProductRankByCategoryByQuery(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest webRequest){
+        return conditional(webRequest, AnalyticsMetric.PRODUCT_RANK_BY_CATEGORY, limit, new DateRangeDTO(from, to));
+    }
+
+    @PostMapping("/product-rank-by-category")
+    public List<ProductRankByCategoryDTO> getProductRankByCategory(
+            @RequestBody LimitRequestDTO request,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
+        return analyticsService.getProductRankByCategory(request.getLimit(), new DateRangeDTO(from, to));
     }
 
     @GetMapping("/status-summary")
-    public List<StatusSummaryDTO> getOrderCountByStatusName(){
-        return analyticsService.getOrderCountByStatusName();
+    public ResponseEntity<?> getOrderCountByStatusName(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest webRequest){
+        return conditional(webRequest, AnalyticsMetric.STATUS_SUMMARY, null, new DateRangeDTO(from, to));
     }
 
     @GetMapping("/average-order-value")
-    public AverageOrderValueDTO getAverageOrderValue(){
-        return analyticsService.getAverageOrderValue();
+    public ResponseEntity<?> getAverageOrderValue(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest webRequest){
+        return conditional(webRequest, AnalyticsMetric.AVERAGE_ORDER_VALUE, null, new DateRangeDTO(from, to));
+    }
+
+    @GetMapping("/order-value-percentiles")
+    public OrderValuePercentilesDTO getOrderValuePercentiles(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
+        return approximateAnalyticsService.getOrderValuePercentiles(new DateRangeDTO(from, to));
+    }
+
+    @GetMapping("/order-value-histogram")
+    public List<OrderValueHistogramBucketDTO> getOrderValueHistogram(
+            @RequestParam(required = false) Integer buckets,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
+        return approximateAnalyticsService.getOrderValueHistogram(buckets, new DateRangeDTO(from, to));
+    }
+
+    @PostMapping("/batch")
+    public BatchResponseDTO getBatch(@RequestBody List<BatchMetricRequestDTO> requests){
+        return batchAnalyticsService.getMetrics(requests);
+    }
+
+    // Written straight to the response while the rows arrive, the status is sent before the first of them
+    @GetMapping("/export/{dataset}")
+    public void export(
+            @PathVariable String dataset,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            HttpServletResponse response) throws IOException {
+        ExportDataset exportDataset = ExportDataset.fromPath(dataset);
+        ExportFormat exportFormat = ExportFormat.fromName(format);
+        DateRangeDTO range = new DateRangeDTO(from, to);
+
+        response.setContentType(exportFormat.getMediaType().toString());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(exportDataset.getPath() + "." + exportFormat.getExtension())
+                .build()
+                .toString());
+        exportService.export(exportDataset, exportFormat, range, response.getOutputStream());
+    }
+
+    // A client still holding the version the cache would serve gets a 304 without the result being loaded at all,
+    // otherwise the response carries the version it was loaded at. The body is either the result or the bytes of its
+    // JSON, which is why the endpoints going through here declare no body type
+    private ResponseEntity<?> conditional(WebRequest webRequest, AnalyticsMetric metric, Integer limit, DateRangeDTO range) {
+        boolean json = acceptsJson(webRequest);
+        String representation = json ? JSON_REPRESENTATION : PROTOBUF_REPRESENTATION;
+        // Encoded JSON is tagged by whether it goes out gzipped, which takes its bytes to tell
+        Versioned<EncodedBody> encodedVersion = json ? analyticsService.peekEncoded(metric, limit, range) : null;
+        Versioned<?> current = encodedVersion;
+        if (encodedVersion != null) {
+            representation = gzips(webRequest, encodedVersion.result()) ? JSON_GZIP_REPRESENTATION : JSON_REPRESENTATION;
+        } else {
+            current = analyticsService.peekVersion(metric, limit, range);
+        }
+        if (current != null
+                && webRequest.checkNotModified(eTag(current, representation), current.lastModified().toEpochMilli())) {
+            return null;
+        }
+
+        // JSON clients get the bytes the cache keeps with the result, the content type sends them through the byte
+        // array converter
+        if (json) {
+            Versioned<EncodedBody> encoded = analyticsService.getEncoded(metric, limit, range);
+            if (encoded != null) {
+                return encoded(webRequest, encoded);
+            }
+        }
+
+        Versioned<?> result = analyticsService.getVersioned(metric, limit, range);
+        return versioned(result, representation, API_KEY_HEADER, HttpHeaders.ACCEPT).body(result.result());
+    }
+
+    private ResponseEntity<byte[]> encoded(WebRequest webRequest, Versioned<EncodedBody> encoded) {
+        EncodedBody body = encoded.result();
+        boolean gzip = gzips(webRequest, body);
+        ResponseEntity.BodyBuilder response = versioned(encoded, gzip ? JSON_GZIP_REPRESENTATION : JSON_REPRESENTATION,
+                API_KEY_HEADER, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        byte[] bytes = body.json();
+        if (gzip) {
+            bytes = body.gzip();
+            response.header(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        return response.contentLength(bytes.length).body(bytes);
+    }
+
+    private static boolean gzips(WebRequest webRequest, EncodedBody body) {
+        return body.isCompressible() && acceptsGzip(webRequest);
+    }
+
+    private ResponseEntity.BodyBuilder versioned(Versioned<?> result, String representation, String... varyBy) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .varyBy(varyBy);
+        if (result.eTag() != null) {
+            response.eTag(eTag(result, representation)).lastModified(result.lastModified());
+        }
+        return response;
+    }
+
+    private static String eTag(Versioned<?> result, String representation) {
+        return result.eTag() + "-" + representation;
+    }
+
+    // Protobuf, and anything JSON cannot satisfy, is left to content negotiation
+    private static boolean acceptsJson(WebRequest webRequest) {
+        String accept = webRequest.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return true;
+        }
+        try {
+            List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+            return mediaTypes.stream().noneMatch(APPLICATION_PROTOBUF::equalsTypeAndSubtype)
+                    && mediaTypes.stream().anyMatch(MediaType.APPLICATION_JSON::isCompatibleWith);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    // gzip;q=0 is a client saying it does not want it
+    private static boolean acceptsGzip(WebRequest webRequest) {
+        String acceptEncoding = webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            int parameters = coding.indexOf(';');
+            String name = parameters < 0 ? coding : coding.substring(0, parameters);
+            if (name.trim().equalsIgnoreCase(GZIP)) {
+                return parameters < 0 || !ZERO_QUALITY.matcher(coding.substring(parameters + 1)).find();
+            }
+        }
+        return false;
     }
 }
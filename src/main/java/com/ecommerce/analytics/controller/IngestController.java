@@ -0,0 +1,47 @@
+package com.ecommerce.analytics.controller;
+
+import com.ecommerce.analytics.dto.IngestOrderDTO;
+import com.ecommerce.analytics.dto.IngestResponseDTO;
+import com.ecommerce.analytics.ingest.OrderIngestionService;
+import com.ecommerce.analytics.ingest.OrderReferenceValidator;
+import com.ecommerce.analytics.util.ValidationUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import static com.ecommerce.analytics.constants.AnalyticsConstants.INGEST_BATCH_TOO_LARGE_ERROR;
+
+@RestController
+@RequestMapping("/v1/ingest")
+public class IngestController {
+
+    private final OrderIngestionService ingestionService;
+    private final OrderReferenceValidator referenceValidator;
+
+    public IngestController(OrderIngestionService ingestionService, OrderReferenceValidator referenceValidator) {
+        this.ingestionService = ingestionService;
+        this.referenceValidator = referenceValidator;
+    }
+
+    // 202 once the orders are queued, they are written within app.ingest.max-latency of arriving
+    @PostMapping("/orders")
+    public ResponseEntity<IngestResponseDTO> ingestOrders(@RequestBody List<IngestOrderDTO> orders) {
+        ValidationUtils.validateIngestOrders(orders);
+        if (orders.size() > ingestionService.getQueueCapacity()) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, INGEST_BATCH_TOO_LARGE_ERROR);
+        }
+        referenceValidator.validate(orders);
+
+        if (!ingestionService.offer(orders)) {
+            long retryAfterSeconds = Math.max(1, ingestionService.getRetryAfter().toSeconds());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                    .build();
+        }
+        return ResponseEntity.accepted().body(new IngestResponseDTO(orders.size()));
+    }
+}
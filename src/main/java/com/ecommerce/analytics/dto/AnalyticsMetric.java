@@ -0,0 +1,10 @@
+package com.ecommerce.analytics.dto;
+
+public enum AnalyticsMetric {
+    SALES_BY_CATEGORY,
+    TOP_SELLING_PRODUCTS,
+    TOP_SPENDERS,
+    STATUS_SUMMARY,
+    AVERAGE_ORDER_VALUE,
+    PRODUCT_RANK_BY_CATEGORY
+}
@@ -0,0 +1,15 @@
+package com.ecommerce.analytics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ApproximateTopSellingProductsDTO {
+    private List<TopSellingProductsDTO> products;
+    private Long errorBound;
+}
@@ -0,0 +1,11 @@
+package com.ecommerce.analytics.dto;
+
+import java.time.LocalDate;
+
+// limit is only read by the top-N metrics, from and to bound every metric like the query parameters of its endpoint
+public record BatchMetricRequestDTO(AnalyticsMetric metric, Integer limit, LocalDate from, LocalDate to) {
+
+    public DateRangeDTO range() {
+        return new DateRangeDTO(from, to);
+    }
+}
@@ -0,0 +1,14 @@
+package com.ecommerce.analytics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchMetricResultDTO {
+    private AnalyticsMetric metric;
+    // The same body the metric's own endpoint returns
+    private Object result;
+}
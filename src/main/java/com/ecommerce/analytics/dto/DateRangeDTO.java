@@ -0,0 +1,32 @@
+package com.ecommerce.analytics.dto;
+
+import com.ecommerce.analytics.util.ValidationUtils;
+
+import java.time.LocalDate;
+
+// Inclusive order date window, a null bound leaves that side open
+public record DateRangeDTO(LocalDate from, LocalDate to) {
+
+    public static final DateRangeDTO ALL_TIME = new DateRangeDTO(null, null);
+
+    public DateRangeDTO {
+        ValidationUtils.validateDateRange(from, to);
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public boolean isUnbounded() {
+        return from == null && to == null;
+    }
+
+    public boolean overlaps(DateRangeDTO other) {
+        return (from == null || other.to == null || !other.to.isBefore(from))
+                && (to == null || other.from == null || !other.from.isAfter(to));
+    }
+}
@@ -0,0 +1,31 @@
+package com.ecommerce.analytics.dto;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import static com.ecommerce.analytics.constants.AnalyticsConstants.UNKNOWN_EXPORT_DATASET_ERROR;
+
+// Full result sets behind the top-N endpoints, by the path segment they are exported under
+public enum ExportDataset {
+    PRODUCT_QUANTITIES("product-quantities"),
+    CUSTOMER_SPEND("customer-spend");
+
+    private final String path;
+
+    ExportDataset(String path) {
+        this.path = path;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public static ExportDataset fromPath(String path) {
+        for (ExportDataset dataset : values()) {
+            if (dataset.path.equals(path)) {
+                return dataset;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.NOT_FOUND, UNKNOWN_EXPORT_DATASET_ERROR);
+    }
+}
@@ -0,0 +1,35 @@
+package com.ecommerce.analytics.dto;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.server.ResponseStatusException;
+
+import static com.ecommerce.analytics.constants.AnalyticsConstants.UNKNOWN_EXPORT_FORMAT_ERROR;
+
+public enum ExportFormat {
+    NDJSON(MediaType.APPLICATION_NDJSON),
+    CSV(new MediaType("text", "csv"));
+
+    private final MediaType mediaType;
+
+    ExportFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return name().toLowerCase();
+    }
+
+    public static ExportFormat fromName(String name) {
+        for (ExportFormat format : values()) {
+            if (format.getExtension().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, UNKNOWN_EXPORT_FORMAT_ERROR);
+    }
+}
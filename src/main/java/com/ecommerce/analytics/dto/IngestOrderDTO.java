@@ -0,0 +1,8 @@
+package com.ecommerce.analytics.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// customerId may be null for guest orders
+public record IngestOrderDTO(Integer customerId, LocalDate orderDate, Integer statusId, List<IngestOrderItemDTO> items) {
+}
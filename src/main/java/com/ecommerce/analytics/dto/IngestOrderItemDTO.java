@@ -0,0 +1,6 @@
+package com.ecommerce.analytics.dto;
+
+import java.math.BigDecimal;
+
+public record IngestOrderItemDTO(Integer productId, Integer quantity, BigDecimal priceAtPurchase) {
+}
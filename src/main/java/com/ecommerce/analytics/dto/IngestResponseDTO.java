@@ -0,0 +1,12 @@
+package com.ecommerce.analytics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestResponseDTO {
+    private Integer acceptedOrders;
+}
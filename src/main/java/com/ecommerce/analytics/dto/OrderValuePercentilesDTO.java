@@ -0,0 +1,20 @@
+package com.ecommerce.analytics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderValuePercentilesDTO {
+    private Long orderCount;
+    private BigDecimal mean;
+    private BigDecimal min;
+    private BigDecimal median;
+    private BigDecimal p90;
+    private BigDecimal p99;
+    private BigDecimal max;
+}
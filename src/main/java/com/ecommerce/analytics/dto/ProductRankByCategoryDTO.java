@@ -1,5 +1,7 @@
 package com.ecommerce.analytics.dto;
 
+import com.ecommerce.analytics.util.JsonRowSerializers;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -9,6 +11,7 @@ import java.math.BigDecimal;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonSerialize(using = JsonRowSerializers.ProductRankByCategory.class)
 public class ProductRankByCategoryDTO {
     private Integer productId;
     private String productName;
@@ -1,15 +1,17 @@
 package com.ecommerce.analytics.dto;
 
+import com.ecommerce.analytics.util.JsonRowSerializers;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
-
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonSerialize(using = JsonRowSerializers.SalesByCategory.class)
 public class SalesByCategoryDTO {
     private String category;
-    private BigDecimal totalSales;
+    // In cents
+    private long totalSales;
 }
@@ -1,5 +1,7 @@
 package com.ecommerce.analytics.dto;
 
+import com.ecommerce.analytics.util.JsonRowSerializers;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -7,6 +9,7 @@ import lombok.NoArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonSerialize(using = JsonRowSerializers.TopSellingProducts.class)
 public class TopSellingProductsDTO {
     private Integer productId;
     private String productName;
@@ -1,17 +1,19 @@
 package com.ecommerce.analytics.dto;
 
+import com.ecommerce.analytics.util.JsonRowSerializers;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
-
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonSerialize(using = JsonRowSerializers.TopSenders.class)
 public class TopSendersDTO {
     private Integer customerId;
     private String email;
     private String fullName;
-    private BigDecimal totalSpend;
+    // In cents
+    private long totalSpend;
 }
@@ -0,0 +1,103 @@
+package com.ecommerce.analytics.ingest;
+
+import com.ecommerce.analytics.dto.IngestOrderDTO;
+import com.ecommerce.analytics.dto.IngestOrderItemDTO;
+import com.ecommerce.analytics.util.PgBinaryCopyWriter;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static com.ecommerce.analytics.jooq.Tables.*;
+import static org.jooq.impl.DSL.*;
+
+// Writes a batch of orders in one transaction with two binary COPY statements, one for orders and one for their items
+@Component
+public class OrderBatchWriter {
+
+    private final DataSource dataSource;
+    private final boolean partitioningEnabled;
+
+    public OrderBatchWriter(DataSource dataSource,
+                            @Value("${app.analytics.partitioning.enabled:false}") boolean partitioningEnabled) {
+        this.dataSource = dataSource;
+        this.partitioningEnabled = partitioningEnabled;
+    }
+
+    public void write(List<IngestOrderDTO> orders) throws SQLException, IOException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                write(connection, orders);
+                connection.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private void write(Connection connection, List<IngestOrderDTO> orders) throws SQLException, IOException {
+        // Items reference their order, so the order ids are drawn from the identity sequence up front
+        DSLContext transaction = DSL.using(connection, SQLDialect.POSTGRES);
+        List<Integer> orderIds = transaction
+                .select(function("nextval", Integer.class,
+                        function("pg_get_serial_sequence", String.class, inline(ORDERS.getName()), inline(ORDERS.ID.getName()))))
+                .from(generateSeries(1, orders.size()))
+                .fetch(0, Integer.class);
+
+        PGConnection copyConnection = connection.unwrap(PGConnection.class);
+
+        try (PgBinaryCopyWriter writer = new PgBinaryCopyWriter(new PGCopyOutputStream(copyConnection,
+                "COPY orders (id, customer_id, order_date, status_id) FROM STDIN (FORMAT BINARY)"))) {
+            for (int i = 0; i < orders.size(); i++) {
+                IngestOrderDTO order = orders.get(i);
+                writer.startRow(4);
+                writer.writeInt(orderIds.get(i));
+                writeNullableInt(writer, order.customerId());
+                writer.writeDate(order.orderDate().toEpochDay());
+                writer.writeInt(order.statusId());
+            }
+        }
+
+        // Partitioned order_items carries the order_date of its order, see db/partition_orders_by_month.sql
+        String columns = partitioningEnabled
+                ? "order_id, product_id, quantity, price_at_purchase, order_date"
+                : "order_id, product_id, quantity, price_at_purchase";
+        try (PgBinaryCopyWriter writer = new PgBinaryCopyWriter(new PGCopyOutputStream(copyConnection,
+                "COPY order_items (" + columns + ") FROM STDIN (FORMAT BINARY)"))) {
+            for (int i = 0; i < orders.size(); i++) {
+                IngestOrderDTO order = orders.get(i);
+                for (IngestOrderItemDTO item : order.items()) {
+                    writer.startRow(partitioningEnabled ? 5 : 4);
+                    writer.writeInt(orderIds.get(i));
+                    writeNullableInt(writer, item.productId());
+                    writer.writeInt(item.quantity());
+                    writer.writeNumeric(item.priceAtPurchase());
+                    if (partitioningEnabled) {
+                        writer.writeDate(order.orderDate().toEpochDay());
+                    }
+                }
+            }
+        }
+    }
+
+    private static void writeNullableInt(PgBinaryCopyWriter writer, Integer value) throws IOException {
+        if (value == null) {
+            writer.writeNull();
+        } else {
+            writer.writeInt(value);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.ecommerce.analytics.ingest;
+
+import com.ecommerce.analytics.dto.IngestOrderDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Accepts orders into a bounded queue and writes them in batches, a batch is flushed once it reaches batch-size
+// or once its oldest order has waited max-latency, whichever comes first
+@Service
+public class OrderIngestionService implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderIngestionService.class);
+
+    private static final Duration IDLE_POLL_INTERVAL = Duration.ofSeconds(1);
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+    // Transient failures stop being retried this long after shutdown began, within the time stop() waits
+    private static final Duration SHUTDOWN_RETRY_TIMEOUT = Duration.ofSeconds(20);
+    private static final Duration INITIAL_RETRY_BACKOFF = Duration.ofMillis(100);
+    private static final Duration MAX_RETRY_BACKOFF = Duration.ofSeconds(5);
+    // SQLState classes of a lost connection, a rolled back transaction, exhausted resources and a restarting server
+    private static final List<String> TRANSIENT_SQL_STATES = List.of("08", "40", "53", "57P");
+
+    private record PendingOrder(IngestOrderDTO order, long enqueuedAt) {
+    }
+
+    private final OrderBatchWriter batchWriter;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final Duration maxLatency;
+    private final Duration retryAfter;
+
+    private final BlockingQueue<PendingOrder> queue = new LinkedBlockingQueue<>();
+    // Counts queued orders until their batch is written, so a request is either accepted whole or not at all
+    private final Semaphore capacity;
+
+    private final Timer flushDuration;
+    private final DistributionSummary flushSize;
+    private final Timer ingestLatency;
+    private final Counter accepted;
+    private final Counter rejected;
+    private final Counter written;
+    private final Counter failed;
+    private final Counter retried;
+
+    // Offers hold the read lock while they queue, closing takes the write lock, so no order is queued once the
+    // worker has started its final drain
+    private final ReadWriteLock intake = new ReentrantReadWriteLock();
+    private boolean accepting;
+    private volatile boolean running;
+    private volatile long stoppedAt;
+    private Thread worker;
+
+    public OrderIngestionService(OrderBatchWriter batchWriter,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.ingest.queue-capacity}") int queueCapacity,
+                                 @Value("${app.ingest.batch-size}") int batchSize,
+                                 @Value("${app.ingest.max-latency}") Duration maxLatency,
+                                 @Value("${app.ingest.retry-after}") Duration retryAfter) {
+        this.batchWriter = batchWriter;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.maxLatency = maxLatency;
+        this.retryAfter = retryAfter;
+        this.capacity = new Semaphore(queueCapacity);
+
+        this.flushDuration = meterRegistry.timer("analytics.ingest.flush.duration");
+        this.flushSize = meterRegistry.summary("analytics.ingest.flush.size");
+        this.ingestLatency = meterRegistry.timer("analytics.ingest.latency");
+        this.accepted = meterRegistry.counter("analytics.ingest.orders", "result", "accepted");
+        this.rejected = meterRegistry.counter("analytics.ingest.orders", "result", "rejected");
+        this.written = meterRegistry.counter("analytics.ingest.orders", "result", "written");
+        this.failed = meterRegistry.counter("analytics.ingest.orders", "result", "failed");
+        this.retried = meterRegistry.counter("analytics.ingest.retries");
+        meterRegistry.gauge("analytics.ingest.queue.size", queue, BlockingQueue::size);
+    }
+
+    // False when the queue cannot take all of the orders, none of them are queued in that case
+    public boolean offer(List<IngestOrderDTO> orders) {
+        intake.readLock().lock();
+        try {
+            if (!accepting || !capacity.tryAcquire(orders.size())) {
+                rejected.increment(orders.size());
+                return false;
+            }
+            long now = System.nanoTime();
+            for (IngestOrderDTO order : orders) {
+                queue.add(new PendingOrder(order, now));
+            }
+        } finally {
+            intake.readLock().unlock();
+        }
+        accepted.increment(orders.size());
+        return true;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    @Override
+    public void start() {
+        setAccepting(true);
+        running = true;
+        worker = new Thread(this::run, "order-ingestion");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        setAccepting(false);
+        stoppedAt = System.nanoTime();
+        running = false;
+        if (worker == null) {
+            return;
+        }
+        try {
+            worker.join(SHUTDOWN_TIMEOUT.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        List<PendingOrder> batch = new ArrayList<>(batchSize);
+        try {
+            while (running) {
+                PendingOrder first = queue.poll(IDLE_POLL_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = first.enqueuedAt() + maxLatency.toNanos();
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingOrder next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+                flush(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Orders accepted before shutdown are still written, and from here on none are accepted
+        setAccepting(false);
+        batch.addAll(queue);
+        queue.clear();
+        for (int from = 0; from < batch.size(); from += batchSize) {
+            flush(batch.subList(from, Math.min(batch.size(), from + batchSize)));
+        }
+    }
+
+    private void setAccepting(boolean accepting) {
+        intake.writeLock().lock();
+        try {
+            this.accepting = accepting;
+        } finally {
+            intake.writeLock().unlock();
+        }
+    }
+
+    private void flush(List<PendingOrder> batch) {
+        long started = System.nanoTime();
+        try {
+            write(batch);
+        } finally {
+            long finished = System.nanoTime();
+            flushDuration.record(finished - started, TimeUnit.NANOSECONDS);
+            flushSize.record(batch.size());
+            for (PendingOrder pending : batch) {
+                ingestLatency.record(finished - pending.enqueuedAt(), TimeUnit.NANOSECONDS);
+            }
+            capacity.release(batch.size());
+        }
+    }
+
+    // A batch the database rejected for its data is halved until the orders it cannot take are on their own, so one
+    // bad order costs only itself and a few extra transactions
+    private void write(List<PendingOrder> batch) {
+        Exception failure = writeRetrying(batch);
+        if (failure == null) {
+            written.increment(batch.size());
+            return;
+        }
+        if (isTransient(failure)) {
+            failed.increment(batch.size());
+            log.error("Dropping {} orders, the database did not recover before shutdown", batch.size(), failure);
+            return;
+        }
+        if (batch.size() == 1) {
+            failed.increment();
+            log.error("Dropping order {}", batch.getFirst().order(), failure);
+            return;
+        }
+        log.warn("Writing a batch of {} orders failed, splitting it", batch.size(), failure);
+        int middle = batch.size() / 2;
+        write(batch.subList(0, middle));
+        write(batch.subList(middle, batch.size()));
+    }
+
+    // Null once written. A lost connection or a transient SQLState is retried with backoff for as long as the service
+    // runs, the queue filling up meanwhile answers clients 429
+    private Exception writeRetrying(List<PendingOrder> batch) {
+        List<IngestOrderDTO> orders = batch.stream().map(PendingOrder::order).toList();
+        long backoff = INITIAL_RETRY_BACKOFF.toMillis();
+        while (true) {
+            try {
+                batchWriter.write(orders);
+                return null;
+            } catch (Exception e) {
+                if (!isTransient(e) || !mayRetry()) {
+                    return e;
+                }
+                log.warn("Writing {} orders failed, retrying in {} ms", orders.size(), backoff, e);
+                retried.increment();
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return e;
+                }
+                backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF.toMillis());
+            }
+        }
+    }
+
+    private boolean mayRetry() {
+        return running || System.nanoTime() - stoppedAt < SHUTDOWN_RETRY_TIMEOUT.toNanos();
+    }
+
+    // Decided by the first SQLException in the chain, COPY reports its failures wrapped in an IOException
+    private static boolean isTransient(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransientException || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (cause instanceof SQLException sqlException) {
+                String sqlState = sqlException.getSQLState();
+                return sqlState != null && TRANSIENT_SQL_STATES.stream().anyMatch(sqlState::startsWith);
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,56 @@
+package com.ecommerce.analytics.ingest;
+
+import com.ecommerce.analytics.dto.IngestOrderDTO;
+import com.ecommerce.analytics.dto.IngestOrderItemDTO;
+import org.jooq.DSLContext;
+import org.jooq.Record3;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Objects;
+
+import static com.ecommerce.analytics.constants.AnalyticsConstants.UNKNOWN_INGEST_REFERENCE_ERROR;
+import static com.ecommerce.analytics.jooq.Tables.*;
+import static org.jooq.impl.DSL.*;
+
+// Checks the statuses, customers and products a request refers to before it is accepted, in one round trip. An order
+// the database would refuse for them is then a 400 instead of one dropped after its 202
+@Component
+public class OrderReferenceValidator {
+
+    private final DSLContext context;
+
+    public OrderReferenceValidator(DSLContext context) {
+        this.context = context;
+    }
+
+    public void validate(List<IngestOrderDTO> orders) {
+        Integer[] statusIds = orders.stream()
+                .map(IngestOrderDTO::statusId)
+                .distinct()
+                .toArray(Integer[]::new);
+        Integer[] customerIds = orders.stream()
+                .map(IngestOrderDTO::customerId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toArray(Integer[]::new);
+        Integer[] productIds = orders.stream()
+                .flatMap(order -> order.items().stream())
+                .map(IngestOrderItemDTO::productId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toArray(Integer[]::new);
+
+        Record3<Integer, Integer, Integer> found = context.select(
+                        field(selectCount().from(ORDER_STATUSES).where(ORDER_STATUSES.ID.eq(any(statusIds)))),
+                        field(selectCount().from(CUSTOMERS).where(CUSTOMERS.ID.eq(any(customerIds)))),
+                        field(selectCount().from(PRODUCTS).where(PRODUCTS.ID.eq(any(productIds)))))
+                .fetchSingle();
+
+        if (found.value1() != statusIds.length || found.value2() != customerIds.length || found.value3() != productIds.length) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, UNKNOWN_INGEST_REFERENCE_ERROR);
+        }
+    }
+}
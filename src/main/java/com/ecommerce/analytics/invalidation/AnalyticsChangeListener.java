@@ -0,0 +1,220 @@
+package com.ecommerce.analytics.invalidation;
+
+import com.ecommerce.analytics.dto.AnalyticsMetric;
+import com.ecommerce.analytics.dto.DateRangeDTO;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static com.ecommerce.analytics.constants.AnalyticsConstants.*;
+import static com.ecommerce.analytics.dto.AnalyticsMetric.*;
+
+// Listens for the notifications sent by notify_analytics_change() and republishes them as AnalyticsDataChangedEvent,
+// a burst of statements is merged into one event once the channel has been quiet for the debounce interval
+@Component
+@ConditionalOnProperty(name = "app.analytics.cache.invalidation.enabled", havingValue = "true", matchIfMissing = true)
+public class AnalyticsChangeListener implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsChangeListener.class);
+
+    private static final Duration IDLE_POLL_INTERVAL = Duration.ofSeconds(1);
+    private static final Duration RETRY_INTERVAL = Duration.ofSeconds(5);
+
+    private static final Map<String, Set<AnalyticsMetric>> METRICS_BY_TABLE = Map.of(
+            "order_statuses", EnumSet.of(STATUS_SUMMARY),
+            "products", EnumSet.of(SALES_BY_CATEGORY, TOP_SELLING_PRODUCTS, PRODUCT_RANK_BY_CATEGORY),
+            "customers", EnumSet.of(TOP_SPENDERS),
+            "orders", EnumSet.allOf(AnalyticsMetric.class),
+            "order_items", EnumSet.of(SALES_BY_CATEGORY, TOP_SELLING_PRODUCTS, TOP_SPENDERS, AVERAGE_ORDER_VALUE,
+                    PRODUCT_RANK_BY_CATEGORY));
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final Duration debounce;
+    private final Duration maxDelay;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public AnalyticsChangeListener(ApplicationEventPublisher eventPublisher,
+                                   ObjectMapper objectMapper,
+                                   @Value("${spring.datasource.url}") String url,
+                                   @Value("${spring.datasource.username}") String username,
+                                   @Value("${spring.datasource.password}") String password,
+                                   @Value("${app.analytics.cache.invalidation.debounce}") Duration debounce,
+                                   @Value("${app.analytics.cache.invalidation.max-delay}") Duration maxDelay) {
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.debounce = debounce;
+        this.maxDelay = maxDelay;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        worker = new Thread(this::run, "analytics-change-listener");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (worker == null) {
+            return;
+        }
+        try {
+            worker.join(RETRY_INTERVAL.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        boolean missedNotifications = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + ANALYTICS_CHANGES_CHANNEL);
+                }
+                // Anything may have changed while the connection was down
+                if (missedNotifications) {
+                    publish(everything());
+                    missedNotifications = false;
+                }
+                listen(connection.unwrap(PGConnection.class));
+            } catch (Exception e) {
+                missedNotifications = true;
+                log.error("Listening on channel {} failed, retrying in {}", ANALYTICS_CHANGES_CHANNEL, RETRY_INTERVAL, e);
+                sleep(RETRY_INTERVAL);
+            }
+        }
+    }
+
+    private void listen(PGConnection connection) throws SQLException {
+        Map<AnalyticsMetric, DateRangeDTO> pending = new EnumMap<>(AnalyticsMetric.class);
+        long firstPending = 0;
+
+        while (running) {
+            long waitMillis = IDLE_POLL_INTERVAL.toMillis();
+            if (!pending.isEmpty()) {
+                long untilMaxDelay = maxDelay.toMillis() - (System.nanoTime() - firstPending) / 1_000_000;
+                waitMillis = Math.max(1, Math.min(debounce.toMillis(), untilMaxDelay));
+            }
+
+            PGNotification[] notifications = connection.getNotifications((int) waitMillis);
+            boolean quiet = notifications == null || notifications.length == 0;
+            if (!quiet) {
+                if (pending.isEmpty()) {
+                    firstPending = System.nanoTime();
+                }
+                for (PGNotification notification : notifications) {
+                    merge(pending, notification.getParameter());
+                }
+            }
+
+            // A steady stream of changes never goes quiet, max-delay bounds how long results stay stale
+            boolean overdue = System.nanoTime() - firstPending >= maxDelay.toNanos();
+            if (!pending.isEmpty() && (quiet || overdue)) {
+                publish(new EnumMap<>(pending));
+                pending.clear();
+            }
+        }
+    }
+
+    private void merge(Map<AnalyticsMetric, DateRangeDTO> pending, String payload) {
+        Set<AnalyticsMetric> metrics;
+        DateRangeDTO range;
+        try {
+            JsonNode change = objectMapper.readTree(payload);
+            metrics = METRICS_BY_TABLE.getOrDefault(change.path("table").asText(), EnumSet.allOf(AnalyticsMetric.class));
+            range = new DateRangeDTO(date(change.path("from")), date(change.path("to")));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unreadable change notification {}, treating it as a change to everything", payload, e);
+            metrics = EnumSet.allOf(AnalyticsMetric.class);
+            range = DateRangeDTO.ALL_TIME;
+        }
+
+        for (AnalyticsMetric metric : metrics) {
+            pending.merge(metric, range, AnalyticsChangeListener::span);
+        }
+    }
+
+    private void publish(Map<AnalyticsMetric, DateRangeDTO> changes) {
+        log.debug("Analytics data changed: {}", changes);
+        eventPublisher.publishEvent(new AnalyticsDataChangedEvent(changes));
+    }
+
+    // Tables whose changes reach a metric, the reverse of METRICS_BY_TABLE
+    public static Set<String> tablesOf(AnalyticsMetric metric) {
+        Set<String> tables = new HashSet<>();
+        METRICS_BY_TABLE.forEach((table, metrics) -> {
+            if (metrics.contains(metric)) {
+                tables.add(table);
+            }
+        });
+        return tables;
+    }
+
+    private static Map<AnalyticsMetric, DateRangeDTO> everything() {
+        Map<AnalyticsMetric, DateRangeDTO> changes = new EnumMap<>(AnalyticsMetric.class);
+        for (AnalyticsMetric metric : AnalyticsMetric.values()) {
+            changes.put(metric, DateRangeDTO.ALL_TIME);
+        }
+        return changes;
+    }
+
+    // Smallest range covering both, an open bound on either side stays open
+    private static DateRangeDTO span(DateRangeDTO a, DateRangeDTO b) {
+        LocalDate from = a.from() == null || b.from() == null ? null
+                : a.from().isBefore(b.from()) ? a.from() : b.from();
+        LocalDate to = a.to() == null || b.to() == null ? null
+                : a.to().isAfter(b.to()) ? a.to() : b.to();
+        return new DateRangeDTO(from, to);
+    }
+
+    private static LocalDate date(JsonNode node) {
+        return node.isTextual() ? LocalDate.parse(node.asText()) : null;
+    }
+
+    private void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
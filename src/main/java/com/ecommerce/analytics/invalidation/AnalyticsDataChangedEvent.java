@@ -0,0 +1,15 @@
+package com.ecommerce.analytics.invalidation;
+
+import com.ecommerce.analytics.dto.AnalyticsMetric;
+import com.ecommerce.analytics.dto.DateRangeDTO;
+
+import java.util.Map;
+
+// Metrics whose results may have changed, each with the order dates the changes touched
+public record AnalyticsDataChangedEvent(Map<AnalyticsMetric, DateRangeDTO> changes) {
+
+    public boolean affects(AnalyticsMetric metric, DateRangeDTO range) {
+        DateRangeDTO changed = changes.get(metric);
+        return changed != null && changed.overlaps(range);
+    }
+}
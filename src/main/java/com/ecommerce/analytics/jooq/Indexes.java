@@ -0,0 +1,30 @@
+/*
+ * This file is generated by jOOQ.
+ */
+package com.ecommerce.analytics.jooq;
+
+
+import com.ecommerce.analytics.jooq.tables.Orders;
+import com.ecommerce.analytics.jooq.tables.ProductSalesTotals;
+
+import org.jooq.Index;
+import org.jooq.OrderField;
+import org.jooq.impl.DSL;
+import org.jooq.impl.Internal;
+
+
+/**
+ * A class modelling indexes of tables in public.
+ */
+@SuppressWarnings({ "all", "unchecked", "rawtypes", "this-escape" })
+public class Indexes {
+
+    // -------------------------------------------------------------------------
+    // INDEX definitions
+    // -------------------------------------------------------------------------
+
+    public static final Index IDX_ORDERS_CUSTOMER_ID = Internal.createIndex(DSL.name("idx_orders_customer_id"), Orders.ORDERS, new OrderField[] { Orders.ORDERS.CUSTOMER_ID }, false);
+    public static final Index IDX_ORDERS_STATUS_ID = Internal.createIndex(DSL.name("idx_orders_status_id"), Orders.ORDERS, new OrderField[] { Orders.ORDERS.STATUS_ID }, false);
+    public static final Index IDX_PRODUCT_SALES_TOTALS_LAST_XID = Internal.createIndex(DSL.name("idx_product_sales_totals_last_xid"), ProductSalesTotals.PRODUCT_SALES_TOTALS, new OrderField[] { ProductSalesTotals.PRODUCT_SALES_TOTALS.LAST_XID }, false);
+    public static final Index IDX_PRODUCT_SALES_TOTALS_RANK = Internal.createIndex(DSL.name("idx_product_sales_totals_rank"), ProductSalesTotals.PRODUCT_SALES_TOTALS, new OrderField[] { ProductSalesTotals.PRODUCT_SALES_TOTALS.CATEGORY, ProductSalesTotals.PRODUCT_SALES_TOTALS.QUANTITY.desc(), ProductSalesTotals.PRODUCT_SALES_TOTALS.PRODUCT_ID }, false);
+}
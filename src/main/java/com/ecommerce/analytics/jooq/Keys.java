@@ -5,14 +5,22 @@ package com.ecommerce.analytics.jooq;
 
 
 import com.ecommerce.analytics.jooq.tables.Customers;
+import com.ecommerce.analytics.jooq.tables.DailyCategorySales;
+import com.ecommerce.analytics.jooq.tables.DailyCustomerSpend;
+import com.ecommerce.analytics.jooq.tables.DailyProductSales;
 import com.ecommerce.analytics.jooq.tables.OrderItems;
 import com.ecommerce.analytics.jooq.tables.OrderStatuses;
 import com.ecommerce.analytics.jooq.tables.Orders;
+import com.ecommerce.analytics.jooq.tables.ProductSalesTotals;
 import com.ecommerce.analytics.jooq.tables.Products;
 import com.ecommerce.analytics.jooq.tables.records.CustomersRecord;
+import com.ecommerce.analytics.jooq.tables.records.DailyCategorySalesRecord;
+import com.ecommerce.analytics.jooq.tables.records.DailyCustomerSpendRecord;
+import com.ecommerce.analytics.jooq.tables.records.DailyProductSalesRecord;
 import com.ecommerce.analytics.jooq.tables.records.OrderItemsRecord;
 import com.ecommerce.analytics.jooq.tables.records.OrderStatusesRecord;
 import com.ecommerce.analytics.jooq.tables.records.OrdersRecord;
+import com.ecommerce.analytics.jooq.tables.records.ProductSalesTotalsRecord;
 import com.ecommerce.analytics.jooq.tables.records.ProductsRecord;
 
 import org.jooq.ForeignKey;
@@ -35,10 +43,14 @@ public class Keys {
 
     public static final UniqueKey<CustomersRecord> CUSTOMERS_EMAIL_KEY = Internal.createUniqueKey(Customers.CUSTOMERS, DSL.name("customers_email_key"), new TableField[] { Customers.CUSTOMERS.EMAIL }, true);
     public static final UniqueKey<CustomersRecord> CUSTOMERS_PKEY = Internal.createUniqueKey(Customers.CUSTOMERS, DSL.name("customers_pkey"), new TableField[] { Customers.CUSTOMERS.ID }, true);
+    public static final UniqueKey<DailyCategorySalesRecord> DAILY_CATEGORY_SALES_PKEY = Internal.createUniqueKey(DailyCategorySales.DAILY_CATEGORY_SALES, DSL.name("daily_category_sales_pkey"), new TableField[] { DailyCategorySales.DAILY_CATEGORY_SALES.SALES_DATE, DailyCategorySales.DAILY_CATEGORY_SALES.CATEGORY }, true);
+    public static final UniqueKey<DailyCustomerSpendRecord> DAILY_CUSTOMER_SPEND_PKEY = Internal.createUniqueKey(DailyCustomerSpend.DAILY_CUSTOMER_SPEND, DSL.name("daily_customer_spend_pkey"), new TableField[] { DailyCustomerSpend.DAILY_CUSTOMER_SPEND.SALES_DATE, DailyCustomerSpend.DAILY_CUSTOMER_SPEND.CUSTOMER_ID }, true);
+    public static final UniqueKey<DailyProductSalesRecord> DAILY_PRODUCT_SALES_PKEY = Internal.createUniqueKey(DailyProductSales.DAILY_PRODUCT_SALES, DSL.name("daily_product_sales_pkey"), new TableField[] { DailyProductSales.DAILY_PRODUCT_SALES.SALES_DATE, DailyProductSales.DAILY_PRODUCT_SALES.PRODUCT_ID }, true);
     public static final UniqueKey<OrderItemsRecord> ORDER_ITEMS_PKEY = Internal.createUniqueKey(OrderItems.ORDER_ITEMS, DSL.name("order_items_pkey"), new TableField[] { OrderItems.ORDER_ITEMS.ID }, true);
     public static final UniqueKey<OrderStatusesRecord> ORDER_STATUSES_PKEY = Internal.createUniqueKey(OrderStatuses.ORDER_STATUSES, DSL.name("order_statuses_pkey"), new TableField[] { OrderStatuses.ORDER_STATUSES.ID }, true);
     public static final UniqueKey<OrderStatusesRecord> ORDER_STATUSES_STATUS_NAME_KEY = Internal.createUniqueKey(OrderStatuses.ORDER_STATUSES, DSL.name("order_statuses_status_name_key"), new TableField[] { OrderStatuses.ORDER_STATUSES.STATUS_NAME }, true);
     public static final UniqueKey<OrdersRecord> ORDERS_PKEY = Internal.createUniqueKey(Orders.ORDERS, DSL.name("orders_pkey"), new TableField[] { Orders.ORDERS.ID }, true);
+    public static final UniqueKey<ProductSalesTotalsRecord> PRODUCT_SALES_TOTALS_PKEY = Internal.createUniqueKey(ProductSalesTotals.PRODUCT_SALES_TOTALS, DSL.name("product_sales_totals_pkey"), new TableField[] { ProductSalesTotals.PRODUCT_SALES_TOTALS.PRODUCT_ID }, true);
     public static final UniqueKey<ProductsRecord> PRODUCTS_PKEY = Internal.createUniqueKey(Products.PRODUCTS, DSL.name("products_pkey"), new TableField[] { Products.PRODUCTS.ID }, true);
 
     // -------------------------------------------------------------------------
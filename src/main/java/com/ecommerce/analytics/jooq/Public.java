@@ -5,9 +5,13 @@ package com.ecommerce.analytics.jooq;
 
 
 import com.ecommerce.analytics.jooq.tables.Customers;
+import com.ecommerce.analytics.jooq.tables.DailyCategorySales;
+import com.ecommerce.analytics.jooq.tables.DailyCustomerSpend;
+import com.ecommerce.analytics.jooq.tables.DailyProductSales;
 import com.ecommerce.analytics.jooq.tables.OrderItems;
 import com.ecommerce.analytics.jooq.tables.OrderStatuses;
 import com.ecommerce.analytics.jooq.tables.Orders;
+import com.ecommerce.analytics.jooq.tables.ProductSalesTotals;
 import com.ecommerce.analytics.jooq.tables.Products;
 
 import java.util.Arrays;
@@ -36,6 +40,21 @@ public class Public extends SchemaImpl {
      */
     public final Customers CUSTOMERS = Customers.CUSTOMERS;
 
+    /**
+     * The table <code>public.daily_category_sales</code>.
+     */
+    public final DailyCategorySales DAILY_CATEGORY_SALES = DailyCategorySales.DAILY_CATEGORY_SALES;
+
+    /**
+     * The table <code>public.daily_customer_spend</code>.
+     */
+    public final DailyCustomerSpend DAILY_CUSTOMER_SPEND = DailyCustomerSpend.DAILY_CUSTOMER_SPEND;
+
+    /**
+     * The table <code>public.daily_product_sales</code>.
+     */
+    public final DailyProductSales DAILY_PRODUCT_SALES = DailyProductSales.DAILY_PRODUCT_SALES;
+
     /**
      * The table <code>public.order_items</code>.
      */
@@ -51,6 +70,11 @@ public class Public extends SchemaImpl {
      */
     public final Orders ORDERS = Orders.ORDERS;
 
+    /**
+     * The table <code>public.product_sales_totals</code>.
+     */
+    public final ProductSalesTotals PRODUCT_SALES_TOTALS = ProductSalesTotals.PRODUCT_SALES_TOTALS;
+
     /**
      * The table <code>public.products</code>.
      */
@@ -73,9 +97,13 @@ public class Public extends SchemaImpl {
     public final List<Table<?>> getTables() {
         return Arrays.asList(
             Customers.CUSTOMERS,
+            DailyCategorySales.DAILY_CATEGORY_SALES,
+            DailyCustomerSpend.DAILY_CUSTOMER_SPEND,
+            DailyProductSales.DAILY_PRODUCT_SALES,
             OrderItems.ORDER_ITEMS,
             OrderStatuses.ORDER_STATUSES,
             Orders.ORDERS,
+            ProductSalesTotals.PRODUCT_SALES_TOTALS,
             Products.PRODUCTS
         );
     }
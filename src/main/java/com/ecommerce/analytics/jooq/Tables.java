@@ -5,9 +5,13 @@ package com.ecommerce.analytics.jooq;
 
 
 import com.ecommerce.analytics.jooq.tables.Customers;
+import com.ecommerce.analytics.jooq.tables.DailyCategorySales;
+import com.ecommerce.analytics.jooq.tables.DailyCustomerSpend;
+import com.ecommerce.analytics.jooq.tables.DailyProductSales;
 import com.ecommerce.analytics.jooq.tables.OrderItems;
 import com.ecommerce.analytics.jooq.tables.OrderStatuses;
 import com.ecommerce.analytics.jooq.tables.Orders;
+import com.ecommerce.analytics.jooq.tables.ProductSalesTotals;
 import com.ecommerce.analytics.jooq.tables.Products;
 
 
@@ -22,6 +26,21 @@ public class Tables {
      */
     public static final Customers CUSTOMERS = Customers.CUSTOMERS;
 
+    /**
+     * The table <code>public.daily_category_sales</code>.
+     */
+    public static final DailyCategorySales DAILY_CATEGORY_SALES = DailyCategorySales.DAILY_CATEGORY_SALES;
+
+    /**
+     * The table <code>public.daily_customer_spend</code>.
+     */
+    public static final DailyCustomerSpend DAILY_CUSTOMER_SPEND = DailyCustomerSpend.DAILY_CUSTOMER_SPEND;
+
+    /**
+     * The table <code>public.daily_product_sales</code>.
+     */
+    public static final DailyProductSales DAILY_PRODUCT_SALES = DailyProductSales.DAILY_PRODUCT_SALES;
+
     /**
      * The table <code>public.order_items</code>.
      */
@@ -37,6 +56,11 @@ public class Tables {
      */
     public static final Orders ORDERS = Orders.ORDERS;
 
+    /**
+     * The table <code>public.product_sales_totals</code>.
+     */
+    public static final ProductSalesTotals PRODUCT_SALES_TOTALS = ProductSalesTotals.PRODUCT_SALES_TOTALS;
+
     /**
      * The table <code>public.products</code>.
      */
@@ -0,0 +1,237 @@
+/*
+ * This file is generated by jOOQ.
+ */
+package com.ecommerce.analytics.jooq.tables;
+
+
+import com.ecommerce.analytics.jooq.Keys;
+import com.ecommerce.analytics.jooq.Public;
+import com.ecommerce.analytics.jooq.tables.records.DailyCategorySalesRecord;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+
+import org.jooq.Condition;
+import org.jooq.Field;
+import org.jooq.Name;
+import org.jooq.PlainSQL;
+import org.jooq.QueryPart;
+import org.jooq.SQL;
+import org.jooq.Schema;
+import org.jooq.Select;
+import org.jooq.Stringly;
+import org.jooq.Table;
+import org.jooq.TableField;
+import org.jooq.TableOptions;
+import org.jooq.UniqueKey;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.jooq.impl.TableImpl;
+
+
+/**
+ * This class is generated by jOOQ.
+ */
+@SuppressWarnings({ "all", "unchecked", "rawtypes", "this-escape" })
+public class DailyCategorySales extends TableImpl<DailyCategorySalesRecord> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The reference instance of <code>public.daily_category_sales</code>
+     */
+    public static final DailyCategorySales DAILY_CATEGORY_SALES = new DailyCategorySales();
+
+    /**
+     * The class holding records for this type
+     */
+    @Override
+    public Class<DailyCategorySalesRecord> getRecordType() {
+        return DailyCategorySalesRecord.class;
+    }
+
+    /**
+     * The column <code>public.daily_category_sales.sales_date</code>.
+     */
+    public final TableField<DailyCategorySalesRecord, LocalDate> SALES_DATE = createField(DSL.name("sales_date"), SQLDataType.LOCALDATE.nullable(false), this, "");
+
+    /**
+     * The column <code>public.daily_category_sales.category</code>.
+     */
+    public final TableField<DailyCategorySalesRecord, String> CATEGORY = createField(DSL.name("category"), SQLDataType.VARCHAR(255).nullable(false), this, "");
+
+    /**
+     * The column <code>public.daily_category_sales.sales</code>.
+     */
+    public final TableField<DailyCategorySalesRecord, BigDecimal> SALES = createField(DSL.name("sales"), SQLDataType.NUMERIC.nullable(false), this, "");
+
+    /**
+     * The column <code>public.daily_category_sales.item_count</code>.
+     */
+    public final TableField<DailyCategorySalesRecord, Long> ITEM_COUNT = createField(DSL.name("item_count"), SQLDataType.BIGINT.nullable(false), this, "");
+
+    private DailyCategorySales(Name alias, Table<DailyCategorySalesRecord> aliased) {
+        this(alias, aliased, (Field<?>[]) null, null);
+    }
+
+    private DailyCategorySales(Name alias, Table<DailyCategorySalesRecord> aliased, Field<?>[] parameters, Condition where) {
+        super(alias, null, aliased, parameters, DSL.comment(""), TableOptions.table(), where);
+    }
+
+    /**
+     * Create an aliased <code>public.daily_category_sales</code> table
+     * reference
+     */
+    public DailyCategorySales(String alias) {
+        this(DSL.name(alias), DAILY_CATEGORY_SALES);
+    }
+
+    /**
+     * Create an aliased <code>public.daily_category_sales</code> table
+     * reference
+     */
+    public DailyCategorySales(Name alias) {
+        this(alias, DAILY_CATEGORY_SALES);
+    }
+
+    /**
+     * Create a <code>public.daily_category_sales</code> table reference
+     */
+    public DailyCategorySales() {
+        this(DSL.name("daily_category_sales"), null);
+    }
+
+    @Override
+    public Schema getSchema() {
+        return aliased() ? null : Public.PUBLIC;
+    }
+
+    @Override
+    public UniqueKey<DailyCategorySalesRecord> getPrimaryKey() {
+        return Keys.DAILY_CATEGORY_SALES_PKEY;
+    }
+
+    @Override
+    public DailyCategorySales as(String alias) {
+        return new DailyCategorySales(DSL.name(alias), this);
+    }
+
+    @Override
+    public DailyCategorySales as(Name alias) {
+        return new DailyCategorySales(alias, this);
+    }
+
+    @Override
+    public DailyCategorySales as(Table<?> alias) {
+        return new DailyCategorySales(alias.getQualifiedName(), this);
+    }
+
+    /**
+     * Rename this table
+     */
+    @Override
+    public DailyCategorySales rename(String name) {
+        return new DailyCategorySales(DSL.name(name), null);
+    }
+
+    /**
+     * Rename this table
+     */
+    @Override
+    public DailyCategorySales rename(Name name) {
+        return new DailyCategorySales(name, null);
+    }
+
+    /**
+     * Rename this table
+     */
+    @Override
+    public DailyCategorySales rename(Table<?> name) {
+        return new DailyCategorySales(name.getQualifiedName(), null);
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    public DailyCategorySales where(Condition condition) {
+        return new DailyCategorySales(getQualifiedName(), aliased() ? this : null, null, condition);
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    public DailyCategorySales where(Collection<? extends Condition> conditions) {
+        return where(DSL.and(conditions));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    public DailyCategorySales where(Condition... conditions) {
+        return where(DSL.and(conditions));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    public DailyCategorySales where(Field<Boolean> condition) {
+        return where(DSL.condition(condition));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    @PlainSQL
+    public DailyCategorySales where(SQL condition) {
+        return where(DSL.condition(condition));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    @PlainSQL
+    public DailyCategorySales where(@Stringly.SQL String condition) {
+        return where(DSL.condition(condition));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    @PlainSQL
+    public DailyCategorySales where(@Stringly.SQL String condition, Object... binds) {
+        return where(DSL.condition(condition, binds));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    @PlainSQL
+    public DailyCategorySales where(@Stringly.SQL String condition, QueryPart... parts) {
+        return where(DSL.condition(condition, parts));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    public DailyCategorySales whereExists(Select<?> select) {
+        return where(DSL.exists(select));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    public DailyCategorySales whereNotExists(Select<?> select) {
+        return where(DSL.notExists(select));
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * This file is generated by jOOQ.
+ */
+package com.ecommerce.analytics.jooq.tables;
+
+
+import com.ecommerce.analytics.jooq.Keys;
+import com.ecommerce.analytics.jooq.Public;
+import com.ecommerce.analytics.jooq.tables.records.DailyCustomerSpendRecord;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+
+import org.jooq.Condition;
+import org.jooq.Field;
+import org.jooq.Name;
+import org.jooq.PlainSQL;
+import org.jooq.QueryPart;
+import org.jooq.SQL;
+import org.jooq.Schema;
+import org.jooq.Select;
+import org.jooq.Stringly;
+import org.jooq.Table;
+import org.jooq.TableField;
+import org.jooq.TableOptions;
+import org.jooq.UniqueKey;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.jooq.impl.TableImpl;
+
+
+/**
+ * This class is generated by jOOQ.
+ */
+@SuppressWarnings({ "all", "unchecked", "rawtypes", "this-escape" })
+public class DailyCustomerSpend extends TableImpl<DailyCustomerSpendRecord> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The reference instance of <code>public.daily_customer_spend</code>
+     */
+    public static final DailyCustomerSpend DAILY_CUSTOMER_SPEND = new DailyCustomerSpend();
+
+    /**
+     * The class holding records for this type
+     */
+    @Override
+    public Class<DailyCustomerSpendRecord> getRecordType() {
+        return DailyCustomerSpendRecord.class;
+    }
+
+    /**
+     * The column <code>public.daily_customer_spend.sales_date</code>.
+     */
+    public final TableField<DailyCustomerSpendRecord, LocalDate> SALES_DATE = createField(DSL.name("sales_date"), SQLDataType.LOCALDATE.nullable(false), this, "");
+
+    /**
+     * The column <code>public.daily_customer_spend.customer_id</code>.
+     */
+    public final TableField<DailyCustomerSpendRecord, Integer> CUSTOMER_ID = createField(DSL.name("customer_id"), SQLDataType.INTEGER.nullable(false), this, "");
+
+    /**
+     * The column <code>public.daily_customer_spend.spend</code>.
+     */
+    public final TableField<DailyCustomerSpendRecord, BigDecimal> SPEND = createField(DSL.name("spend"), SQLDataType.NUMERIC.nullable(false), this, "");
+
+    /**
+     * The column <code>public.daily_customer_spend.item_count</code>.
+     */
+    public final TableField<DailyCustomerSpendRecord, Long> ITEM_COUNT = createField(DSL.name("item_count"), SQLDataType.BIGINT.nullable(false), this, "");
+
+    private DailyCustomerSpend(Name alias, Table<DailyCustomerSpendRecord> aliased) {
+        this(alias, aliased, (Field<?>[]) null, null);
+    }
+
+    private DailyCustomerSpend(Name alias, Table<DailyCustomerSpendRecord> aliased, Field<?>[] parameters, Condition where) {
+        super(alias, null, aliased, parameters, DSL.comment(""), TableOptions.table(), where);
+    }
+
+    /**
+     * Create an aliased <code>public.daily_customer_spend</code> table
+     * reference
+     */
+    public DailyCustomerSpend(String alias) {
+        this(DSL.name(alias), DAILY_CUSTOMER_SPEND);
+    }
+
+    /**
+     * Create an aliased <code>public.daily_customer_spend</code> table
+     * reference
+     */
+    public DailyCustomerSpend(Name alias) {
+        this(alias, DAILY_CUSTOMER_SPEND);
+    }
+
+    /**
+     * Create a <code>public.daily_customer_spend</code> table reference
+     */
+    public DailyCustomerSpend() {
+        this(DSL.name("daily_customer_spend"), null);
+    }
+
+    @Override
+    public Schema getSchema() {
+        return aliased() ? null : Public.PUBLIC;
+    }
+
+    @Override
+    public UniqueKey<DailyCustomerSpendRecord> getPrimaryKey() {
+        return Keys.DAILY_CUSTOMER_SPEND_PKEY;
+    }
+
+    @Override
+    public DailyCustomerSpend as(String alias) {
+        return new DailyCustomerSpend(DSL.name(alias), this);
+    }
+
+    @Override
+    public DailyCustomerSpend as(Name alias) {
+        return new DailyCustomerSpend(alias, this);
+    }
+
+    @Override
+    public DailyCustomerSpend as(Table<?> alias) {
+        return new DailyCustomerSpend(alias.getQualifiedName(), this);
+    }
+
+    /**
+     * Rename this table
+     */
+    @Override
+    public DailyCustomerSpend rename(String name) {
+        return new DailyCustomerSpend(DSL.name(name), null);
+    }
+
+    /**
+     * Rename this table
+     */
+    @Override
+    public DailyCustomerSpend rename(Name name) {
+        return new DailyCustomerSpend(name, null);
+    }
+
+    /**
+     * Rename this table
+     */
+    @Override
+    public DailyCustomerSpend rename(Table<?> name) {
+        return new DailyCustomerSpend(name.getQualifiedName(), null);
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    public DailyCustomerSpend where(Condition condition) {
+        return new DailyCustomerSpend(getQualifiedName(), aliased() ? this : null, null, condition);
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    public DailyCustomerSpend where(Collection<? extends Condition> conditions) {
+        return where(DSL.and(conditions));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    public DailyCustomerSpend where(Condition... conditions) {
+        return where(DSL.and(conditions));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    public DailyCustomerSpend where(Field<Boolean> condition) {
+        return where(DSL.condition(condition));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    @PlainSQL
+    public DailyCustomerSpend where(SQL condition) {
+        return where(DSL.condition(condition));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    @PlainSQL
+    public DailyCustomerSpend where(@Stringly.SQL String condition) {
+        return where(DSL.condition(condition));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    @PlainSQL
+    public DailyCustomerSpend where(@Stringly.SQL String condition, Object... binds) {
+        return where(DSL.condition(condition, binds));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    @PlainSQL
+    public DailyCustomerSpend where(@Stringly.SQL String condition, QueryPart... parts) {
+        return where(DSL.condition(condition, parts));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    public DailyCustomerSpend whereExists(Select<?> select) {
+        return where(DSL.exists(select));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    public DailyCustomerSpend whereNotExists(Select<?> select) {
+        return where(DSL.notExists(select));
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * This file is generated by jOOQ.
+ */
+package com.ecommerce.analytics.jooq.tables;
+
+
+import com.ecommerce.analytics.jooq.Keys;
+import com.ecommerce.analytics.jooq.Public;
+import com.ecommerce.analytics.jooq.tables.records.DailyProductSalesRecord;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+
+import org.jooq.Condition;
+import org.jooq.Field;
+import org.jooq.Name;
+import org.jooq.PlainSQL;
+import org.jooq.QueryPart;
+import org.jooq.SQL;
+import org.jooq.Schema;
+import org.jooq.Select;
+import org.jooq.Stringly;
+import org.jooq.Table;
+import org.jooq.TableField;
+import org.jooq.TableOptions;
+import org.jooq.UniqueKey;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.jooq.impl.TableImpl;
+
+
+/**
+ * This class is generated by jOOQ.
+ */
+@SuppressWarnings({ "all", "unchecked", "rawtypes", "this-escape" })
+public class DailyProductSales extends TableImpl<DailyProductSalesRecord> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The reference instance of <code>public.daily_product_sales</code>
+     */
+    public static final DailyProductSales DAILY_PRODUCT_SALES = new DailyProductSales();
+
+    /**
+     * The class holding records for this type
+     */
+    @Override
+    public Class<DailyProductSalesRecord> getRecordType() {
+        return DailyProductSalesRecord.class;
+    }
+
+    /**
+     * The column <code>public.daily_product_sales.sales_date</code>.
+     */
+    public final TableField<DailyProductSalesRecord, LocalDate> SALES_DATE = createField(DSL.name("sales_date"), SQLDataType.LOCALDATE.nullable(false), this, "");
+
+    /**
+     * The column <code>public.daily_product_sales.product_id</code>.
+     */
+    public final TableField<DailyProductSalesRecord, Integer> PRODUCT_ID = createField(DSL.name("product_id"), SQLDataType.INTEGER.nullable(false), this, "");
+
+    /**
+     * The column <code>public.daily_product_sales.category</code>.
+     */
+    public final TableField<DailyProductSalesRecord, String> CATEGORY = createField(DSL.name("category"), SQLDataType.VARCHAR(255).nullable(false), this, "");
+
+    /**
+     * The column <code>public.daily_product_sales.quantity</code>.
+     */
+    public final TableField<DailyProductSalesRecord, Long> QUANTITY = createField(DSL.name("quantity"), SQLDataType.BIGINT.nullable(false), this, "");
+
+    /**
+     * The column <code>public.daily_product_sales.sales</code>.
+     */
+    public final TableField<DailyProductSalesRecord, BigDecimal> SALES = createField(DSL.name("sales"), SQLDataType.NUMERIC.nullable(false), this, "");
+
+    /**
+     * The column <code>public.daily_product_sales.item_count</code>.
+     */
+    public final TableField<DailyProductSalesRecord, Long> ITEM_COUNT = createField(DSL.name("item_count"), SQLDataType.BIGINT.nullable(false), this, "");
+
+    private DailyProductSales(Name alias, Table<DailyProductSalesRecord> aliased) {
+        this(alias, aliased, (Field<?>[]) null, null);
+    }
+
+    private DailyProductSales(Name alias, Table<DailyProductSalesRecord> aliased, Field<?>[] parameters, Condition where) {
+        super(alias, null, aliased, parameters, DSL.comment(""), TableOptions.table(), where);
+    }
+
+    /**
+     * Create an aliased <code>public.daily_product_sales</code> table reference
+     */
+    public DailyProductSales(String alias) {
+        this(DSL.name(alias), DAILY_PRODUCT_SALES);
+    }
+
+    /**
+     * Create an aliased <code>public.daily_product_sales</code> table reference
+     */
+    public DailyProductSales(Name alias) {
+        this(alias, DAILY_PRODUCT_SALES);
+    }
+
+    /**
+     * Create a <code>public.daily_product_sales</code> table reference
+     */
+    public DailyProductSales() {
+        this(DSL.name("daily_product_sales"), null);
+    }
+
+    @Override
+    public Schema getSchema() {
+        return aliased() ? null : Public.PUBLIC;
+    }
+
+    @Override
+    public UniqueKey<DailyProductSalesRecord> getPrimaryKey() {
+        return Keys.DAILY_PRODUCT_SALES_PKEY;
+    }
+
+    @Override
+    public DailyProductSales as(String alias) {
+        return new DailyProductSales(DSL.name(alias), this);
+    }
+
+    @Override
+    public DailyProductSales as(Name alias) {
+        return new DailyProductSales(alias, this);
+    }
+
+    @Override
+    public DailyProductSales as(Table<?> alias) {
+        return new DailyProductSales(alias.getQualifiedName(), this);
+    }
+
+    /**
+     * Rename this table
+     */
+    @Override
+    public DailyProductSales rename(String name) {
+        return new DailyProductSales(DSL.name(name), null);
+    }
+
+    /**
+     * Rename this table
+     */
+    @Override
+    public DailyProductSales rename(Name name) {
+        return new DailyProductSales(name, null);
+    }
+
+    /**
+     * Rename this table
+     */
+    @Override
+    public DailyProductSales rename(Table<?> name) {
+        return new DailyProductSales(name.getQualifiedName(), null);
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    public DailyProductSales where(Condition condition) {
+        return new DailyProductSales(getQualifiedName(), aliased() ? this : null, null, condition);
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    public DailyProductSales where(Collection<? extends Condition> conditions) {
+        return where(DSL.and(conditions));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    public DailyProductSales where(Condition... conditions) {
+        return where(DSL.and(conditions));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    public DailyProductSales where(Field<Boolean> condition) {
+        return where(DSL.condition(condition));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    @PlainSQL
+    public DailyProductSales where(SQL condition) {
+        return where(DSL.condition(condition));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    @PlainSQL
+    public DailyProductSales where(@Stringly.SQL String condition) {
+        return where(DSL.condition(condition));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    @PlainSQL
+    public DailyProductSales where(@Stringly.SQL String condition, Object... binds) {
+        return where(DSL.condition(condition, binds));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    @PlainSQL
+    public DailyProductSales where(@Stringly.SQL String condition, QueryPart... parts) {
+        return where(DSL.condition(condition, parts));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    public DailyProductSales whereExists(Select<?> select) {
+        return where(DSL.exists(select));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    public DailyProductSales whereNotExists(Select<?> select) {
+        return where(DSL.notExists(select));
+    }
+}
@@ -4,6 +4,7 @@
 package com.ecommerce.analytics.jooq.tables;
 
 
+import com.ecommerce.analytics.jooq.Indexes;
 import com.ecommerce.analytics.jooq.Keys;
 import com.ecommerce.analytics.jooq.Public;
 import com.ecommerce.analytics.jooq.tables.Customers.CustomersPath;
@@ -20,6 +21,7 @@ import org.jooq.Condition;
 import org.jooq.Field;
 import org.jooq.ForeignKey;
 import org.jooq.Identity;
+import org.jooq.Index;
 import org.jooq.InverseForeignKey;
 import org.jooq.Name;
 import org.jooq.Path;
@@ -147,6 +149,11 @@ public class Orders extends TableImpl<OrdersRecord> {
         return aliased() ? null : Public.PUBLIC;
     }
 
+    @Override
+    public List<Index> getIndexes() {
+        return Arrays.asList(Indexes.IDX_ORDERS_CUSTOMER_ID, Indexes.IDX_ORDERS_STATUS_ID);
+    }
+
     @Override
     public Identity<OrdersRecord, Integer> getIdentity() {
         return (Identity<OrdersRecord, Integer>) super.getIdentity();
@@ -0,0 +1,244 @@
+/*
+ * This file is generated by jOOQ.
+ */
+package com.ecommerce.analytics.jooq.tables;
+
+
+import com.ecommerce.analytics.jooq.Indexes;
+import com.ecommerce.analytics.jooq.Keys;
+import com.ecommerce.analytics.jooq.Public;
+import com.ecommerce.analytics.jooq.tables.records.ProductSalesTotalsRecord;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.jooq.Condition;
+import org.jooq.Field;
+import org.jooq.Index;
+import org.jooq.Name;
+import org.jooq.PlainSQL;
+import org.jooq.QueryPart;
+import org.jooq.SQL;
+import org.jooq.Schema;
+import org.jooq.Select;
+import org.jooq.Stringly;
+import org.jooq.Table;
+import org.jooq.TableField;
+import org.jooq.TableOptions;
+import org.jooq.UniqueKey;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.jooq.impl.TableImpl;
+
+
+/**
+ * This class is generated by jOOQ.
+ */
+@SuppressWarnings({ "all", "unchecked", "rawtypes", "this-escape" })
+public class ProductSalesTotals extends TableImpl<ProductSalesTotalsRecord> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The reference instance of <code>public.product_sales_totals</code>
+     */
+    public static final ProductSalesTotals PRODUCT_SALES_TOTALS = new ProductSalesTotals();
+
+    /**
+     * The class holding records for this type
+     */
+    @Override
+    public Class<ProductSalesTotalsRecord> getRecordType() {
+        return ProductSalesTotalsRecord.class;
+    }
+
+    /**
+     * The column <code>public.product_sales_totals.product_id</code>.
+     */
+    public final TableField<ProductSalesTotalsRecord, Integer> PRODUCT_ID = createField(DSL.name("product_id"), SQLDataType.INTEGER.nullable(false), this, "");
+
+    /**
+     * The column <code>public.product_sales_totals.category</code>.
+     */
+    public final TableField<ProductSalesTotalsRecord, String> CATEGORY = createField(DSL.name("category"), SQLDataType.VARCHAR(255).nullable(false), this, "");
+
+    /**
+     * The column <code>public.product_sales_totals.quantity</code>.
+     */
+    public final TableField<ProductSalesTotalsRecord, Long> QUANTITY = createField(DSL.name("quantity"), SQLDataType.BIGINT.nullable(false), this, "");
+
+    /**
+     * The column <code>public.product_sales_totals.last_xid</code>.
+     */
+    public final TableField<ProductSalesTotalsRecord, Long> LAST_XID = createField(DSL.name("last_xid"), SQLDataType.BIGINT.nullable(false), this, "");
+
+    private ProductSalesTotals(Name alias, Table<ProductSalesTotalsRecord> aliased) {
+        this(alias, aliased, (Field<?>[]) null, null);
+    }
+
+    private ProductSalesTotals(Name alias, Table<ProductSalesTotalsRecord> aliased, Field<?>[] parameters, Condition where) {
+        super(alias, null, aliased, parameters, DSL.comment(""), TableOptions.table(), where);
+    }
+
+    /**
+     * Create an aliased <code>public.product_sales_totals</code> table
+     * reference
+     */
+    public ProductSalesTotals(String alias) {
+        this(DSL.name(alias), PRODUCT_SALES_TOTALS);
+    }
+
+    /**
+     * Create an aliased <code>public.product_sales_totals</code> table
+     * reference
+     */
+    public ProductSalesTotals(Name alias) {
+        this(alias, PRODUCT_SALES_TOTALS);
+    }
+
+    /**
+     * Create a <code>public.product_sales_totals</code> table reference
+     */
+    public ProductSalesTotals() {
+        this(DSL.name("product_sales_totals"), null);
+    }
+
+    @Override
+    public Schema getSchema() {
+        return aliased() ? null : Public.PUBLIC;
+    }
+
+    @Override
+    public List<Index> getIndexes() {
+        return Arrays.asList(Indexes.IDX_PRODUCT_SALES_TOTALS_LAST_XID, Indexes.IDX_PRODUCT_SALES_TOTALS_RANK);
+    }
+
+    @Override
+    public UniqueKey<ProductSalesTotalsRecord> getPrimaryKey() {
+        return Keys.PRODUCT_SALES_TOTALS_PKEY;
+    }
+
+    @Override
+    public ProductSalesTotals as(String alias) {
+        return new ProductSalesTotals(DSL.name(alias), this);
+    }
+
+    @Override
+    public ProductSalesTotals as(Name alias) {
+        return new ProductSalesTotals(alias, this);
+    }
+
+    @Override
+    public ProductSalesTotals as(Table<?> alias) {
+        return new ProductSalesTotals(alias.getQualifiedName(), this);
+    }
+
+    /**
+     * Rename this table
+     */
+    @Override
+    public ProductSalesTotals rename(String name) {
+        return new ProductSalesTotals(DSL.name(name), null);
+    }
+
+    /**
+     * Rename this table
+     */
+    @Override
+    public ProductSalesTotals rename(Name name) {
+        return new ProductSalesTotals(name, null);
+    }
+
+    /**
+     * Rename this table
+     */
+    @Override
+    public ProductSalesTotals rename(Table<?> name) {
+        return new ProductSalesTotals(name.getQualifiedName(), null);
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    public ProductSalesTotals where(Condition condition) {
+        return new ProductSalesTotals(getQualifiedName(), aliased() ? this : null, null, condition);
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    public ProductSalesTotals where(Collection<? extends Condition> conditions) {
+        return where(DSL.and(conditions));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    public ProductSalesTotals where(Condition... conditions) {
+        return where(DSL.and(conditions));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    public ProductSalesTotals where(Field<Boolean> condition) {
+        return where(DSL.condition(condition));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    @PlainSQL
+    public ProductSalesTotals where(SQL condition) {
+        return where(DSL.condition(condition));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    @PlainSQL
+    public ProductSalesTotals where(@Stringly.SQL String condition) {
+        return where(DSL.condition(condition));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    @PlainSQL
+    public ProductSalesTotals where(@Stringly.SQL String condition, Object... binds) {
+        return where(DSL.condition(condition, binds));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    @PlainSQL
+    public ProductSalesTotals where(@Stringly.SQL String condition, QueryPart... parts) {
+        return where(DSL.condition(condition, parts));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    public ProductSalesTotals whereExists(Select<?> select) {
+        return where(DSL.exists(select));
+    }
+
+    /**
+     * Create an inline derived table from this table
+     */
+    @Override
+    public ProductSalesTotals whereNotExists(Select<?> select) {
+        return where(DSL.notExists(select));
+    }
+}
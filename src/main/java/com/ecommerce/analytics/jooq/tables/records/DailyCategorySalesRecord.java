@@ -0,0 +1,112 @@
+/*
+ * This file is generated by jOOQ.
+ */
+package com.ecommerce.analytics.jooq.tables.records;
+
+
+import com.ecommerce.analytics.jooq.tables.DailyCategorySales;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.jooq.Record2;
+import org.jooq.impl.UpdatableRecordImpl;
+
+
+/**
+ * This class is generated by jOOQ.
+ */
+@SuppressWarnings({ "all", "unchecked", "rawtypes", "this-escape" })
+public class DailyCategorySalesRecord extends UpdatableRecordImpl<DailyCategorySalesRecord> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Setter for <code>public.daily_category_sales.sales_date</code>.
+     */
+    public void setSalesDate(LocalDate value) {
+        set(0, value);
+    }
+
+    /**
+     * Getter for <code>public.daily_category_sales.sales_date</code>.
+     */
+    public LocalDate getSalesDate() {
+        return (LocalDate) get(0);
+    }
+
+    /**
+     * Setter for <code>public.daily_category_sales.category</code>.
+     */
+    public void setCategory(String value) {
+        set(1, value);
+    }
+
+    /**
+     * Getter for <code>public.daily_category_sales.category</code>.
+     */
+    public String getCategory() {
+        return (String) get(1);
+    }
+
+    /**
+     * Setter for <code>public.daily_category_sales.sales</code>.
+     */
+    public void setSales(BigDecimal value) {
+        set(2, value);
+    }
+
+    /**
+     * Getter for <code>public.daily_category_sales.sales</code>.
+     */
+    public BigDecimal getSales() {
+        return (BigDecimal) get(2);
+    }
+
+    /**
+     * Setter for <code>public.daily_category_sales.item_count</code>.
+     */
+    public void setItemCount(Long value) {
+        set(3, value);
+    }
+
+    /**
+     * Getter for <code>public.daily_category_sales.item_count</code>.
+     */
+    public Long getItemCount() {
+        return (Long) get(3);
+    }
+
+    // -------------------------------------------------------------------------
+    // Primary key information
+    // -------------------------------------------------------------------------
+
+    @Override
+    public Record2<LocalDate, String> key() {
+        return (Record2) super.key();
+    }
+
+    // -------------------------------------------------------------------------
+    // Constructors
+    // -------------------------------------------------------------------------
+
+    /**
+     * Create a detached DailyCategorySalesRecord
+     */
+    public DailyCategorySalesRecord() {
+        super(DailyCategorySales.DAILY_CATEGORY_SALES);
+    }
+
+    /**
+     * Create a detached, initialised DailyCategorySalesRecord
+     */
+    public DailyCategorySalesRecord(LocalDate salesDate, String category, BigDecimal sales, Long itemCount) {
+        super(DailyCategorySales.DAILY_CATEGORY_SALES);
+
+        setSalesDate(salesDate);
+        setCategory(category);
+        setSales(sales);
+        setItemCount(itemCount);
+        resetChangedOnNotNull();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * This file is generated by jOOQ.
+ */
+package com.ecommerce.analytics.jooq.tables.records;
+
+
+import com.ecommerce.analytics.jooq.tables.DailyCustomerSpend;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.jooq.Record2;
+import org.jooq.impl.UpdatableRecordImpl;
+
+
+/**
+ * This class is generated by jOOQ.
+ */
+@SuppressWarnings({ "all", "unchecked", "rawtypes", "this-escape" })
+public class DailyCustomerSpendRecord extends UpdatableRecordImpl<DailyCustomerSpendRecord> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Setter for <code>public.daily_customer_spend.sales_date</code>.
+     */
+    public void setSalesDate(LocalDate value) {
+        set(0, value);
+    }
+
+    /**
+     * Getter for <code>public.daily_customer_spend.sales_date</code>.
+     */
+    public LocalDate getSalesDate() {
+        return (LocalDate) get(0);
+    }
+
+    /**
+     * Setter for <code>public.daily_customer_spend.customer_id</code>.
+     */
+    public void setCustomerId(Integer value) {
+        set(1, value);
+    }
+
+    /**
+     * Getter for <code>public.daily_customer_spend.customer_id</code>.
+     */
+    public Integer getCustomerId() {
+        return (Integer) get(1);
+    }
+
+    /**
+     * Setter for <code>public.daily_customer_spend.spend</code>.
+     */
+    public void setSpend(BigDecimal value) {
+        set(2, value);
+    }
+
+    /**
+     * Getter for <code>public.daily_customer_spend.spend</code>.
+     */
+    public BigDecimal getSpend() {
+        return (BigDecimal) get(2);
+    }
+
+    /**
+     * Setter for <code>public.daily_customer_spend.item_count</code>.
+     */
+    public void setItemCount(Long value) {
+        set(3, value);
+    }
+
+    /**
+     * Getter for <code>public.daily_customer_spend.item_count</code>.
+     */
+    public Long getItemCount() {
+        return (Long) get(3);
+    }
+
+    // -------------------------------------------------------------------------
+    // Primary key information
+    // -------------------------------------------------------------------------
+
+    @Override
+    public Record2<LocalDate, Integer> key() {
+        return (Record2) super.key();
+    }
+
+    // -------------------------------------------------------------------------
+    // Constructors
+    // -------------------------------------------------------------------------
+
+    /**
+     * Create a detached DailyCustomerSpendRecord
+     */
+    public DailyCustomerSpendRecord() {
+        super(DailyCustomerSpend.DAILY_CUSTOMER_SPEND);
+    }
+
+    /**
+     * Create a detached, initialised DailyCustomerSpendRecord
+     */
+    public DailyCustomerSpendRecord(LocalDate salesDate, Integer customerId, BigDecimal spend, Long itemCount) {
+        super(DailyCustomerSpend.DAILY_CUSTOMER_SPEND);
+
+        setSalesDate(salesDate);
+        setCustomerId(customerId);
+        setSpend(spend);
+        setItemCount(itemCount);
+        resetChangedOnNotNull();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * This file is generated by jOOQ.
+ */
+package com.ecommerce.analytics.jooq.tables.records;
+
+
+import com.ecommerce.analytics.jooq.tables.DailyProductSales;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.jooq.Record2;
+import org.jooq.impl.UpdatableRecordImpl;
+
+
+/**
+ * This class is generated by jOOQ.
+ */
+@SuppressWarnings({ "all", "unchecked", "rawtypes", "this-escape" })
+public class DailyProductSalesRecord extends UpdatableRecordImpl<DailyProductSalesRecord> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Setter for <code>public.daily_product_sales.sales_date</code>.
+     */
+    public void setSalesDate(LocalDate value) {
+        set(0, value);
+    }
+
+    /**
+     * Getter for <code>public.daily_product_sales.sales_date</code>.
+     */
+    public LocalDate getSalesDate() {
+        return (LocalDate) get(0);
+    }
+
+    /**
+     * Setter for <code>public.daily_product_sales.product_id</code>.
+     */
+    public void setProductId(Integer value) {
+        set(1, value);
+    }
+
+    /**
+     * Getter for <code>public.daily_product_sales.product_id</code>.
+     */
+    public Integer getProductId() {
+        return (Integer) get(1);
+    }
+
+    /**
+     * Setter for <code>public.daily_product_sales.category</code>.
+     */
+    public void setCategory(String value) {
+        set(2, value);
+    }
+
+    /**
+     * Getter for <code>public.daily_product_sales.category</code>.
+     */
+    public String getCategory() {
+        return (String) get(2);
+    }
+
+    /**
+     * Setter for <code>public.daily_product_sales.quantity</code>.
+     */
+    public void setQuantity(Long value) {
+        set(3, value);
+    }
+
+    /**
+     * Getter for <code>public.daily_product_sales.quantity</code>.
+     */
+    public Long getQuantity() {
+        return (Long) get(3);
+    }
+
+    /**
+     * Setter for <code>public.daily_product_sales.sales</code>.
+     */
+    public void setSales(BigDecimal value) {
+        set(4, value);
+    }
+
+    /**
+     * Getter for <code>public.daily_product_sales.sales</code>.
+     */
+    public BigDecimal getSales() {
+        return (BigDecimal) get(4);
+    }
+
+    /**
+     * Setter for <code>public.daily_product_sales.item_count</code>.
+     */
+    public void setItemCount(Long value) {
+        set(5, value);
+    }
+
+    /**
+     * Getter for <code>public.daily_product_sales.item_count</code>.
+     */
+    public Long getItemCount() {
+        return (Long) get(5);
+    }
+
+    // -------------------------------------------------------------------------
+    // Primary key information
+    // -------------------------------------------------------------------------
+
+    @Override
+    public Record2<LocalDate, Integer> key() {
+        return (Record2) super.key();
+    }
+
+    // -------------------------------------------------------------------------
+    // Constructors
+    // -------------------------------------------------------------------------
+
+    /**
+     * Create a detached DailyProductSalesRecord
+     */
+    public DailyProductSalesRecord() {
+        super(DailyProductSales.DAILY_PRODUCT_SALES);
+    }
+
+    /**
+     * Create a detached, initialised DailyProductSalesRecord
+     */
+    public DailyProductSalesRecord(LocalDate salesDate, Integer productId, String category, Long quantity, BigDecimal sales, Long itemCount) {
+        super(DailyProductSales.DAILY_PRODUCT_SALES);
+
+        setSalesDate(salesDate);
+        setProductId(productId);
+        setCategory(category);
+        setQuantity(quantity);
+        setSales(sales);
+        setItemCount(itemCount);
+        resetChangedOnNotNull();
+    }
+}
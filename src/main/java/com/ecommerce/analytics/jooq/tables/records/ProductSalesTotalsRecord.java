@@ -0,0 +1,109 @@
+/*
+ * This file is generated by jOOQ.
+ */
+package com.ecommerce.analytics.jooq.tables.records;
+
+
+import com.ecommerce.analytics.jooq.tables.ProductSalesTotals;
+
+import org.jooq.Record1;
+import org.jooq.impl.UpdatableRecordImpl;
+
+
+/**
+ * This class is generated by jOOQ.
+ */
+@SuppressWarnings({ "all", "unchecked", "rawtypes", "this-escape" })
+public class ProductSalesTotalsRecord extends UpdatableRecordImpl<ProductSalesTotalsRecord> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Setter for <code>public.product_sales_totals.product_id</code>.
+     */
+    public void setProductId(Integer value) {
+        set(0, value);
+    }
+
+    /**
+     * Getter for <code>public.product_sales_totals.product_id</code>.
+     */
+    public Integer getProductId() {
+        return (Integer) get(0);
+    }
+
+    /**
+     * Setter for <code>public.product_sales_totals.category</code>.
+     */
+    public void setCategory(String value) {
+        set(1, value);
+    }
+
+    /**
+     * Getter for <code>public.product_sales_totals.category</code>.
+     */
+    public String getCategory() {
+        return (String) get(1);
+    }
+
+    /**
+     * Setter for <code>public.product_sales_totals.quantity</code>.
+     */
+    public void setQuantity(Long value) {
+        set(2, value);
+    }
+
+    /**
+     * Getter for <code>public.product_sales_totals.quantity</code>.
+     */
+    public Long getQuantity() {
+        return (Long) get(2);
+    }
+
+    /**
+     * Setter for <code>public.product_sales_totals.last_xid</code>.
+     */
+    public void setLastXid(Long value) {
+        set(3, value);
+    }
+
+    /**
+     * Getter for <code>public.product_sales_totals.last_xid</code>.
+     */
+    public Long getLastXid() {
+        return (Long) get(3);
+    }
+
+    // -------------------------------------------------------------------------
+    // Primary key information
+    // -------------------------------------------------------------------------
+
+    @Override
+    public Record1<Integer> key() {
+        return (Record1) super.key();
+    }
+
+    // -------------------------------------------------------------------------
+    // Constructors
+    // -------------------------------------------------------------------------
+
+    /**
+     * Create a detached ProductSalesTotalsRecord
+     */
+    public ProductSalesTotalsRecord() {
+        super(ProductSalesTotals.PRODUCT_SALES_TOTALS);
+    }
+
+    /**
+     * Create a detached, initialised ProductSalesTotalsRecord
+     */
+    public ProductSalesTotalsRecord(Integer productId, String category, Long quantity, Long lastXid) {
+        super(ProductSalesTotals.PRODUCT_SALES_TOTALS);
+
+        setProductId(productId);
+        setCategory(category);
+        setQuantity(quantity);
+        setLastXid(lastXid);
+        resetChangedOnNotNull();
+    }
+}
@@ -0,0 +1,222 @@
+package com.ecommerce.analytics.migration;
+
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Table;
+import org.jooq.impl.SQLDataType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import static com.ecommerce.analytics.constants.AnalyticsConstants.*;
+import static org.jooq.SQLDialect.POSTGRES;
+import static org.jooq.impl.DSL.*;
+
+// Brings a database created from init_scheme.sql up to date with the scripts under db/migration. Each
+// V<version>__<description>.sql runs once, in version order and in a transaction of its own, and is recorded in
+// schema_migrations. A script with a "-- no-transaction" line runs one statement at a time outside a transaction
+// instead, which CREATE INDEX CONCURRENTLY needs. Runs before the DSLContext is created, so nothing queries a schema
+// that is not migrated yet
+@Component
+@ConditionalOnProperty(name = "app.analytics.db.migrate", havingValue = "true", matchIfMissing = true)
+public class SchemaMigrator implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    private static final String FILE_PATTERN = "/V*__*.sql";
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+    private static final Pattern NO_TRANSACTION = Pattern.compile("^--\\s*no-transaction\\s*$", Pattern.MULTILINE);
+    // Any constant works as long as every instance uses the same one
+    private static final long LOCK_KEY = 0x616e616c79746963L;
+
+    private static final Table<?> SCHEMA_MIGRATIONS = table(name("schema_migrations"));
+    private static final Field<Integer> VERSION = field(name("version"), SQLDataType.INTEGER);
+    private static final Field<String> DESCRIPTION = field(name("description"), SQLDataType.VARCHAR(255));
+    private static final Field<Long> CHECKSUM = field(name("checksum"), SQLDataType.BIGINT);
+    private static final Field<OffsetDateTime> INSTALLED_ON = field(name("installed_on"), SQLDataType.TIMESTAMPWITHTIMEZONE);
+
+    record Migration(int version, String description, String script, long checksum, boolean transactional) {
+    }
+
+    private final DataSource dataSource;
+    private final String location;
+
+    public SchemaMigrator(DataSource dataSource,
+                          @Value("${app.analytics.db.migration-location}") String location) {
+        this.dataSource = dataSource;
+        this.location = location;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws SQLException {
+        migrate(load(location));
+    }
+
+    // Instances starting side by side wait for each other on the advisory lock, the later ones find nothing to do
+    void migrate(List<Migration> migrations) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            DSLContext db = using(connection, POSTGRES);
+            db.select(field("pg_advisory_lock({0})", LOCK_KEY)).fetch();
+            try {
+                db.createTableIfNotExists(SCHEMA_MIGRATIONS)
+                        .column(VERSION.getName(), VERSION.getDataType().nullable(false))
+                        .column(DESCRIPTION.getName(), DESCRIPTION.getDataType().nullable(false))
+                        .column(CHECKSUM.getName(), CHECKSUM.getDataType().nullable(false))
+                        .column(INSTALLED_ON.getName(), INSTALLED_ON.getDataType().nullable(false))
+                        .primaryKey(VERSION.getName())
+                        .execute();
+
+                Map<Integer, Long> applied = db.select(VERSION, CHECKSUM)
+                        .from(SCHEMA_MIGRATIONS)
+                        .fetchMap(VERSION, CHECKSUM);
+
+                for (Migration migration : migrations) {
+                    Long checksum = applied.get(migration.version());
+                    if (checksum == null) {
+                        apply(connection, db, migration);
+                    } else if (checksum != migration.checksum()) {
+                        throw new IllegalStateException(MIGRATION_CHANGED_ERROR + ": V" + migration.version());
+                    }
+                }
+            } finally {
+                db.select(field("pg_advisory_unlock({0})", LOCK_KEY)).fetch();
+            }
+        }
+    }
+
+    // The script goes to the driver as it is, jOOQ would read its question marks and braces as bind placeholders
+    private static void apply(Connection connection, DSLContext db, Migration migration) throws SQLException {
+        long started = System.nanoTime();
+        if (migration.transactional()) {
+            applyInTransaction(connection, db, migration);
+        } else {
+            applyStatements(connection, db, migration);
+        }
+        log.info("Applied schema migration V{} ({}) in {} ms",
+                migration.version(), migration.description(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private static void applyInTransaction(Connection connection, DSLContext db, Migration migration) throws SQLException {
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(migration.script());
+            db.insertInto(SCHEMA_MIGRATIONS, VERSION, DESCRIPTION, CHECKSUM, INSTALLED_ON)
+                    .values(migration.version(), migration.description(), migration.checksum(), OffsetDateTime.now())
+                    .execute();
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw new IllegalStateException(MIGRATION_FAILED_ERROR + ": V" + migration.version(), e);
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    // Several statements sent at once would still run as one implicit transaction, so each goes on its own. The
+    // migration is only recorded after the last one, statements that ran before a failure stay applied and the
+    // script has to be safe to run again
+    private static void applyStatements(Connection connection, DSLContext db, Migration migration) {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : statements(migration.script())) {
+                statement.execute(sql);
+            }
+            db.insertInto(SCHEMA_MIGRATIONS, VERSION, DESCRIPTION, CHECKSUM, INSTALLED_ON)
+                    .values(migration.version(), migration.description(), migration.checksum(), OffsetDateTime.now())
+                    .execute();
+        } catch (SQLException | RuntimeException e) {
+            throw new IllegalStateException(MIGRATION_FAILED_ERROR + ": V" + migration.version(), e);
+        }
+    }
+
+    // Splits on semicolons outside comments and quotes. Dollar quoted bodies are not recognized, a script that
+    // needs them has to run in a transaction
+    static List<String> statements(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int i = 0;
+        while (i < script.length()) {
+            char c = script.charAt(i);
+            int end = i + 1;
+            if (c == '-' && script.startsWith("--", i)) {
+                end = script.indexOf('\n', i);
+                end = end < 0 ? script.length() : end;
+            } else if (c == '/' && script.startsWith("/*", i)) {
+                end = script.indexOf("*/", i + 2);
+                end = end < 0 ? script.length() : end + 2;
+            } else if (c == '\'' || c == '"') {
+                // A doubled quote inside is an escaped one, the scan simply closes and reopens
+                end = script.indexOf(c, i + 1);
+                end = end < 0 ? script.length() : end + 1;
+            } else if (c == ';') {
+                addStatement(statements, current);
+                current.setLength(0);
+                i++;
+                continue;
+            }
+            current.append(script, i, end);
+            i = end;
+        }
+        addStatement(statements, current);
+        return statements;
+    }
+
+    private static void addStatement(List<String> statements, StringBuilder current) {
+        String statement = current.toString().strip();
+        if (!statement.isEmpty() && !statement.lines().allMatch(line -> line.isBlank() || line.strip().startsWith("--"))) {
+            statements.add(statement);
+        }
+    }
+
+    static List<Migration> load(String location) {
+        List<Migration> migrations = new ArrayList<>();
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources(location + FILE_PATTERN)) {
+                Matcher matcher = FILE_NAME.matcher(resource.getFilename());
+                if (!matcher.matches()) {
+                    throw new IllegalStateException(MIGRATION_NAME_ERROR + ": " + resource.getFilename());
+                }
+                String script = resource.getContentAsString(StandardCharsets.UTF_8);
+                migrations.add(new Migration(Integer.parseInt(matcher.group(1)), matcher.group(2).replace('_', ' '),
+                        script, checksum(script), !NO_TRANSACTION.matcher(script).find()));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(MIGRATION_FAILED_ERROR, e);
+        }
+        migrations.sort(Comparator.comparingInt(Migration::version));
+
+        // Only one of them would ever run, whichever the classpath happened to list first
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).version() == migrations.get(i - 1).version()) {
+                throw new IllegalStateException(MIGRATION_DUPLICATE_ERROR + ": V" + migrations.get(i).version());
+            }
+        }
+        return migrations;
+    }
+
+    // Line endings do not count, a checkout with CRLF is still the same migration
+    static long checksum(String script) {
+        CRC32 crc = new CRC32();
+        crc.update(script.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,15 @@
+package com.ecommerce.analytics.migration;
+
+import org.springframework.boot.sql.init.dependency.AbstractBeansOfTypeDatabaseInitializerDetector;
+
+import java.util.Set;
+
+// Registered in META-INF/spring.factories, makes the DSLContext and everything else that depends on database
+// initialization wait for SchemaMigrator like it would for Flyway
+public class SchemaMigratorDatabaseInitializerDetector extends AbstractBeansOfTypeDatabaseInitializerDetector {
+
+    @Override
+    protected Set<Class<?>> getDatabaseInitializerBeanTypes() {
+        return Set.of(SchemaMigrator.class);
+    }
+}
@@ -0,0 +1,259 @@
+package com.ecommerce.analytics.ranking;
+
+import com.ecommerce.analytics.admission.AdmissionPriority;
+import com.ecommerce.analytics.admission.DatabaseAdmissionLimiter;
+import com.ecommerce.analytics.dto.AnalyticsMetric;
+import com.ecommerce.analytics.dto.DateRangeDTO;
+import com.ecommerce.analytics.dto.ProductRankByCategoryDTO;
+import com.ecommerce.analytics.invalidation.AnalyticsDataChangedEvent;
+import com.ecommerce.analytics.repository.RollupRepository;
+import org.jooq.Record4;
+import org.jooq.Result;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.ecommerce.analytics.constants.AnalyticsConstants.MAX_LIMIT;
+
+// The MAX_LIMIT best selling products of every category, so any per-category limit is a prefix of a list in memory.
+// A change notification only reads the product_sales_totals rows written since the previous read; a category is
+// queried again only when one of its listed products fell and an unlisted one may now rank above it
+@Component
+public class CategoryRankIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryRankIndex.class);
+
+    private record RankedProduct(int productId, String productName, String category, long quantity) {
+    }
+
+    private static final Comparator<RankedProduct> BEST_FIRST = Comparator
+            .comparingLong(RankedProduct::quantity).reversed()
+            .thenComparingInt(RankedProduct::productId);
+
+    private final RollupRepository rollupRepository;
+    private final DatabaseAdmissionLimiter admissionLimiter;
+    private final boolean tracksChanges;
+
+    // Guards everything but the published lists, held across queries so it is not a monitor
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, NavigableSet<RankedProduct>> leaders = new HashMap<>();
+    private final Map<Integer, RankedProduct> listed = new HashMap<>();
+    // Categories with more selling products than the depth, the unlisted ones all rank below the listed ones
+    private final Set<String> truncated = new HashSet<>();
+    private long readFromXid;
+    private volatile boolean loaded;
+
+    private volatile Map<String, List<ProductRankByCategoryDTO>> published = Map.of();
+
+    public CategoryRankIndex(RollupRepository rollupRepository,
+                             DatabaseAdmissionLimiter admissionLimiter,
+                             @Value("${app.analytics.cache.invalidation.enabled:true}") boolean tracksChanges) {
+        this.rollupRepository = rollupRepository;
+        this.admissionLimiter = admissionLimiter;
+        this.tracksChanges = tracksChanges;
+    }
+
+    // Without change notifications nothing would say when the lists are out of date
+    public boolean tracksChanges() {
+        return tracksChanges;
+    }
+
+    public List<ProductRankByCategoryDTO> top(int limit) {
+        Map<String, List<ProductRankByCategoryDTO>> categories = loadedLists();
+
+        int size = 0;
+        for (List<ProductRankByCategoryDTO> ranked : categories.values()) {
+            size += Math.min(limit, ranked.size());
+        }
+        List<ProductRankByCategoryDTO> top = new ArrayList<>(size);
+        for (List<ProductRankByCategoryDTO> ranked : categories.values()) {
+            top.addAll(ranked.subList(0, Math.min(limit, ranked.size())));
+        }
+        return top;
+    }
+
+    // Ahead of the result cache, whose refresh of the same change reads these lists
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onDataChanged(AnalyticsDataChangedEvent event) {
+        DateRangeDTO changed = event.changes().get(AnalyticsMetric.PRODUCT_RANK_BY_CATEGORY);
+        if (changed != null) {
+            refreshIfLoaded(changed);
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            loaded = false;
+            clear();
+            published = Map.of();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Map<String, List<ProductRankByCategoryDTO>> loadedLists() {
+        if (!loaded) {
+            load();
+        }
+        return published;
+    }
+
+    // The first read waits for a query slot like the query it stands in for, refreshes after a notification do not
+    private void load() {
+        lock.lock();
+        try {
+            if (!loaded) {
+                admissionLimiter.call(AnalyticsMetric.PRODUCT_RANK_BY_CATEGORY.name().toLowerCase(), AdmissionPriority.CHEAP, () -> {
+                    reload();
+                    return null;
+                });
+                loaded = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Product and truncate notifications name no dates and may rename or recategorise anything, those start over
+    private void refreshIfLoaded(DateRangeDTO changed) {
+        lock.lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            if (changed.isUnbounded()) {
+                reload();
+            } else {
+                applyChanges();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void reload() {
+        long started = System.nanoTime();
+        long xid = rollupRepository.getOldestRunningXid();
+        clear();
+
+        // One extra row per category tells a full list apart from a truncated one
+        for (Record4<Integer, String, String, Long> row : rollupRepository.getCategoryLeaders(MAX_LIMIT + 1)) {
+            RankedProduct product = rankedProduct(row);
+            NavigableSet<RankedProduct> ranked = leaders.computeIfAbsent(product.category(), category -> new TreeSet<>(BEST_FIRST));
+            if (ranked.size() == MAX_LIMIT) {
+                truncated.add(product.category());
+            } else {
+                ranked.add(product);
+                listed.put(product.productId(), product);
+            }
+        }
+        readFromXid = xid;
+        publish();
+        log.debug("Loaded {} category leaders in {} ms", listed.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void applyChanges() {
+        long started = System.nanoTime();
+        long xid = rollupRepository.getOldestRunningXid();
+        Set<String> stale = new HashSet<>();
+
+        Result<Record4<Integer, String, String, Long>> changes = rollupRepository.getProductSalesTotalsChangedSince(readFromXid);
+        for (Record4<Integer, String, String, Long> row : changes) {
+            RankedProduct product = rankedProduct(row);
+            RankedProduct previous = listed.remove(product.productId());
+            boolean fell = false;
+            if (previous != null) {
+                leaders.get(previous.category()).remove(previous);
+                // A drop or a move may leave room for a product that is not listed
+                fell = !previous.category().equals(product.category()) || product.quantity() < previous.quantity();
+                if (fell && truncated.contains(previous.category())) {
+                    stale.add(previous.category());
+                }
+            }
+
+            if (previous != null && !fell) {
+                // Still ahead of every unlisted product, wherever it lands among the listed ones
+                leaders.get(product.category()).add(product);
+                listed.put(product.productId(), product);
+            } else if (product.quantity() > 0) {
+                place(product);
+            }
+        }
+
+        for (String category : stale) {
+            reload(category);
+        }
+        leaders.values().removeIf(Set::isEmpty);
+        readFromXid = xid;
+        publish();
+        log.debug("Applied {} product total changes, re-read {} categories in {} ms",
+                changes.size(), stale.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void place(RankedProduct product) {
+        NavigableSet<RankedProduct> ranked = leaders.computeIfAbsent(product.category(), category -> new TreeSet<>(BEST_FIRST));
+
+        // Unlisted products of a truncated category rank below its last listed one, so only a product beating it gets in
+        if (truncated.contains(product.category()) && !ranked.isEmpty() && BEST_FIRST.compare(product, ranked.last()) > 0) {
+            return;
+        }
+        ranked.add(product);
+        listed.put(product.productId(), product);
+        if (ranked.size() > MAX_LIMIT) {
+            listed.remove(ranked.pollLast().productId());
+            truncated.add(product.category());
+        }
+    }
+
+    private void reload(String category) {
+        leaders.getOrDefault(category, Collections.emptyNavigableSet())
+                .forEach(product -> listed.remove(product.productId()));
+        NavigableSet<RankedProduct> ranked = new TreeSet<>(BEST_FIRST);
+        leaders.put(category, ranked);
+        truncated.remove(category);
+
+        for (Record4<Integer, String, String, Long> row : rollupRepository.getCategoryLeaders(category, MAX_LIMIT + 1)) {
+            if (ranked.size() == MAX_LIMIT) {
+                truncated.add(category);
+                break;
+            }
+            RankedProduct product = rankedProduct(row);
+            ranked.add(product);
+            listed.put(product.productId(), product);
+        }
+    }
+
+    private void clear() {
+        leaders.clear();
+        listed.clear();
+        truncated.clear();
+    }
+
+    // Ranks are fixed until the next change, so the response rows are built once and shared by every request
+    private void publish() {
+        Map<String, List<ProductRankByCategoryDTO>> categories = new TreeMap<>();
+        leaders.forEach((category, ranked) -> {
+            List<ProductRankByCategoryDTO> rows = new ArrayList<>(ranked.size());
+            for (RankedProduct product : ranked) {
+                rows.add(new ProductRankByCategoryDTO(product.productId(), product.productName(), category,
+                        BigDecimal.valueOf(product.quantity()), rows.size() + 1));
+            }
+            categories.put(category, List.copyOf(rows));
+        });
+        published = Collections.unmodifiableMap(categories);
+    }
+
+    private static RankedProduct rankedProduct(Record4<Integer, String, String, Long> row) {
+        return new RankedProduct(row.value1(), row.value2(), row.value3(), row.value4());
+    }
+}
@@ -0,0 +1,63 @@
+package com.ecommerce.analytics.ratelimit;
+
+import com.ecommerce.analytics.config.ApiClientProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.ecommerce.analytics.constants.AnalyticsConstants.DEFAULT_API_CLIENT;
+
+// One token bucket per API key, built once at startup, so a lookup is a read of an immutable map and a request
+// only ever contends with requests of the same key
+@Component
+public class ApiKeyRateLimiter {
+
+    public record Result(String client, long limit, TokenBucket.Decision decision) {
+    }
+
+    private record Client(String name, TokenBucket bucket, Counter allowed, Counter limited) {
+    }
+
+    private final Map<String, Client> clientsByKey;
+
+    public ApiKeyRateLimiter(ApiClientProperties properties,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.api-key}") String defaultKey,
+                             @Value("${app.rate-limit.requests-per-second}") double requestsPerSecond,
+                             @Value("${app.rate-limit.burst}") long burst) {
+        Map<String, Client> clients = new HashMap<>();
+        clients.put(defaultKey, client(meterRegistry, DEFAULT_API_CLIENT, requestsPerSecond, burst));
+        properties.apiClients().forEach((name, apiClient) -> {
+            if (apiClient.key() == null || apiClient.key().isBlank() || clients.containsKey(apiClient.key())) {
+                throw new IllegalStateException("API client '" + name + "' needs a key of its own");
+            }
+            clients.put(apiClient.key(), client(meterRegistry, name,
+                    apiClient.requestsPerSecond() != null ? apiClient.requestsPerSecond() : requestsPerSecond,
+                    apiClient.burst() != null ? apiClient.burst() : burst));
+        });
+        this.clientsByKey = Map.copyOf(clients);
+    }
+
+    // Null for a key nobody was given, which is left to authentication to turn away
+    public Result tryAcquire(String apiKey) {
+        Client client = clientsByKey.get(apiKey);
+        if (client == null) {
+            return null;
+        }
+
+        TokenBucket.Decision decision = client.bucket().tryAcquire();
+        (decision.allowed() ? client.allowed() : client.limited()).increment();
+        return new Result(client.name(), client.bucket().capacity(), decision);
+    }
+
+    private static Client client(MeterRegistry meterRegistry, String name, double requestsPerSecond, long burst) {
+        return new Client(name,
+                new TokenBucket(requestsPerSecond, burst),
+                meterRegistry.counter("analytics.api.requests", "client", name, "result", "allowed"),
+                meterRegistry.counter("analytics.api.requests", "client", name, "result", "limited"));
+    }
+}
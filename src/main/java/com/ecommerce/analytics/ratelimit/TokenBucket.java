@@ -0,0 +1,49 @@
+package com.ecommerce.analytics.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// A token bucket kept as the single time at which it will be full again (the generic cell rate algorithm), so taking
+// a token is one compare-and-set on that time and callers of one key never wait on a lock, let alone those of others
+public class TokenBucket {
+
+    public record Decision(boolean allowed, long remaining, long resetNanos, long retryAfterNanos) {
+    }
+
+    private final long capacity;
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final LongSupplier clock;
+    private final AtomicLong fullAt;
+
+    public TokenBucket(double tokensPerSecond, long capacity) {
+        this(tokensPerSecond, capacity, System::nanoTime);
+    }
+
+    TokenBucket(double tokensPerSecond, long capacity, LongSupplier clock) {
+        this.capacity = capacity;
+        this.nanosPerToken = Math.max(1, Math.round(1_000_000_000 / tokensPerSecond));
+        this.burstNanos = Math.multiplyExact(nanosPerToken, capacity);
+        this.clock = clock;
+        this.fullAt = new AtomicLong(clock.getAsLong());
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public Decision tryAcquire() {
+        while (true) {
+            long now = clock.getAsLong();
+            long previous = fullAt.get();
+            // A bucket that filled up in the past is full now, not ahead by the idle time
+            long next = Math.max(previous - now, 0) + nanosPerToken;
+            if (next > burstNanos) {
+                return new Decision(false, 0, previous - now, next - burstNanos);
+            }
+            if (fullAt.compareAndSet(previous, now + next)) {
+                return new Decision(true, (burstNanos - next) / nanosPerToken, next, 0);
+            }
+        }
+    }
+}
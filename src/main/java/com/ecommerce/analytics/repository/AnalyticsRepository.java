@@ -1,9 +1,15 @@
 package com.ecommerce.analytics.repository;
 
+import com.ecommerce.analytics.dto.DateRangeDTO;
 import org.jooq.*;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.function.Consumer;
 
 import static com.ecommerce.analytics.jooq.Tables.*;
 import static com.ecommerce.analytics.constants.AnalyticsConstants.*;
@@ -13,58 +19,113 @@ import static org.jooq.impl.SQLDataType.BIGINT;
 @Repository
 public class AnalyticsRepository {
 
+    // Only present after db/partition_orders_by_month.sql, so it is not part of the generated ORDER_ITEMS table
+    private static final Field<LocalDate> ORDER_ITEMS_ORDER_DATE =
+            field(name(ORDER_ITEMS.getName(), ORDERS.ORDER_DATE.getName()), LocalDate.class);
+
+    // Created by db/migration/V2__analytics_change_generations.sql, so not part of the generated tables
+    private static final Table<?> CHANGE_GENERATIONS = table(name("analytics_change_generations"));
+    private static final Field<String> CHANGED_TABLE = field(name("table_name"), String.class);
+    private static final Field<Long> GENERATION = field(name("generation"), Long.class);
+    private static final Field<OffsetDateTime> CHANGED_AT = field(name("changed_at"), OffsetDateTime.class);
+
+    // Built by Postgres into the one string the row carries, instead of two that are joined for every row here
+    static final Field<String> CUSTOMER_FULL_NAME =
+            concat(CUSTOMERS.FIRST_NAME, inline(" "), CUSTOMERS.LAST_NAME).as(FULL_NAME_FIELD);
+
     private final DSLContext context;
+    private final RollupRepository rollupRepository;
+    private final boolean rollupEnabled;
+    private final boolean partitioningEnabled;
+    private final boolean centsColumns;
 
-    public AnalyticsRepository(DSLContext context) {
+    public AnalyticsRepository(DSLContext context,
+                               RollupRepository rollupRepository,
+                               @Value("${app.analytics.rollup.enabled:true}") boolean rollupEnabled,
+                               @Value("${app.analytics.partitioning.enabled:false}") boolean partitioningEnabled,
+                               @Value("${app.analytics.cents-columns.enabled:false}") boolean centsColumns) {
         this.context = context;
+        this.rollupRepository = rollupRepository;
+        this.rollupEnabled = rollupEnabled;
+        this.partitioningEnabled = partitioningEnabled;
+        this.centsColumns = centsColumns;
+    }
+
+    public Result<Record2<String, Long>> getSalesByCategory() {
+        return getSalesByCategory(DateRangeDTO.ALL_TIME);
     }
 
-    public Result<Record2<String, BigDecimal>> getSalesByCategory() {
-        Field<BigDecimal> categorySales = sum(
-                ORDER_ITEMS.PRICE_AT_PURCHASE.mul(ORDER_ITEMS.QUANTITY)
-        ).as(CATEGORY_SALES_FIELD);
+    public Result<Record2<String, Long>> getSalesByCategory(DateRangeDTO range) {
+        if (rollupEnabled) {
+            return rollupRepository.getSalesByCategory(range);
+        }
+
+        Field<Long> categorySales = (centsColumns
+                ? MoneySums.ofCents(MoneySums.ORDER_ITEMS_PRICE_AT_PURCHASE_CENTS.mul(ORDER_ITEMS.QUANTITY))
+                : MoneySums.inCents(ORDER_ITEMS.PRICE_AT_PURCHASE.mul(ORDER_ITEMS.QUANTITY)))
+                .as(CATEGORY_SALES_FIELD);
 
         return context.select(PRODUCTS.CATEGORY, categorySales)
-                .from(ORDER_ITEMS)
+                .from(orderItems(range))
                 .join(PRODUCTS).on(ORDER_ITEMS.PRODUCT_ID.eq(PRODUCTS.ID))
+                .where(orderDateWithin(range))
                 .groupBy(PRODUCTS.CATEGORY)
                 .orderBy(categorySales.desc())
                 .fetch();
     }
 
     public Result<Record3<Integer, String, BigDecimal>> getTopSellingProducts(int limit) {
-        Field<BigDecimal> totalProductQuantity = sum(ORDER_ITEMS.QUANTITY)
-                .as(TOTAL_PRODUCT_QUANTITY_FIELD);
+        return getTopSellingProducts(limit, DateRangeDTO.ALL_TIME);
+    }
 
-        return context.select(PRODUCTS.ID, PRODUCTS.NAME, totalProductQuantity)
-                .from(PRODUCTS)
-                .join(ORDER_ITEMS).on(PRODUCTS.ID.eq(ORDER_ITEMS.PRODUCT_ID))
-                .groupBy(PRODUCTS.ID)
-                .orderBy(totalProductQuantity.desc())
+    public Result<Record3<Integer, String, BigDecimal>> getTopSellingProducts(int limit, DateRangeDTO range) {
+        if (rollupEnabled) {
+            return rollupRepository.getTopSellingProducts(limit, range);
+        }
+
+        return topSellingProducts(range)
                 .limit(limit)
                 .fetch();
     }
 
-    public Result<Record5<Integer, String, String, String, BigDecimal>> getTopSpenders(int limit) {
-        Field<BigDecimal> totalSpend = sum(ORDER_ITEMS.PRICE_AT_PURCHASE)
-                .as(TOTAL_SPEND_FIELD);
+    // The whole ranking behind getTopSellingProducts, handed over fetchSize rows at a time
+    public void forEachTopSellingProduct(DateRangeDTO range, int fetchSize,
+                                         Consumer<? super Record3<Integer, String, BigDecimal>> action) {
+        forEach(rollupEnabled ? rollupRepository.topSellingProducts(range) : topSellingProducts(range), fetchSize, action);
+    }
 
-        return context.select(
-                CUSTOMERS.ID,
-                CUSTOMERS.EMAIL,
-                CUSTOMERS.FIRST_NAME,
-                CUSTOMERS.LAST_NAME,
-                totalSpend)
-                .from(CUSTOMERS)
-                .join(ORDERS).on(ORDERS.CUSTOMER_ID.eq(CUSTOMERS.ID))
-                .join(ORDER_ITEMS).on(ORDER_ITEMS.ORDER_ID.eq(ORDERS.ID))
-                .groupBy(CUSTOMERS.ID)
-                .orderBy(totalSpend.desc())
+    public Result<Record2<Integer, String>> getProductNames(Collection<Integer> productIds) {
+        return context.select(PRODUCTS.ID, PRODUCTS.NAME)
+                .from(PRODUCTS)
+                .where(PRODUCTS.ID.in(productIds))
+                .fetch();
+    }
+
+    public Result<Record4<Integer, String, String, Long>> getTopSpenders(int limit) {
+        return getTopSpenders(limit, DateRangeDTO.ALL_TIME);
+    }
+
+    public Result<Record4<Integer, String, String, Long>> getTopSpenders(int limit, DateRangeDTO range) {
+        if (rollupEnabled) {
+            return rollupRepository.getTopSpenders(limit, range);
+        }
+
+        return topSpenders(range)
                 .limit(limit)
                 .fetch();
     }
 
+    // The whole ranking behind getTopSpenders, handed over fetchSize rows at a time
+    public void forEachTopSpender(DateRangeDTO range, int fetchSize,
+                                  Consumer<? super Record4<Integer, String, String, Long>> action) {
+        forEach(rollupEnabled ? rollupRepository.topSpenders(range) : topSpenders(range), fetchSize, action);
+    }
+
     public Result<Record2<String, Long>> getOrderCountByStatusName() {
+        return getOrderCountByStatusName(DateRangeDTO.ALL_TIME);
+    }
+
+    public Result<Record2<String, Long>> getOrderCountByStatusName(DateRangeDTO range) {
         Field<Long> orderCount = count(ORDERS.ID)
                 .cast(BIGINT)
                 .as(ORDER_COUNT_FIELD);
@@ -74,17 +135,23 @@ public class AnalyticsRepository {
                 orderCount)
                 .from(ORDER_STATUSES)
                 .join(ORDERS).on(ORDERS.STATUS_ID.eq(ORDER_STATUSES.ID))
+                .where(DateRanges.within(ORDERS.ORDER_DATE, range))
                 .groupBy(ORDER_STATUSES.ID)
                 .orderBy(orderCount.desc())
                 .fetch();
     }
 
     public Record1<BigDecimal> getAverageOrderValue() {
+        return getAverageOrderValue(DateRangeDTO.ALL_TIME);
+    }
+
+    public Record1<BigDecimal> getAverageOrderValue(DateRangeDTO range) {
         Field<BigDecimal> orderTotal = sum(ORDER_ITEMS.QUANTITY.mul(ORDER_ITEMS.PRICE_AT_PURCHASE))
                 .as(ORDER_TOTAL_FIELD);
 
         var orderTotalsSubquery = context.select(orderTotal)
-                .from(ORDER_ITEMS)
+                .from(orderItems(range))
+                .where(orderDateWithin(range))
                 .groupBy(ORDER_ITEMS.ORDER_ID)
                 .asTable(ORDER_TOTALS_CTE);
 
@@ -94,13 +161,49 @@ public class AnalyticsRepository {
                 .orElseThrow(() -> new RuntimeException(AVERAGE_ORDER_VALUE_ERROR));
     }
 
+    // Total of every order with items, by order date
+    public Result<Record2<LocalDate, BigDecimal>> getOrderTotals(DateRangeDTO range) {
+        Field<BigDecimal> orderTotal = sum(ORDER_ITEMS.QUANTITY.mul(ORDER_ITEMS.PRICE_AT_PURCHASE))
+                .as(ORDER_TOTAL_FIELD);
+
+        return context.select(ORDERS.ORDER_DATE, orderTotal)
+                .from(ORDER_ITEMS.join(ORDERS).on(orderItemsOfOrder()))
+                .where(orderDateWithin(range))
+                .groupBy(ORDERS.ID)
+                .orderBy(ORDERS.ORDER_DATE)
+                .fetch();
+    }
+
+    public Record2<LocalDate, LocalDate> getOrderDateBounds() {
+        return context.select(min(ORDERS.ORDER_DATE), max(ORDERS.ORDER_DATE))
+                .from(ORDERS)
+                .fetchOne();
+    }
+
+    // Table name, generation and time of the last change of every table the analytics read
+    public Result<Record3<String, Long, OffsetDateTime>> getChangeGenerations() {
+        return context.select(CHANGED_TABLE, GENERATION, CHANGED_AT)
+                .from(CHANGE_GENERATIONS)
+                .fetch();
+    }
+
     public Result<Record5<Integer, String, String, BigDecimal, Integer>> getProductRankByCategory(int limit) {
-        Field<BigDecimal> totalQuantitySold = sum(ORDER_ITEMS.QUANTITY)
-                .as(TOTAL_PRODUCT_QUANTITY_FIELD);
+        return getProductRankByCategory(limit, DateRangeDTO.ALL_TIME);
+    }
+
+    public Result<Record5<Integer, String, String, BigDecimal, Integer>> getProductRankByCategory(int limit, DateRangeDTO range) {
+        if (rollupEnabled) {
+            return rollupRepository.getProductRankByCategory(limit, range);
+        }
 
+        Field<BigDecimal> quantity = sum(ORDER_ITEMS.QUANTITY);
+        Field<BigDecimal> totalQuantitySold = quantity.as(TOTAL_PRODUCT_QUANTITY_FIELD);
+
+        // Postgres cannot order the window by the alias of the same select list.
+        // Ties go to the lower id, so the same products make the cut on every run
         Field<Integer> categoryRank = rowNumber()
                 .over(partitionBy(PRODUCTS.CATEGORY)
-                        .orderBy(totalQuantitySold.desc()))
+                        .orderBy(quantity.desc(), PRODUCTS.ID))
                 .as(CATEGORY_RANK_FIELD);
 
         var rankedProducts = context.select(
@@ -110,7 +213,8 @@ public class AnalyticsRepository {
                         totalQuantitySold,
                         categoryRank)
                 .from(PRODUCTS)
-                .join(ORDER_ITEMS).on(PRODUCTS.ID.eq(ORDER_ITEMS.PRODUCT_ID))
+                .join(orderItems(range)).on(PRODUCTS.ID.eq(ORDER_ITEMS.PRODUCT_ID))
+                .where(orderDateWithin(range))
                 .groupBy(PRODUCTS.ID, PRODUCTS.CATEGORY)
                 .asTable(RANKED_PRODUCTS_CTE);
 
@@ -126,4 +230,70 @@ public class AnalyticsRepository {
                 .fetch();
     }
 
+    private SelectLimitStep<Record3<Integer, String, BigDecimal>> topSellingProducts(DateRangeDTO range) {
+        Field<BigDecimal> totalProductQuantity = sum(ORDER_ITEMS.QUANTITY)
+                .as(TOTAL_PRODUCT_QUANTITY_FIELD);
+
+        return context.select(PRODUCTS.ID, PRODUCTS.NAME, totalProductQuantity)
+                .from(PRODUCTS)
+                .join(orderItems(range)).on(PRODUCTS.ID.eq(ORDER_ITEMS.PRODUCT_ID))
+                .where(orderDateWithin(range))
+                .groupBy(PRODUCTS.ID)
+                .orderBy(totalProductQuantity.desc());
+    }
+
+    private SelectLimitStep<Record4<Integer, String, String, Long>> topSpenders(DateRangeDTO range) {
+        Field<Long> totalSpend = (centsColumns
+                ? MoneySums.ofCents(MoneySums.ORDER_ITEMS_PRICE_AT_PURCHASE_CENTS)
+                : MoneySums.inCents(ORDER_ITEMS.PRICE_AT_PURCHASE))
+                .as(TOTAL_SPEND_FIELD);
+
+        return context.select(
+                CUSTOMERS.ID,
+                CUSTOMERS.EMAIL,
+                CUSTOMER_FULL_NAME,
+                totalSpend)
+                .from(CUSTOMERS)
+                .join(ORDERS).on(ORDERS.CUSTOMER_ID.eq(CUSTOMERS.ID))
+                .join(ORDER_ITEMS).on(orderItemsOfOrder())
+                .where(orderDateWithin(range))
+                .groupBy(CUSTOMERS.ID)
+                .orderBy(totalSpend.desc());
+    }
+
+    // Postgres only keeps a cursor open inside a transaction, outside one the driver reads every row before the
+    // first is handed over. With it, at most fetchSize rows are held in memory however many the query returns
+    private <R extends org.jooq.Record> void forEach(ResultQuery<R> query, int fetchSize, Consumer<? super R> action) {
+        context.transaction(configuration -> {
+            try (Cursor<R> cursor = using(configuration).fetchLazy(query.fetchSize(fetchSize))) {
+                cursor.forEach(action);
+            }
+        });
+    }
+
+    // order_items on its own, or joined to orders when the range needs their order_date
+    private Table<?> orderItems(DateRangeDTO range) {
+        if (range.isUnbounded()) {
+            return ORDER_ITEMS;
+        }
+        return ORDER_ITEMS.join(ORDERS).on(orderItemsOfOrder());
+    }
+
+    private Condition orderItemsOfOrder() {
+        Condition condition = ORDER_ITEMS.ORDER_ID.eq(ORDERS.ID);
+        if (partitioningEnabled) {
+            condition = condition.and(ORDER_ITEMS_ORDER_DATE.eq(ORDERS.ORDER_DATE));
+        }
+        return condition;
+    }
+
+    // Repeated on order_items when it is partitioned, Postgres only prunes on the partition key of each table
+    private Condition orderDateWithin(DateRangeDTO range) {
+        Condition condition = DateRanges.within(ORDERS.ORDER_DATE, range);
+        if (partitioningEnabled) {
+            condition = condition.and(DateRanges.within(ORDER_ITEMS_ORDER_DATE, range));
+        }
+        return condition;
+    }
+
 }
@@ -0,0 +1,28 @@
+package com.ecommerce.analytics.repository;
+
+import com.ecommerce.analytics.dto.DateRangeDTO;
+import org.jooq.Condition;
+import org.jooq.Field;
+
+import java.time.LocalDate;
+
+import static org.jooq.impl.DSL.noCondition;
+
+final class DateRanges {
+
+    private DateRanges() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    // Plain comparisons on the column so Postgres can use its index and prune partitions
+    static Condition within(Field<LocalDate> date, DateRangeDTO range) {
+        Condition condition = noCondition();
+        if (range.getFrom() != null) {
+            condition = condition.and(date.ge(range.getFrom()));
+        }
+        if (range.getTo() != null) {
+            condition = condition.and(date.le(range.getTo()));
+        }
+        return condition;
+    }
+}
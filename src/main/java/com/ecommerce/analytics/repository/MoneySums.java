@@ -0,0 +1,38 @@
+package com.ecommerce.analytics.repository;
+
+import org.jooq.Field;
+import org.jooq.Table;
+
+import java.math.BigDecimal;
+
+import static com.ecommerce.analytics.constants.AnalyticsConstants.CENTS_PER_UNIT;
+import static com.ecommerce.analytics.jooq.Tables.*;
+import static org.jooq.impl.DSL.*;
+import static org.jooq.impl.SQLDataType.BIGINT;
+
+// Money sums leave Postgres as a BIGINT count of cents, so the driver reads a long instead of parsing a NUMERIC
+final class MoneySums {
+
+    // Only present after db/money_in_cents.sql, so they are not part of the generated tables
+    static final Field<Long> ORDER_ITEMS_PRICE_AT_PURCHASE_CENTS = centsColumn(ORDER_ITEMS, ORDER_ITEMS.PRICE_AT_PURCHASE);
+    static final Field<Long> DAILY_CATEGORY_SALES_SALES_CENTS = centsColumn(DAILY_CATEGORY_SALES, DAILY_CATEGORY_SALES.SALES);
+    static final Field<Long> DAILY_CUSTOMER_SPEND_SPEND_CENTS = centsColumn(DAILY_CUSTOMER_SPEND, DAILY_CUSTOMER_SPEND.SPEND);
+
+    private MoneySums() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    // The exact NUMERIC sum, rounded half up to cents once per group
+    static Field<Long> inCents(Field<BigDecimal> amount) {
+        return round(sum(amount).mul(inline(CENTS_PER_UNIT))).cast(BIGINT);
+    }
+
+    // Postgres sums BIGINT into a NUMERIC, cast back as the total of cents always fits
+    static Field<Long> ofCents(Field<Long> cents) {
+        return sum(cents).cast(BIGINT);
+    }
+
+    private static Field<Long> centsColumn(Table<?> table, Field<BigDecimal> amount) {
+        return field(name(table.getName(), amount.getName() + "_cents"), Long.class);
+    }
+}
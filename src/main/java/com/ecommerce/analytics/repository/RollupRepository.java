@@ -0,0 +1,281 @@
+package com.ecommerce.analytics.repository;
+
+import com.ecommerce.analytics.dto.DateRangeDTO;
+import org.jooq.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static com.ecommerce.analytics.jooq.Tables.*;
+import static com.ecommerce.analytics.constants.AnalyticsConstants.*;
+import static org.jooq.impl.DSL.*;
+
+@Repository
+public class RollupRepository {
+
+    private final DSLContext context;
+    private final boolean centsColumns;
+
+    public RollupRepository(DSLContext context,
+                            @Value("${app.analytics.cents-columns.enabled:false}") boolean centsColumns) {
+        this.context = context;
+        this.centsColumns = centsColumns;
+    }
+
+    public Result<Record2<String, Long>> getSalesByCategory(DateRangeDTO range) {
+        Field<Long> categorySales = (centsColumns
+                ? MoneySums.ofCents(MoneySums.DAILY_CATEGORY_SALES_SALES_CENTS)
+                : MoneySums.inCents(DAILY_CATEGORY_SALES.SALES))
+                .as(CATEGORY_SALES_FIELD);
+
+        return context.select(DAILY_CATEGORY_SALES.CATEGORY, categorySales)
+                .from(DAILY_CATEGORY_SALES)
+                .where(DateRanges.within(DAILY_CATEGORY_SALES.SALES_DATE, range))
+                .groupBy(DAILY_CATEGORY_SALES.CATEGORY)
+                .orderBy(categorySales.desc())
+                .fetch();
+    }
+
+    public Result<Record3<Integer, String, BigDecimal>> getTopSellingProducts(int limit, DateRangeDTO range) {
+        return topSellingProducts(range)
+                .limit(limit)
+                .fetch();
+    }
+
+    // Every product sold in the range, best selling first
+    public SelectLimitStep<Record3<Integer, String, BigDecimal>> topSellingProducts(DateRangeDTO range) {
+        Field<BigDecimal> totalProductQuantity = sum(DAILY_PRODUCT_SALES.QUANTITY)
+                .as(TOTAL_PRODUCT_QUANTITY_FIELD);
+
+        return context.select(PRODUCTS.ID, PRODUCTS.NAME, totalProductQuantity)
+                .from(PRODUCTS)
+                .join(DAILY_PRODUCT_SALES).on(PRODUCTS.ID.eq(DAILY_PRODUCT_SALES.PRODUCT_ID))
+                .where(DateRanges.within(DAILY_PRODUCT_SALES.SALES_DATE, range))
+                .groupBy(PRODUCTS.ID)
+                .orderBy(totalProductQuantity.desc());
+    }
+
+    public Result<Record4<Integer, String, String, Long>> getTopSpenders(int limit, DateRangeDTO range) {
+        return topSpenders(range)
+                .limit(limit)
+                .fetch();
+    }
+
+    // Every customer who ordered in the range, biggest spender first
+    public SelectLimitStep<Record4<Integer, String, String, Long>> topSpenders(DateRangeDTO range) {
+        Field<Long> totalSpend = (centsColumns
+                ? MoneySums.ofCents(MoneySums.DAILY_CUSTOMER_SPEND_SPEND_CENTS)
+                : MoneySums.inCents(DAILY_CUSTOMER_SPEND.SPEND))
+                .as(TOTAL_SPEND_FIELD);
+
+        return context.select(
+                CUSTOMERS.ID,
+                CUSTOMERS.EMAIL,
+                AnalyticsRepository.CUSTOMER_FULL_NAME,
+                totalSpend)
+                .from(CUSTOMERS)
+                .join(DAILY_CUSTOMER_SPEND).on(DAILY_CUSTOMER_SPEND.CUSTOMER_ID.eq(CUSTOMERS.ID))
+                .where(DateRanges.within(DAILY_CUSTOMER_SPEND.SALES_DATE, range))
+                .groupBy(CUSTOMERS.ID)
+                .orderBy(totalSpend.desc());
+    }
+
+    // All-time totals come from product_sales_totals, a bounded range sums the product days in it
+    public Result<Record5<Integer, String, String, BigDecimal, Integer>> getProductRankByCategory(int limit, DateRangeDTO range) {
+        Field<BigDecimal> quantity = range.isUnbounded()
+                ? PRODUCT_SALES_TOTALS.QUANTITY.cast(BigDecimal.class)
+                : sum(DAILY_PRODUCT_SALES.QUANTITY);
+        Field<BigDecimal> totalQuantitySold = quantity.as(TOTAL_PRODUCT_QUANTITY_FIELD);
+
+        Field<Integer> categoryRank = rowNumber()
+                .over(partitionBy(PRODUCTS.CATEGORY)
+                        .orderBy(quantity.desc(), PRODUCTS.ID))
+                .as(CATEGORY_RANK_FIELD);
+
+        var productTotals = context.select(
+                        PRODUCTS.ID,
+                        PRODUCTS.NAME,
+                        PRODUCTS.CATEGORY,
+                        totalQuantitySold,
+                        categoryRank);
+        var rankedProducts = (range.isUnbounded()
+                ? productTotals
+                        .from(PRODUCTS)
+                        .join(PRODUCT_SALES_TOTALS).on(PRODUCT_SALES_TOTALS.PRODUCT_ID.eq(PRODUCTS.ID))
+                        .where(PRODUCT_SALES_TOTALS.QUANTITY.gt(0L))
+                : productTotals
+                        .from(PRODUCTS)
+                        .join(DAILY_PRODUCT_SALES).on(DAILY_PRODUCT_SALES.PRODUCT_ID.eq(PRODUCTS.ID))
+                        .where(DateRanges.within(DAILY_PRODUCT_SALES.SALES_DATE, range))
+                        .groupBy(PRODUCTS.ID))
+                .asTable(RANKED_PRODUCTS_CTE);
+
+        return context.select(
+                        rankedProducts.field(PRODUCTS.ID),
+                        rankedProducts.field(PRODUCTS.NAME),
+                        rankedProducts.field(PRODUCTS.CATEGORY),
+                        rankedProducts.field(totalQuantitySold),
+                        rankedProducts.field(categoryRank))
+                .from(rankedProducts)
+                .where(rankedProducts.field(categoryRank).le(limit))
+                .orderBy(rankedProducts.field(PRODUCTS.CATEGORY), rankedProducts.field(categoryRank))
+                .fetch();
+    }
+
+    // Up to depth best selling products of every category, best first
+    public Result<Record4<Integer, String, String, Long>> getCategoryLeaders(int depth) {
+        Field<Integer> categoryRank = rowNumber()
+                .over(partitionBy(PRODUCT_SALES_TOTALS.CATEGORY)
+                        .orderBy(PRODUCT_SALES_TOTALS.QUANTITY.desc(), PRODUCT_SALES_TOTALS.PRODUCT_ID))
+                .as(CATEGORY_RANK_FIELD);
+
+        var rankedProducts = context.select(
+                        PRODUCT_SALES_TOTALS.PRODUCT_ID,
+                        PRODUCTS.NAME,
+                        PRODUCT_SALES_TOTALS.CATEGORY,
+                        PRODUCT_SALES_TOTALS.QUANTITY,
+                        categoryRank)
+                .from(PRODUCT_SALES_TOTALS)
+                .join(PRODUCTS).on(PRODUCTS.ID.eq(PRODUCT_SALES_TOTALS.PRODUCT_ID))
+                .where(PRODUCT_SALES_TOTALS.QUANTITY.gt(0L))
+                .asTable(RANKED_PRODUCTS_CTE);
+
+        return context.select(
+                        rankedProducts.field(PRODUCT_SALES_TOTALS.PRODUCT_ID),
+                        rankedProducts.field(PRODUCTS.NAME),
+                        rankedProducts.field(PRODUCT_SALES_TOTALS.CATEGORY),
+                        rankedProducts.field(PRODUCT_SALES_TOTALS.QUANTITY))
+                .from(rankedProducts)
+                .where(rankedProducts.field(categoryRank).le(depth))
+                .orderBy(rankedProducts.field(PRODUCT_SALES_TOTALS.CATEGORY), rankedProducts.field(categoryRank))
+                .fetch();
+    }
+
+    // Reads idx_product_sales_totals_rank from the top, one category at a time
+    public Result<Record4<Integer, String, String, Long>> getCategoryLeaders(String category, int depth) {
+        return context.select(
+                        PRODUCT_SALES_TOTALS.PRODUCT_ID,
+                        PRODUCTS.NAME,
+                        PRODUCT_SALES_TOTALS.CATEGORY,
+                        PRODUCT_SALES_TOTALS.QUANTITY)
+                .from(PRODUCT_SALES_TOTALS)
+                .join(PRODUCTS).on(PRODUCTS.ID.eq(PRODUCT_SALES_TOTALS.PRODUCT_ID))
+                .where(PRODUCT_SALES_TOTALS.CATEGORY.eq(category))
+                .and(PRODUCT_SALES_TOTALS.QUANTITY.gt(0L))
+                .orderBy(PRODUCT_SALES_TOTALS.QUANTITY.desc(), PRODUCT_SALES_TOTALS.PRODUCT_ID)
+                .limit(depth)
+                .fetch();
+    }
+
+    // Totals written by transactions from xid on, including the ones that dropped to zero
+    public Result<Record4<Integer, String, String, Long>> getProductSalesTotalsChangedSince(long xid) {
+        return context.select(
+                        PRODUCT_SALES_TOTALS.PRODUCT_ID,
+                        PRODUCTS.NAME,
+                        PRODUCT_SALES_TOTALS.CATEGORY,
+                        PRODUCT_SALES_TOTALS.QUANTITY)
+                .from(PRODUCT_SALES_TOTALS)
+                .join(PRODUCTS).on(PRODUCTS.ID.eq(PRODUCT_SALES_TOTALS.PRODUCT_ID))
+                .where(PRODUCT_SALES_TOTALS.LAST_XID.ge(xid))
+                .fetch();
+    }
+
+    // Every transaction below the returned xid has finished, so a later read sees all of its writes
+    public long getOldestRunningXid() {
+        return context.select(field("pg_snapshot_xmin(pg_current_snapshot())::TEXT::BIGINT", Long.class))
+                .fetchSingle()
+                .value1();
+    }
+
+    public Result<Record3<LocalDate, Integer, Long>> getDailyProductQuantities(DateRangeDTO range) {
+        return context.select(DAILY_PRODUCT_SALES.SALES_DATE, DAILY_PRODUCT_SALES.PRODUCT_ID, DAILY_PRODUCT_SALES.QUANTITY)
+                .from(DAILY_PRODUCT_SALES)
+                .where(DateRanges.within(DAILY_PRODUCT_SALES.SALES_DATE, range))
+                .orderBy(DAILY_PRODUCT_SALES.SALES_DATE)
+                .fetch();
+    }
+
+    public Record2<LocalDate, LocalDate> getSalesDateBounds() {
+        return context.select(min(DAILY_PRODUCT_SALES.SALES_DATE), max(DAILY_PRODUCT_SALES.SALES_DATE))
+                .from(DAILY_PRODUCT_SALES)
+                .fetchOne();
+    }
+
+    // Recomputes every rollup from the raw tables, used after bulk loads that bypass the triggers
+    public void rebuild() {
+        context.transaction(configuration -> {
+            DSLContext tx = using(configuration);
+
+            tx.truncate(DAILY_PRODUCT_SALES).execute();
+            tx.truncate(DAILY_CATEGORY_SALES).execute();
+            tx.truncate(DAILY_CUSTOMER_SPEND).execute();
+            tx.truncate(PRODUCT_SALES_TOTALS).execute();
+
+            tx.insertInto(DAILY_PRODUCT_SALES,
+                            DAILY_PRODUCT_SALES.SALES_DATE,
+                            DAILY_PRODUCT_SALES.PRODUCT_ID,
+                            DAILY_PRODUCT_SALES.CATEGORY,
+                            DAILY_PRODUCT_SALES.QUANTITY,
+                            DAILY_PRODUCT_SALES.SALES,
+                            DAILY_PRODUCT_SALES.ITEM_COUNT)
+                    .select(tx.select(
+                                    ORDERS.ORDER_DATE,
+                                    PRODUCTS.ID,
+                                    PRODUCTS.CATEGORY,
+                                    sum(ORDER_ITEMS.QUANTITY).cast(Long.class),
+                                    sum(ORDER_ITEMS.QUANTITY.mul(ORDER_ITEMS.PRICE_AT_PURCHASE)),
+                                    count().cast(Long.class))
+                            .from(ORDER_ITEMS)
+                            .join(ORDERS).on(ORDER_ITEMS.ORDER_ID.eq(ORDERS.ID))
+                            .join(PRODUCTS).on(ORDER_ITEMS.PRODUCT_ID.eq(PRODUCTS.ID))
+                            .groupBy(ORDERS.ORDER_DATE, PRODUCTS.ID))
+                    .execute();
+
+            tx.insertInto(DAILY_CATEGORY_SALES,
+                            DAILY_CATEGORY_SALES.SALES_DATE,
+                            DAILY_CATEGORY_SALES.CATEGORY,
+                            DAILY_CATEGORY_SALES.SALES,
+                            DAILY_CATEGORY_SALES.ITEM_COUNT)
+                    .select(tx.select(
+                                    DAILY_PRODUCT_SALES.SALES_DATE,
+                                    DAILY_PRODUCT_SALES.CATEGORY,
+                                    sum(DAILY_PRODUCT_SALES.SALES),
+                                    sum(DAILY_PRODUCT_SALES.ITEM_COUNT).cast(Long.class))
+                            .from(DAILY_PRODUCT_SALES)
+                            .groupBy(DAILY_PRODUCT_SALES.SALES_DATE, DAILY_PRODUCT_SALES.CATEGORY))
+                    .execute();
+
+            tx.insertInto(DAILY_CUSTOMER_SPEND,
+                            DAILY_CUSTOMER_SPEND.SALES_DATE,
+                            DAILY_CUSTOMER_SPEND.CUSTOMER_ID,
+                            DAILY_CUSTOMER_SPEND.SPEND,
+                            DAILY_CUSTOMER_SPEND.ITEM_COUNT)
+                    .select(tx.select(
+                                    ORDERS.ORDER_DATE,
+                                    ORDERS.CUSTOMER_ID,
+                                    sum(ORDER_ITEMS.PRICE_AT_PURCHASE),
+                                    count().cast(Long.class))
+                            .from(ORDER_ITEMS)
+                            .join(ORDERS).on(ORDER_ITEMS.ORDER_ID.eq(ORDERS.ID))
+                            .where(ORDERS.CUSTOMER_ID.isNotNull())
+                            .groupBy(ORDERS.ORDER_DATE, ORDERS.CUSTOMER_ID))
+                    .execute();
+
+            tx.insertInto(PRODUCT_SALES_TOTALS,
+                            PRODUCT_SALES_TOTALS.PRODUCT_ID,
+                            PRODUCT_SALES_TOTALS.CATEGORY,
+                            PRODUCT_SALES_TOTALS.QUANTITY,
+                            PRODUCT_SALES_TOTALS.LAST_XID)
+                    .select(tx.select(
+                                    DAILY_PRODUCT_SALES.PRODUCT_ID,
+                                    DAILY_PRODUCT_SALES.CATEGORY,
+                                    sum(DAILY_PRODUCT_SALES.QUANTITY).cast(Long.class),
+                                    field("pg_current_xact_id()::TEXT::BIGINT", Long.class))
+                            .from(DAILY_PRODUCT_SALES)
+                            .groupBy(DAILY_PRODUCT_SALES.PRODUCT_ID, DAILY_PRODUCT_SALES.CATEGORY))
+                    .execute();
+        });
+    }
+}
@@ -0,0 +1,328 @@
+package com.ecommerce.analytics.seed;
+
+import com.ecommerce.analytics.repository.RollupRepository;
+import com.ecommerce.analytics.util.PgBinaryCopyWriter;
+import com.github.javafaker.Faker;
+import org.jooq.DSLContext;
+import org.jooq.Table;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.ecommerce.analytics.constants.AnalyticsConstants.*;
+import static com.ecommerce.analytics.jooq.Tables.*;
+import static org.jooq.impl.DSL.*;
+
+// Generates a scale factor worth of data and bulk loads it with binary COPY, SF1 is 1M orders and about 10M order items.
+// Every chunk draws from its own random stream derived from the seed, so the data does not depend on thread scheduling.
+@Component
+public class BulkDataGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkDataGenerator.class);
+
+    private static final int PRODUCTS_PER_SF = 10_000;
+    private static final int CUSTOMERS_PER_SF = 100_000;
+    private static final int ORDERS_PER_SF = 1_000_000;
+    private static final int MIN_ROWS = 10;
+    private static final int MAX_ITEMS_PER_ORDER = 19;
+    private static final int ROWS_PER_CHUNK = 50_000;
+    private static final int ORDER_HISTORY_DAYS = 730;
+    private static final int CUSTOMER_HISTORY_DAYS = 1095;
+
+    // Product popularity and customer activity both follow a power law
+    private static final double PRODUCT_POPULARITY_EXPONENT = 1.1;
+    private static final double CUSTOMER_ACTIVITY_EXPONENT = 0.8;
+
+    private static final List<String> STATUSES =
+            List.of("Processing", "Canceled", "Shipped", "Delivered", "Refunded", "Returned", "Pending");
+    private static final int[] STATUS_WEIGHTS = {5, 4, 10, 70, 3, 3, 5};
+
+    private static final int NAME_POOL_SIZE = 500;
+    private static final int CATEGORY_COUNT = 12;
+
+    private static final long PRODUCTS_STREAM = 1;
+    private static final long CUSTOMERS_STREAM = 2;
+    private static final long ORDERS_STREAM = 3;
+    private static final long ITEM_COUNTS_STREAM = 4;
+
+    private final DSLContext context;
+    private final DataSource dataSource;
+    private final RollupRepository rollupRepository;
+    private final boolean partitioningEnabled;
+    private final int threads;
+
+    public BulkDataGenerator(DSLContext context,
+                             DataSource dataSource,
+                             RollupRepository rollupRepository,
+                             @Value("${app.analytics.partitioning.enabled:false}") boolean partitioningEnabled,
+                             @Value("${app.seed.threads:4}") int threads) {
+        this.context = context;
+        this.dataSource = dataSource;
+        this.rollupRepository = rollupRepository;
+        this.partitioningEnabled = partitioningEnabled;
+        this.threads = threads;
+    }
+
+    // Replaces the contents of all five tables, then rebuilds the rollups and tells listeners everything changed
+    public void generate(double scaleFactor, long seed, LocalDate endDate) {
+        int products = Math.max(MIN_ROWS, (int) Math.round(PRODUCTS_PER_SF * scaleFactor));
+        int customers = Math.max(MIN_ROWS, (int) Math.round(CUSTOMERS_PER_SF * scaleFactor));
+        int orders = Math.max(MIN_ROWS, (int) Math.round(ORDERS_PER_SF * scaleFactor));
+        long started = System.nanoTime();
+
+        Pools pools = new Pools(seed);
+        long[] productPrices = new long[products + 1];
+        int orderItems = 0;
+
+        List<Table<?>> tables = List.of(ORDER_STATUSES, PRODUCTS, CUSTOMERS, ORDERS, ORDER_ITEMS);
+        context.truncate(tables).restartIdentity().cascade().execute();
+
+        // Row triggers would maintain the rollups one row at a time, they are rebuilt in one pass afterwards
+        tables.forEach(table -> context.execute("ALTER TABLE {0} DISABLE TRIGGER USER", table));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            var statuses = context.insertInto(ORDER_STATUSES, ORDER_STATUSES.STATUS_NAME);
+            STATUSES.forEach(statuses::values);
+            statuses.execute();
+
+            // Products hold the prices the order items are sold at, so they are generated first
+            runAll(executor, chunks(products).stream()
+                    .map(chunk -> (Runnable) () -> copyProducts(chunk, seed, pools, productPrices))
+                    .toList());
+            runAll(executor, chunks(customers).stream()
+                    .map(chunk -> (Runnable) () -> copyCustomers(chunk, seed, pools, endDate))
+                    .toList());
+
+            ZipfSampler productSampler = new ZipfSampler(products, PRODUCT_POPULARITY_EXPONENT);
+            ZipfSampler customerSampler = new ZipfSampler(customers, CUSTOMER_ACTIVITY_EXPONENT);
+            List<Runnable> orderTasks = new ArrayList<>();
+            for (Chunk chunk : chunks(orders)) {
+                int firstItemId = orderItems + 1;
+                orderItems += Arrays.stream(itemCounts(chunk, seed)).sum();
+                orderTasks.add(() -> copyOrders(chunk, firstItemId, seed, endDate, productSampler, customerSampler, productPrices));
+            }
+            runAll(executor, orderTasks);
+        } finally {
+            executor.shutdownNow();
+            tables.forEach(table -> context.execute("ALTER TABLE {0} ENABLE TRIGGER USER", table));
+        }
+
+        // Ids were written explicitly, so the identities have to continue after them
+        restartIdentity(PRODUCTS, products);
+        restartIdentity(CUSTOMERS, customers);
+        restartIdentity(ORDERS, orders);
+        restartIdentity(ORDER_ITEMS, orderItems);
+
+        rollupRepository.rebuild();
+        context.execute("SELECT pg_notify({0}, {1})", inline(ANALYTICS_CHANGES_CHANNEL), inline("{\"table\" : \"orders\"}"));
+
+        log.info("Generated {} products, {} customers, {} orders and {} order items at scale factor {} in {} ms",
+                products, customers, orders, orderItems, scaleFactor, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void copyProducts(Chunk chunk, long seed, Pools pools, long[] productPrices) {
+        SplittableRandom random = random(seed, PRODUCTS_STREAM, chunk);
+        copy("COPY products (id, name, price, category) FROM STDIN (FORMAT BINARY)", writer -> {
+            for (int id = chunk.firstId(); id <= chunk.lastId(); id++) {
+                // Log-normal prices between 0.99 and 5000.00, most of them below 100
+                long price = Math.clamp(Math.round(Math.exp(3.5 + random.nextGaussian()) * 100), 99, 500_000);
+                productPrices[id] = price;
+
+                writer.startRow(4);
+                writer.writeInt(id);
+                writer.writeText(pools.pick(pools.productNames, random));
+                writer.writeMoney(price);
+                writer.writeText(pools.pick(pools.categories, random));
+            }
+        });
+    }
+
+    private void copyCustomers(Chunk chunk, long seed, Pools pools, LocalDate endDate) {
+        SplittableRandom random = random(seed, CUSTOMERS_STREAM, chunk);
+        copy("COPY customers (id, email, first_name, last_name, join_date) FROM STDIN (FORMAT BINARY)", writer -> {
+            for (int id = chunk.firstId(); id <= chunk.lastId(); id++) {
+                String firstName = pools.pick(pools.firstNames, random);
+                String lastName = pools.pick(pools.lastNames, random);
+
+                writer.startRow(5);
+                writer.writeInt(id);
+                writer.writeText((firstName + "." + lastName + "." + id + "@example.com").toLowerCase());
+                writer.writeText(firstName);
+                writer.writeText(lastName);
+                writer.writeDate(endDate.toEpochDay() - random.nextInt(CUSTOMER_HISTORY_DAYS));
+            }
+        });
+    }
+
+    private void copyOrders(Chunk chunk, int firstItemId, long seed, LocalDate endDate,
+                           ZipfSampler productSampler, ZipfSampler customerSampler, long[] productPrices) {
+        SplittableRandom random = random(seed, ORDERS_STREAM, chunk);
+        int[] itemCounts = itemCounts(chunk, seed);
+        long[] orderDates = new long[itemCounts.length];
+
+        copy("COPY orders (id, customer_id, order_date, status_id) FROM STDIN (FORMAT BINARY)", writer -> {
+            for (int i = 0; i < itemCounts.length; i++) {
+                orderDates[i] = endDate.toEpochDay() - random.nextInt(ORDER_HISTORY_DAYS);
+
+                writer.startRow(4);
+                writer.writeInt(chunk.firstId() + i);
+                writer.writeInt(customerSampler.sample(random));
+                writer.writeDate(orderDates[i]);
+                writer.writeInt(status(random));
+            }
+        });
+
+        String columns = partitioningEnabled
+                ? "id, order_id, product_id, quantity, price_at_purchase, order_date"
+                : "id, order_id, product_id, quantity, price_at_purchase";
+        copy("COPY order_items (" + columns + ") FROM STDIN (FORMAT BINARY)", writer -> {
+            int itemId = firstItemId;
+            for (int i = 0; i < itemCounts.length; i++) {
+                for (int item = 0; item < itemCounts[i]; item++) {
+                    int productId = productSampler.sample(random);
+                    long price = productPrices[productId];
+                    // One item in five is sold at a discount of 5 to 30 percent
+                    if (random.nextInt(5) == 0) {
+                        price = price * (70 + random.nextInt(26)) / 100;
+                    }
+
+                    writer.startRow(partitioningEnabled ? 6 : 5);
+                    writer.writeInt(itemId++);
+                    writer.writeInt(chunk.firstId() + i);
+                    writer.writeInt(productId);
+                    writer.writeInt(quantity(random));
+                    writer.writeMoney(price);
+                    if (partitioningEnabled) {
+                        writer.writeDate(orderDates[i]);
+                    }
+                }
+            }
+        });
+    }
+
+    // Drawn from a stream of their own so the item id ranges of all chunks can be laid out before any chunk runs
+    private static int[] itemCounts(Chunk chunk, long seed) {
+        SplittableRandom random = random(seed, ITEM_COUNTS_STREAM, chunk);
+        int[] counts = new int[chunk.lastId() - chunk.firstId() + 1];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 1 + random.nextInt(MAX_ITEMS_PER_ORDER);
+        }
+        return counts;
+    }
+
+    private void restartIdentity(Table<?> table, int rows) {
+        context.execute("ALTER TABLE {0} ALTER COLUMN id RESTART WITH {1}", table, inline(rows + 1));
+    }
+
+    private static int status(SplittableRandom random) {
+        int roll = random.nextInt(Arrays.stream(STATUS_WEIGHTS).sum());
+        for (int status = 0; status < STATUS_WEIGHTS.length; status++) {
+            roll -= STATUS_WEIGHTS[status];
+            if (roll < 0) {
+                return status + 1;
+            }
+        }
+        return STATUS_WEIGHTS.length;
+    }
+
+    // Mostly single units, each further unit a third as likely
+    private static int quantity(SplittableRandom random) {
+        int quantity = 1;
+        while (quantity < 20 && random.nextInt(3) == 0) {
+            quantity++;
+        }
+        return quantity;
+    }
+
+    private static SplittableRandom random(long seed, long stream, Chunk chunk) {
+        return new SplittableRandom(seed * 1_000_003L + stream * 7_919L + chunk.firstId());
+    }
+
+    private static List<Chunk> chunks(int rows) {
+        List<Chunk> chunks = new ArrayList<>();
+        for (int firstId = 1; firstId <= rows; firstId += ROWS_PER_CHUNK) {
+            chunks.add(new Chunk(firstId, Math.min(rows, firstId + ROWS_PER_CHUNK - 1)));
+        }
+        return chunks;
+    }
+
+    private static void runAll(ExecutorService executor, List<Runnable> tasks) {
+        List<Future<?>> futures = tasks.stream().<Future<?>>map(executor::submit).toList();
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(SEED_INTERRUPTED_ERROR, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(SEED_COPY_ERROR, e.getCause());
+        }
+    }
+
+    // Each chunk streams over its own connection so chunks load in parallel
+    private void copy(String sql, RowWriter rows) {
+        try (Connection connection = dataSource.getConnection();
+             PgBinaryCopyWriter writer = new PgBinaryCopyWriter(
+                     new PGCopyOutputStream(connection.unwrap(PGConnection.class), sql))) {
+            rows.write(writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(SEED_COPY_ERROR, e);
+        } catch (SQLException e) {
+            throw new IllegalStateException(SEED_COPY_ERROR, e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(PgBinaryCopyWriter writer) throws IOException;
+    }
+
+    private record Chunk(int firstId, int lastId) {
+    }
+
+    // Faker is far too slow to call per row at these volumes, names are drawn from pools it fills once per seed
+    private static final class Pools {
+
+        private final List<String> firstNames = new ArrayList<>();
+        private final List<String> lastNames = new ArrayList<>();
+        private final List<String> productNames = new ArrayList<>();
+        private final List<String> categories;
+
+        Pools(long seed) {
+            Faker faker = new Faker(new Random(seed));
+            for (int i = 0; i < NAME_POOL_SIZE; i++) {
+                firstNames.add(faker.name().firstName());
+                lastNames.add(faker.name().lastName());
+                productNames.add(faker.commerce().productName());
+            }
+            Set<String> departments = new LinkedHashSet<>();
+            while (departments.size() < CATEGORY_COUNT) {
+                departments.add(faker.commerce().department());
+            }
+            categories = List.copyOf(departments);
+        }
+
+        String pick(List<String> pool, SplittableRandom random) {
+            return pool.get(random.nextInt(pool.size()));
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.ecommerce.analytics.seed;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Draws ranks 1..n with probability proportional to 1 / rank^exponent, by binary search over the cumulative weights
+final class ZipfSampler {
+
+    private final double[] cumulative;
+
+    ZipfSampler(int n, double exponent) {
+        cumulative = new double[n];
+        double total = 0;
+        for (int rank = 1; rank <= n; rank++) {
+            total += 1 / Math.pow(rank, exponent);
+            cumulative[rank - 1] = total;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= total;
+        }
+    }
+
+    int sample(SplittableRandom random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        int rank = (index >= 0 ? index : -index - 1) + 1;
+        return Math.min(rank, cumulative.length);
+    }
+}
@@ -0,0 +1,21 @@
+package com.ecommerce.analytics.service;
+
+import com.ecommerce.analytics.dto.*;
+
+import java.util.List;
+
+// Alternative in-process query path selected with app.analytics.engine, AnalyticsService falls back to jOOQ until it is ready
+public interface AnalyticsEngine {
+
+    boolean isReady();
+
+    List<SalesByCategoryDTO> getSalesByCategory();
+
+    List<TopSellingProductsDTO> getTopSellingProducts(int limit);
+
+    List<TopSendersDTO> getTopSenders(int limit);
+
+    List<StatusSummaryDTO> getOrderCountByStatusName();
+
+    AverageOrderValueDTO getAverageOrderValue();
+}
@@ -0,0 +1,109 @@
+package com.ecommerce.analytics.service;
+
+import com.ecommerce.analytics.dto.*;
+import com.ecommerce.analytics.repository.AnalyticsRepository;
+import com.ecommerce.analytics.util.CsvWriter;
+import com.ecommerce.analytics.util.MoneyUtils;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Semaphore;
+
+import static com.ecommerce.analytics.constants.AnalyticsConstants.EXPORTS_BUSY_ERROR;
+
+// Writes whole rankings row by row as the database cursor delivers them, so memory does not grow with the row count.
+// An export holds a connection for as long as the client reads, which is why only a few run at once and they stay
+// out of the query admission limit, whose latency samples they would distort
+@Service
+public class AnalyticsExportService {
+
+    private final AnalyticsRepository analyticsRepository;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+    private final Semaphore running;
+
+    public AnalyticsExportService(AnalyticsRepository analyticsRepository,
+                                  ObjectMapper objectMapper,
+                                  @Value("${app.analytics.export.fetch-size}") int fetchSize,
+                                  @Value("${app.analytics.export.max-concurrent}") int maxConcurrent) {
+        this.analyticsRepository = analyticsRepository;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+        this.running = new Semaphore(maxConcurrent);
+    }
+
+    // Rows are in the order of the matching top-N endpoint, which are the first rows of the export
+    public void export(ExportDataset dataset, ExportFormat format, DateRangeDTO range, OutputStream out) throws IOException {
+        if (!running.tryAcquire()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, EXPORTS_BUSY_ERROR);
+        }
+        try {
+            switch (format) {
+                case NDJSON -> exportNdjson(dataset, range, out);
+                case CSV -> exportCsv(dataset, range, out);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            running.release();
+        }
+    }
+
+    private void exportNdjson(ExportDataset dataset, DateRangeDTO range, OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.createGenerator(out);
+        generator.setRootValueSeparator(null);
+        switch (dataset) {
+            case PRODUCT_QUANTITIES -> analyticsRepository.forEachTopSellingProduct(range, fetchSize, record ->
+                    writeLine(generator, AnalyticsService.toTopSellingProduct(record)));
+            case CUSTOMER_SPEND -> analyticsRepository.forEachTopSpender(range, fetchSize, record ->
+                    writeLine(generator, AnalyticsService.toTopSpender(record)));
+        }
+        generator.flush();
+    }
+
+    private void exportCsv(ExportDataset dataset, DateRangeDTO range, OutputStream out) throws IOException {
+        CsvWriter csv = new CsvWriter(out);
+        switch (dataset) {
+            case PRODUCT_QUANTITIES -> {
+                csv.writeRow("productId", "productName", "totalQuantitySold");
+                analyticsRepository.forEachTopSellingProduct(range, fetchSize, record -> {
+                    TopSellingProductsDTO product = AnalyticsService.toTopSellingProduct(record);
+                    writeRow(csv, product.getProductId(), product.getProductName(), product.getTotalQuantitySold());
+                });
+            }
+            case CUSTOMER_SPEND -> {
+                csv.writeRow("customerId", "email", "fullName", "totalSpend");
+                analyticsRepository.forEachTopSpender(range, fetchSize, record -> {
+                    TopSendersDTO spender = AnalyticsService.toTopSpender(record);
+                    writeRow(csv, spender.getCustomerId(), spender.getEmail(), spender.getFullName(),
+                            MoneyUtils.format(spender.getTotalSpend()));
+                });
+            }
+        }
+        csv.flush();
+    }
+
+    private static void writeLine(JsonGenerator generator, Object row) {
+        try {
+            generator.writeObject(row);
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeRow(CsvWriter csv, Object... values) {
+        try {
+            csv.writeRow(values);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
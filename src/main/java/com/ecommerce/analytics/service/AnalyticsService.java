@@ -1,80 +1,189 @@
 package com.ecommerce.analytics.service;
 
+import com.ecommerce.analytics.admission.AdmissionPriority;
+import com.ecommerce.analytics.admission.DatabaseAdmissionLimiter;
 import com.ecommerce.analytics.dto.*;
+import com.ecommerce.analytics.ranking.CategoryRankIndex;
 import com.ecommerce.analytics.repository.AnalyticsRepository;
+import com.ecommerce.analytics.sketch.OrderValueDigests;
+import org.jooq.Record2;
+import org.jooq.Record3;
+import org.jooq.Record4;
+import org.jooq.Record5;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
+
+import static com.ecommerce.analytics.constants.AnalyticsConstants.AVERAGE_ORDER_VALUE_SCALE;
+import static com.ecommerce.analytics.constants.AnalyticsConstants.DEFAULT_LIMIT;
 
 @Service
 public class AnalyticsService {
 
     private final AnalyticsRepository analyticsRepository;
+    private final DatabaseAdmissionLimiter admissionLimiter;
+    private final AnalyticsEngine analyticsEngine;
+    private final OrderValueDigests orderValueDigests;
+    private final CategoryRankIndex categoryRankIndex;
 
-    public AnalyticsService(AnalyticsRepository analyticsRepository) {
+    public AnalyticsService(AnalyticsRepository analyticsRepository,
+                            DatabaseAdmissionLimiter admissionLimiter,
+                            ObjectProvider<AnalyticsEngine> analyticsEngine,
+                            ObjectProvider<OrderValueDigests> orderValueDigests,
+                            ObjectProvider<CategoryRankIndex> categoryRankIndex) {
         this.analyticsRepository = analyticsRepository;
+        this.admissionLimiter = admissionLimiter;
+        this.analyticsEngine = analyticsEngine.getIfAvailable();
+        this.orderValueDigests = orderValueDigests.getIfAvailable();
+        this.categoryRankIndex = categoryRankIndex.getIfAvailable();
     }
 
     public List<SalesByCategoryDTO> getSalesByCategory() {
-        return analyticsRepository
-                .getSalesByCategory()
-                .stream()
-                .map(record -> {
-                    String category = record.value1();
-                    BigDecimal totalSales = record.value2();
-                    return new SalesByCategoryDTO(category, totalSales);
-                })
-                .collect(Collectors.toList());
+        return getSalesByCategory(DateRangeDTO.ALL_TIME);
+    }
+
+    public List<SalesByCategoryDTO> getSalesByCategory(DateRangeDTO range) {
+        if (isEngineReady(range)) {
+            return analyticsEngine.getSalesByCategory();
+        }
+
+        return query(AnalyticsMetric.SALES_BY_CATEGORY, AdmissionPriority.CHEAP, () -> analyticsRepository
+                .getSalesByCategory(range)
+                .map(AnalyticsService::toSalesByCategory));
     }
 
     public List<TopSellingProductsDTO> getTopSellingProducts(int limit) {
-        return analyticsRepository
-                .getTopSellingProducts(limit)
-                .stream()
-                .map(record -> {
-                    Integer productId = record.value1();
-                    String productName = record.value2();
-                    Long totalQuantitySold = record.value3().longValue();
-                    return new TopSellingProductsDTO(productId, productName, totalQuantitySold);
-                })
-                .collect(Collectors.toList());
+        return getTopSellingProducts(limit, DateRangeDTO.ALL_TIME);
+    }
+
+    public List<TopSellingProductsDTO> getTopSellingProducts(int limit, DateRangeDTO range) {
+        if (isEngineReady(range)) {
+            return analyticsEngine.getTopSellingProducts(limit);
+        }
+
+        return query(AnalyticsMetric.TOP_SELLING_PRODUCTS, priority(limit), () -> analyticsRepository
+                .getTopSellingProducts(limit, range)
+                .map(AnalyticsService::toTopSellingProduct));
     }
 
     public List<TopSendersDTO> getTopSenders(int limit) {
-        return analyticsRepository
-                .getTopSpenders(limit)
-                .stream()
-                .map(record -> {
-                    Integer customerId = record.value1();
-                    String email = record.value2();
-                    String firstName = record.value3();
-                    String lastName = record.value4();
-                    BigDecimal totalSpend = record.value5();
-                    String fullName = firstName + " " + lastName;
-                    return new TopSendersDTO(customerId, email, fullName, totalSpend);
-                })
-                .collect(Collectors.toList());
+        return getTopSenders(limit, DateRangeDTO.ALL_TIME);
+    }
+
+    public List<TopSendersDTO> getTopSenders(int limit, DateRangeDTO range) {
+        if (isEngineReady(range)) {
+            return analyticsEngine.getTopSenders(limit);
+        }
+
+        // Spend per customer aggregates every order
+        return query(AnalyticsMetric.TOP_SPENDERS, AdmissionPriority.EXPENSIVE, () -> analyticsRepository
+                .getTopSpenders(limit, range)
+                .map(AnalyticsService::toTopSpender));
+    }
+
+    // Result.map presizes the list to the rows fetched, and each mapper reads the values in place
+    static SalesByCategoryDTO toSalesByCategory(Record2<String, Long> record) {
+        String category = record.value1();
+        long totalSales = record.value2();
+        return new SalesByCategoryDTO(category, totalSales);
+    }
+
+    static TopSellingProductsDTO toTopSellingProduct(Record3<Integer, String, BigDecimal> record) {
+        Integer productId = record.value1();
+        String productName = record.value2();
+        Long totalQuantitySold = record.value3().longValue();
+        return new TopSellingProductsDTO(productId, productName, totalQuantitySold);
+    }
+
+    // The full name comes joined from the query
+    static TopSendersDTO toTopSpender(Record4<Integer, String, String, Long> record) {
+        Integer customerId = record.value1();
+        String email = record.value2();
+        String fullName = record.value3();
+        long totalSpend = record.value4();
+        return new TopSendersDTO(customerId, email, fullName, totalSpend);
+    }
+
+    static StatusSummaryDTO toStatusSummary(Record2<String, Long> record) {
+        String statusName = record.value1();
+        Long orderCount = record.value2();
+        return new StatusSummaryDTO(statusName, orderCount);
+    }
+
+    static ProductRankByCategoryDTO toProductRankByCategory(Record5<Integer, String, String, BigDecimal, Integer> record) {
+        Integer productId = record.value1();
+        String productName = record.value2();
+        String category = record.value3();
+        BigDecimal totalQuantitySold = record.value4();
+        Integer categoryRank = record.value5();
+        return new ProductRankByCategoryDTO(productId, productName, category, totalQuantitySold, categoryRank);
     }
 
     public List<StatusSummaryDTO> getOrderCountByStatusName() {
-        return analyticsRepository
-                .getOrderCountByStatusName()
-                .stream()
-                .map(record -> {
-                    String statusName = record.value1();
-                    Long orderCount = record.value2();
-                    return new StatusSummaryDTO(statusName, orderCount);
-                })
-                .collect(Collectors.toList());
+        return getOrderCountByStatusName(DateRangeDTO.ALL_TIME);
+    }
+
+    public List<StatusSummaryDTO> getOrderCountByStatusName(DateRangeDTO range) {
+        if (isEngineReady(range)) {
+            return analyticsEngine.getOrderCountByStatusName();
+        }
+
+        return query(AnalyticsMetric.STATUS_SUMMARY, AdmissionPriority.CHEAP, () -> analyticsRepository
+                .getOrderCountByStatusName(range)
+                .map(AnalyticsService::toStatusSummary));
     }
 
     public AverageOrderValueDTO getAverageOrderValue() {
-        BigDecimal averageOrderValue = analyticsRepository
-                .getAverageOrderValue()
-                .value1();
+        return getAverageOrderValue(DateRangeDTO.ALL_TIME);
+    }
+
+    public AverageOrderValueDTO getAverageOrderValue(DateRangeDTO range) {
+        if (isEngineReady(range)) {
+            return analyticsEngine.getAverageOrderValue();
+        }
+
+        // Kept current by change notifications, the mean is a sum over the days in range instead of a scan of orders
+        if (orderValueDigests != null && orderValueDigests.tracksChanges()) {
+            return new AverageOrderValueDTO(orderValueDigests.get(range).mean(AVERAGE_ORDER_VALUE_SCALE));
+        }
+
+        BigDecimal averageOrderValue = query(AnalyticsMetric.AVERAGE_ORDER_VALUE, AdmissionPriority.CHEAP, () -> analyticsRepository
+                .getAverageOrderValue(range)
+                .value1());
         return new AverageOrderValueDTO(averageOrderValue);
     }
 
+    public List<ProductRankByCategoryDTO> getProductRankByCategory(int limit) {
+        return getProductRankByCategory(limit, DateRangeDTO.ALL_TIME);
+    }
+
+    public List<ProductRankByCategoryDTO> getProductRankByCategory(int limit, DateRangeDTO range) {
+        // The index keeps all-time ranks only, and only stays current while change notifications arrive
+        if (range.isUnbounded() && categoryRankIndex != null && categoryRankIndex.tracksChanges()) {
+            return categoryRankIndex.top(limit);
+        }
+
+        return query(AnalyticsMetric.PRODUCT_RANK_BY_CATEGORY, priority(limit), () -> analyticsRepository
+                .getProductRankByCategory(limit, range)
+                .map(AnalyticsService::toProductRankByCategory));
+    }
+
+    // Only the queries wait for a slot, answers from the engines, the index and the digests are reads of memory
+    private <T> T query(AnalyticsMetric metric, AdmissionPriority priority, Supplier<T> query) {
+        return admissionLimiter.call(metric.name().toLowerCase(), priority, query);
+    }
+
+    // Long top-N lists are what big reports ask for
+    private static AdmissionPriority priority(int limit) {
+        return limit > DEFAULT_LIMIT ? AdmissionPriority.EXPENSIVE : AdmissionPriority.CHEAP;
+    }
+
+    // The engines only keep all-time totals, date-bounded requests always go to the database
+    private boolean isEngineReady(DateRangeDTO range) {
+        return range.isUnbounded() && analyticsEngine != null && analyticsEngine.isReady();
+    }
+
 }
@@ -0,0 +1,107 @@
+package com.ecommerce.analytics.service;
+
+import com.ecommerce.analytics.admission.AdmissionPriority;
+import com.ecommerce.analytics.admission.DatabaseAdmissionLimiter;
+import com.ecommerce.analytics.dto.*;
+import com.ecommerce.analytics.repository.AnalyticsRepository;
+import com.ecommerce.analytics.sketch.OrderValueDigests;
+import com.ecommerce.analytics.sketch.ProductSalesSketches;
+import com.ecommerce.analytics.sketch.SpaceSavingSketch;
+import com.ecommerce.analytics.sketch.TDigest;
+import com.ecommerce.analytics.util.ValidationUtils;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.ecommerce.analytics.constants.AnalyticsConstants.*;
+import static com.ecommerce.analytics.jooq.Tables.PRODUCTS;
+
+// Answers from per-day sketches instead of queries: top-N counts may be high by up to errorBound,
+// order value percentiles and histogram counts are t-digest estimates
+@Service
+public class ApproximateAnalyticsService {
+
+    private final ProductSalesSketches productSalesSketches;
+    private final OrderValueDigests orderValueDigests;
+    private final AnalyticsRepository analyticsRepository;
+    private final DatabaseAdmissionLimiter admissionLimiter;
+
+    public ApproximateAnalyticsService(ProductSalesSketches productSalesSketches,
+                                       OrderValueDigests orderValueDigests,
+                                       AnalyticsRepository analyticsRepository,
+                                       DatabaseAdmissionLimiter admissionLimiter) {
+        this.productSalesSketches = productSalesSketches;
+        this.orderValueDigests = orderValueDigests;
+        this.analyticsRepository = analyticsRepository;
+        this.admissionLimiter = admissionLimiter;
+    }
+
+    // The sketches wait for a query slot themselves when they load, the product names are the only query here
+    public ApproximateTopSellingProductsDTO getTopSellingProducts(Integer limit, DateRangeDTO range) {
+        List<SpaceSavingSketch.Counter> top = productSalesSketches
+                .get(range)
+                .top(ValidationUtils.validateAndNormalizeLimit(limit));
+
+        Map<Integer, String> productNames = admissionLimiter.call("approximate_top_selling_products", AdmissionPriority.CHEAP,
+                () -> analyticsRepository
+                        .getProductNames(top.stream().map(SpaceSavingSketch.Counter::key).toList())
+                        .intoMap(PRODUCTS.ID, PRODUCTS.NAME));
+
+        List<TopSellingProductsDTO> products = top.stream()
+                .map(counter -> new TopSellingProductsDTO(counter.key(), productNames.get(counter.key()), counter.count()))
+                .collect(Collectors.toList());
+        long errorBound = top.stream()
+                .mapToLong(SpaceSavingSketch.Counter::error)
+                .max()
+                .orElse(0);
+        return new ApproximateTopSellingProductsDTO(products, errorBound);
+    }
+
+    public OrderValuePercentilesDTO getOrderValuePercentiles(DateRangeDTO range) {
+        TDigest digest = orderValueDigests.get(range);
+        if (digest.count() == 0) {
+            return new OrderValuePercentilesDTO(0L, null, null, null, null, null, null);
+        }
+        return new OrderValuePercentilesDTO(
+                digest.count(),
+                digest.mean(AVERAGE_ORDER_VALUE_SCALE),
+                estimate(digest.min()),
+                estimate(digest.quantile(0.5)),
+                estimate(digest.quantile(0.9)),
+                estimate(digest.quantile(0.99)),
+                estimate(digest.max()));
+    }
+
+    // Equal width buckets from the smallest to the largest order, each holding the orders above its lower bound
+    // up to and including its upper bound, the first one also holds the smallest order
+    public List<OrderValueHistogramBucketDTO> getOrderValueHistogram(Integer buckets, DateRangeDTO range) {
+        TDigest digest = orderValueDigests.get(range);
+        if (digest.count() == 0) {
+            return List.of();
+        }
+
+        int bucketCount = ValidationUtils.validateAndNormalizeBuckets(buckets);
+        double width = (digest.max() - digest.min()) / bucketCount;
+        List<OrderValueHistogramBucketDTO> histogram = new ArrayList<>(bucketCount);
+        long below = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            boolean last = i == bucketCount - 1;
+            double lower = digest.min() + width * i;
+            double upper = last ? digest.max() : digest.min() + width * (i + 1);
+            // Rounding cumulative counts keeps the bucket counts adding up to the order count
+            long atOrBelow = last ? digest.count() : Math.round(digest.cdf(upper) * digest.count());
+            histogram.add(new OrderValueHistogramBucketDTO(estimate(lower), estimate(upper), atOrBelow - below));
+            below = atOrBelow;
+        }
+        return histogram;
+    }
+
+    private static BigDecimal estimate(double value) {
+        return BigDecimal.valueOf(value).setScale(ORDER_VALUE_ESTIMATE_SCALE, RoundingMode.HALF_UP);
+    }
+}
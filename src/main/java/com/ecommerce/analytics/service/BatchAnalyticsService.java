@@ -0,0 +1,38 @@
+package com.ecommerce.analytics.service;
+
+import com.ecommerce.analytics.dto.BatchMetricRequestDTO;
+import com.ecommerce.analytics.dto.BatchMetricResultDTO;
+import com.ecommerce.analytics.dto.BatchResponseDTO;
+import com.ecommerce.analytics.util.ValidationUtils;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Several metrics in one request: every one is started before any is waited for, so uncached ones query side by side
+// on the result cache's loads, which the admission limiter bounds across all requests
+@Service
+public class BatchAnalyticsService {
+
+    private final CachedAnalyticsService analyticsService;
+
+    public BatchAnalyticsService(CachedAnalyticsService analyticsService) {
+        this.analyticsService = analyticsService;
+    }
+
+    public BatchResponseDTO getMetrics(List<BatchMetricRequestDTO> requests) {
+        ValidationUtils.validateBatchRequests(requests);
+
+        List<CompletableFuture<Object>> pending = new ArrayList<>(requests.size());
+        for (BatchMetricRequestDTO request : requests) {
+            pending.add(analyticsService.getAsync(request.metric(), request.limit(), request.range()));
+        }
+
+        List<BatchMetricResultDTO> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            results.add(new BatchMetricResultDTO(requests.get(i).metric(), CachedAnalyticsService.join(pending.get(i))));
+        }
+        return new BatchResponseDTO(results);
+    }
+}
@@ -0,0 +1,354 @@
+package com.ecommerce.analytics.service;
+
+import com.ecommerce.analytics.dto.*;
+import com.ecommerce.analytics.invalidation.AnalyticsChangeListener;
+import com.ecommerce.analytics.invalidation.AnalyticsDataChangedEvent;
+import com.ecommerce.analytics.repository.AnalyticsRepository;
+import com.ecommerce.analytics.util.ValidationUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.jooq.Record3;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Sits in front of AnalyticsService: identical concurrent requests share one query, and entries older than the ttl
+// are still served while a single background reload runs, until max-stale forces callers to wait for a fresh one
+@Service
+public class CachedAnalyticsService {
+
+    private record CacheKey(AnalyticsMetric metric, int limit, DateRangeDTO range) {
+    }
+
+    // Sum of the stored generations of the tables behind the metric, read again on every change notification, so a
+    // result loaded after that read carries the change. changedAt is in whole seconds, what Last-Modified and
+    // If-Modified-Since can tell apart
+    private record Generation(long number, Instant changedAt) {
+    }
+
+    private static final Generation UNREAD = new Generation(-1, Instant.EPOCH);
+
+    // A result with the data version it was loaded at, eTag is null when versions cannot be told apart
+    public record Versioned<T>(T result, String eTag, Instant lastModified) {
+    }
+
+    private final AnalyticsService analyticsService;
+    private final AnalyticsRepository analyticsRepository;
+    private final boolean enabled;
+    private final boolean versioned;
+    private final AsyncLoadingCache<CacheKey, Versioned<Object>> cache;
+    // Keyed by the identity of the cached value, so the bytes go away with the entry they were encoded from
+    private final Cache<Versioned<Object>, EncodedBody> encodedBodies = Caffeine.newBuilder().weakKeys().build();
+    private final ObjectMapper objectMapper;
+    private final boolean encodesBodies;
+    private final ExecutorService loadExecutor;
+    private final Map<AnalyticsMetric, Counter> hits = new EnumMap<>(AnalyticsMetric.class);
+    private final Map<AnalyticsMetric, Counter> misses = new EnumMap<>(AnalyticsMetric.class);
+    private final Map<AnalyticsMetric, Counter> refreshes = new EnumMap<>(AnalyticsMetric.class);
+    private final Map<AnalyticsMetric, Counter> invalidations = new EnumMap<>(AnalyticsMetric.class);
+    private final Map<AnalyticsMetric, AtomicReference<Generation>> generations = new EnumMap<>(AnalyticsMetric.class);
+
+    public CachedAnalyticsService(AnalyticsService analyticsService,
+                                  AnalyticsRepository analyticsRepository,
+                                  ObjectProvider<AnalyticsEngine> analyticsEngine,
+                                  MeterRegistry meterRegistry,
+                                  ObjectMapper objectMapper,
+                                  @Value("${app.analytics.cache.enabled:true}") boolean enabled,
+                                  @Value("${app.analytics.cache.encoded-bodies.enabled:true}") boolean encodesBodies,
+                                  @Value("${app.analytics.cache.invalidation.enabled:true}") boolean tracksChanges,
+                                  @Value("${app.analytics.cache.ttl}") Duration ttl,
+                                  @Value("${app.analytics.cache.max-stale}") Duration maxStale,
+                                  @Value("${app.analytics.cache.max-size}") long maxSize) {
+        this.analyticsService = analyticsService;
+        this.analyticsRepository = analyticsRepository;
+        this.enabled = enabled;
+        this.objectMapper = objectMapper;
+        this.encodesBodies = encodesBodies;
+        // Only notifications say when data changed, and the in-memory engines catch up with a change on their own time
+        this.versioned = tracksChanges && analyticsEngine.getIfAvailable() == null;
+
+        for (AnalyticsMetric metric : AnalyticsMetric.values()) {
+            generations.put(metric, new AtomicReference<>(UNREAD));
+        }
+        if (versioned) {
+            readGenerations();
+        }
+
+        for (AnalyticsMetric metric : AnalyticsMetric.values()) {
+            String tag = metric.name().toLowerCase();
+            hits.put(metric, meterRegistry.counter("analytics.cache.requests", "metric", tag, "result", "hit"));
+            misses.put(metric, meterRegistry.counter("analytics.cache.requests", "metric", tag, "result", "miss"));
+            refreshes.put(metric, meterRegistry.counter("analytics.cache.refreshes", "metric", tag));
+            invalidations.put(metric, meterRegistry.counter("analytics.cache.invalidations", "metric", tag));
+        }
+
+        // A virtual thread per load, so loads wait in the admission limiter, which serves cheap ones first and sheds
+        // when its queues are full, instead of in the queue of a fixed pool smaller than its limit
+        this.loadExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("analytics-cache-", 1).factory());
+
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .refreshAfterWrite(ttl)
+                .expireAfterWrite(maxStale)
+                .executor(loadExecutor)
+                .buildAsync(new CacheLoader<>() {
+                    @Override
+                    public Versioned<Object> load(CacheKey key) {
+                        misses.get(key.metric()).increment();
+                        return query(key);
+                    }
+
+                    @Override
+                    public Versioned<Object> reload(CacheKey key, Versioned<Object> oldValue) {
+                        refreshes.get(key.metric()).increment();
+                        return query(key);
+                    }
+                });
+    }
+
+    public List<SalesByCategoryDTO> getSalesByCategory(DateRangeDTO range) {
+        return get(key(AnalyticsMetric.SALES_BY_CATEGORY, null, range));
+    }
+
+    public List<TopSellingProductsDTO> getTopSellingProducts(Integer limit, DateRangeDTO range) {
+        return get(key(AnalyticsMetric.TOP_SELLING_PRODUCTS, limit, range));
+    }
+
+    public List<TopSendersDTO> getTopSenders(Integer limit, DateRangeDTO range) {
+        return get(key(AnalyticsMetric.TOP_SPENDERS, limit, range));
+    }
+
+    public List<StatusSummaryDTO> getOrderCountByStatusName(DateRangeDTO range) {
+        return get(key(AnalyticsMetric.STATUS_SUMMARY, null, range));
+    }
+
+    public AverageOrderValueDTO getAverageOrderValue(DateRangeDTO range) {
+        return get(key(AnalyticsMetric.AVERAGE_ORDER_VALUE, null, range));
+    }
+
+    public List<ProductRankByCategoryDTO> getProductRankByCategory(Integer limit, DateRangeDTO range) {
+        return get(key(AnalyticsMetric.PRODUCT_RANK_BY_CATEGORY, limit, range));
+    }
+
+    // Does not wait for the result, so the metrics of one request can load side by side
+    public CompletableFuture<Object> getAsync(AnalyticsMetric metric, Integer limit, DateRangeDTO range) {
+        CacheKey key = key(metric, limit, range);
+        if (!enabled) {
+            return CompletableFuture.supplyAsync(() -> query(key).result(), loadExecutor);
+        }
+        return lookup(key).thenApply(Versioned::result);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Versioned<T> getVersioned(AnalyticsMetric metric, Integer limit, DateRangeDTO range) {
+        CacheKey key = key(metric, limit, range);
+        if (!enabled) {
+            return (Versioned<T>) query(key);
+        }
+        return (Versioned<T>) join(lookup(key));
+    }
+
+    // The result as the JSON it is served as, encoded once per loaded result instead of on every hit. Null when
+    // results are not cached, there is nothing to keep the bytes with then
+    public Versioned<EncodedBody> getEncoded(AnalyticsMetric metric, Integer limit, DateRangeDTO range) {
+        if (!enabled || !encodesBodies) {
+            return null;
+        }
+        Versioned<Object> versioned = join(lookup(key(metric, limit, range)));
+        EncodedBody body = encodedBodies.get(versioned, this::encode);
+        return new Versioned<>(body, versioned.eTag(), versioned.lastModified());
+    }
+
+    // Version of the result a request would be served right now, without loading it. Null when that takes a query.
+    // Not counted as a cache request, the request only reads the result when it goes on to serve it
+    public Versioned<?> peekVersion(AnalyticsMetric metric, Integer limit, DateRangeDTO range) {
+        if (!versioned) {
+            return null;
+        }
+        CacheKey key = key(metric, limit, range);
+        if (!enabled) {
+            // Whatever a query would read now is at least this version
+            return version(key, generations.get(key.metric()).get(), null);
+        }
+
+        return peek(key);
+    }
+
+    // Like peekVersion, with the bytes a JSON request would be sent. Null until the result has been served as JSON
+    public Versioned<EncodedBody> peekEncoded(AnalyticsMetric metric, Integer limit, DateRangeDTO range) {
+        if (!versioned || !enabled || !encodesBodies) {
+            return null;
+        }
+        Versioned<Object> current = peek(key(metric, limit, range));
+        EncodedBody body = current != null ? encodedBodies.getIfPresent(current) : null;
+        return body != null ? new Versioned<>(body, current.eTag(), current.lastModified()) : null;
+    }
+
+    // Failures of a load surface as the exception the query threw, like a direct call would
+    static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    // Only entries whose metric and date range overlap the change are reloaded, the old result is served meanwhile
+    @EventListener
+    public void onDataChanged(AnalyticsDataChangedEvent event) {
+        if (versioned) {
+            readGenerations();
+        }
+
+        for (CacheKey key : cache.synchronous().asMap().keySet()) {
+            if (event.affects(key.metric(), key.range())) {
+                invalidations.get(key.metric()).increment();
+                cache.synchronous().refresh(key);
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        loadExecutor.shutdownNow();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(CacheKey key) {
+        if (!enabled) {
+            return (T) query(key).result();
+        }
+        return (T) join(lookup(key)).result();
+    }
+
+    private Versioned<Object> peek(CacheKey key) {
+        CompletableFuture<Versioned<Object>> cached = cache.getIfPresent(key);
+        if (cached == null || !cached.isDone() || cached.isCompletedExceptionally()) {
+            return null;
+        }
+        return cached.join();
+    }
+
+    // Joining an in-flight load counts as a hit, only the request that started it is a miss
+    private CompletableFuture<Versioned<Object>> lookup(CacheKey key) {
+        CompletableFuture<Versioned<Object>> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            hits.get(key.metric()).increment();
+            return cached;
+        }
+        return cache.get(key);
+    }
+
+    // Metrics without a limit share one entry per range whatever limit was sent
+    private static CacheKey key(AnalyticsMetric metric, Integer limit, DateRangeDTO range) {
+        return switch (metric) {
+            case TOP_SELLING_PRODUCTS, TOP_SPENDERS, PRODUCT_RANK_BY_CATEGORY ->
+                    new CacheKey(metric, ValidationUtils.validateAndNormalizeLimit(limit), range);
+            case SALES_BY_CATEGORY, STATUS_SUMMARY, AVERAGE_ORDER_VALUE -> new CacheKey(metric, 0, range);
+        };
+    }
+
+    // The generation is read first, the data may be newer than it but never older
+    private Versioned<Object> query(CacheKey key) {
+        Generation generation = generations.get(key.metric()).get();
+        Object result = fetch(key);
+        return versioned ? version(key, generation, result) : new Versioned<>(result, null, null);
+    }
+
+    // The same on every instance and across restarts: the metric, its normalized limit and ISO dates, and the
+    // generation of the data
+    private Versioned<Object> version(CacheKey key, Generation generation, Object result) {
+        String eTag = String.join(":",
+                key.metric().name().toLowerCase(),
+                Integer.toString(key.limit()),
+                isoDate(key.range().getFrom()),
+                isoDate(key.range().getTo()),
+                Long.toString(generation.number()));
+        return new Versioned<>(result, eTag, generation.changedAt());
+    }
+
+    // Generations only move forward, a read that raced a newer one keeps the newer
+    private void readGenerations() {
+        Map<String, Record3<String, Long, OffsetDateTime>> tables =
+                analyticsRepository.getChangeGenerations().intoMap(Record3::value1);
+        for (AnalyticsMetric metric : AnalyticsMetric.values()) {
+            long number = 0;
+            Instant latest = Instant.EPOCH;
+            for (String table : AnalyticsChangeListener.tablesOf(metric)) {
+                Record3<String, Long, OffsetDateTime> stored = tables.get(table);
+                if (stored != null) {
+                    number += stored.value2();
+                    Instant changedAt = stored.value3().toInstant();
+                    latest = changedAt.isAfter(latest) ? changedAt : latest;
+                }
+            }
+
+            long read = number;
+            Instant changed = latest.truncatedTo(ChronoUnit.SECONDS);
+            generations.get(metric).updateAndGet(generation -> read > generation.number()
+                    ? new Generation(read, changedAt(generation.changedAt(), changed))
+                    : generation);
+        }
+    }
+
+    // A change within the second of the previous one moves on to the next second, or a client holding the previous
+    // Last-Modified would be told the changed result is not modified since
+    private static Instant changedAt(Instant previous, Instant second) {
+        return second.isAfter(previous) ? second : previous.plusSeconds(1);
+    }
+
+    private static String isoDate(LocalDate date) {
+        return Objects.toString(date, "");
+    }
+
+    // Written by the same ObjectMapper as the message converter, so the bytes are what it would have sent
+    private EncodedBody encode(Versioned<Object> versioned) {
+        try {
+            return new EncodedBody(objectMapper.writeValueAsBytes(versioned.result()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Object fetch(CacheKey key) {
+        return switch (key.metric()) {
+            case SALES_BY_CATEGORY -> analyticsService.getSalesByCategory(key.range());
+            case TOP_SELLING_PRODUCTS -> analyticsService.getTopSellingProducts(key.limit(), key.range());
+            case TOP_SPENDERS -> analyticsService.getTopSenders(key.limit(), key.range());
+            case STATUS_SUMMARY -> analyticsService.getOrderCountByStatusName(key.range());
+            case AVERAGE_ORDER_VALUE -> analyticsService.getAverageOrderValue(key.range());
+            case PRODUCT_RANK_BY_CATEGORY -> analyticsService.getProductRankByCategory(key.limit(), key.range());
+        };
+    }
+}
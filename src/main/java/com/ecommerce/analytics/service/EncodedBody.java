@@ -0,0 +1,49 @@
+package com.ecommerce.analytics.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+import static com.ecommerce.analytics.constants.AnalyticsConstants.GZIP_MIN_BYTES;
+
+// The JSON of one cached result, encoded by the first request it is served to and written as is by every later one.
+// The gzip form is only made once a client asks for it
+public final class EncodedBody {
+
+    private final byte[] json;
+    private volatile byte[] gzip;
+
+    public EncodedBody(byte[] json) {
+        this.json = json;
+    }
+
+    public byte[] json() {
+        return json;
+    }
+
+    // Shorter bodies barely shrink, and compressing them costs more than sending them
+    public boolean isCompressible() {
+        return json.length >= GZIP_MIN_BYTES;
+    }
+
+    // Two requests may both compress it the first time, they produce the same bytes
+    public byte[] gzip() {
+        byte[] compressed = gzip;
+        if (compressed == null) {
+            compressed = compress(json);
+            gzip = compressed;
+        }
+        return compressed;
+    }
+
+    private static byte[] compress(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,225 @@
+package com.ecommerce.analytics.sketch;
+
+import com.ecommerce.analytics.admission.AdmissionPriority;
+import com.ecommerce.analytics.admission.DatabaseAdmissionLimiter;
+import com.ecommerce.analytics.dto.AnalyticsMetric;
+import com.ecommerce.analytics.dto.DateRangeDTO;
+import com.ecommerce.analytics.invalidation.AnalyticsDataChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// One mergeable sketch per order day, merged on request and kept per range. Days named by a change notification
+// for the metric are rebuilt from the database; without notifications nothing says when to rebuild, so every day is
+// reloaded once the sketches are older than the ttl
+public abstract class DailySketches<S> {
+
+    private static final Logger log = LoggerFactory.getLogger(DailySketches.class);
+
+    // Distinct date ranges whose merge is kept, a dashboard asks for the same few over and over
+    private static final int MAX_MERGED_RANGES = 1000;
+
+    // The days and the merges made from them, replaced whole by a rebuild so a request merges one consistent version
+    private record Published<S>(NavigableMap<LocalDate, S> days, Cache<DateRangeDTO, S> merged) {
+    }
+
+    private final AnalyticsMetric metric;
+    private final DatabaseAdmissionLimiter admissionLimiter;
+    private final boolean tracksChanges;
+    private final long ttlNanos;
+
+    // Held while days load from the database, where a synchronized block would pin a virtual thread to its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Published<S> published = emptyPublished();
+    private volatile boolean loaded;
+    private volatile long loadedAt;
+
+    protected DailySketches(AnalyticsMetric metric, DatabaseAdmissionLimiter admissionLimiter, boolean tracksChanges,
+                            Duration ttl) {
+        this.metric = metric;
+        this.admissionLimiter = admissionLimiter;
+        this.tracksChanges = tracksChanges;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    public boolean tracksChanges() {
+        return tracksChanges;
+    }
+
+    public S get(DateRangeDTO range) {
+        if (!loaded) {
+            load();
+        } else if (expired()) {
+            refresh();
+        }
+        // Merged once per version and range, concurrent requests for the same range wait for the one merge
+        Published<S> current = published;
+        return current.merged().get(range, key -> merge(within(current.days(), key).values()));
+    }
+
+    // Ahead of the result cache, whose refresh of the same change may read these sketches
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onDataChanged(AnalyticsDataChangedEvent event) {
+        DateRangeDTO changed = event.changes().get(metric);
+        if (changed != null) {
+            reloadIfLoaded(changed);
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            loaded = false;
+            published = emptyPublished();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // First and last order day with data, either null when there is none
+    protected abstract DateRangeDTO dateBounds();
+
+    protected abstract void loadDays(DateRangeDTO range, Map<LocalDate, S> into);
+
+    protected abstract S empty();
+
+    protected abstract S merge(S a, S b);
+
+    private void load() {
+        lock.lock();
+        try {
+            if (!loaded) {
+                reloadAll();
+                loaded = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // One request reloads expired sketches, the others merge the expired ones meanwhile rather than wait for it
+    private void refresh() {
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            if (loaded && expired()) {
+                reloadAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean expired() {
+        return !tracksChanges && System.nanoTime() - loadedAt >= ttlNanos;
+    }
+
+    // Callers hold the lock
+    private void reloadAll() {
+        admitted(() -> {
+            reload(DateRangeDTO.ALL_TIME);
+            return null;
+        });
+        loadedAt = System.nanoTime();
+    }
+
+    // Loads a request waits for take a query slot, rebuilds after a change notification do not, they would be lost if shed
+    private <T> T admitted(Supplier<T> load) {
+        return admissionLimiter.call(metric.name().toLowerCase(), AdmissionPriority.CHEAP, load);
+    }
+
+    // Waits for a load in progress, which may have read the rows before the change committed
+    private void reloadIfLoaded(DateRangeDTO range) {
+        lock.lock();
+        try {
+            if (loaded) {
+                reload(range);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Callers hold the lock. Merges of ranges the change does not touch carry over to the new version
+    private void reload(DateRangeDTO range) {
+        long started = System.nanoTime();
+        Map<LocalDate, S> rebuilt = load(range);
+
+        Published<S> current = published;
+        NavigableMap<LocalDate, S> days = new TreeMap<>(current.days());
+        within(days, range).clear();
+        days.putAll(rebuilt);
+        Cache<DateRangeDTO, S> merged = newMergeCache();
+        current.merged().asMap().forEach((mergedRange, sketch) -> {
+            if (!mergedRange.overlaps(range)) {
+                merged.put(mergedRange, sketch);
+            }
+        });
+        published = new Published<>(Collections.unmodifiableNavigableMap(days), merged);
+
+        log.debug("Rebuilt {} sketches for {} in {} ms", metric, range, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private Map<LocalDate, S> load(DateRangeDTO range) {
+        Map<LocalDate, S> days = new HashMap<>();
+
+        // An open side reaches as far as the data does
+        DateRangeDTO bounds = range.getFrom() == null || range.getTo() == null ? dateBounds() : range;
+        LocalDate from = range.getFrom() != null ? range.getFrom() : bounds.getFrom();
+        LocalDate to = range.getTo() != null ? range.getTo() : bounds.getTo();
+        if (from == null || to == null || from.isAfter(to)) {
+            return days;
+        }
+
+        // A month at a time keeps the rows held in memory bounded at large scale factors
+        for (LocalDate chunkStart = from; !chunkStart.isAfter(to); chunkStart = chunkStart.plusMonths(1)) {
+            LocalDate chunkEnd = chunkStart.plusMonths(1).minusDays(1);
+            loadDays(new DateRangeDTO(chunkStart, chunkEnd.isBefore(to) ? chunkEnd : to), days);
+        }
+        return days;
+    }
+
+    private S merge(Collection<S> days) {
+        S merged = empty();
+        for (S day : days) {
+            merged = merge(merged, day);
+        }
+        return merged;
+    }
+
+    private static <S> Published<S> emptyPublished() {
+        return new Published<>(Collections.emptyNavigableMap(), newMergeCache());
+    }
+
+    private static <S> Cache<DateRangeDTO, S> newMergeCache() {
+        return Caffeine.newBuilder().maximumSize(MAX_MERGED_RANGES).build();
+    }
+
+    private static <S> NavigableMap<LocalDate, S> within(NavigableMap<LocalDate, S> days, DateRangeDTO range) {
+        NavigableMap<LocalDate, S> selected = days;
+        if (range.getFrom() != null) {
+            selected = selected.tailMap(range.getFrom(), true);
+        }
+        if (range.getTo() != null) {
+            selected = selected.headMap(range.getTo(), true);
+        }
+        return selected;
+    }
+}
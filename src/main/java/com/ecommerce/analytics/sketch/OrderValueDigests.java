@@ -0,0 +1,67 @@
+package com.ecommerce.analytics.sketch;
+
+import com.ecommerce.analytics.admission.DatabaseAdmissionLimiter;
+import com.ecommerce.analytics.dto.AnalyticsMetric;
+import com.ecommerce.analytics.dto.DateRangeDTO;
+import com.ecommerce.analytics.repository.AnalyticsRepository;
+import org.jooq.Record2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// T-digests of order totals per order day, built from the raw orders since no rollup keeps single order totals
+@Component
+public class OrderValueDigests extends DailySketches<TDigest> {
+
+    private final AnalyticsRepository analyticsRepository;
+    private final double compression;
+
+    public OrderValueDigests(AnalyticsRepository analyticsRepository,
+                             DatabaseAdmissionLimiter admissionLimiter,
+                             @Value("${app.analytics.digest.compression}") double compression,
+                             @Value("${app.analytics.cache.invalidation.enabled:true}") boolean tracksChanges,
+                             @Value("${app.analytics.sketch.ttl}") Duration ttl) {
+        super(AnalyticsMetric.AVERAGE_ORDER_VALUE, admissionLimiter, tracksChanges, ttl);
+        this.analyticsRepository = analyticsRepository;
+        this.compression = compression;
+    }
+
+    @Override
+    protected DateRangeDTO dateBounds() {
+        Record2<LocalDate, LocalDate> bounds = analyticsRepository.getOrderDateBounds();
+        return new DateRangeDTO(bounds.value1(), bounds.value2());
+    }
+
+    @Override
+    protected void loadDays(DateRangeDTO range, Map<LocalDate, TDigest> into) {
+        LocalDate day = null;
+        List<BigDecimal> totals = new ArrayList<>();
+        for (Record2<LocalDate, BigDecimal> row : analyticsRepository.getOrderTotals(range)) {
+            if (day != null && !day.equals(row.value1())) {
+                into.put(day, TDigest.of(compression, totals));
+                totals = new ArrayList<>();
+            }
+            day = row.value1();
+            totals.add(row.value2());
+        }
+        if (day != null) {
+            into.put(day, TDigest.of(compression, totals));
+        }
+    }
+
+    @Override
+    protected TDigest empty() {
+        return TDigest.empty(compression);
+    }
+
+    @Override
+    protected TDigest merge(TDigest a, TDigest b) {
+        return TDigest.merge(a, b);
+    }
+}
@@ -0,0 +1,66 @@
+package com.ecommerce.analytics.sketch;
+
+import com.ecommerce.analytics.admission.DatabaseAdmissionLimiter;
+import com.ecommerce.analytics.dto.AnalyticsMetric;
+import com.ecommerce.analytics.dto.DateRangeDTO;
+import com.ecommerce.analytics.repository.RollupRepository;
+import org.jooq.Record2;
+import org.jooq.Record3;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+// Space-Saving sketches of product quantities per sales day, built from daily_product_sales
+@Component
+public class ProductSalesSketches extends DailySketches<SpaceSavingSketch> {
+
+    private final RollupRepository rollupRepository;
+    private final int capacity;
+
+    public ProductSalesSketches(RollupRepository rollupRepository,
+                                DatabaseAdmissionLimiter admissionLimiter,
+                                @Value("${app.analytics.sketch.capacity}") int capacity,
+                                @Value("${app.analytics.cache.invalidation.enabled:true}") boolean tracksChanges,
+                                @Value("${app.analytics.sketch.ttl}") Duration ttl) {
+        super(AnalyticsMetric.TOP_SELLING_PRODUCTS, admissionLimiter, tracksChanges, ttl);
+        this.rollupRepository = rollupRepository;
+        this.capacity = capacity;
+    }
+
+    @Override
+    protected DateRangeDTO dateBounds() {
+        Record2<LocalDate, LocalDate> bounds = rollupRepository.getSalesDateBounds();
+        return new DateRangeDTO(bounds.value1(), bounds.value2());
+    }
+
+    @Override
+    protected void loadDays(DateRangeDTO range, Map<LocalDate, SpaceSavingSketch> into) {
+        LocalDate day = null;
+        Map<Integer, Long> totals = new HashMap<>();
+        for (Record3<LocalDate, Integer, Long> row : rollupRepository.getDailyProductQuantities(range)) {
+            if (day != null && !day.equals(row.value1())) {
+                into.put(day, SpaceSavingSketch.ofTotals(capacity, totals));
+                totals = new HashMap<>();
+            }
+            day = row.value1();
+            totals.put(row.value2(), row.value3());
+        }
+        if (day != null) {
+            into.put(day, SpaceSavingSketch.ofTotals(capacity, totals));
+        }
+    }
+
+    @Override
+    protected SpaceSavingSketch empty() {
+        return SpaceSavingSketch.empty(capacity);
+    }
+
+    @Override
+    protected SpaceSavingSketch merge(SpaceSavingSketch a, SpaceSavingSketch b) {
+        return SpaceSavingSketch.merge(a, b);
+    }
+}
@@ -0,0 +1,93 @@
+package com.ecommerce.analytics.sketch;
+
+import java.util.*;
+
+// Space-Saving heavy hitters summary over at most capacity keys. A tracked count overestimates the true one by at most
+// its error, and any key that is not tracked has a true count of at most untrackedBound()
+public final class SpaceSavingSketch {
+
+    public record Counter(int key, long count, long error) {
+    }
+
+    private static final Comparator<Counter> ASCENDING = Comparator
+            .comparingLong(Counter::count)
+            .thenComparingInt(Counter::key);
+
+    private final int capacity;
+    private final Map<Integer, Counter> counters;
+    private final NavigableSet<Counter> ranking = new TreeSet<>(ASCENDING);
+    private long untrackedBound;
+
+    private SpaceSavingSketch(int capacity) {
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    public static SpaceSavingSketch empty(int capacity) {
+        return new SpaceSavingSketch(capacity);
+    }
+
+    // Exact totals, e.g. from a rollup: the largest capacity are kept as they are and the rest only raise the bound
+    public static SpaceSavingSketch ofTotals(int capacity, Map<Integer, Long> totals) {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(capacity);
+        totals.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed())
+                .forEach(total -> {
+                    if (sketch.counters.size() < capacity) {
+                        sketch.track(new Counter(total.getKey(), total.getValue(), 0));
+                    } else {
+                        sketch.untrackedBound = Math.max(sketch.untrackedBound, total.getValue());
+                    }
+                });
+        return sketch;
+    }
+
+    // Mergeable summaries: a key missing from one side may still have up to that side's untracked bound there
+    public static SpaceSavingSketch merge(SpaceSavingSketch a, SpaceSavingSketch b) {
+        List<Counter> combined = new ArrayList<>(a.counters.size() + b.counters.size());
+        for (Counter counter : a.counters.values()) {
+            Counter other = b.counters.get(counter.key());
+            combined.add(other != null
+                    ? new Counter(counter.key(), counter.count() + other.count(), counter.error() + other.error())
+                    : new Counter(counter.key(), counter.count() + b.untrackedBound, counter.error() + b.untrackedBound));
+        }
+        for (Counter counter : b.counters.values()) {
+            if (!a.counters.containsKey(counter.key())) {
+                combined.add(new Counter(counter.key(), counter.count() + a.untrackedBound, counter.error() + a.untrackedBound));
+            }
+        }
+        combined.sort(ASCENDING.reversed());
+
+        int capacity = Math.max(a.capacity, b.capacity);
+        SpaceSavingSketch merged = new SpaceSavingSketch(capacity);
+        merged.untrackedBound = a.untrackedBound + b.untrackedBound;
+        for (int i = 0; i < combined.size(); i++) {
+            if (i < capacity) {
+                merged.track(combined.get(i));
+            } else {
+                merged.untrackedBound = Math.max(merged.untrackedBound, combined.get(i).count());
+            }
+        }
+        return merged;
+    }
+
+    public List<Counter> top(int limit) {
+        List<Counter> top = new ArrayList<>(Math.min(limit, counters.size()));
+        for (Counter counter : ranking.descendingSet()) {
+            if (top.size() == limit) {
+                break;
+            }
+            top.add(counter);
+        }
+        return top;
+    }
+
+    public long untrackedBound() {
+        return untrackedBound;
+    }
+
+    private void track(Counter counter) {
+        counters.put(counter.key(), counter);
+        ranking.add(counter);
+    }
+}
@@ -0,0 +1,190 @@
+package com.ecommerce.analytics.sketch;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.List;
+
+// Merging t-digest: sorted centroids whose size is limited by the k1 scale function, so the tails stay close to single
+// values while the middle is summarised coarsely. Count, sum, min and max are kept exactly alongside the centroids
+public final class TDigest {
+
+    private final double compression;
+    private final double[] means;
+    private final double[] weights;
+    private final long count;
+    private final BigDecimal sum;
+    private final double min;
+    private final double max;
+
+    private TDigest(double compression, double[] means, double[] weights, long count, BigDecimal sum,
+                    double min, double max) {
+        this.compression = compression;
+        this.means = means;
+        this.weights = weights;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    public static TDigest empty(double compression) {
+        return new TDigest(compression, new double[0], new double[0], 0, BigDecimal.ZERO,
+                Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY);
+    }
+
+    public static TDigest of(double compression, List<BigDecimal> values) {
+        if (values.isEmpty()) {
+            return empty(compression);
+        }
+        double[] means = new double[values.size()];
+        BigDecimal sum = BigDecimal.ZERO;
+        for (int i = 0; i < means.length; i++) {
+            means[i] = values.get(i).doubleValue();
+            sum = sum.add(values.get(i));
+        }
+        Arrays.sort(means);
+        double[] weights = new double[means.length];
+        Arrays.fill(weights, 1);
+        return compress(compression, means, weights, values.size(), sum, means[0], means[means.length - 1]);
+    }
+
+    public static TDigest merge(TDigest a, TDigest b) {
+        if (b.count == 0) {
+            return a;
+        }
+        if (a.count == 0) {
+            return b;
+        }
+
+        // Both centroid lists are sorted, so a single pass interleaves them
+        int size = a.means.length + b.means.length;
+        double[] means = new double[size];
+        double[] weights = new double[size];
+        for (int i = 0, j = 0, k = 0; k < size; k++) {
+            boolean fromA = j >= b.means.length || (i < a.means.length && a.means[i] <= b.means[j]);
+            means[k] = fromA ? a.means[i] : b.means[j];
+            weights[k] = fromA ? a.weights[i++] : b.weights[j++];
+        }
+        return compress(Math.max(a.compression, b.compression), means, weights, a.count + b.count,
+                a.sum.add(b.sum), Math.min(a.min, b.min), Math.max(a.max, b.max));
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public BigDecimal sum() {
+        return sum;
+    }
+
+    // Exact, from the sum rather than the centroids, null when there is nothing to average
+    public BigDecimal mean(int scale) {
+        return count == 0 ? null : sum.divide(BigDecimal.valueOf(count), scale, RoundingMode.HALF_UP);
+    }
+
+    public double min() {
+        return min;
+    }
+
+    public double max() {
+        return max;
+    }
+
+    // Value below which a fraction q of the weight lies, interpolating between centroid centres
+    public double quantile(double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        int last = means.length - 1;
+        double index = q * count;
+
+        // The outer half of the end centroids is spread between them and the exact min or max
+        if (index <= weights[0] / 2) {
+            return interpolate(min, means[0], index / (weights[0] / 2));
+        }
+        if (index >= count - weights[last] / 2) {
+            return interpolate(means[last], max, 1 - (count - index) / (weights[last] / 2));
+        }
+
+        double centre = weights[0] / 2;
+        for (int i = 0; i < last; i++) {
+            double gap = (weights[i] + weights[i + 1]) / 2;
+            if (centre + gap > index) {
+                return interpolate(means[i], means[i + 1], (index - centre) / gap);
+            }
+            centre += gap;
+        }
+        return means[last];
+    }
+
+    // Fraction of the weight at or below x, the inverse of quantile()
+    public double cdf(double x) {
+        if (count == 0 || x < min) {
+            return 0;
+        }
+        if (x >= max) {
+            return 1;
+        }
+        int last = means.length - 1;
+
+        if (x < means[0]) {
+            return weights[0] / 2 * fraction(min, means[0], x) / count;
+        }
+        if (x >= means[last]) {
+            return 1 - weights[last] / 2 * (1 - fraction(means[last], max, x)) / count;
+        }
+
+        double centre = weights[0] / 2;
+        for (int i = 0; i < last; i++) {
+            double gap = (weights[i] + weights[i + 1]) / 2;
+            if (x < means[i + 1]) {
+                return (centre + gap * fraction(means[i], means[i + 1], x)) / count;
+            }
+            centre += gap;
+        }
+        return 1;
+    }
+
+    private static TDigest compress(double compression, double[] means, double[] weights, long count, BigDecimal sum,
+                                    double min, double max) {
+        double[] mergedMeans = new double[means.length];
+        double[] mergedWeights = new double[means.length];
+        int size = 0;
+
+        double weightBefore = 0;
+        double mean = means[0];
+        double weight = weights[0];
+        for (int i = 1; i < means.length; i++) {
+            double proposed = weight + weights[i];
+            // A centroid may span at most one unit of k, which is narrow near q = 0 and q = 1
+            if (k(compression, (weightBefore + proposed) / count) - k(compression, weightBefore / count) <= 1) {
+                mean += (means[i] - mean) * weights[i] / proposed;
+                weight = proposed;
+            } else {
+                mergedMeans[size] = mean;
+                mergedWeights[size++] = weight;
+                weightBefore += weight;
+                mean = means[i];
+                weight = weights[i];
+            }
+        }
+        mergedMeans[size] = mean;
+        mergedWeights[size++] = weight;
+
+        return new TDigest(compression, Arrays.copyOf(mergedMeans, size), Arrays.copyOf(mergedWeights, size),
+                count, sum, min, max);
+    }
+
+    private static double k(double compression, double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1, Math.max(0, q)) - 1);
+    }
+
+    private static double interpolate(double from, double to, double t) {
+        return from + (to - from) * Math.min(1, Math.max(0, t));
+    }
+
+    private static double fraction(double from, double to, double x) {
+        return to > from ? (x - from) / (to - from) : 1;
+    }
+}
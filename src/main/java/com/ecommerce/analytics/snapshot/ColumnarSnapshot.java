@@ -0,0 +1,230 @@
+package com.ecommerce.analytics.snapshot;
+
+import com.ecommerce.analytics.dto.*;
+import com.ecommerce.analytics.util.MoneyUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.IntUnaryOperator;
+
+import static com.ecommerce.analytics.constants.AnalyticsConstants.*;
+
+// Immutable column arrays, rows reference each other by array index and -1 stands for NULL
+public class ColumnarSnapshot {
+
+    final int priceScale;
+
+    final int[] productIds;
+    final String[] productNames;
+    final int[] productCategories;
+    final String[] categoryDictionary;
+
+    final int[] customerIds;
+    final String[] customerEmails;
+    final String[] customerFullNames;
+
+    final String[] statusDictionary;
+
+    final int[] orderCustomers;
+    final int[] orderStatuses;
+
+    final int[] itemOrders;
+    final int[] itemProducts;
+    final int[] itemQuantities;
+    // Units of priceScale, or null when a price does not fit a long and exactPrices holds them all instead
+    final long[] itemPrices;
+    final BigDecimal[] exactPrices;
+
+    ColumnarSnapshot(int priceScale,
+                     int[] productIds, String[] productNames, int[] productCategories, String[] categoryDictionary,
+                     int[] customerIds, String[] customerEmails, String[] customerFullNames,
+                     String[] statusDictionary,
+                     int[] orderCustomers, int[] orderStatuses,
+                     int[] itemOrders, int[] itemProducts, int[] itemQuantities, long[] itemPrices,
+                     BigDecimal[] exactPrices) {
+        this.priceScale = priceScale;
+        this.productIds = productIds;
+        this.productNames = productNames;
+        this.productCategories = productCategories;
+        this.categoryDictionary = categoryDictionary;
+        this.customerIds = customerIds;
+        this.customerEmails = customerEmails;
+        this.customerFullNames = customerFullNames;
+        this.statusDictionary = statusDictionary;
+        this.orderCustomers = orderCustomers;
+        this.orderStatuses = orderStatuses;
+        this.itemOrders = itemOrders;
+        this.itemProducts = itemProducts;
+        this.itemQuantities = itemQuantities;
+        this.itemPrices = itemPrices;
+        this.exactPrices = exactPrices;
+    }
+
+    public int getItemCount() {
+        return itemOrders.length;
+    }
+
+    public List<SalesByCategoryDTO> getSalesByCategory() {
+        boolean[] present = new boolean[categoryDictionary.length];
+        long[] sales = centsByGroup(item -> itemProducts[item] >= 0 ? productCategories[itemProducts[item]] : -1,
+                categoryDictionary.length, true, present);
+
+        return rank(sales, present, sales.length).stream()
+                .map(category -> new SalesByCategoryDTO(categoryDictionary[category], sales[category]))
+                .toList();
+    }
+
+    public List<TopSellingProductsDTO> getTopSellingProducts(int limit) {
+        long[] quantities = new long[productIds.length];
+        boolean[] present = new boolean[productIds.length];
+
+        for (int i = 0; i < itemOrders.length; i++) {
+            int product = itemProducts[i];
+            if (product >= 0) {
+                quantities[product] += itemQuantities[i];
+                present[product] = true;
+            }
+        }
+
+        return rank(quantities, present, limit).stream()
+                .map(product -> new TopSellingProductsDTO(productIds[product], productNames[product], quantities[product]))
+                .toList();
+    }
+
+    public List<TopSendersDTO> getTopSenders(int limit) {
+        boolean[] present = new boolean[customerIds.length];
+        long[] spend = centsByGroup(item -> orderCustomers[itemOrders[item]], customerIds.length, false, present);
+
+        return rank(spend, present, limit).stream()
+                .map(customer -> new TopSendersDTO(
+                        customerIds[customer],
+                        customerEmails[customer],
+                        customerFullNames[customer],
+                        spend[customer]))
+                .toList();
+    }
+
+    public List<StatusSummaryDTO> getOrderCountByStatusName() {
+        long[] counts = new long[statusDictionary.length];
+        boolean[] present = new boolean[statusDictionary.length];
+
+        for (int status : orderStatuses) {
+            counts[status]++;
+            present[status] = true;
+        }
+
+        return rank(counts, present, counts.length).stream()
+                .map(status -> new StatusSummaryDTO(statusDictionary[status], counts[status]))
+                .toList();
+    }
+
+    // The total of every order with items over the number of them, the same as averaging the order totals
+    public AverageOrderValueDTO getAverageOrderValue() {
+        boolean[] present = new boolean[orderStatuses.length];
+        for (int order : itemOrders) {
+            present[order] = true;
+        }
+
+        long orders = 0;
+        for (boolean hasItems : present) {
+            if (hasItems) {
+                orders++;
+            }
+        }
+
+        if (orders == 0) {
+            return new AverageOrderValueDTO(null);
+        }
+        long[] units = unitsByGroup(item -> 0, 1, true, new boolean[1]);
+        BigDecimal total = units != null
+                ? BigDecimal.valueOf(units[0], priceScale)
+                : decimalsByGroup(item -> 0, 1, true, new boolean[1])[0];
+        return new AverageOrderValueDTO(total.divide(
+                BigDecimal.valueOf(orders), AVERAGE_ORDER_VALUE_SCALE, RoundingMode.HALF_UP));
+    }
+
+    // Money per group in cents, rounded half up once per group like the repository's sums. Items the group function
+    // maps to -1 are left out, present marks the groups that got any
+    private long[] centsByGroup(IntUnaryOperator groupOfItem, int groups, boolean byQuantity, boolean[] present) {
+        long[] cents = new long[groups];
+        long[] units = unitsByGroup(groupOfItem, groups, byQuantity, present);
+        if (units != null) {
+            try {
+                for (int group = 0; group < groups; group++) {
+                    cents[group] = MoneyUtils.toCents(units[group], priceScale);
+                }
+                return cents;
+            } catch (ArithmeticException e) {
+                // Fewer decimals than cents and too large to scale up, the exact sums below are still whole cents
+            }
+        }
+
+        BigDecimal[] sums = decimalsByGroup(groupOfItem, groups, byQuantity, present);
+        for (int group = 0; group < groups; group++) {
+            cents[group] = MoneyUtils.toCents(sums[group]);
+        }
+        return cents;
+    }
+
+    // Sums in units of priceScale, or null when a price or a sum does not fit a long
+    private long[] unitsByGroup(IntUnaryOperator groupOfItem, int groups, boolean byQuantity, boolean[] present) {
+        if (itemPrices == null) {
+            return null;
+        }
+        long[] units = new long[groups];
+        try {
+            for (int i = 0; i < itemOrders.length; i++) {
+                int group = groupOfItem.applyAsInt(i);
+                if (group >= 0) {
+                    long amount = byQuantity ? Math.multiplyExact(itemQuantities[i], itemPrices[i]) : itemPrices[i];
+                    units[group] = Math.addExact(units[group], amount);
+                    present[group] = true;
+                }
+            }
+        } catch (ArithmeticException e) {
+            return null;
+        }
+        return units;
+    }
+
+    // The slow path for amounts beyond a long, exact whatever the scale of the prices
+    private BigDecimal[] decimalsByGroup(IntUnaryOperator groupOfItem, int groups, boolean byQuantity, boolean[] present) {
+        BigDecimal[] sums = new BigDecimal[groups];
+        Arrays.fill(sums, BigDecimal.ZERO);
+        for (int i = 0; i < itemOrders.length; i++) {
+            int group = groupOfItem.applyAsInt(i);
+            if (group >= 0) {
+                BigDecimal price = exactPrices != null ? exactPrices[i] : BigDecimal.valueOf(itemPrices[i], priceScale);
+                sums[group] = sums[group].add(byQuantity ? price.multiply(BigDecimal.valueOf(itemQuantities[i])) : price);
+                present[group] = true;
+            }
+        }
+        return sums;
+    }
+
+    // Indexes of the present slots with the highest values, ordered descending
+    private static List<Integer> rank(long[] values, boolean[] present, int limit) {
+        PriorityQueue<Integer> top = new PriorityQueue<>(Comparator.comparingLong(index -> values[index]));
+
+        for (int index = 0; index < values.length; index++) {
+            if (!present[index]) {
+                continue;
+            }
+            if (top.size() < limit) {
+                top.add(index);
+            } else if (values[index] > values[top.peek()]) {
+                top.poll();
+                top.add(index);
+            }
+        }
+
+        List<Integer> ranked = new ArrayList<>(top);
+        ranked.sort(Comparator.comparingLong((Integer index) -> values[index]).reversed());
+        return ranked;
+    }
+}
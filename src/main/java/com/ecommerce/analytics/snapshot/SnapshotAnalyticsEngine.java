@@ -0,0 +1,66 @@
+package com.ecommerce.analytics.snapshot;
+
+import com.ecommerce.analytics.dto.*;
+import com.ecommerce.analytics.service.AnalyticsEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "app.analytics.engine", havingValue = "snapshot")
+public class SnapshotAnalyticsEngine implements AnalyticsEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotAnalyticsEngine.class);
+
+    private final SnapshotLoader loader;
+
+    // Replaced wholesale on refresh, readers keep using the snapshot they started with
+    private volatile ColumnarSnapshot snapshot;
+
+    public SnapshotAnalyticsEngine(SnapshotLoader loader) {
+        this.loader = loader;
+    }
+
+    @Scheduled(fixedDelayString = "${app.analytics.snapshot.refresh-interval}")
+    public void refresh() {
+        long started = System.nanoTime();
+        ColumnarSnapshot loaded = loader.load();
+        snapshot = loaded;
+        log.info("Loaded analytics snapshot with {} order items in {} ms",
+                loaded.getItemCount(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @Override
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    @Override
+    public List<SalesByCategoryDTO> getSalesByCategory() {
+        return snapshot.getSalesByCategory();
+    }
+
+    @Override
+    public List<TopSellingProductsDTO> getTopSellingProducts(int limit) {
+        return snapshot.getTopSellingProducts(limit);
+    }
+
+    @Override
+    public List<TopSendersDTO> getTopSenders(int limit) {
+        return snapshot.getTopSenders(limit);
+    }
+
+    @Override
+    public List<StatusSummaryDTO> getOrderCountByStatusName() {
+        return snapshot.getOrderCountByStatusName();
+    }
+
+    @Override
+    public AverageOrderValueDTO getAverageOrderValue() {
+        return snapshot.getAverageOrderValue();
+    }
+}
@@ -0,0 +1,189 @@
+package com.ecommerce.analytics.snapshot;
+
+import org.jooq.*;
+import org.jooq.impl.DSL;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.ecommerce.analytics.jooq.Tables.*;
+import static org.jooq.impl.DSL.*;
+
+@Component
+@ConditionalOnProperty(name = "app.analytics.engine", havingValue = "snapshot")
+public class SnapshotLoader {
+
+    private static final int FETCH_SIZE = 10_000;
+
+    private final DSLContext context;
+
+    public SnapshotLoader(DSLContext context) {
+        this.context = context;
+    }
+
+    // All tables are read inside one REPEATABLE READ transaction so the columns agree with each other
+    public ColumnarSnapshot load() {
+        return context.transactionResult(configuration -> {
+            DSLContext transaction = DSL.using(configuration);
+            transaction.execute("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ");
+            return load(transaction);
+        });
+    }
+
+    private ColumnarSnapshot load(DSLContext transaction) {
+        // Statuses
+        Result<Record2<Integer, String>> statuses = transaction
+                .select(ORDER_STATUSES.ID, ORDER_STATUSES.STATUS_NAME)
+                .from(ORDER_STATUSES)
+                .fetch();
+        int[] statusIndex = newIndex(statuses.stream().mapToInt(Record2::value1).max().orElse(0));
+        String[] statusDictionary = new String[statuses.size()];
+        for (int i = 0; i < statuses.size(); i++) {
+            statusIndex[statuses.get(i).value1()] = i;
+            statusDictionary[i] = statuses.get(i).value2();
+        }
+
+        // Products, categories are dictionary encoded
+        Record2<Integer, Integer> productBounds = bounds(transaction, PRODUCTS, PRODUCTS.ID);
+        int[] productIndex = newIndex(productBounds.value1());
+        int[] productIds = new int[productBounds.value2()];
+        String[] productNames = new String[productBounds.value2()];
+        int[] productCategories = new int[productBounds.value2()];
+        Map<String, Integer> categoryCodes = new HashMap<>();
+        List<String> categories = new ArrayList<>();
+
+        try (Cursor<Record3<Integer, String, String>> products = transaction
+                .select(PRODUCTS.ID, PRODUCTS.NAME, PRODUCTS.CATEGORY)
+                .from(PRODUCTS)
+                .fetchSize(FETCH_SIZE)
+                .fetchLazy()) {
+            int i = 0;
+            for (Record3<Integer, String, String> product : products) {
+                productIndex[product.value1()] = i;
+                productIds[i] = product.value1();
+                productNames[i] = product.value2();
+                productCategories[i] = categoryCodes.computeIfAbsent(product.value3(), category -> {
+                    categories.add(category);
+                    return categories.size() - 1;
+                });
+                i++;
+            }
+        }
+
+        // Customers
+        Record2<Integer, Integer> customerBounds = bounds(transaction, CUSTOMERS, CUSTOMERS.ID);
+        int[] customerIndex = newIndex(customerBounds.value1());
+        int[] customerIds = new int[customerBounds.value2()];
+        String[] customerEmails = new String[customerBounds.value2()];
+        String[] customerFullNames = new String[customerBounds.value2()];
+
+        try (Cursor<Record4<Integer, String, String, String>> customers = transaction
+                .select(CUSTOMERS.ID, CUSTOMERS.EMAIL, CUSTOMERS.FIRST_NAME, CUSTOMERS.LAST_NAME)
+                .from(CUSTOMERS)
+                .fetchSize(FETCH_SIZE)
+                .fetchLazy()) {
+            int i = 0;
+            for (Record4<Integer, String, String, String> customer : customers) {
+                customerIndex[customer.value1()] = i;
+                customerIds[i] = customer.value1();
+                customerEmails[i] = customer.value2();
+                customerFullNames[i] = customer.value3() + " " + customer.value4();
+                i++;
+            }
+        }
+
+        // Orders
+        Record2<Integer, Integer> orderBounds = bounds(transaction, ORDERS, ORDERS.ID);
+        int[] orderIndex = newIndex(orderBounds.value1());
+        int[] orderCustomers = new int[orderBounds.value2()];
+        int[] orderStatuses = new int[orderBounds.value2()];
+
+        try (Cursor<Record3<Integer, Integer, Integer>> orders = transaction
+                .select(ORDERS.ID, ORDERS.CUSTOMER_ID, ORDERS.STATUS_ID)
+                .from(ORDERS)
+                .fetchSize(FETCH_SIZE)
+                .fetchLazy()) {
+            int i = 0;
+            for (Record3<Integer, Integer, Integer> order : orders) {
+                orderIndex[order.value1()] = i;
+                orderCustomers[i] = order.value2() != null ? customerIndex[order.value2()] : -1;
+                orderStatuses[i] = statusIndex[order.value3()];
+                i++;
+            }
+        }
+
+        // Order items, prices become longs in units of the widest scale stored. A price that does not fit switches
+        // the whole column to BigDecimal, which only costs speed
+        Record2<Integer, Integer> itemBounds = transaction
+                .select(coalesce(max(function("scale", Integer.class, ORDER_ITEMS.PRICE_AT_PURCHASE)), 0), count())
+                .from(ORDER_ITEMS)
+                .fetchSingle();
+        int priceScale = itemBounds.value1();
+        int[] itemOrders = new int[itemBounds.value2()];
+        int[] itemProducts = new int[itemBounds.value2()];
+        int[] itemQuantities = new int[itemBounds.value2()];
+        long[] itemPrices = new long[itemBounds.value2()];
+        BigDecimal[] exactPrices = null;
+
+        try (Cursor<Record4<Integer, Integer, Integer, BigDecimal>> items = transaction
+                .select(ORDER_ITEMS.ORDER_ID, ORDER_ITEMS.PRODUCT_ID, ORDER_ITEMS.QUANTITY, ORDER_ITEMS.PRICE_AT_PURCHASE)
+                .from(ORDER_ITEMS)
+                .fetchSize(FETCH_SIZE)
+                .fetchLazy()) {
+            int i = 0;
+            for (Record4<Integer, Integer, Integer, BigDecimal> item : items) {
+                itemOrders[i] = orderIndex[item.value1()];
+                itemProducts[i] = item.value2() != null ? productIndex[item.value2()] : -1;
+                itemQuantities[i] = item.value3();
+                BigDecimal price = item.value4();
+                if (exactPrices == null) {
+                    try {
+                        itemPrices[i] = price.setScale(priceScale).unscaledValue().longValueExact();
+                    } catch (ArithmeticException e) {
+                        exactPrices = decimals(itemPrices, i, priceScale);
+                    }
+                }
+                if (exactPrices != null) {
+                    exactPrices[i] = price;
+                }
+                i++;
+            }
+        }
+
+        return new ColumnarSnapshot(priceScale,
+                productIds, productNames, productCategories, categories.toArray(String[]::new),
+                customerIds, customerEmails, customerFullNames,
+                statusDictionary,
+                orderCustomers, orderStatuses,
+                itemOrders, itemProducts, itemQuantities,
+                exactPrices == null ? itemPrices : null, exactPrices);
+    }
+
+    // Highest id and row count, used to size the id lookup and the column arrays
+    private static Record2<Integer, Integer> bounds(DSLContext transaction, Table<?> table, Field<Integer> id) {
+        return transaction.select(coalesce(max(id), 0), count())
+                .from(table)
+                .fetchSingle();
+    }
+
+    // The prices read so far as BigDecimal, in an array with room for the rest
+    private static BigDecimal[] decimals(long[] units, int count, int scale) {
+        BigDecimal[] decimals = new BigDecimal[units.length];
+        for (int i = 0; i < count; i++) {
+            decimals[i] = BigDecimal.valueOf(units[i], scale);
+        }
+        return decimals;
+    }
+
+    private static int[] newIndex(int maxId) {
+        int[] index = new int[maxId + 1];
+        Arrays.fill(index, -1);
+        return index;
+    }
+}
@@ -0,0 +1,44 @@
+package com.ecommerce.analytics.util;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+// Writes RFC 4180 rows, quoting only the values that contain a separator, a quote or a line break
+public final class CsvWriter implements Flushable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Writer out;
+
+    public CsvWriter(OutputStream out) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    public void writeRow(Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            if (values[i] != null) {
+                writeValue(values[i] instanceof BigDecimal decimal ? decimal.toPlainString() : values[i].toString());
+            }
+        }
+        out.write("\r\n");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private void writeValue(String value) throws IOException {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
@@ -0,0 +1,186 @@
+package com.ecommerce.analytics.util;
+
+import com.ecommerce.analytics.dto.*;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+// The rows of the list endpoints, written field by field from the getters. The names are encoded once and no value
+// is boxed, where the bean serializer looks up every property reflectively per row. The output is what the bean
+// serializer wrote byte for byte, the golden files of JsonWireFormatTest hold it
+public final class JsonRowSerializers {
+
+    private static final SerializableString CATEGORY = new SerializedString("category");
+    private static final SerializableString TOTAL_SALES = new SerializedString("totalSales");
+    private static final SerializableString PRODUCT_ID = new SerializedString("productId");
+    private static final SerializableString PRODUCT_NAME = new SerializedString("productName");
+    private static final SerializableString TOTAL_QUANTITY_SOLD = new SerializedString("totalQuantitySold");
+    private static final SerializableString CUSTOMER_ID = new SerializedString("customerId");
+    private static final SerializableString EMAIL = new SerializedString("email");
+    private static final SerializableString FULL_NAME = new SerializedString("fullName");
+    private static final SerializableString TOTAL_SPEND = new SerializedString("totalSpend");
+    private static final SerializableString STATUS_NAME = new SerializedString("statusName");
+    private static final SerializableString ORDER_COUNT = new SerializedString("orderCount");
+    private static final SerializableString CATEGORY_RANK = new SerializedString("categoryRank");
+
+    // Sign, the 17 whole digits of Long.MIN_VALUE cents, the point and two decimals
+    private static final int MAX_CENTS_CHARS = 21;
+    // Key of the buffer cents are formatted in, kept as an attribute of one serialization call so its rows share it
+    private static final Object CENTS_BUFFER = new Object();
+
+    private JsonRowSerializers() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    public static class SalesByCategory extends StdSerializer<SalesByCategoryDTO> {
+
+        public SalesByCategory() {
+            super(SalesByCategoryDTO.class);
+        }
+
+        @Override
+        public void serialize(SalesByCategoryDTO row, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject(row);
+            writeString(generator, CATEGORY, row.getCategory());
+            writeCents(generator, provider, TOTAL_SALES, row.getTotalSales());
+            generator.writeEndObject();
+        }
+    }
+
+    public static class TopSellingProducts extends StdSerializer<TopSellingProductsDTO> {
+
+        public TopSellingProducts() {
+            super(TopSellingProductsDTO.class);
+        }
+
+        @Override
+        public void serialize(TopSellingProductsDTO row, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject(row);
+            writeInteger(generator, PRODUCT_ID, row.getProductId());
+            writeString(generator, PRODUCT_NAME, row.getProductName());
+            writeLong(generator, TOTAL_QUANTITY_SOLD, row.getTotalQuantitySold());
+            generator.writeEndObject();
+        }
+    }
+
+    public static class TopSenders extends StdSerializer<TopSendersDTO> {
+
+        public TopSenders() {
+            super(TopSendersDTO.class);
+        }
+
+        @Override
+        public void serialize(TopSendersDTO row, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject(row);
+            writeInteger(generator, CUSTOMER_ID, row.getCustomerId());
+            writeString(generator, EMAIL, row.getEmail());
+            writeString(generator, FULL_NAME, row.getFullName());
+            writeCents(generator, provider, TOTAL_SPEND, row.getTotalSpend());
+            generator.writeEndObject();
+        }
+    }
+
+    public static class StatusSummary extends StdSerializer<StatusSummaryDTO> {
+
+        public StatusSummary() {
+            super(StatusSummaryDTO.class);
+        }
+
+        @Override
+        public void serialize(StatusSummaryDTO row, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject(row);
+            writeString(generator, STATUS_NAME, row.getStatusName());
+            writeLong(generator, ORDER_COUNT, row.getOrderCount());
+            generator.writeEndObject();
+        }
+    }
+
+    public static class ProductRankByCategory extends StdSerializer<ProductRankByCategoryDTO> {
+
+        public ProductRankByCategory() {
+            super(ProductRankByCategoryDTO.class);
+        }
+
+        @Override
+        public void serialize(ProductRankByCategoryDTO row, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject(row);
+            writeInteger(generator, PRODUCT_ID, row.getProductId());
+            writeString(generator, PRODUCT_NAME, row.getProductName());
+            writeString(generator, CATEGORY, row.getCategory());
+            writeDecimal(generator, TOTAL_QUANTITY_SOLD, row.getTotalQuantitySold());
+            writeInteger(generator, CATEGORY_RANK, row.getCategoryRank());
+            generator.writeEndObject();
+        }
+    }
+
+    // Cents go out as the decimal number clients always got, 1234.50 for 123450. The digits are formatted into a
+    // char buffer the rows of one response share, so no BigDecimal or String is created per value, and written as a
+    // number the generator can still quote when WRITE_NUMBERS_AS_STRINGS is on
+    private static void writeCents(JsonGenerator generator, SerializerProvider provider, SerializableString name,
+                                   long cents) throws IOException {
+        generator.writeFieldName(name);
+        char[] buffer = (char[]) provider.getAttribute(CENTS_BUFFER);
+        if (buffer == null) {
+            buffer = new char[MAX_CENTS_CHARS];
+            provider.setAttribute(CENTS_BUFFER, buffer);
+        }
+
+        // Counted down from zero, Long.MIN_VALUE has no positive counterpart
+        long remaining = cents < 0 ? cents : -cents;
+        int start = MAX_CENTS_CHARS;
+        for (int i = 0; i < 2; i++) {
+            buffer[--start] = (char) ('0' - remaining % 10);
+            remaining /= 10;
+        }
+        buffer[--start] = '.';
+        do {
+            buffer[--start] = (char) ('0' - remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        if (cents < 0) {
+            buffer[--start] = '-';
+        }
+        generator.writeNumber(buffer, start, MAX_CENTS_CHARS - start);
+    }
+
+    private static void writeString(JsonGenerator generator, SerializableString name, String value) throws IOException {
+        generator.writeFieldName(name);
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeString(value);
+        }
+    }
+
+    private static void writeInteger(JsonGenerator generator, SerializableString name, Integer value) throws IOException {
+        generator.writeFieldName(name);
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value.intValue());
+        }
+    }
+
+    private static void writeLong(JsonGenerator generator, SerializableString name, Long value) throws IOException {
+        generator.writeFieldName(name);
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value.longValue());
+        }
+    }
+
+    private static void writeDecimal(JsonGenerator generator, SerializableString name, BigDecimal value) throws IOException {
+        generator.writeFieldName(name);
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+}
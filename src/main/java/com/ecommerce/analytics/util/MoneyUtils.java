@@ -0,0 +1,53 @@
+package com.ecommerce.analytics.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static com.ecommerce.analytics.constants.AnalyticsConstants.CENTS_PER_UNIT;
+import static com.ecommerce.analytics.constants.AnalyticsConstants.MONEY_SCALE;
+
+// Money is a long count of cents from the query to the response body, these are the ways in and out of it
+public final class MoneyUtils {
+
+    private MoneyUtils() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    public static long toCents(BigDecimal amount) {
+        return amount.setScale(MONEY_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    // An amount of units at the given scale, like the snapshot engine keeps them, rounded half up to cents
+    public static long toCents(long units, int scale) {
+        if (scale <= MONEY_SCALE) {
+            return Math.multiplyExact(units, powerOfTen(MONEY_SCALE - scale));
+        }
+        long divisor = powerOfTen(scale - MONEY_SCALE);
+        long cents = units / divisor;
+        if (Math.abs(units % divisor) * 2 >= divisor) {
+            cents += Long.signum(units);
+        }
+        return cents;
+    }
+
+    public static String format(long cents) {
+        StringBuilder text = new StringBuilder(24);
+        if (cents < 0) {
+            text.append('-');
+        }
+        long fraction = Math.abs(cents % CENTS_PER_UNIT);
+        text.append(Math.abs(cents / CENTS_PER_UNIT)).append('.');
+        if (fraction < 10) {
+            text.append('0');
+        }
+        return text.append(fraction).toString();
+    }
+
+    private static long powerOfTen(int exponent) {
+        long power = 1;
+        for (int i = 0; i < exponent; i++) {
+            power = Math.multiplyExact(power, 10);
+        }
+        return power;
+    }
+}
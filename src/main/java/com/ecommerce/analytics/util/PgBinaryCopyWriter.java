@@ -0,0 +1,122 @@
+package com.ecommerce.analytics.util;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Writes rows in the COPY ... (FORMAT BINARY) wire format, so Postgres stores them without parsing text
+public final class PgBinaryCopyWriter implements Closeable {
+
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private static final long POSTGRES_EPOCH_DAY = LocalDate.of(2000, 1, 1).toEpochDay();
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final short NUMERIC_POSITIVE = 0x0000;
+    private static final short NUMERIC_NEGATIVE = 0x4000;
+    private static final short MONEY_SCALE = 2;
+    private static final BigInteger NUMERIC_BASE = BigInteger.valueOf(10_000);
+
+    private final DataOutputStream out;
+
+    public PgBinaryCopyWriter(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        this.out.write(SIGNATURE);
+        this.out.writeInt(0); // flags
+        this.out.writeInt(0); // header extension length
+    }
+
+    public void startRow(int columns) throws IOException {
+        out.writeShort(columns);
+    }
+
+    public void writeInt(int value) throws IOException {
+        out.writeInt(Integer.BYTES);
+        out.writeInt(value);
+    }
+
+    public void writeNull() throws IOException {
+        out.writeInt(-1);
+    }
+
+    public void writeText(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public void writeDate(long epochDay) throws IOException {
+        out.writeInt(Integer.BYTES);
+        out.writeInt((int) (epochDay - POSTGRES_EPOCH_DAY));
+    }
+
+    // NUMERIC with two decimal places, as base 10000 digits of which only the first fractional one is used
+    public void writeMoney(long cents) throws IOException {
+        long units = Math.abs(cents) / 100;
+        int fraction = (int) (Math.abs(cents) % 100) * 100;
+
+        short[] digits = new short[6];
+        int integerDigits = 0;
+        for (long rest = units; rest > 0; rest /= 10_000) {
+            integerDigits++;
+        }
+        long rest = units;
+        for (int i = integerDigits - 1; i >= 0; i--) {
+            digits[i] = (short) (rest % 10_000);
+            rest /= 10_000;
+        }
+        int count = integerDigits;
+        if (fraction != 0) {
+            digits[count++] = (short) fraction;
+        }
+        int weight = integerDigits - 1;
+        while (count > 0 && digits[count - 1] == 0) {
+            count--;
+        }
+
+        out.writeInt(4 * Short.BYTES + count * Short.BYTES);
+        out.writeShort(count);
+        out.writeShort(count == 0 ? 0 : weight);
+        out.writeShort(cents < 0 ? NUMERIC_NEGATIVE : NUMERIC_POSITIVE);
+        out.writeShort(MONEY_SCALE);
+        for (int i = 0; i < count; i++) {
+            out.writeShort(digits[i]);
+        }
+    }
+
+    // Any NUMERIC, the decimal point is aligned to a base 10000 digit boundary by padding the scale to a multiple of 4
+    public void writeNumeric(BigDecimal value) throws IOException {
+        int scale = Math.max(value.scale(), 0);
+        int fractionDigits = (scale + 3) / 4;
+        BigInteger rest = value.abs().setScale(fractionDigits * 4).unscaledValue();
+
+        List<Short> digits = new ArrayList<>();
+        while (rest.signum() > 0) {
+            BigInteger[] divided = rest.divideAndRemainder(NUMERIC_BASE);
+            digits.add(0, divided[1].shortValue());
+            rest = divided[0];
+        }
+        int weight = digits.size() - fractionDigits - 1;
+        while (!digits.isEmpty() && digits.get(digits.size() - 1) == 0) {
+            digits.remove(digits.size() - 1);
+        }
+
+        out.writeInt(4 * Short.BYTES + digits.size() * Short.BYTES);
+        out.writeShort(digits.size());
+        out.writeShort(digits.isEmpty() ? 0 : weight);
+        out.writeShort(value.signum() < 0 ? NUMERIC_NEGATIVE : NUMERIC_POSITIVE);
+        out.writeShort(scale);
+        for (short digit : digits) {
+            out.writeShort(digit);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.writeShort(-1); // trailer
+        out.close();
+    }
+}
@@ -0,0 +1,92 @@
+package com.ecommerce.analytics.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+// Writes protocol buffer fields in the wire format, one repeated field per column of the rows
+public final class ProtobufWriter {
+
+    private static final int WIRE_TYPE_VARINT = 0;
+    private static final int WIRE_TYPE_LENGTH_DELIMITED = 2;
+
+    private byte[] buffer;
+    private int size;
+
+    public ProtobufWriter(int expectedSize) {
+        this.buffer = new byte[Math.max(expectedSize, 16)];
+    }
+
+    // Packed repeated int32 or int64, for values that are never negative
+    public <T> void writePackedInt64(int field, List<T> rows, ToLongFunction<T> column) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        int length = 0;
+        for (T row : rows) {
+            length += varintSize(column.applyAsLong(row));
+        }
+        writeTag(field, WIRE_TYPE_LENGTH_DELIMITED);
+        writeVarint(length);
+        for (T row : rows) {
+            writeVarint(column.applyAsLong(row));
+        }
+    }
+
+    // Packed repeated sint64, zigzag encoded so small negative values stay short
+    public <T> void writePackedSint64(int field, List<T> rows, ToLongFunction<T> column) {
+        writePackedInt64(field, rows, row -> zigzag(column.applyAsLong(row)));
+    }
+
+    // Repeated string, null is sent as the empty string
+    public <T> void writeRepeatedString(int field, List<T> rows, Function<T, String> column) {
+        for (T row : rows) {
+            String value = column.apply(row);
+            byte[] bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+            writeTag(field, WIRE_TYPE_LENGTH_DELIMITED);
+            writeVarint(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+    }
+
+    public void writeSint64(int field, long value) {
+        writeTag(field, WIRE_TYPE_VARINT);
+        writeVarint(zigzag(value));
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    private void writeTag(int field, int wireType) {
+        writeVarint((long) field << 3 | wireType);
+    }
+
+    private void writeVarint(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (size + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + bytes));
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int varintSize(long value) {
+        // Seven bits per byte, zero still takes one
+        return Math.max(1, (70 - Long.numberOfLeadingZeros(value)) / 7);
+    }
+}
@@ -1,5 +1,15 @@
 package com.ecommerce.analytics.util;
 
+import com.ecommerce.analytics.dto.BatchMetricRequestDTO;
+import com.ecommerce.analytics.dto.IngestOrderDTO;
+import com.ecommerce.analytics.dto.IngestOrderItemDTO;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
 import static com.ecommerce.analytics.constants.AnalyticsConstants.*;
 
 public final class ValidationUtils {
@@ -17,4 +27,53 @@ public final class ValidationUtils {
         }
         return limit;
     }
+
+    public static int validateAndNormalizeBuckets(Integer buckets) {
+        if (buckets == null || buckets < MIN_HISTOGRAM_BUCKETS) {
+            return DEFAULT_HISTOGRAM_BUCKETS;
+        }
+        if (buckets > MAX_HISTOGRAM_BUCKETS) {
+            return MAX_HISTOGRAM_BUCKETS;
+        }
+        return buckets;
+    }
+
+    public static void validateDateRange(LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_DATE_RANGE_ERROR);
+        }
+    }
+
+    public static void validateBatchRequests(List<BatchMetricRequestDTO> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, EMPTY_METRIC_BATCH_ERROR);
+        }
+        if (requests.size() > MAX_BATCH_METRICS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, METRIC_BATCH_TOO_LARGE_ERROR);
+        }
+        for (BatchMetricRequestDTO request : requests) {
+            if (request == null || request.metric() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_METRIC_BATCH_ENTRY_ERROR);
+            }
+            validateDateRange(request.from(), request.to());
+        }
+    }
+
+    public static void validateIngestOrders(List<IngestOrderDTO> orders) {
+        if (orders == null || orders.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, EMPTY_INGEST_BATCH_ERROR);
+        }
+        for (IngestOrderDTO order : orders) {
+            if (order == null || order.orderDate() == null || order.statusId() == null
+                    || order.items() == null || order.items().isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_INGEST_ORDER_ERROR);
+            }
+            for (IngestOrderItemDTO item : order.items()) {
+                if (item == null || item.quantity() == null || item.quantity() < 1
+                        || item.priceAtPurchase() == null || item.priceAtPurchase().compareTo(BigDecimal.ZERO) < 0) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_INGEST_ITEM_ERROR);
+                }
+            }
+        }
+    }
 }
@@ -33,6 +33,8 @@ CREATE TABLE orders
         FOREIGN KEY (status_id) REFERENCES order_statuses (id) ON DELETE RESTRICT
 );
 
+CREATE INDEX idx_orders_order_date ON orders (order_date);
+
 CREATE TABLE order_items
 (
     id                INT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
@@ -45,3 +47,303 @@ CREATE TABLE order_items
     CONSTRAINT fk_product_id
         FOREIGN KEY (product_id) REFERENCES products (id) ON DELETE SET NULL
 );
+
+
+-- Daily rollups kept up to date by the triggers below
+
+CREATE TABLE daily_product_sales
+(
+    sales_date DATE         NOT NULL,
+    product_id INT          NOT NULL,
+    category   VARCHAR(255) NOT NULL,
+    quantity   BIGINT       NOT NULL,
+    sales      NUMERIC      NOT NULL,
+    item_count BIGINT       NOT NULL,
+    PRIMARY KEY (sales_date, product_id)
+);
+
+CREATE TABLE daily_category_sales
+(
+    sales_date DATE         NOT NULL,
+    category   VARCHAR(255) NOT NULL,
+    sales      NUMERIC      NOT NULL,
+    item_count BIGINT       NOT NULL,
+    PRIMARY KEY (sales_date, category)
+);
+
+CREATE TABLE daily_customer_spend
+(
+    sales_date  DATE    NOT NULL,
+    customer_id INT     NOT NULL,
+    spend       NUMERIC NOT NULL,
+    item_count  BIGINT  NOT NULL,
+    PRIMARY KEY (sales_date, customer_id)
+);
+
+-- All-time quantity per product. Rows that drop to zero are kept, so readers polling by last_xid see the decrement
+CREATE TABLE product_sales_totals
+(
+    product_id INT          NOT NULL PRIMARY KEY,
+    category   VARCHAR(255) NOT NULL,
+    quantity   BIGINT       NOT NULL,
+    last_xid   BIGINT       NOT NULL
+);
+
+CREATE INDEX idx_product_sales_totals_rank ON product_sales_totals (category, quantity DESC, product_id);
+CREATE INDEX idx_product_sales_totals_last_xid ON product_sales_totals (last_xid);
+
+CREATE FUNCTION rollup_apply_category(p_date DATE, p_category VARCHAR, p_sales NUMERIC, p_item_count BIGINT)
+    RETURNS VOID
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    INSERT INTO daily_category_sales AS d (sales_date, category, sales, item_count)
+    VALUES (p_date, p_category, p_sales, p_item_count)
+    ON CONFLICT (sales_date, category) DO UPDATE
+        SET sales      = d.sales + EXCLUDED.sales,
+            item_count = d.item_count + EXCLUDED.item_count;
+
+    DELETE FROM daily_category_sales
+    WHERE sales_date = p_date AND category = p_category AND item_count = 0;
+END
+$$;
+
+CREATE FUNCTION rollup_apply_item(p_date DATE, p_customer_id INT, p_product_id INT,
+                                  p_quantity INT, p_price NUMERIC, p_sign INT)
+    RETURNS VOID
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    v_category VARCHAR(255);
+BEGIN
+    IF p_product_id IS NOT NULL THEN
+        -- Removals use the category the amount was booked under, the product row may already be gone
+        IF p_sign > 0 THEN
+            SELECT category INTO v_category FROM products WHERE id = p_product_id;
+        ELSE
+            SELECT category INTO v_category FROM daily_product_sales
+            WHERE sales_date = p_date AND product_id = p_product_id;
+        END IF;
+
+        IF v_category IS NOT NULL THEN
+            INSERT INTO daily_product_sales AS d (sales_date, product_id, category, quantity, sales, item_count)
+            VALUES (p_date, p_product_id, v_category, p_sign * p_quantity, p_sign * p_quantity * p_price, p_sign)
+            ON CONFLICT (sales_date, product_id) DO UPDATE
+                SET quantity   = d.quantity + EXCLUDED.quantity,
+                    sales      = d.sales + EXCLUDED.sales,
+                    item_count = d.item_count + EXCLUDED.item_count;
+
+            DELETE FROM daily_product_sales
+            WHERE sales_date = p_date AND product_id = p_product_id AND item_count = 0;
+
+            INSERT INTO product_sales_totals AS t (product_id, category, quantity, last_xid)
+            VALUES (p_product_id, v_category, p_sign * p_quantity, pg_current_xact_id()::TEXT::BIGINT)
+            ON CONFLICT (product_id) DO UPDATE
+                SET quantity = t.quantity + EXCLUDED.quantity,
+                    last_xid = EXCLUDED.last_xid;
+
+            PERFORM rollup_apply_category(p_date, v_category, p_sign * p_quantity * p_price, p_sign);
+        END IF;
+    END IF;
+
+    IF p_customer_id IS NOT NULL THEN
+        INSERT INTO daily_customer_spend AS d (sales_date, customer_id, spend, item_count)
+        VALUES (p_date, p_customer_id, p_sign * p_price, p_sign)
+        ON CONFLICT (sales_date, customer_id) DO UPDATE
+            SET spend      = d.spend + EXCLUDED.spend,
+                item_count = d.item_count + EXCLUDED.item_count;
+
+        DELETE FROM daily_customer_spend
+        WHERE sales_date = p_date AND customer_id = p_customer_id AND item_count = 0;
+    END IF;
+END
+$$;
+
+CREATE FUNCTION rollup_order_items_trigger()
+    RETURNS TRIGGER
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    v_order orders%ROWTYPE;
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        -- A missing order means it is being deleted and rollup_orders_trigger already took its items out
+        SELECT * INTO v_order FROM orders WHERE id = OLD.order_id;
+        IF FOUND THEN
+            PERFORM rollup_apply_item(v_order.order_date, v_order.customer_id, OLD.product_id,
+                                      OLD.quantity, OLD.price_at_purchase, -1);
+        END IF;
+    END IF;
+
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        SELECT * INTO v_order FROM orders WHERE id = NEW.order_id;
+        IF FOUND THEN
+            PERFORM rollup_apply_item(v_order.order_date, v_order.customer_id, NEW.product_id,
+                                      NEW.quantity, NEW.price_at_purchase, 1);
+        END IF;
+    END IF;
+
+    RETURN NULL;
+END
+$$;
+
+CREATE FUNCTION rollup_orders_trigger()
+    RETURNS TRIGGER
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    v_item order_items%ROWTYPE;
+BEGIN
+    FOR v_item IN SELECT * FROM order_items WHERE order_id = OLD.id LOOP
+        PERFORM rollup_apply_item(OLD.order_date, OLD.customer_id, v_item.product_id,
+                                  v_item.quantity, v_item.price_at_purchase, -1);
+        IF TG_OP = 'UPDATE' THEN
+            PERFORM rollup_apply_item(NEW.order_date, NEW.customer_id, v_item.product_id,
+                                      v_item.quantity, v_item.price_at_purchase, 1);
+        END IF;
+    END LOOP;
+
+    IF TG_OP = 'DELETE' THEN
+        RETURN OLD;
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+CREATE FUNCTION rollup_products_trigger()
+    RETURNS TRIGGER
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    v_row daily_product_sales%ROWTYPE;
+BEGIN
+    FOR v_row IN SELECT * FROM daily_product_sales WHERE product_id = NEW.id LOOP
+        PERFORM rollup_apply_category(v_row.sales_date, OLD.category, -v_row.sales, -v_row.item_count);
+        PERFORM rollup_apply_category(v_row.sales_date, NEW.category, v_row.sales, v_row.item_count);
+    END LOOP;
+
+    UPDATE daily_product_sales SET category = NEW.category WHERE product_id = NEW.id;
+    UPDATE product_sales_totals
+    SET category = NEW.category,
+        last_xid = pg_current_xact_id()::TEXT::BIGINT
+    WHERE product_id = NEW.id;
+
+    RETURN NULL;
+END
+$$;
+
+CREATE FUNCTION rollup_truncate_trigger()
+    RETURNS TRIGGER
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    TRUNCATE daily_product_sales, daily_category_sales, daily_customer_spend, product_sales_totals;
+    RETURN NULL;
+END
+$$;
+
+CREATE TRIGGER rollup_order_items
+    AFTER INSERT OR UPDATE OR DELETE
+    ON order_items
+    FOR EACH ROW
+EXECUTE FUNCTION rollup_order_items_trigger();
+
+CREATE TRIGGER rollup_orders_update
+    AFTER UPDATE OF order_date, customer_id
+    ON orders
+    FOR EACH ROW
+    WHEN (OLD.order_date IS DISTINCT FROM NEW.order_date OR OLD.customer_id IS DISTINCT FROM NEW.customer_id)
+EXECUTE FUNCTION rollup_orders_trigger();
+
+CREATE TRIGGER rollup_orders_delete
+    BEFORE DELETE
+    ON orders
+    FOR EACH ROW
+EXECUTE FUNCTION rollup_orders_trigger();
+
+CREATE TRIGGER rollup_products_category
+    AFTER UPDATE OF category
+    ON products
+    FOR EACH ROW
+    WHEN (OLD.category IS DISTINCT FROM NEW.category)
+EXECUTE FUNCTION rollup_products_trigger();
+
+CREATE TRIGGER rollup_order_items_truncate
+    AFTER TRUNCATE
+    ON order_items
+    FOR EACH STATEMENT
+EXECUTE FUNCTION rollup_truncate_trigger();
+
+
+-- Change notifications for the result cache, one per statement with the range of order dates it touched
+
+CREATE FUNCTION notify_analytics_change()
+    RETURNS TRIGGER
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    v_rows BIGINT := 0;
+    v_count BIGINT;
+    v_from DATE;
+    v_to   DATE;
+BEGIN
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        IF TG_TABLE_NAME = 'orders' THEN
+            SELECT count(*), min(order_date), max(order_date) INTO v_rows, v_from, v_to FROM new_rows;
+        ELSIF TG_TABLE_NAME = 'order_items' THEN
+            SELECT count(*), min(o.order_date), max(o.order_date) INTO v_rows, v_from, v_to
+            FROM new_rows r JOIN orders o ON o.id = r.order_id;
+        ELSE
+            SELECT count(*) INTO v_rows FROM new_rows;
+        END IF;
+    END IF;
+
+    IF TG_OP = 'DELETE' OR (TG_OP = 'UPDATE' AND TG_TABLE_NAME IN ('orders', 'order_items')) THEN
+        IF TG_TABLE_NAME = 'orders' THEN
+            SELECT count(*), LEAST(v_from, min(order_date)), GREATEST(v_to, max(order_date))
+            INTO v_count, v_from, v_to FROM old_rows;
+        ELSIF TG_TABLE_NAME = 'order_items' THEN
+            -- Items deleted along with their order drop out of the join, the orders notification covers them
+            SELECT count(*), LEAST(v_from, min(o.order_date)), GREATEST(v_to, max(o.order_date))
+            INTO v_count, v_from, v_to
+            FROM old_rows r JOIN orders o ON o.id = r.order_id;
+        ELSE
+            SELECT count(*) INTO v_count FROM old_rows;
+        END IF;
+        v_rows := GREATEST(v_rows, v_count);
+    END IF;
+
+    IF TG_OP = 'TRUNCATE' OR v_rows > 0 THEN
+        PERFORM pg_notify('analytics_changes',
+                          json_build_object('table', TG_TABLE_NAME, 'from', v_from, 'to', v_to)::TEXT);
+    END IF;
+
+    RETURN NULL;
+END
+$$;
+
+DO
+$$
+DECLARE
+    v_table TEXT;
+BEGIN
+    FOREACH v_table IN ARRAY ARRAY['order_statuses', 'products', 'customers', 'orders', 'order_items'] LOOP
+        EXECUTE format('CREATE TRIGGER notify_%1$s_insert AFTER INSERT ON %1$I REFERENCING NEW TABLE AS new_rows '
+                           'FOR EACH STATEMENT EXECUTE FUNCTION notify_analytics_change()', v_table);
+        EXECUTE format('CREATE TRIGGER notify_%1$s_update AFTER UPDATE ON %1$I REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows '
+                           'FOR EACH STATEMENT EXECUTE FUNCTION notify_analytics_change()', v_table);
+        EXECUTE format('CREATE TRIGGER notify_%1$s_delete AFTER DELETE ON %1$I REFERENCING OLD TABLE AS old_rows '
+                           'FOR EACH STATEMENT EXECUTE FUNCTION notify_analytics_change()', v_table);
+        EXECUTE format('CREATE TRIGGER notify_%1$s_truncate AFTER TRUNCATE ON %1$I '
+                           'FOR EACH STATEMENT EXECUTE FUNCTION notify_analytics_change()', v_table);
+    END LOOP;
+END
+$$;
+
+-- Full old rows in the WAL so logical decoding consumers can subtract updated and deleted values
+
+ALTER TABLE order_statuses REPLICA IDENTITY FULL;
+ALTER TABLE products REPLICA IDENTITY FULL;
+ALTER TABLE customers REPLICA IDENTITY FULL;
+ALTER TABLE orders REPLICA IDENTITY FULL;
+ALTER TABLE order_items REPLICA IDENTITY FULL;
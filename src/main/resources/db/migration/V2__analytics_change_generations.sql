@@ -0,0 +1,65 @@
+-- A generation per table the analytics read, bumped by notify_analytics_change() in the transaction of the change.
+-- The result cache tags results with the generations of the tables behind them, so a tag means the same data on
+-- every instance and after a restart, where a counter kept in memory starts over
+
+CREATE TABLE analytics_change_generations
+(
+    table_name TEXT PRIMARY KEY,
+    generation BIGINT      NOT NULL DEFAULT 0,
+    changed_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+INSERT INTO analytics_change_generations (table_name)
+VALUES ('order_statuses'), ('products'), ('customers'), ('orders'), ('order_items');
+
+-- As in init_scheme.sql, plus the generation bump. The triggers calling it stay as they are
+CREATE OR REPLACE FUNCTION notify_analytics_change()
+    RETURNS TRIGGER
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    v_rows BIGINT := 0;
+    v_count BIGINT;
+    v_from DATE;
+    v_to   DATE;
+BEGIN
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        IF TG_TABLE_NAME = 'orders' THEN
+            SELECT count(*), min(order_date), max(order_date) INTO v_rows, v_from, v_to FROM new_rows;
+        ELSIF TG_TABLE_NAME = 'order_items' THEN
+            SELECT count(*), min(o.order_date), max(o.order_date) INTO v_rows, v_from, v_to
+            FROM new_rows r JOIN orders o ON o.id = r.order_id;
+        ELSE
+            SELECT count(*) INTO v_rows FROM new_rows;
+        END IF;
+    END IF;
+
+    IF TG_OP = 'DELETE' OR (TG_OP = 'UPDATE' AND TG_TABLE_NAME IN ('orders', 'order_items')) THEN
+        IF TG_TABLE_NAME = 'orders' THEN
+            SELECT count(*), LEAST(v_from, min(order_date)), GREATEST(v_to, max(order_date))
+            INTO v_count, v_from, v_to FROM old_rows;
+        ELSIF TG_TABLE_NAME = 'order_items' THEN
+            -- Items deleted along with their order drop out of the join, the orders notification covers them
+            SELECT count(*), LEAST(v_from, min(o.order_date)), GREATEST(v_to, max(o.order_date))
+            INTO v_count, v_from, v_to
+            FROM old_rows r JOIN orders o ON o.id = r.order_id;
+        ELSE
+            SELECT count(*) INTO v_count FROM old_rows;
+        END IF;
+        v_rows := GREATEST(v_rows, v_count);
+    END IF;
+
+    IF TG_OP = 'TRUNCATE' OR v_rows > 0 THEN
+        -- Held until commit like the rollup rows the same statement updates, so writers of one table take turns here
+        UPDATE analytics_change_generations
+        SET generation = generation + 1,
+            changed_at = now()
+        WHERE table_name = TG_TABLE_NAME;
+
+        PERFORM pg_notify('analytics_changes',
+                          json_build_object('table', TG_TABLE_NAME, 'from', v_from, 'to', v_to)::TEXT);
+    END IF;
+
+    RETURN NULL;
+END
+$$;
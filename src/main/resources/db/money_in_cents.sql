@@ -0,0 +1,31 @@
+-- Adds a BIGINT count of cents next to every money column, kept by Postgres as a stored generated column, so the
+-- money sums run on 64-bit integers instead of NUMERIC and reach the service as a long. Opt-in: run against a
+-- database created from init_scheme.sql, then start the service with app.analytics.cents-columns.enabled=true.
+--
+-- Prices have to be whole cents from then on, the checks added here reject any other price. The script can run
+-- again, and has to after db/partition_orders_by_month.sql, which creates order_items anew.
+
+BEGIN;
+
+ALTER TABLE products
+    DROP CONSTRAINT IF EXISTS products_price_whole_cents,
+    ADD CONSTRAINT products_price_whole_cents CHECK (price = round(price, 2)),
+    ADD COLUMN IF NOT EXISTS price_cents BIGINT GENERATED ALWAYS AS (round(price * 100)::BIGINT) STORED;
+
+ALTER TABLE order_items
+    DROP CONSTRAINT IF EXISTS order_items_price_at_purchase_whole_cents,
+    ADD CONSTRAINT order_items_price_at_purchase_whole_cents CHECK (price_at_purchase = round(price_at_purchase, 2)),
+    ADD COLUMN IF NOT EXISTS price_at_purchase_cents BIGINT
+        GENERATED ALWAYS AS (round(price_at_purchase * 100)::BIGINT) STORED;
+
+-- The rollup triggers keep adding NUMERIC amounts, which stay whole cents as every price is
+ALTER TABLE daily_product_sales
+    ADD COLUMN IF NOT EXISTS sales_cents BIGINT GENERATED ALWAYS AS (round(sales * 100)::BIGINT) STORED;
+
+ALTER TABLE daily_category_sales
+    ADD COLUMN IF NOT EXISTS sales_cents BIGINT GENERATED ALWAYS AS (round(sales * 100)::BIGINT) STORED;
+
+ALTER TABLE daily_customer_spend
+    ADD COLUMN IF NOT EXISTS spend_cents BIGINT GENERATED ALWAYS AS (round(spend * 100)::BIGINT) STORED;
+
+COMMIT;
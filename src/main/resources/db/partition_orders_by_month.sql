@@ -0,0 +1,168 @@
+-- Converts orders and order_items into tables range partitioned by month on order_date, so requests
+-- bounded by order_date only scan the matching months. Opt-in: run once against a database created
+-- from init_scheme.sql, then start the service with app.analytics.partitioning.enabled=true.
+--
+-- The partition key has to be part of every primary and foreign key, so order_items gets its own
+-- order_date column and references orders by (id, order_date). Writers must fill it from the order.
+-- order_date becomes immutable, moving a row across partitions would run the delete triggers of the rollups.
+-- Months outside the created range land in the default partitions, add more with create_order_partitions().
+
+BEGIN;
+
+ALTER TABLE order_items RENAME TO order_items_unpartitioned;
+ALTER TABLE order_items_unpartitioned RENAME CONSTRAINT order_items_pkey TO order_items_unpartitioned_pkey;
+ALTER SEQUENCE order_items_id_seq RENAME TO order_items_unpartitioned_id_seq;
+
+ALTER TABLE orders RENAME TO orders_unpartitioned;
+ALTER TABLE orders_unpartitioned RENAME CONSTRAINT orders_pkey TO orders_unpartitioned_pkey;
+ALTER SEQUENCE orders_id_seq RENAME TO orders_unpartitioned_id_seq;
+
+-- The indexes of db/migration keep their names on the renamed tables, they are created again on the new ones below
+DROP INDEX IF EXISTS idx_orders_order_date_covering, idx_orders_status_id, idx_orders_customer_id,
+    idx_order_items_order_id, idx_order_items_product_id;
+
+CREATE TABLE orders
+(
+    id          INT GENERATED ALWAYS AS IDENTITY,
+    customer_id INT,
+    order_date  DATE NOT NULL,
+    status_id   INT  NOT NULL,
+    PRIMARY KEY (id, order_date),
+    CONSTRAINT fk_customer_id
+        FOREIGN KEY (customer_id) REFERENCES customers (id) ON DELETE SET NULL,
+    CONSTRAINT fk_status_name
+        FOREIGN KEY (status_id) REFERENCES order_statuses (id) ON DELETE RESTRICT
+) PARTITION BY RANGE (order_date);
+
+CREATE TABLE order_items
+(
+    id                INT GENERATED ALWAYS AS IDENTITY,
+    order_id          INT     NOT NULL,
+    product_id        INT,
+    quantity          INT     NOT NULL,
+    price_at_purchase NUMERIC NOT NULL,
+    order_date        DATE    NOT NULL,
+    PRIMARY KEY (id, order_date),
+    CONSTRAINT fk_order_id
+        FOREIGN KEY (order_id, order_date) REFERENCES orders (id, order_date) ON DELETE CASCADE,
+    CONSTRAINT fk_product_id
+        FOREIGN KEY (product_id) REFERENCES products (id) ON DELETE SET NULL
+) PARTITION BY RANGE (order_date);
+
+CREATE INDEX idx_orders_order_date_covering ON orders (order_date) INCLUDE (id, customer_id, status_id);
+CREATE INDEX idx_orders_status_id ON orders (status_id);
+CREATE INDEX idx_orders_customer_id ON orders (customer_id);
+CREATE INDEX idx_order_items_order_id ON order_items (order_id) INCLUDE (product_id, quantity, price_at_purchase);
+CREATE INDEX idx_order_items_product_id ON order_items (product_id) INCLUDE (quantity, price_at_purchase);
+
+CREATE FUNCTION create_order_partitions(p_from DATE, p_to DATE)
+    RETURNS VOID
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    v_month DATE := date_trunc('month', p_from);
+    v_table TEXT;
+BEGIN
+    WHILE v_month <= p_to LOOP
+        FOREACH v_table IN ARRAY ARRAY['orders', 'order_items'] LOOP
+            EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                           v_table || '_' || to_char(v_month, 'YYYY_MM'), v_table,
+                           v_month, v_month + INTERVAL '1 month');
+            EXECUTE format('ALTER TABLE %I REPLICA IDENTITY FULL', v_table || '_' || to_char(v_month, 'YYYY_MM'));
+        END LOOP;
+        v_month := v_month + INTERVAL '1 month';
+    END LOOP;
+END
+$$;
+
+CREATE TABLE orders_default PARTITION OF orders DEFAULT;
+CREATE TABLE order_items_default PARTITION OF order_items DEFAULT;
+ALTER TABLE orders_default REPLICA IDENTITY FULL;
+ALTER TABLE order_items_default REPLICA IDENTITY FULL;
+
+SELECT create_order_partitions(
+               LEAST(COALESCE(MIN(order_date), CURRENT_DATE), CURRENT_DATE),
+               (CURRENT_DATE + INTERVAL '12 months')::DATE)
+FROM orders_unpartitioned;
+
+-- The rollups are already up to date, keep the triggers off while the rows are copied
+INSERT INTO orders (id, customer_id, order_date, status_id)
+    OVERRIDING SYSTEM VALUE
+SELECT id, customer_id, order_date, status_id
+FROM orders_unpartitioned;
+
+INSERT INTO order_items (id, order_id, product_id, quantity, price_at_purchase, order_date)
+    OVERRIDING SYSTEM VALUE
+SELECT i.id, i.order_id, i.product_id, i.quantity, i.price_at_purchase, o.order_date
+FROM order_items_unpartitioned i
+         JOIN orders_unpartitioned o ON o.id = i.order_id;
+
+SELECT setval(pg_get_serial_sequence('orders', 'id'), COALESCE(MAX(id), 0) + 1, false) FROM orders;
+SELECT setval(pg_get_serial_sequence('order_items', 'id'), COALESCE(MAX(id), 0) + 1, false) FROM order_items;
+
+DROP TABLE order_items_unpartitioned;
+DROP TABLE orders_unpartitioned;
+
+CREATE FUNCTION orders_order_date_immutable_trigger()
+    RETURNS TRIGGER
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    RAISE EXCEPTION 'orders.order_date cannot change once orders is partitioned, delete and re-insert order %', OLD.id;
+END
+$$;
+
+CREATE TRIGGER orders_order_date_immutable
+    BEFORE UPDATE OF order_date
+    ON orders
+    FOR EACH ROW
+    WHEN (OLD.order_date IS DISTINCT FROM NEW.order_date)
+EXECUTE FUNCTION orders_order_date_immutable_trigger();
+
+CREATE TRIGGER rollup_order_items
+    AFTER INSERT OR UPDATE OR DELETE
+    ON order_items
+    FOR EACH ROW
+EXECUTE FUNCTION rollup_order_items_trigger();
+
+CREATE TRIGGER rollup_orders_update
+    AFTER UPDATE OF order_date, customer_id
+    ON orders
+    FOR EACH ROW
+    WHEN (OLD.order_date IS DISTINCT FROM NEW.order_date OR OLD.customer_id IS DISTINCT FROM NEW.customer_id)
+EXECUTE FUNCTION rollup_orders_trigger();
+
+CREATE TRIGGER rollup_orders_delete
+    BEFORE DELETE
+    ON orders
+    FOR EACH ROW
+EXECUTE FUNCTION rollup_orders_trigger();
+
+CREATE TRIGGER rollup_order_items_truncate
+    AFTER TRUNCATE
+    ON order_items
+    FOR EACH STATEMENT
+EXECUTE FUNCTION rollup_truncate_trigger();
+
+DO
+$$
+DECLARE
+    v_table TEXT;
+BEGIN
+    FOREACH v_table IN ARRAY ARRAY['orders', 'order_items'] LOOP
+        EXECUTE format('CREATE TRIGGER notify_%1$s_insert AFTER INSERT ON %1$I REFERENCING NEW TABLE AS new_rows '
+                           'FOR EACH STATEMENT EXECUTE FUNCTION notify_analytics_change()', v_table);
+        EXECUTE format('CREATE TRIGGER notify_%1$s_update AFTER UPDATE ON %1$I REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows '
+                           'FOR EACH STATEMENT EXECUTE FUNCTION notify_analytics_change()', v_table);
+        EXECUTE format('CREATE TRIGGER notify_%1$s_delete AFTER DELETE ON %1$I REFERENCING OLD TABLE AS old_rows '
+                           'FOR EACH STATEMENT EXECUTE FUNCTION notify_analytics_change()', v_table);
+        EXECUTE format('CREATE TRIGGER notify_%1$s_truncate AFTER TRUNCATE ON %1$I '
+                           'FOR EACH STATEMENT EXECUTE FUNCTION notify_analytics_change()', v_table);
+    END LOOP;
+END
+$$;
+
+ALTER TABLE orders REPLICA IDENTITY FULL;
+ALTER TABLE order_items REPLICA IDENTITY FULL;
+
+COMMIT;
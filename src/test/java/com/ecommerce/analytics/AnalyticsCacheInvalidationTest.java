@@ -0,0 +1,214 @@
+package com.ecommerce.analytics;
+
+import com.ecommerce.analytics.dto.*;
+import com.ecommerce.analytics.service.AnalyticsService;
+import com.ecommerce.analytics.service.CachedAnalyticsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.jooq.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.NoSuchElementException;
+
+import static com.ecommerce.analytics.jooq.Tables.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"app.analytics.cache.ttl=1h", "app.analytics.cache.max-stale=2h"})
+@ActiveProfiles("test")
+@Testcontainers
+public class AnalyticsCacheInvalidationTest {
+
+    @SuppressWarnings("resource")
+    @Container
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:16")
+            .withDatabaseName("test-db")
+            .withUsername("test")
+            .withPassword("test")
+            .withInitScript("init_scheme.sql");
+
+    @DynamicPropertySource
+    static void setDatasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.jooq.sql-dialect", () -> "POSTGRES");
+    }
+
+    @Autowired
+    private DSLContext dsl;
+
+    @MockitoSpyBean
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private CachedAnalyticsService cachedAnalyticsService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private int c_user;
+    private int o1;
+    private int p_book;
+
+    @BeforeEach
+    void setUp() {
+        dsl.truncate(ORDER_ITEMS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDERS).restartIdentity().cascade().execute();
+        dsl.truncate(PRODUCTS).restartIdentity().cascade().execute();
+        dsl.truncate(CUSTOMERS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDER_STATUSES).restartIdentity().cascade().execute();
+
+        // Statuses
+        dsl.insertInto(ORDER_STATUSES)
+                .set(ORDER_STATUSES.STATUS_NAME, "Processing")
+                .execute();
+
+        dsl.insertInto(ORDER_STATUSES)
+                .set(ORDER_STATUSES.STATUS_NAME, "Canceled")
+                .execute();
+
+        dsl.insertInto(ORDER_STATUSES)
+                .set(ORDER_STATUSES.STATUS_NAME, "Delivered")
+                .execute();
+
+        // Products
+        int p_laptop = dsl.insertInto(PRODUCTS, PRODUCTS.NAME, PRODUCTS.PRICE, PRODUCTS.CATEGORY)
+                .values("Laptop", new BigDecimal("1000.00"), "Electronics")
+                .returning(PRODUCTS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test product id"))
+                .getId();
+
+        int p_mouse = dsl.insertInto(PRODUCTS, PRODUCTS.NAME, PRODUCTS.PRICE, PRODUCTS.CATEGORY)
+                .values("Mouse", new BigDecimal("75.00"), "Electronics")
+                .returning(PRODUCTS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test product id"))
+                .getId();
+
+        p_book = dsl.insertInto(PRODUCTS, PRODUCTS.NAME, PRODUCTS.PRICE, PRODUCTS.CATEGORY)
+                .values("JOOQ Guide", new BigDecimal("25.00"), "Books")
+                .returning(PRODUCTS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test product id"))
+                .getId();
+
+        // Customer
+        c_user = dsl.insertInto(CUSTOMERS, CUSTOMERS.FIRST_NAME, CUSTOMERS.LAST_NAME, CUSTOMERS.EMAIL, CUSTOMERS.JOIN_DATE)
+                .values("Test", "User", "test@user.com", LocalDate.now())
+                .returning(CUSTOMERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test customer id"))
+                .getId();
+
+        // Orders
+        o1 = dsl.insertInto(ORDERS, ORDERS.CUSTOMER_ID, ORDERS.ORDER_DATE, ORDERS.STATUS_ID)
+                .values(c_user, LocalDate.now(), 2)
+                .returning(ORDERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test order id"))
+                .getId();
+
+        int o2 = dsl.insertInto(ORDERS, ORDERS.CUSTOMER_ID, ORDERS.ORDER_DATE, ORDERS.STATUS_ID)
+                .values(c_user, LocalDate.now(), 3)
+                .returning(ORDERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test order id"))
+                .getId();
+
+        // Order Items
+        dsl.insertInto(ORDER_ITEMS)
+                .columns(ORDER_ITEMS.ORDER_ID, ORDER_ITEMS.PRODUCT_ID, ORDER_ITEMS.QUANTITY, ORDER_ITEMS.PRICE_AT_PURCHASE)
+                .values(o1, p_laptop, 1, new BigDecimal("1000.00"))
+                .values(o1, p_mouse, 2, new BigDecimal("75.00"))
+                .values(o2, p_book, 4, new BigDecimal("25.00"))
+                .execute();
+
+        // Let the notifications sent by the setup go out before anything is cached
+        await().pollDelay(Duration.ofMillis(500)).until(() -> true);
+        cachedAnalyticsService.invalidateAll();
+    }
+
+    @Test
+    public void testInsert_RefreshesCachedResult() {
+
+        assertThat(cachedAnalyticsService.getSalesByCategory(DateRangeDTO.ALL_TIME))
+                .extracting(SalesByCategoryDTO::getCategory)
+                .containsExactly("Electronics", "Books");
+
+        dsl.insertInto(ORDER_ITEMS)
+                .columns(ORDER_ITEMS.ORDER_ID, ORDER_ITEMS.PRODUCT_ID, ORDER_ITEMS.QUANTITY, ORDER_ITEMS.PRICE_AT_PURCHASE)
+                .values(o1, p_book, 100, new BigDecimal("25.00"))
+                .execute();
+
+        // The ttl is an hour, only the notification can make the new sales show up
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                assertThat(cachedAnalyticsService.getSalesByCategory(DateRangeDTO.ALL_TIME))
+                        .extracting(SalesByCategoryDTO::getCategory)
+                        .containsExactly("Books", "Electronics"));
+    }
+
+    @Test
+    public void testChangeOutsideRange_KeepsCachedResult() {
+
+        DateRangeDTO lastYear = new DateRangeDTO(LocalDate.now().minusYears(1), LocalDate.now().minusYears(1).plusDays(30));
+        double invalidationsBefore = counter("analytics.cache.invalidations", "metric", "status_summary");
+
+        assertThat(cachedAnalyticsService.getOrderCountByStatusName(lastYear)).isEmpty();
+        assertThat(cachedAnalyticsService.getOrderCountByStatusName(DateRangeDTO.ALL_TIME)).hasSize(2);
+
+        dsl.insertInto(ORDERS, ORDERS.CUSTOMER_ID, ORDERS.ORDER_DATE, ORDERS.STATUS_ID)
+                .values(c_user, LocalDate.now(), 1)
+                .execute();
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                assertThat(cachedAnalyticsService.getOrderCountByStatusName(DateRangeDTO.ALL_TIME)).hasSize(3));
+
+        verify(analyticsService, times(1)).getOrderCountByStatusName(lastYear);
+        assertThat(counter("analytics.cache.invalidations", "metric", "status_summary") - invalidationsBefore)
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void testBurstOfStatements_CoalescedIntoFewRefreshes() {
+
+        assertThat(cachedAnalyticsService.getAverageOrderValue(DateRangeDTO.ALL_TIME).getAverageOrderValue())
+                .isEqualByComparingTo(new BigDecimal("625.00"));
+
+        // One autocommit statement and one notification per row
+        for (int i = 0; i < 1000; i++) {
+            dsl.insertInto(ORDER_ITEMS)
+                    .columns(ORDER_ITEMS.ORDER_ID, ORDER_ITEMS.PRODUCT_ID, ORDER_ITEMS.QUANTITY, ORDER_ITEMS.PRICE_AT_PURCHASE)
+                    .values(o1, p_book, 1, new BigDecimal("1.00"))
+                    .execute();
+        }
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                assertThat(cachedAnalyticsService.getAverageOrderValue(DateRangeDTO.ALL_TIME).getAverageOrderValue())
+                        .isEqualByComparingTo(new BigDecimal("1125.00")));
+
+        // The initial load, then one refresh per debounce window or max-delay
+        await().pollDelay(Duration.ofMillis(500)).until(() -> true);
+        verify(analyticsService, atMost(4)).getAverageOrderValue(any(DateRangeDTO.class));
+    }
+
+    private double counter(String name, String... tags) {
+        return meterRegistry.counter(name, tags).count();
+    }
+}
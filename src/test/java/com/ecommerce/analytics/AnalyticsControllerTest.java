@@ -1,11 +1,14 @@
 package com.ecommerce.analytics;
 
+import com.ecommerce.analytics.service.CachedAnalyticsService;
+import com.ecommerce.analytics.sketch.OrderValueDigests;
 import org.jooq.DSLContext;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
@@ -15,11 +18,17 @@ import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.Collections;
 import java.util.NoSuchElementException;
 
+import static com.ecommerce.analytics.constants.AnalyticsConstants.MAX_BATCH_METRICS;
+import static com.ecommerce.analytics.constants.AnalyticsConstants.MAX_LIMIT;
 import static com.ecommerce.analytics.jooq.Tables.*;
+import static org.hamcrest.Matchers.containsString;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import org.springframework.http.MediaType;
@@ -53,6 +62,12 @@ public class AnalyticsControllerTest {
     @Autowired
     private DSLContext dsl;
 
+    @Autowired
+    private CachedAnalyticsService cachedAnalyticsService;
+
+    @Autowired
+    private OrderValueDigests orderValueDigests;
+
     @BeforeEach
     void setUp() {
         dsl.truncate(ORDER_ITEMS).restartIdentity().cascade().execute();
@@ -142,6 +157,10 @@ public class AnalyticsControllerTest {
                 .values(o1, p_mouse, 2, new BigDecimal("75.00"))
                 .values(o2, p_book, 4, new BigDecimal("25.00"))
                 .execute();
+
+        // Nothing loaded while the tables were being refilled may answer this test
+        cachedAnalyticsService.invalidateAll();
+        orderValueDigests.invalidateAll();
     }
 
     @Test
@@ -192,6 +211,97 @@ public class AnalyticsControllerTest {
                 .andExpect(jsonPath("$[0].totalSpend").value(1100.00));
     }
 
+    @Test
+    public void testGetTopNByQuery_MatchesPostForm() throws Exception {
+
+        mockMvc.perform(get("/v1/analytics/top-selling-products").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].productName").value("JOOQ Guide"))
+                .andExpect(jsonPath("$[1].productName").value("Mouse"));
+
+        mockMvc.perform(get("/v1/analytics/top-spenders"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].totalSpend").value(1100.00));
+
+        // Limits are normalized before keying the result, so out of range limits share the clamped one's version
+        String maxLimitTag = mockMvc.perform(get("/v1/analytics/top-spenders").param("limit", String.valueOf(MAX_LIMIT)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/v1/analytics/top-spenders")
+                        .param("limit", String.valueOf(MAX_LIMIT + 1))
+                        .header(HttpHeaders.IF_NONE_MATCH, maxLimitTag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get("/v1/analytics/product-rank-by-category").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    public void testExport_StreamsWholeRankingAsNdjsonOrCsv() throws Exception {
+
+        mockMvc.perform(get("/v1/analytics/export/product-quantities"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, containsString("product-quantities.ndjson")))
+                .andExpect(content().string(
+                        "{\"productId\":3,\"productName\":\"JOOQ Guide\",\"totalQuantitySold\":4}\n"
+                                + "{\"productId\":2,\"productName\":\"Mouse\",\"totalQuantitySold\":2}\n"
+                                + "{\"productId\":1,\"productName\":\"Laptop\",\"totalQuantitySold\":1}\n"));
+
+        mockMvc.perform(get("/v1/analytics/export/customer-spend").param("format", "csv"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(content().string("customerId,email,fullName,totalSpend\r\n"
+                        + "1,test@user.com,Test User,1100.00\r\n"));
+
+        mockMvc.perform(get("/v1/analytics/export/customer-spend")
+                        .param("format", "csv")
+                        .param("from", LocalDate.now().plusDays(1).toString()))
+                .andExpect(status().isOk())
+                .andExpect(content().string("customerId,email,fullName,totalSpend\r\n"));
+
+        mockMvc.perform(get("/v1/analytics/export/orders"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/v1/analytics/export/customer-spend").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetSalesByCategory_AsProtobuf() throws Exception {
+
+        // category = 1 as one string per row, then total_sales_cents = 2 packed as zigzag varints 115000 and 10000
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(new byte[]{0x0A, 11});
+        expected.writeBytes("Electronics".getBytes(StandardCharsets.UTF_8));
+        expected.write(new byte[]{0x0A, 5});
+        expected.writeBytes("Books".getBytes(StandardCharsets.UTF_8));
+        expected.write(new byte[]{0x12, 6, (byte) 0xF0, (byte) 0x84, 0x0E, (byte) 0xA0, (byte) 0x9C, 0x01});
+
+        mockMvc.perform(get("/v1/analytics/sales-by-category").accept("application/x-protobuf"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-protobuf"))
+                .andExpect(content().bytes(expected.toByteArray()));
+
+        // A range without sales is the empty message
+        mockMvc.perform(get("/v1/analytics/sales-by-category").param("from", "2100-01-01")
+                        .accept("application/x-protobuf"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(new byte[0]));
+
+        // average_order_value_cents = 1 as the zigzag varint of 62500
+        mockMvc.perform(get("/v1/analytics/average-order-value").accept("application/x-protobuf"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(new byte[]{0x08, (byte) 0xC8, (byte) 0xD0, 0x07}));
+
+        // Clients accepting anything keep getting JSON
+        mockMvc.perform(get("/v1/analytics/status-summary").accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
     @Test
     public void testGetStatusSummary_ReturnsJsonArray() throws Exception {
 
@@ -208,4 +318,91 @@ public class AnalyticsControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.averageOrderValue").value(625.00));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetSalesByCategory_WithDateRange() throws Exception {
+
+        String today = LocalDate.now().toString();
+
+        mockMvc.perform(get("/v1/analytics/sales-by-category")
+                        .param("from", today)
+                        .param("to", today))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+
+        mockMvc.perform(get("/v1/analytics/sales-by-category")
+                        .param("from", LocalDate.now().plusDays(1).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+
+        mockMvc.perform(post("/v1/analytics/top-spenders")
+                        .param("to", LocalDate.now().minusDays(1).toString())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"limit\": 10}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    public void testGetAverageOrderValue_InvalidDateRange() throws Exception {
+
+        mockMvc.perform(get("/v1/analytics/average-order-value")
+                        .param("from", LocalDate.now().toString())
+                        .param("to", LocalDate.now().minusDays(1).toString()))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetBatch_ReturnsEveryMetricInRequestOrder() throws Exception {
+
+        String requestBody = """
+                [
+                  {"metric": "SALES_BY_CATEGORY"},
+                  {"metric": "TOP_SELLING_PRODUCTS", "limit": 2},
+                  {"metric": "TOP_SPENDERS", "limit": 10, "to": "%s"},
+                  {"metric": "STATUS_SUMMARY"},
+                  {"metric": "AVERAGE_ORDER_VALUE"}
+                ]""".formatted(LocalDate.now().minusDays(1));
+
+        mockMvc.perform(post("/v1/analytics/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results.length()").value(5))
+                .andExpect(jsonPath("$.results[0].metric").value("SALES_BY_CATEGORY"))
+                .andExpect(jsonPath("$.results[0].result[0].category").value("Electronics"))
+                .andExpect(jsonPath("$.results[0].result[0].totalSales").value(1150.00))
+                .andExpect(jsonPath("$.results[1].metric").value("TOP_SELLING_PRODUCTS"))
+                .andExpect(jsonPath("$.results[1].result.length()").value(2))
+                .andExpect(jsonPath("$.results[1].result[0].productName").value("JOOQ Guide"))
+                .andExpect(jsonPath("$.results[2].metric").value("TOP_SPENDERS"))
+                .andExpect(jsonPath("$.results[2].result.length()").value(0))
+                .andExpect(jsonPath("$.results[3].result.length()").value(2))
+                .andExpect(jsonPath("$.results[4].result.averageOrderValue").value(625.00));
+    }
+
+    @Test
+    public void testGetBatch_InvalidRequests() throws Exception {
+
+        mockMvc.perform(post("/v1/analytics/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/v1/analytics/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"metric\": \"REVENUE_FORECAST\"}]"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/v1/analytics/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"metric\": \"STATUS_SUMMARY\", \"from\": \"2025-02-01\", \"to\": \"2025-01-01\"}]"))
+                .andExpect(status().isBadRequest());
+
+        String tooMany = "[" + String.join(",", Collections.nCopies(MAX_BATCH_METRICS + 1, "{\"metric\": \"STATUS_SUMMARY\"}")) + "]";
+        mockMvc.perform(post("/v1/analytics/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(tooMany))
+                .andExpect(status().isBadRequest());
+    }
+}
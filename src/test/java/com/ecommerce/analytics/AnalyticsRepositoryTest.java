@@ -1,5 +1,6 @@
 package com.ecommerce.analytics;
 
+import com.ecommerce.analytics.dto.DateRangeDTO;
 import com.ecommerce.analytics.repository.AnalyticsRepository;
 import org.jooq.*;
 import org.junit.jupiter.api.BeforeEach;
@@ -144,12 +145,12 @@ public class AnalyticsRepositoryTest {
     @Test
     public void testGetSalaryByCategory_ReturnsCorrectTotal() {
 
-        BigDecimal expectedElectronicsTotal = new BigDecimal("1150.00");
-        BigDecimal expectedBooksTotal = new BigDecimal("100.00");
+        long expectedElectronicsTotal = 115000L;
+        long expectedBooksTotal = 10000L;
 
-        Result<Record2<String, BigDecimal>> result = analyticsRepository.getSalesByCategory();
+        Result<Record2<String, Long>> result = analyticsRepository.getSalesByCategory();
 
-        Map<String, BigDecimal> salesMap = result
+        Map<String, Long> salesMap = result
                 .stream()
                 .collect(Collectors.toMap(
                         Record2::value1,
@@ -160,8 +161,8 @@ public class AnalyticsRepositoryTest {
         assertThat(salesMap).containsKey("Electronics");
         assertThat(salesMap).containsKey("Books");
 
-        assertThat(salesMap.get("Electronics")).isEqualByComparingTo(expectedElectronicsTotal);
-        assertThat(salesMap.get("Books")).isEqualByComparingTo(expectedBooksTotal);
+        assertThat(salesMap.get("Electronics")).isEqualTo(expectedElectronicsTotal);
+        assertThat(salesMap.get("Books")).isEqualTo(expectedBooksTotal);
     }
 
     @Test
@@ -185,17 +186,16 @@ public class AnalyticsRepositoryTest {
     @Test
     public void testGetTopSpenders_ReturnsCustomersOrderedBySpend() {
 
-        Result<Record5<Integer, String, String, String, BigDecimal>> result = analyticsRepository.getTopSpenders(10);
+        Result<Record4<Integer, String, String, Long>> result = analyticsRepository.getTopSpenders(10);
 
         assertThat(result).hasSize(1);
 
-        Record5<Integer, String, String, String, BigDecimal> topSpender = result.get(0);
+        Record4<Integer, String, String, Long> topSpender = result.get(0);
 
         assertThat(topSpender.value2()).isEqualTo("test@user.com");
-        assertThat(topSpender.value3()).isEqualTo("Test");
-        assertThat(topSpender.value4()).isEqualTo("User");
+        assertThat(topSpender.value3()).isEqualTo("Test User");
 
-        assertThat(topSpender.value5()).isEqualByComparingTo(new BigDecimal("1100.00"));
+        assertThat(topSpender.value4()).isEqualTo(110000L);
     }
 
     @Test
@@ -227,4 +227,39 @@ public class AnalyticsRepositoryTest {
 
         assertThat(result.value1()).isEqualByComparingTo(expectedAverage);
     }
+
+    @Test
+    public void testDateRange_OnlyCountsOrdersWithinRange() {
+
+        LocalDate today = LocalDate.now();
+        DateRangeDTO lastWeek = new DateRangeDTO(today.minusDays(7), today);
+
+        // The canceled order moves out of the last week
+        dsl.update(ORDERS)
+                .set(ORDERS.ORDER_DATE, today.minusDays(30))
+                .where(ORDERS.STATUS_ID.eq(2))
+                .execute();
+
+        Map<String, Long> salesMap = analyticsRepository.getSalesByCategory(lastWeek)
+                .intoMap(Record2::value1, Record2::value2);
+        assertThat(salesMap).containsOnlyKeys("Books");
+        assertThat(salesMap.get("Books")).isEqualTo(10000L);
+
+        assertThat(analyticsRepository.getTopSellingProducts(10, lastWeek))
+                .extracting(Record3::value2)
+                .containsExactly("JOOQ Guide");
+
+        assertThat(analyticsRepository.getTopSpenders(10, lastWeek).get(0).value4())
+                .isEqualTo(2500L);
+
+        assertThat(analyticsRepository.getOrderCountByStatusName(lastWeek).intoMap(Record2::value1, Record2::value2))
+                .containsExactly(Map.entry("Delivered", 1L));
+
+        assertThat(analyticsRepository.getAverageOrderValue(lastWeek).value1())
+                .isEqualByComparingTo(new BigDecimal("100.00"));
+        assertThat(analyticsRepository.getAverageOrderValue(new DateRangeDTO(null, today.minusDays(8))).value1())
+                .isEqualByComparingTo(new BigDecimal("1150.00"));
+        assertThat(analyticsRepository.getAverageOrderValue(new DateRangeDTO(today.plusDays(1), null)).value1())
+                .isNull();
+    }
 }
@@ -147,9 +147,9 @@ public class AnalyticsServiceTest {
 
         assertThat(result).hasSize(2);
         assertThat(result.get(0).getCategory()).isEqualTo("Electronics");
-        assertThat(result.get(0).getTotalSales()).isEqualByComparingTo(new BigDecimal("1150.00"));
+        assertThat(result.get(0).getTotalSales()).isEqualTo(115000L);
         assertThat(result.get(1).getCategory()).isEqualTo("Books");
-        assertThat(result.get(1).getTotalSales()).isEqualByComparingTo(new BigDecimal("100.00"));
+        assertThat(result.get(1).getTotalSales()).isEqualTo(10000L);
     }
 
     @Test
@@ -177,7 +177,7 @@ public class AnalyticsServiceTest {
         assertThat(result).hasSize(1);
         assertThat(result.get(0).getEmail()).isEqualTo("test@user.com");
         assertThat(result.get(0).getFullName()).isEqualTo("Test User");
-        assertThat(result.get(0).getTotalSpend()).isEqualByComparingTo(new BigDecimal("1100.00"));
+        assertThat(result.get(0).getTotalSpend()).isEqualTo(110000L);
     }
 
     @Test
@@ -0,0 +1,105 @@
+package com.ecommerce.analytics;
+
+import com.ecommerce.analytics.ratelimit.TokenBucket;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK, properties = {
+        "app.api-key=dashboard-key",
+        "app.api-clients.reporting.key=reporting-key",
+        "app.api-clients.reporting.requests-per-second=0.001",
+        "app.api-clients.reporting.burst=3"
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@Testcontainers
+public class ApiKeyRateLimitTest {
+
+    @Container
+    @SuppressWarnings("resource")
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:16")
+            .withDatabaseName("test-db")
+            .withUsername("test")
+            .withPassword("test")
+            .withInitScript("init_scheme.sql");
+
+    @DynamicPropertySource
+    static void setDatasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.jooq.sql-dialect", () -> "POSTGRES");
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void testExhaustedKey_IsLimitedWithoutAffectingOthers() throws Exception {
+
+        for (int remaining = 2; remaining >= 0; remaining--) {
+            mockMvc.perform(get("/v1/analytics/status-summary").header("X-API-Key", "reporting-key"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("RateLimit-Limit", "3"))
+                    .andExpect(header().string("RateLimit-Remaining", String.valueOf(remaining)));
+        }
+
+        mockMvc.perform(get("/v1/analytics/status-summary").header("X-API-Key", "reporting-key"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("RateLimit-Remaining", "0"))
+                .andExpect(header().exists("Retry-After"))
+                .andExpect(header().exists("RateLimit-Reset"));
+
+        // Other keys keep their own quota, unknown keys are not authenticated at all
+        mockMvc.perform(get("/v1/analytics/status-summary").header("X-API-Key", "dashboard-key"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("RateLimit-Limit", "100"));
+        mockMvc.perform(get("/v1/analytics/status-summary").header("X-API-Key", "guessed-key"))
+                .andExpect(status().isForbidden())
+                .andExpect(header().doesNotExist("RateLimit-Limit"));
+
+        assertThat(meterRegistry.get("analytics.api.requests").tag("client", "reporting").tag("result", "allowed").counter().count())
+                .isEqualTo(3);
+        assertThat(meterRegistry.get("analytics.api.requests").tag("client", "reporting").tag("result", "limited").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("analytics.api.requests").tag("client", "default").tag("result", "allowed").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void testConcurrentCallers_NeverTakeMoreThanTheBurst() {
+
+        TokenBucket bucket = new TokenBucket(0.001, 100);
+        List<CompletableFuture<Boolean>> attempts = new ArrayList<>();
+        try (ExecutorService callers = Executors.newFixedThreadPool(16)) {
+            IntStream.range(0, 1000).forEach(i ->
+                    attempts.add(CompletableFuture.supplyAsync(() -> bucket.tryAcquire().allowed(), callers)));
+        }
+
+        assertThat(attempts.stream().filter(CompletableFuture::join).count()).isEqualTo(100);
+    }
+}
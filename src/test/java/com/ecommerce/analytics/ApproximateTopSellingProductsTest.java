@@ -0,0 +1,236 @@
+package com.ecommerce.analytics;
+
+import com.ecommerce.analytics.dto.DateRangeDTO;
+import com.ecommerce.analytics.sketch.ProductSalesSketches;
+import com.ecommerce.analytics.sketch.SpaceSavingSketch;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static com.ecommerce.analytics.constants.AnalyticsConstants.APPROXIMATION_ERROR_HEADER;
+import static com.ecommerce.analytics.jooq.Tables.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+        properties = "app.analytics.sketch.capacity=2")
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@Testcontainers
+@WithMockUser
+public class ApproximateTopSellingProductsTest {
+
+    @Container
+    @SuppressWarnings("resource")
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:16")
+            .withDatabaseName("test-db")
+            .withUsername("test")
+            .withPassword("test")
+            .withInitScript("init_scheme.sql");
+
+    @DynamicPropertySource
+    static void setDatasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.jooq.sql-dialect", () -> "POSTGRES");
+    }
+
+    private static final LocalDate DAY_1 = LocalDate.of(2025, 3, 1);
+    private static final LocalDate DAY_2 = LocalDate.of(2025, 3, 2);
+    private static final LocalDate DAY_3 = LocalDate.of(2025, 3, 3);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductSalesSketches productSalesSketches;
+
+    private int c_user;
+    private int p_a;
+    private int p_b;
+    private int p_c;
+    private int p_d;
+
+    @BeforeEach
+    void setUp() {
+        dsl.truncate(ORDER_ITEMS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDERS).restartIdentity().cascade().execute();
+        dsl.truncate(PRODUCTS).restartIdentity().cascade().execute();
+        dsl.truncate(CUSTOMERS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDER_STATUSES).restartIdentity().cascade().execute();
+
+        // Statuses
+        dsl.insertInto(ORDER_STATUSES)
+                .set(ORDER_STATUSES.STATUS_NAME, "Delivered")
+                .execute();
+
+        // Products
+        p_a = product("Product A");
+        p_b = product("Product B");
+        p_c = product("Product C");
+        p_d = product("Product D");
+
+        // Customer
+        c_user = dsl.insertInto(CUSTOMERS, CUSTOMERS.FIRST_NAME, CUSTOMERS.LAST_NAME, CUSTOMERS.EMAIL, CUSTOMERS.JOIN_DATE)
+                .values("Ivan", "Ivanov", "ivan@test.com", LocalDate.now())
+                .returning(CUSTOMERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test customer id"))
+                .getId();
+
+        // Three products a day against a sketch capacity of two, so every day drops its smallest product.
+        // Totals: A 13, C 12, B 11, D 8
+        order(DAY_1, Map.of(p_a, 10, p_b, 5, p_c, 4));
+        order(DAY_2, Map.of(p_a, 3, p_c, 8, p_d, 7));
+        order(DAY_3, Map.of(p_b, 6, p_d, 1));
+
+        productSalesSketches.invalidateAll();
+    }
+
+    @Test
+    void approximateCountsStayWithinTheReportedBound() throws Exception {
+        Map<Integer, Long> exact = Map.of(p_a, 13L, p_b, 11L, p_c, 12L, p_d, 8L);
+
+        MvcResult result = mockMvc.perform(post("/v1/analytics/top-selling-products")
+                        .param("approximate", "true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"limit\": 2}"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(APPROXIMATION_ERROR_HEADER))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andReturn();
+
+        long errorBound = Long.parseLong(result.getResponse().getHeader(APPROXIMATION_ERROR_HEADER));
+        assertThat(errorBound).isPositive();
+        for (JsonNode product : objectMapper.readTree(result.getResponse().getContentAsString())) {
+            long trueCount = exact.get(product.get("productId").asInt());
+            assertThat(product.get("totalQuantitySold").asLong())
+                    .isBetween(trueCount, trueCount + errorBound);
+            assertThat(product.get("productName").asText()).startsWith("Product ");
+        }
+    }
+
+    @Test
+    void exactModeIsTheDefault() throws Exception {
+        mockMvc.perform(post("/v1/analytics/top-selling-products")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"limit\": 2}"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(APPROXIMATION_ERROR_HEADER))
+                .andExpect(jsonPath("$[0].productId").value(p_a))
+                .andExpect(jsonPath("$[0].totalQuantitySold").value(13))
+                .andExpect(jsonPath("$[1].productId").value(p_c))
+                .andExpect(jsonPath("$[1].totalQuantitySold").value(12));
+    }
+
+    @Test
+    void singleDayWithinCapacityIsExact() throws Exception {
+        mockMvc.perform(post("/v1/analytics/top-selling-products")
+                        .param("approximate", "true")
+                        .param("from", DAY_3.toString())
+                        .param("to", DAY_3.toString())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"limit\": 10}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(APPROXIMATION_ERROR_HEADER, "0"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].productId").value(p_b))
+                .andExpect(jsonPath("$[0].totalQuantitySold").value(6))
+                .andExpect(jsonPath("$[1].productId").value(p_d))
+                .andExpect(jsonPath("$[1].totalQuantitySold").value(1));
+    }
+
+    @Test
+    void newOrdersReachTheSketchOfTheirDay() throws Exception {
+        // Load the sketches before the change so it has to arrive through a notification,
+        // polling stays on this thread where @WithMockUser set up the security context
+        mockMvc.perform(post("/v1/analytics/top-selling-products")
+                        .param("approximate", "true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"limit\": 1}"))
+                .andExpect(status().isOk());
+
+        order(DAY_3, Map.of(p_d, 100));
+
+        await().atMost(Duration.ofSeconds(5)).pollInSameThread().untilAsserted(() ->
+                mockMvc.perform(post("/v1/analytics/top-selling-products")
+                                .param("approximate", "true")
+                                .param("from", DAY_3.toString())
+                                .param("to", DAY_3.toString())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"limit\": 1}"))
+                        .andExpect(jsonPath("$[0].productId").value(p_d))
+                        .andExpect(jsonPath("$[0].totalQuantitySold").value(101)));
+    }
+
+    @Test
+    void mergedRangesAreKeptUntilTheirDaysChange() {
+        // Let the notifications sent by the setup go out first, they span every day
+        await().pollDelay(Duration.ofMillis(500)).until(() -> true);
+
+        DateRangeDTO early = new DateRangeDTO(DAY_1, DAY_2);
+        DateRangeDTO late = new DateRangeDTO(DAY_3, DAY_3);
+        SpaceSavingSketch earlySketch = productSalesSketches.get(early);
+        SpaceSavingSketch lateSketch = productSalesSketches.get(late);
+        assertThat(productSalesSketches.get(early)).isSameAs(earlySketch);
+
+        order(DAY_3, Map.of(p_d, 100));
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(productSalesSketches.get(late)).isNotSameAs(lateSketch));
+        assertThat(productSalesSketches.get(early)).isSameAs(earlySketch);
+    }
+
+    private int product(String name) {
+        return dsl.insertInto(PRODUCTS, PRODUCTS.NAME, PRODUCTS.PRICE, PRODUCTS.CATEGORY)
+                .values(name, new BigDecimal("10.00"), "Test")
+                .returning(PRODUCTS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test product id"))
+                .getId();
+    }
+
+    private void order(LocalDate orderDate, Map<Integer, Integer> quantities) {
+        int orderId = dsl.insertInto(ORDERS, ORDERS.CUSTOMER_ID, ORDERS.ORDER_DATE, ORDERS.STATUS_ID)
+                .values(c_user, orderDate, 1)
+                .returning(ORDERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test order id"))
+                .getId();
+
+        quantities.forEach((productId, quantity) ->
+                dsl.insertInto(ORDER_ITEMS, ORDER_ITEMS.ORDER_ID, ORDER_ITEMS.PRODUCT_ID, ORDER_ITEMS.QUANTITY, ORDER_ITEMS.PRICE_AT_PURCHASE)
+                        .values(orderId, productId, quantity, new BigDecimal("10.00"))
+                        .execute());
+    }
+}
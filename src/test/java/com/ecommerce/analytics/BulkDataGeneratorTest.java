@@ -0,0 +1,104 @@
+package com.ecommerce.analytics;
+
+import com.ecommerce.analytics.repository.AnalyticsRepository;
+import com.ecommerce.analytics.seed.BulkDataGenerator;
+import org.jooq.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static com.ecommerce.analytics.jooq.Tables.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jooq.impl.DSL.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+@Testcontainers
+public class BulkDataGeneratorTest {
+
+    private static final LocalDate END_DATE = LocalDate.of(2025, 6, 30);
+
+    @SuppressWarnings("resource")
+    @Container
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:16")
+            .withDatabaseName("test-db")
+            .withUsername("test")
+            .withPassword("test")
+            .withInitScript("init_scheme.sql");
+
+    @DynamicPropertySource
+    static void setDatasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.jooq.sql-dialect", () -> "POSTGRES");
+    }
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Autowired
+    private BulkDataGenerator bulkDataGenerator;
+
+    @Autowired
+    private AnalyticsRepository analyticsRepository;
+
+    @Test
+    public void testGenerate_SameSeedProducesSameRows() {
+
+        bulkDataGenerator.generate(0.0005, 7, END_DATE);
+        String first = checksum();
+
+        bulkDataGenerator.generate(0.0005, 7, END_DATE);
+        assertThat(checksum()).isEqualTo(first);
+
+        bulkDataGenerator.generate(0.0005, 8, END_DATE);
+        assertThat(checksum()).isNotEqualTo(first);
+    }
+
+    @Test
+    public void testGenerate_LoadsScaledSkewedDataWithRollups() {
+
+        bulkDataGenerator.generate(0.0005, 42, END_DATE);
+
+        assertThat(dsl.fetchCount(ORDER_STATUSES)).isEqualTo(7);
+        assertThat(dsl.fetchCount(PRODUCTS)).isEqualTo(10);
+        assertThat(dsl.fetchCount(CUSTOMERS)).isEqualTo(50);
+        assertThat(dsl.fetchCount(ORDERS)).isEqualTo(500);
+        assertThat(dsl.fetchCount(ORDER_ITEMS)).isBetween(500, 500 * 19);
+        assertThat(dsl.fetchValue(select(max(ORDERS.ORDER_DATE)).from(ORDERS))).isBeforeOrEqualTo(END_DATE);
+
+        // Rollups were rebuilt from the loaded rows
+        BigDecimal rawSales = dsl.fetchValue(
+                select(sum(ORDER_ITEMS.QUANTITY.mul(ORDER_ITEMS.PRICE_AT_PURCHASE))).from(ORDER_ITEMS));
+        BigDecimal rollupSales = dsl.fetchValue(
+                select(sum(DAILY_CATEGORY_SALES.SALES)).from(DAILY_CATEGORY_SALES));
+        assertThat(rollupSales).isEqualByComparingTo(rawSales);
+
+        // The first Zipf rank is the most popular product
+        assertThat(analyticsRepository.getTopSellingProducts(1).get(0).value1()).isEqualTo(1);
+
+        // New rows continue after the generated ids
+        int orderId = dsl.insertInto(ORDERS, ORDERS.CUSTOMER_ID, ORDERS.ORDER_DATE, ORDERS.STATUS_ID)
+                .values(1, END_DATE, 1)
+                .returning(ORDERS.ID)
+                .fetchSingle()
+                .getId();
+        assertThat(orderId).isEqualTo(501);
+    }
+
+    private String checksum() {
+        return dsl.fetchValue(field("""
+                (SELECT md5(string_agg(o::TEXT || i::TEXT, ',' ORDER BY i.id))
+                 FROM order_items i JOIN orders o ON o.id = i.order_id)""", String.class));
+    }
+}
@@ -0,0 +1,261 @@
+package com.ecommerce.analytics;
+
+import com.ecommerce.analytics.dto.*;
+import com.ecommerce.analytics.service.AnalyticsService;
+import com.ecommerce.analytics.service.CachedAnalyticsService;
+import com.ecommerce.analytics.sketch.ProductSalesSketches;
+import com.ecommerce.analytics.sketch.SpaceSavingSketch;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.jooq.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static com.ecommerce.analytics.jooq.Tables.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"app.analytics.cache.ttl=2s", "app.analytics.cache.max-stale=1m",
+                "app.analytics.cache.invalidation.enabled=false", "app.analytics.sketch.ttl=2s"})
+@ActiveProfiles("test")
+@Testcontainers
+public class CachedAnalyticsServiceTest {
+
+    @SuppressWarnings("resource")
+    @Container
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:16")
+            .withDatabaseName("test-db")
+            .withUsername("test")
+            .withPassword("test")
+            .withInitScript("init_scheme.sql");
+
+    @DynamicPropertySource
+    static void setDatasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.jooq.sql-dialect", () -> "POSTGRES");
+    }
+
+    @Autowired
+    private DSLContext dsl;
+
+    @MockitoSpyBean
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private CachedAnalyticsService cachedAnalyticsService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ProductSalesSketches productSalesSketches;
+
+    private int c_user;
+
+    @BeforeEach
+    void setUp() {
+        cachedAnalyticsService.invalidateAll();
+
+        dsl.truncate(ORDER_ITEMS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDERS).restartIdentity().cascade().execute();
+        dsl.truncate(PRODUCTS).restartIdentity().cascade().execute();
+        dsl.truncate(CUSTOMERS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDER_STATUSES).restartIdentity().cascade().execute();
+
+        // Statuses
+        dsl.insertInto(ORDER_STATUSES)
+                .set(ORDER_STATUSES.STATUS_NAME, "Processing")
+                .execute();
+
+        dsl.insertInto(ORDER_STATUSES)
+                .set(ORDER_STATUSES.STATUS_NAME, "Canceled")
+                .execute();
+
+        dsl.insertInto(ORDER_STATUSES)
+                .set(ORDER_STATUSES.STATUS_NAME, "Delivered")
+                .execute();
+
+        // Products
+        int p_laptop = dsl.insertInto(PRODUCTS, PRODUCTS.NAME, PRODUCTS.PRICE, PRODUCTS.CATEGORY)
+                .values("Laptop", new BigDecimal("1000.00"), "Electronics")
+                .returning(PRODUCTS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test product id"))
+                .getId();
+
+        int p_mouse = dsl.insertInto(PRODUCTS, PRODUCTS.NAME, PRODUCTS.PRICE, PRODUCTS.CATEGORY)
+                .values("Mouse", new BigDecimal("75.00"), "Electronics")
+                .returning(PRODUCTS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test product id"))
+                .getId();
+
+        int p_book = dsl.insertInto(PRODUCTS, PRODUCTS.NAME, PRODUCTS.PRICE, PRODUCTS.CATEGORY)
+                .values("JOOQ Guide", new BigDecimal("25.00"), "Books")
+                .returning(PRODUCTS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test product id"))
+                .getId();
+
+        // Customer
+        c_user = dsl.insertInto(CUSTOMERS, CUSTOMERS.FIRST_NAME, CUSTOMERS.LAST_NAME, CUSTOMERS.EMAIL, CUSTOMERS.JOIN_DATE)
+                .values("Test", "User", "test@user.com", LocalDate.now())
+                .returning(CUSTOMERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test customer id"))
+                .getId();
+
+        // Orders
+        int o1 = dsl.insertInto(ORDERS, ORDERS.CUSTOMER_ID, ORDERS.ORDER_DATE, ORDERS.STATUS_ID)
+                .values(c_user, LocalDate.now(), 2)
+                .returning(ORDERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test order id"))
+                .getId();
+
+        int o2 = dsl.insertInto(ORDERS, ORDERS.CUSTOMER_ID, ORDERS.ORDER_DATE, ORDERS.STATUS_ID)
+                .values(c_user, LocalDate.now(), 3)
+                .returning(ORDERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test order id"))
+                .getId();
+
+        // Order Items
+        dsl.insertInto(ORDER_ITEMS)
+                .columns(ORDER_ITEMS.ORDER_ID, ORDER_ITEMS.PRODUCT_ID, ORDER_ITEMS.QUANTITY, ORDER_ITEMS.PRICE_AT_PURCHASE)
+                .values(o1, p_laptop, 1, new BigDecimal("1000.00"))
+                .values(o1, p_mouse, 2, new BigDecimal("75.00"))
+                .values(o2, p_book, 4, new BigDecimal("25.00"))
+                .execute();
+    }
+
+    @Test
+    public void testConcurrentRequests_ShareOneQuery() {
+
+        doAnswer(invocation -> {
+            Thread.sleep(200);
+            return invocation.callRealMethod();
+        }).when(analyticsService).getSalesByCategory(any(DateRangeDTO.class));
+
+        ExecutorService clients = Executors.newFixedThreadPool(16);
+        try {
+            List<CompletableFuture<List<SalesByCategoryDTO>>> responses = IntStream.range(0, 16)
+                    .mapToObj(i -> CompletableFuture.supplyAsync(
+                            () -> cachedAnalyticsService.getSalesByCategory(DateRangeDTO.ALL_TIME), clients))
+                    .toList();
+
+            responses.forEach(response -> assertThat(response.join())
+                    .extracting(SalesByCategoryDTO::getCategory)
+                    .containsExactly("Electronics", "Books"));
+        } finally {
+            clients.shutdown();
+        }
+
+        verify(analyticsService, times(1)).getSalesByCategory(any(DateRangeDTO.class));
+    }
+
+    @Test
+    public void testExpiredEntry_ServedStaleWhileRefreshing() {
+
+        double refreshesBefore = counter("analytics.cache.refreshes", "metric", "status_summary");
+
+        assertThat(cachedAnalyticsService.getOrderCountByStatusName(DateRangeDTO.ALL_TIME)).hasSize(2);
+
+        dsl.insertInto(ORDERS, ORDERS.CUSTOMER_ID, ORDERS.ORDER_DATE, ORDERS.STATUS_ID)
+                .values(c_user, LocalDate.now(), 1)
+                .execute();
+
+        // Within the ttl the cached result is served as is
+        assertThat(cachedAnalyticsService.getOrderCountByStatusName(DateRangeDTO.ALL_TIME)).hasSize(2);
+
+        // A reload that finished before the read returned would be handed to it, a slow one never is
+        doAnswer(invocation -> {
+            Thread.sleep(200);
+            return invocation.callRealMethod();
+        }).when(analyticsService).getOrderCountByStatusName(any(DateRangeDTO.class));
+
+        // Past the ttl the first read still gets the old result and triggers the reload
+        await().pollDelay(Duration.ofMillis(2100)).until(() -> true);
+        assertThat(cachedAnalyticsService.getOrderCountByStatusName(DateRangeDTO.ALL_TIME)).hasSize(2);
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(cachedAnalyticsService.getOrderCountByStatusName(DateRangeDTO.ALL_TIME)).hasSize(3));
+        assertThat(counter("analytics.cache.refreshes", "metric", "status_summary")).isGreaterThan(refreshesBefore);
+    }
+
+    @Test
+    public void testSketches_KeptUntilTheirTtlWithoutNotifications() {
+
+        productSalesSketches.invalidateAll();
+        SpaceSavingSketch sketch = productSalesSketches.get(DateRangeDTO.ALL_TIME);
+        assertThat(sketch.top(1)).extracting(SpaceSavingSketch.Counter::count).containsExactly(4L);
+
+        int orderId = dsl.insertInto(ORDERS, ORDERS.CUSTOMER_ID, ORDERS.ORDER_DATE, ORDERS.STATUS_ID)
+                .values(c_user, LocalDate.now(), 1)
+                .returning(ORDERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test order id"))
+                .getId();
+        dsl.insertInto(ORDER_ITEMS, ORDER_ITEMS.ORDER_ID, ORDER_ITEMS.PRODUCT_ID, ORDER_ITEMS.QUANTITY, ORDER_ITEMS.PRICE_AT_PURCHASE)
+                .values(orderId, sketch.top(1).get(0).key(), 10, new BigDecimal("25.00"))
+                .execute();
+
+        // Within the ttl requests merge the days already loaded
+        assertThat(productSalesSketches.get(DateRangeDTO.ALL_TIME)).isSameAs(sketch);
+
+        await().pollDelay(Duration.ofMillis(2100)).until(() -> true);
+        assertThat(productSalesSketches.get(DateRangeDTO.ALL_TIME).top(1))
+                .extracting(SpaceSavingSketch.Counter::count)
+                .containsExactly(14L);
+    }
+
+    @Test
+    public void testCacheKey_UsesNormalizedLimitAndRange() {
+
+        double hitsBefore = counter("analytics.cache.requests", "metric", "top_selling_products", "result", "hit");
+        double missesBefore = counter("analytics.cache.requests", "metric", "top_selling_products", "result", "miss");
+
+        cachedAnalyticsService.getTopSellingProducts(null, DateRangeDTO.ALL_TIME);
+        cachedAnalyticsService.getTopSellingProducts(0, DateRangeDTO.ALL_TIME);
+        cachedAnalyticsService.getTopSellingProducts(10, DateRangeDTO.ALL_TIME);
+        cachedAnalyticsService.getTopSellingProducts(5, DateRangeDTO.ALL_TIME);
+        cachedAnalyticsService.getTopSellingProducts(5, new DateRangeDTO(LocalDate.now(), null));
+
+        verify(analyticsService, times(1)).getTopSellingProducts(eq(10), any(DateRangeDTO.class));
+        verify(analyticsService, times(2)).getTopSellingProducts(eq(5), any(DateRangeDTO.class));
+        verify(analyticsService, times(3)).getTopSellingProducts(anyInt(), any(DateRangeDTO.class));
+
+        assertThat(counter("analytics.cache.requests", "metric", "top_selling_products", "result", "hit") - hitsBefore)
+                .isEqualTo(2);
+        assertThat(counter("analytics.cache.requests", "metric", "top_selling_products", "result", "miss") - missesBefore)
+                .isEqualTo(3);
+    }
+
+    private double counter(String name, String... tags) {
+        return meterRegistry.counter(name, tags).count();
+    }
+}
@@ -0,0 +1,187 @@
+package com.ecommerce.analytics;
+
+import com.ecommerce.analytics.dto.DateRangeDTO;
+import com.ecommerce.analytics.repository.AnalyticsRepository;
+import com.ecommerce.analytics.service.CachedAnalyticsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.web.server.ResponseStatusException;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static com.ecommerce.analytics.constants.AnalyticsConstants.MAX_LIMIT;
+import static com.ecommerce.analytics.jooq.Tables.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+
+// Default admission settings with the result cache on, where requests wait on cache loads instead of querying
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = "spring.threads.virtual.enabled=true")
+@ActiveProfiles("test")
+@Testcontainers
+public class CachedLoadSheddingTest {
+
+    // Every query in flight adds this much to each one's latency, like a database running out of headroom
+    private static final long MILLIS_PER_RUNNING_QUERY = 5;
+
+    @Container
+    @SuppressWarnings("resource")
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:16")
+            .withDatabaseName("test-db")
+            .withUsername("test")
+            .withPassword("test")
+            .withInitScript("init_scheme.sql");
+
+    @DynamicPropertySource
+    static void setDatasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.jooq.sql-dialect", () -> "POSTGRES");
+    }
+
+    @Autowired
+    private DSLContext dsl;
+
+    @MockitoSpyBean
+    private AnalyticsRepository analyticsRepository;
+
+    @Autowired
+    private CachedAnalyticsService cachedAnalyticsService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger mostRunning = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        dsl.truncate(ORDER_ITEMS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDERS).restartIdentity().cascade().execute();
+        dsl.truncate(PRODUCTS).restartIdentity().cascade().execute();
+        dsl.truncate(CUSTOMERS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDER_STATUSES).restartIdentity().cascade().execute();
+
+        // Statuses
+        dsl.insertInto(ORDER_STATUSES)
+                .set(ORDER_STATUSES.STATUS_NAME, "Delivered")
+                .execute();
+
+        // Products
+        int p_book = dsl.insertInto(PRODUCTS, PRODUCTS.NAME, PRODUCTS.PRICE, PRODUCTS.CATEGORY)
+                .values("JOOQ Guide", new BigDecimal("25.00"), "Books")
+                .returning(PRODUCTS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test product id"))
+                .getId();
+
+        // Customer
+        int c_user = dsl.insertInto(CUSTOMERS, CUSTOMERS.FIRST_NAME, CUSTOMERS.LAST_NAME, CUSTOMERS.EMAIL, CUSTOMERS.JOIN_DATE)
+                .values("Test", "User", "test@user.com", LocalDate.now())
+                .returning(CUSTOMERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test customer id"))
+                .getId();
+
+        // Orders
+        int o1 = dsl.insertInto(ORDERS, ORDERS.CUSTOMER_ID, ORDERS.ORDER_DATE, ORDERS.STATUS_ID)
+                .values(c_user, LocalDate.now(), 1)
+                .returning(ORDERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test order id"))
+                .getId();
+
+        // Order Items
+        dsl.insertInto(ORDER_ITEMS)
+                .columns(ORDER_ITEMS.ORDER_ID, ORDER_ITEMS.PRODUCT_ID, ORDER_ITEMS.QUANTITY, ORDER_ITEMS.PRICE_AT_PURCHASE)
+                .values(o1, p_book, 4, new BigDecimal("25.00"))
+                .execute();
+
+        doAnswer(invocation -> {
+            int queries = running.incrementAndGet();
+            mostRunning.accumulateAndGet(queries, Math::max);
+            try {
+                Thread.sleep(MILLIS_PER_RUNNING_QUERY * queries);
+                return invocation.callRealMethod();
+            } finally {
+                running.decrementAndGet();
+            }
+        }).when(analyticsRepository).getOrderCountByStatusName(any(DateRangeDTO.class));
+        doAnswer(invocation -> {
+            int queries = running.incrementAndGet();
+            mostRunning.accumulateAndGet(queries, Math::max);
+            try {
+                Thread.sleep(MILLIS_PER_RUNNING_QUERY * queries);
+                return invocation.callRealMethod();
+            } finally {
+                running.decrementAndGet();
+            }
+        }).when(analyticsRepository).getTopSpenders(anyInt(), any(DateRangeDTO.class));
+
+        cachedAnalyticsService.invalidateAll();
+    }
+
+    @Test
+    public void testCacheLoads_QueueInTheLimiterAndShedExpensiveOnes() {
+
+        // Every request asks for its own range, so each one is a load of its own
+        List<CompletableFuture<HttpStatus>> reports = new ArrayList<>();
+        List<CompletableFuture<HttpStatus>> dashboards = new ArrayList<>();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 100; i++) {
+                DateRangeDTO range = new DateRangeDTO(LocalDate.now().minusDays(i + 1), null);
+                reports.add(request(clients, () -> cachedAnalyticsService.getTopSenders(MAX_LIMIT, range)));
+                dashboards.add(request(clients, () -> cachedAnalyticsService.getOrderCountByStatusName(range)));
+            }
+            CompletableFuture.allOf(reports.toArray(CompletableFuture[]::new)).join();
+            CompletableFuture.allOf(dashboards.toArray(CompletableFuture[]::new)).join();
+        }
+
+        // Loads were bounded by the query slots, not by threads to run them on
+        assertThat(mostRunning.get()).isGreaterThan(4).isLessThanOrEqualTo(10);
+
+        assertThat(dashboards).allMatch(status -> status.join() == HttpStatus.OK);
+        assertThat(reports).anyMatch(status -> status.join() == HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(reports).anyMatch(status -> status.join() == HttpStatus.OK);
+        assertThat(meterRegistry.find("analytics.db.admission.rejected").tag("priority", "cheap").counter()).isNull();
+        assertThat(gauge("analytics.db.admission.queued")).isZero();
+    }
+
+    private static CompletableFuture<HttpStatus> request(ExecutorService clients, Supplier<?> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                call.get();
+                return HttpStatus.OK;
+            } catch (ResponseStatusException e) {
+                return HttpStatus.valueOf(e.getStatusCode().value());
+            }
+        }, clients);
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauges().stream().mapToDouble(gauge -> gauge.value()).sum();
+    }
+}
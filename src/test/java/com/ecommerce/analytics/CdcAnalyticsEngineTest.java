@@ -0,0 +1,291 @@
+package com.ecommerce.analytics;
+
+import com.ecommerce.analytics.cdc.CdcAnalyticsEngine;
+import com.ecommerce.analytics.cdc.CdcCheckpointStore;
+import com.ecommerce.analytics.cdc.LiveAggregates;
+import com.ecommerce.analytics.cdc.LogicalReplicationConsumer;
+import com.ecommerce.analytics.dto.*;
+import com.ecommerce.analytics.repository.AnalyticsRepository;
+import org.jooq.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.replication.LogSequenceNumber;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+import static com.ecommerce.analytics.jooq.Tables.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.jooq.impl.DSL.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"app.analytics.engine=cdc", "app.analytics.cdc.checkpoint-interval=100ms"})
+@ActiveProfiles("test")
+@Testcontainers
+public class CdcAnalyticsEngineTest {
+
+    @SuppressWarnings("resource")
+    @Container
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:16")
+            .withDatabaseName("test-db")
+            .withUsername("test")
+            .withPassword("test")
+            .withCommand("postgres", "-c", "wal_level=logical")
+            .withInitScript("init_scheme.sql");
+
+    private static Path checkpointFile;
+
+    @DynamicPropertySource
+    static void setDatasourceProperties(DynamicPropertyRegistry registry) throws IOException {
+        checkpointFile = Files.createTempDirectory("cdc").resolve("checkpoint.bin");
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.jooq.sql-dialect", () -> "POSTGRES");
+        registry.add("app.analytics.cdc.checkpoint-file", checkpointFile::toString);
+    }
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Autowired
+    private AnalyticsRepository analyticsRepository;
+
+    @Autowired
+    private CdcAnalyticsEngine cdcAnalyticsEngine;
+
+    @Autowired
+    private LogicalReplicationConsumer logicalReplicationConsumer;
+
+    @Autowired
+    private CdcCheckpointStore cdcCheckpointStore;
+
+    private int p_laptop;
+    private int p_mouse;
+    private int c_user;
+    private int o1;
+
+    @BeforeEach
+    void setUp() {
+        dsl.truncate(ORDER_ITEMS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDERS).restartIdentity().cascade().execute();
+        dsl.truncate(PRODUCTS).restartIdentity().cascade().execute();
+        dsl.truncate(CUSTOMERS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDER_STATUSES).restartIdentity().cascade().execute();
+
+        // Statuses
+        dsl.insertInto(ORDER_STATUSES)
+                .set(ORDER_STATUSES.STATUS_NAME, "Processing")
+                .execute();
+
+        dsl.insertInto(ORDER_STATUSES)
+                .set(ORDER_STATUSES.STATUS_NAME, "Canceled")
+                .execute();
+
+        dsl.insertInto(ORDER_STATUSES)
+                .set(ORDER_STATUSES.STATUS_NAME, "Delivered")
+                .execute();
+
+        // Products
+        p_laptop = dsl.insertInto(PRODUCTS, PRODUCTS.NAME, PRODUCTS.PRICE, PRODUCTS.CATEGORY)
+                .values("Laptop", new BigDecimal("1000.00"), "Electronics")
+                .returning(PRODUCTS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test product id"))
+                .getId();
+
+        p_mouse = dsl.insertInto(PRODUCTS, PRODUCTS.NAME, PRODUCTS.PRICE, PRODUCTS.CATEGORY)
+                .values("Mouse", new BigDecimal("75.00"), "Electronics")
+                .returning(PRODUCTS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test product id"))
+                .getId();
+
+        int p_book = dsl.insertInto(PRODUCTS, PRODUCTS.NAME, PRODUCTS.PRICE, PRODUCTS.CATEGORY)
+                .values("JOOQ Guide", new BigDecimal("25.00"), "Books")
+                .returning(PRODUCTS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test product id"))
+                .getId();
+
+        // Customer
+        c_user = dsl.insertInto(CUSTOMERS, CUSTOMERS.FIRST_NAME, CUSTOMERS.LAST_NAME, CUSTOMERS.EMAIL, CUSTOMERS.JOIN_DATE)
+                .values("Test", "User", "test@user.com", LocalDate.now())
+                .returning(CUSTOMERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test customer id"))
+                .getId();
+
+        // Orders
+        o1 = dsl.insertInto(ORDERS, ORDERS.CUSTOMER_ID, ORDERS.ORDER_DATE, ORDERS.STATUS_ID)
+                .values(c_user, LocalDate.now(), 2)
+                .returning(ORDERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test order id"))
+                .getId();
+
+        int o2 = dsl.insertInto(ORDERS, ORDERS.CUSTOMER_ID, ORDERS.ORDER_DATE, ORDERS.STATUS_ID)
+                .values(c_user, LocalDate.now(), 3)
+                .returning(ORDERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test order id"))
+                .getId();
+
+        // Order Items
+        dsl.insertInto(ORDER_ITEMS)
+                .columns(ORDER_ITEMS.ORDER_ID, ORDER_ITEMS.PRODUCT_ID, ORDER_ITEMS.QUANTITY, ORDER_ITEMS.PRICE_AT_PURCHASE)
+                .values(o1, p_laptop, 1, new BigDecimal("1000.00"))
+                .values(o1, p_mouse, 2, new BigDecimal("75.00"))
+                .values(o2, p_book, 4, new BigDecimal("25.00"))
+                .execute();
+    }
+
+    @Test
+    public void testEngine_MatchesRepositoryAfterInserts() {
+
+        awaitEngineMatchesRepository();
+
+        assertThat(cdcAnalyticsEngine.getAverageOrderValue().getAverageOrderValue())
+                .isEqualByComparingTo(new BigDecimal("625.00"));
+    }
+
+    @Test
+    public void testEngine_MatchesRepositoryAfterUpdatesAndDeletes() {
+
+        dsl.update(ORDER_ITEMS)
+                .set(ORDER_ITEMS.QUANTITY, 5)
+                .where(ORDER_ITEMS.PRODUCT_ID.eq(p_mouse))
+                .execute();
+
+        dsl.update(PRODUCTS)
+                .set(PRODUCTS.CATEGORY, "Accessories")
+                .where(PRODUCTS.ID.eq(p_mouse))
+                .execute();
+
+        dsl.update(ORDERS)
+                .set(ORDERS.STATUS_ID, 1)
+                .where(ORDERS.ID.eq(o1))
+                .execute();
+
+        dsl.deleteFrom(PRODUCTS)
+                .where(PRODUCTS.ID.eq(p_laptop))
+                .execute();
+
+        awaitEngineMatchesRepository();
+
+        dsl.deleteFrom(ORDERS)
+                .where(ORDERS.ID.eq(o1))
+                .execute();
+
+        dsl.deleteFrom(CUSTOMERS)
+                .where(CUSTOMERS.ID.eq(c_user))
+                .execute();
+
+        awaitEngineMatchesRepository();
+    }
+
+    @Test
+    public void testRestart_ResumesFromCheckpoint() throws IOException {
+
+        awaitEngineMatchesRepository();
+
+        logicalReplicationConsumer.stop();
+
+        LiveAggregates checkpoint = cdcCheckpointStore.read().orElseThrow();
+        String confirmedFlushLsn = dsl.select(field(name("confirmed_flush_lsn"), String.class))
+                .from(table(name("pg_replication_slots")))
+                .where(field(name("slot_name")).eq("analytics_cdc"))
+                .fetchSingle()
+                .value1();
+        assertThat(LogSequenceNumber.valueOf(confirmedFlushLsn).asLong()).isEqualTo(checkpoint.getLastCommitLsn());
+        assertThat(new String(Files.readAllBytes(checkpointFile), StandardCharsets.ISO_8859_1)).doesNotContain("test@user.com");
+
+        // Changes made while the consumer is down are replayed from the slot
+        dsl.insertInto(ORDER_ITEMS)
+                .columns(ORDER_ITEMS.ORDER_ID, ORDER_ITEMS.PRODUCT_ID, ORDER_ITEMS.QUANTITY, ORDER_ITEMS.PRICE_AT_PURCHASE)
+                .values(o1, p_laptop, 3, new BigDecimal("990.00"))
+                .execute();
+
+        logicalReplicationConsumer.start();
+
+        awaitEngineMatchesRepository();
+    }
+
+    @Test
+    public void testUnreadableCheckpoint_BootstrapsAgain() throws IOException {
+
+        awaitEngineMatchesRepository();
+
+        logicalReplicationConsumer.stop();
+        // What a crash mid-copy or a changed LiveAggregates leaves behind
+        Files.write(checkpointFile, new byte[]{(byte) 0xAC, (byte) 0xED, 0, 5, 1, 2});
+
+        dsl.insertInto(ORDER_ITEMS)
+                .columns(ORDER_ITEMS.ORDER_ID, ORDER_ITEMS.PRODUCT_ID, ORDER_ITEMS.QUANTITY, ORDER_ITEMS.PRICE_AT_PURCHASE)
+                .values(o1, p_laptop, 2, new BigDecimal("990.00"))
+                .execute();
+
+        logicalReplicationConsumer.start();
+
+        awaitEngineMatchesRepository();
+        assertThat(cdcCheckpointStore.read()).isPresent();
+    }
+
+    private void awaitEngineMatchesRepository() {
+        await().atMost(Duration.ofSeconds(30)).untilAsserted(() -> {
+            assertThat(cdcAnalyticsEngine.isReady()).isTrue();
+
+            assertThat(cdcAnalyticsEngine.getSalesByCategory()
+                    .stream()
+                    .collect(Collectors.toMap(SalesByCategoryDTO::getCategory, SalesByCategoryDTO::getTotalSales)))
+                    .usingRecursiveComparison()
+                    .withComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                    .isEqualTo(analyticsRepository.getSalesByCategory().intoMap(Record2::value1, Record2::value2));
+
+            assertThat(cdcAnalyticsEngine.getTopSellingProducts(100)
+                    .stream()
+                    .collect(Collectors.toMap(TopSellingProductsDTO::getProductId, TopSellingProductsDTO::getTotalQuantitySold)))
+                    .isEqualTo(analyticsRepository.getTopSellingProducts(100)
+                            .stream()
+                            .collect(Collectors.toMap(Record3::value1, record -> record.value3().longValue())));
+
+            assertThat(cdcAnalyticsEngine.getTopSenders(100)
+                    .stream()
+                    .collect(Collectors.toMap(TopSendersDTO::getCustomerId, TopSendersDTO::getTotalSpend)))
+                    .usingRecursiveComparison()
+                    .withComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                    .isEqualTo(analyticsRepository.getTopSpenders(100).intoMap(Record4::value1, Record4::value4));
+
+            Map<String, Long> statusCounts = cdcAnalyticsEngine.getOrderCountByStatusName()
+                    .stream()
+                    .collect(Collectors.toMap(StatusSummaryDTO::getStatusName, StatusSummaryDTO::getOrderCount));
+            assertThat(statusCounts)
+                    .isEqualTo(analyticsRepository.getOrderCountByStatusName().intoMap(Record2::value1, Record2::value2));
+
+            BigDecimal expectedAverage = analyticsRepository.getAverageOrderValue().value1();
+            BigDecimal average = cdcAnalyticsEngine.getAverageOrderValue().getAverageOrderValue();
+            if (expectedAverage == null) {
+                assertThat(average).isNull();
+            } else {
+                assertThat(average).isEqualByComparingTo(expectedAverage);
+            }
+        });
+    }
+}
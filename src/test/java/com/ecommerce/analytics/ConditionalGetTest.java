@@ -0,0 +1,267 @@
+package com.ecommerce.analytics;
+
+import com.ecommerce.analytics.dto.AnalyticsMetric;
+import com.ecommerce.analytics.dto.DateRangeDTO;
+import com.ecommerce.analytics.repository.AnalyticsRepository;
+import com.ecommerce.analytics.service.AnalyticsEngine;
+import com.ecommerce.analytics.service.AnalyticsService;
+import com.ecommerce.analytics.service.CachedAnalyticsService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.NoSuchElementException;
+
+import static com.ecommerce.analytics.jooq.Tables.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+        properties = {"app.analytics.cache.ttl=1h", "app.analytics.cache.max-stale=2h"})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@Testcontainers
+@WithMockUser
+public class ConditionalGetTest {
+
+    @Container
+    @SuppressWarnings("resource")
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:16")
+            .withDatabaseName("test-db")
+            .withUsername("test")
+            .withPassword("test")
+            .withInitScript("init_scheme.sql");
+
+    @DynamicPropertySource
+    static void setDatasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.jooq.sql-dialect", () -> "POSTGRES");
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DSLContext dsl;
+
+    @MockitoSpyBean
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private CachedAnalyticsService cachedAnalyticsService;
+
+    @Autowired
+    private AnalyticsRepository analyticsRepository;
+
+    @Autowired
+    private ObjectProvider<AnalyticsEngine> analyticsEngine;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private int c_user;
+
+    @BeforeEach
+    void setUp() {
+        // Results cached by an earlier test would be reloaded by the notifications of this setup, counting as queries
+        cachedAnalyticsService.invalidateAll();
+
+        dsl.truncate(ORDER_ITEMS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDERS).restartIdentity().cascade().execute();
+        dsl.truncate(PRODUCTS).restartIdentity().cascade().execute();
+        dsl.truncate(CUSTOMERS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDER_STATUSES).restartIdentity().cascade().execute();
+
+        // Statuses
+        dsl.insertInto(ORDER_STATUSES)
+                .set(ORDER_STATUSES.STATUS_NAME, "Processing")
+                .execute();
+
+        dsl.insertInto(ORDER_STATUSES)
+                .set(ORDER_STATUSES.STATUS_NAME, "Delivered")
+                .execute();
+
+        // Products
+        int p_book = dsl.insertInto(PRODUCTS, PRODUCTS.NAME, PRODUCTS.PRICE, PRODUCTS.CATEGORY)
+                .values("JOOQ Guide", new BigDecimal("25.00"), "Books")
+                .returning(PRODUCTS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test product id"))
+                .getId();
+
+        // Customer
+        c_user = dsl.insertInto(CUSTOMERS, CUSTOMERS.FIRST_NAME, CUSTOMERS.LAST_NAME, CUSTOMERS.EMAIL, CUSTOMERS.JOIN_DATE)
+                .values("Test", "User", "test@user.com", LocalDate.now())
+                .returning(CUSTOMERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test customer id"))
+                .getId();
+
+        // Orders
+        int o1 = dsl.insertInto(ORDERS, ORDERS.CUSTOMER_ID, ORDERS.ORDER_DATE, ORDERS.STATUS_ID)
+                .values(c_user, LocalDate.now(), 2)
+                .returning(ORDERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test order id"))
+                .getId();
+
+        // Order Items
+        dsl.insertInto(ORDER_ITEMS)
+                .columns(ORDER_ITEMS.ORDER_ID, ORDER_ITEMS.PRODUCT_ID, ORDER_ITEMS.QUANTITY, ORDER_ITEMS.PRICE_AT_PURCHASE)
+                .values(o1, p_book, 4, new BigDecimal("25.00"))
+                .execute();
+
+        // Let the notifications sent by the setup go out before anything is cached
+        await().pollDelay(Duration.ofMillis(500)).until(() -> true);
+        cachedAnalyticsService.invalidateAll();
+    }
+
+    @Test
+    public void testUnchangedData_RevalidatesWithoutQuery() throws Exception {
+
+        String eTag = mockMvc.perform(get("/v1/analytics/status-summary"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("max-age=5")))
+                .andExpect(header().string(HttpHeaders.VARY, containsString("X-API-Key")))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/v1/analytics/status-summary").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+
+        // A different date range is a different result with a version of its own
+        mockMvc.perform(get("/v1/analytics/status-summary")
+                        .param("from", LocalDate.now().minusDays(7).toString())
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+
+        verify(analyticsService, times(1)).getOrderCountByStatusName(DateRangeDTO.ALL_TIME);
+        verify(analyticsService, times(2)).getOrderCountByStatusName(any(DateRangeDTO.class));
+    }
+
+    @Test
+    public void testInsert_ChangesETag() throws Exception {
+
+        String eTag = mockMvc.perform(get("/v1/analytics/status-summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Until the notification reloads the entry the old result, and with it the old ETag, is still served
+        dsl.insertInto(ORDERS, ORDERS.CUSTOMER_ID, ORDERS.ORDER_DATE, ORDERS.STATUS_ID)
+                .values(c_user, LocalDate.now(), 1)
+                .execute();
+
+        await().atMost(Duration.ofSeconds(10)).pollInSameThread().untilAsserted(() ->
+                mockMvc.perform(get("/v1/analytics/status-summary").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.length()").value(2)));
+
+        String changed = mockMvc.perform(get("/v1/analytics/status-summary"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(changed).isNotEqualTo(eTag);
+    }
+
+    @Test
+    public void testCachedResult_CountsOneHitPerRequest() throws Exception {
+
+        mockMvc.perform(get("/v1/analytics/status-summary")).andExpect(status().isOk());
+        double hitsBefore = meterRegistry.counter("analytics.cache.requests",
+                "metric", "status_summary", "result", "hit").count();
+
+        mockMvc.perform(get("/v1/analytics/status-summary")).andExpect(status().isOk());
+
+        assertThat(meterRegistry.counter("analytics.cache.requests", "metric", "status_summary", "result", "hit").count()
+                - hitsBefore).isEqualTo(1);
+    }
+
+    @Test
+    public void testChangesWithinOneSecond_StillAdvanceLastModified() throws Exception {
+
+        String lastModified = mockMvc.perform(get("/v1/analytics/status-summary"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+
+        // Two changes back to back, each has to be told apart from the one before at the seconds of an HTTP date
+        for (int i = 0; i < 2; i++) {
+            dsl.insertInto(ORDER_STATUSES)
+                    .set(ORDER_STATUSES.STATUS_NAME, "Shipped " + i)
+                    .execute();
+            String since = lastModified;
+            lastModified = await().atMost(Duration.ofSeconds(5)).pollInSameThread().until(() ->
+                    mockMvc.perform(get("/v1/analytics/status-summary").header(HttpHeaders.IF_MODIFIED_SINCE, since))
+                            .andReturn().getResponse(), response -> response.getStatus() == 200)
+                    .getHeader(HttpHeaders.LAST_MODIFIED);
+        }
+    }
+
+    @Test
+    public void testETag_IsTheSameOnAnotherInstance() {
+
+        // What a second replica, or this one after a restart, tags the same data with
+        CachedAnalyticsService anotherInstance = new CachedAnalyticsService(analyticsService, analyticsRepository,
+                analyticsEngine, new SimpleMeterRegistry(), objectMapper, true, true, true,
+                Duration.ofHours(1), Duration.ofHours(2), 100);
+
+        DateRangeDTO range = new DateRangeDTO(LocalDate.of(2025, 1, 1), null);
+        assertThat(anotherInstance.getVersioned(AnalyticsMetric.TOP_SPENDERS, null, range).eTag())
+                .isEqualTo(cachedAnalyticsService.getVersioned(AnalyticsMetric.TOP_SPENDERS, null, range).eTag())
+                .startsWith("top_spenders:10:2025-01-01::");
+    }
+
+    @Test
+    public void testRepresentations_HaveETagsOfTheirOwn() throws Exception {
+
+        String jsonTag = mockMvc.perform(get("/v1/analytics/status-summary"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        String protobufTag = mockMvc.perform(get("/v1/analytics/status-summary")
+                        .accept("application/x-protobuf")
+                        .header(HttpHeaders.IF_NONE_MATCH, jsonTag))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-protobuf"))
+                .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(protobufTag).isNotEqualTo(jsonTag);
+
+        mockMvc.perform(get("/v1/analytics/status-summary")
+                        .accept("application/x-protobuf")
+                        .header(HttpHeaders.IF_NONE_MATCH, protobufTag))
+                .andExpect(status().isNotModified());
+    }
+}
@@ -0,0 +1,290 @@
+package com.ecommerce.analytics;
+
+import com.ecommerce.analytics.admission.AdmissionPriority;
+import com.ecommerce.analytics.admission.DatabaseAdmissionLimiter;
+import com.ecommerce.analytics.dto.DateRangeDTO;
+import com.ecommerce.analytics.dto.StatusSummaryDTO;
+import com.ecommerce.analytics.repository.AnalyticsRepository;
+import com.ecommerce.analytics.service.ApproximateAnalyticsService;
+import com.ecommerce.analytics.service.CachedAnalyticsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.web.server.ResponseStatusException;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.ecommerce.analytics.jooq.Tables.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.threads.virtual.enabled=true",
+        "app.analytics.cache.enabled=false",
+        "app.analytics.db.max-concurrent-queries=2"
+})
+@ActiveProfiles("test")
+@Testcontainers
+public class DatabaseAdmissionTest {
+
+    @Container
+    @SuppressWarnings("resource")
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:16")
+            .withDatabaseName("test-db")
+            .withUsername("test")
+            .withPassword("test")
+            .withInitScript("init_scheme.sql");
+
+    @DynamicPropertySource
+    static void setDatasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.jooq.sql-dialect", () -> "POSTGRES");
+    }
+
+    @Autowired
+    private DSLContext dsl;
+
+    @MockitoSpyBean
+    private AnalyticsRepository analyticsRepository;
+
+    @Autowired
+    private CachedAnalyticsService cachedAnalyticsService;
+
+    @Autowired
+    private ApproximateAnalyticsService approximateAnalyticsService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        dsl.truncate(ORDER_ITEMS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDERS).restartIdentity().cascade().execute();
+        dsl.truncate(PRODUCTS).restartIdentity().cascade().execute();
+        dsl.truncate(CUSTOMERS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDER_STATUSES).restartIdentity().cascade().execute();
+
+        // Statuses
+        dsl.insertInto(ORDER_STATUSES)
+                .set(ORDER_STATUSES.STATUS_NAME, "Delivered")
+                .execute();
+
+        // Products
+        int p_book = dsl.insertInto(PRODUCTS, PRODUCTS.NAME, PRODUCTS.PRICE, PRODUCTS.CATEGORY)
+                .values("JOOQ Guide", new BigDecimal("25.00"), "Books")
+                .returning(PRODUCTS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test product id"))
+                .getId();
+
+        // Customer
+        int c_user = dsl.insertInto(CUSTOMERS, CUSTOMERS.FIRST_NAME, CUSTOMERS.LAST_NAME, CUSTOMERS.EMAIL, CUSTOMERS.JOIN_DATE)
+                .values("Test", "User", "test@user.com", LocalDate.now())
+                .returning(CUSTOMERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test customer id"))
+                .getId();
+
+        // Orders
+        int o1 = dsl.insertInto(ORDERS, ORDERS.CUSTOMER_ID, ORDERS.ORDER_DATE, ORDERS.STATUS_ID)
+                .values(c_user, LocalDate.now(), 1)
+                .returning(ORDERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test order id"))
+                .getId();
+
+        // Order Items
+        dsl.insertInto(ORDER_ITEMS)
+                .columns(ORDER_ITEMS.ORDER_ID, ORDER_ITEMS.PRODUCT_ID, ORDER_ITEMS.QUANTITY, ORDER_ITEMS.PRICE_AT_PURCHASE)
+                .values(o1, p_book, 4, new BigDecimal("25.00"))
+                .execute();
+    }
+
+    @Test
+    public void testVirtualThreadRequests_NeverExceedQuerySlots() {
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger mostRunning = new AtomicInteger();
+        doAnswer(invocation -> {
+            mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+                return invocation.callRealMethod();
+            } finally {
+                running.decrementAndGet();
+            }
+        }).when(analyticsRepository).getOrderCountByStatusName(any(DateRangeDTO.class));
+
+        double waitsBefore = meterRegistry.timer("analytics.db.admission.wait", "endpoint", "status_summary").count();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<CompletableFuture<List<StatusSummaryDTO>>> responses = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                responses.add(CompletableFuture.supplyAsync(
+                        () -> cachedAnalyticsService.getOrderCountByStatusName(DateRangeDTO.ALL_TIME), clients));
+            }
+
+            responses.forEach(response -> assertThat(response.join())
+                    .extracting(StatusSummaryDTO::getStatusName)
+                    .containsExactly("Delivered"));
+        }
+
+        assertThat(mostRunning.get()).isEqualTo(2);
+        assertThat(meterRegistry.timer("analytics.db.admission.wait", "endpoint", "status_summary").count() - waitsBefore)
+                .isEqualTo(200);
+    }
+
+    @Test
+    public void testLoadedDigests_AnswerWithoutAQuerySlot() {
+
+        approximateAnalyticsService.getOrderValuePercentiles(DateRangeDTO.ALL_TIME);
+        long waitsAfterLoad = meterRegistry.timer("analytics.db.admission.wait", "endpoint", "average_order_value").count();
+
+        for (int i = 0; i < 10; i++) {
+            approximateAnalyticsService.getOrderValuePercentiles(DateRangeDTO.ALL_TIME);
+            approximateAnalyticsService.getOrderValueHistogram(null, DateRangeDTO.ALL_TIME);
+        }
+
+        assertThat(waitsAfterLoad).isPositive();
+        assertThat(meterRegistry.timer("analytics.db.admission.wait", "endpoint", "average_order_value").count())
+                .isEqualTo(waitsAfterLoad);
+    }
+
+    @Test
+    public void testReleasedSlots_GoToEndpointsInTurn() throws Exception {
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DatabaseAdmissionLimiter limiter = new DatabaseAdmissionLimiter(registry, 1, 1, 10, 10, Duration.ofSeconds(10));
+        List<String> admitted = Collections.synchronizedList(new ArrayList<>());
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            CountDownLatch holding = new CountDownLatch(1);
+            CompletableFuture<Void> release = new CompletableFuture<>();
+            clients.submit(() -> limiter.call("sales_by_category", AdmissionPriority.CHEAP, () -> {
+                holding.countDown();
+                release.join();
+                return null;
+            }));
+            holding.await();
+
+            // Three callers of one endpoint queue up before a single caller of another
+            List<String> arrivals = List.of("top_spenders", "top_spenders", "top_spenders", "status_summary");
+            for (int i = 0; i < arrivals.size(); i++) {
+                String endpoint = arrivals.get(i);
+                int waiting = i + 1;
+                clients.submit(() -> limiter.call(endpoint, AdmissionPriority.CHEAP, () -> admitted.add(endpoint)));
+                await().until(() -> queued(registry) == waiting);
+            }
+            release.complete(null);
+        }
+
+        assertThat(admitted).containsExactly("top_spenders", "status_summary", "top_spenders", "top_spenders");
+        assertThat(queued(registry)).isZero();
+    }
+
+    @Test
+    public void testWaitPastMaxQueueTime_IsShedAndLeavesTheQueue() throws Exception {
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DatabaseAdmissionLimiter limiter = new DatabaseAdmissionLimiter(registry, 1, 1, 10, 10, Duration.ofMillis(100));
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            CountDownLatch holding = new CountDownLatch(1);
+            CompletableFuture<Void> release = new CompletableFuture<>();
+            clients.submit(() -> limiter.call("sales_by_category", AdmissionPriority.CHEAP, () -> {
+                holding.countDown();
+                release.join();
+                return null;
+            }));
+            holding.await();
+
+            assertThatThrownBy(() -> limiter.call("status_summary", AdmissionPriority.CHEAP, () -> "too late"))
+                    .isInstanceOfSatisfying(ResponseStatusException.class,
+                            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+            assertThat(queued(registry)).isZero();
+            assertThat(registry.get("analytics.db.admission.rejected").tag("endpoint", "status_summary").counter().count())
+                    .isEqualTo(1);
+
+            release.complete(null);
+        }
+
+        // The slot the shed caller never took is free for the next one
+        assertThat(limiter.call("status_summary", AdmissionPriority.CHEAP, () -> "served")).isEqualTo("served");
+    }
+
+    @Test
+    public void testSustainedSlowdown_ShrinksTheLimitToItsMinimum() {
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DatabaseAdmissionLimiter limiter = new DatabaseAdmissionLimiter(registry, 2, 8, 100, 100, Duration.ofSeconds(10));
+
+        // Fast queries one at a time set the long-run latency without moving the limit
+        for (int i = 0; i < 100; i++) {
+            limiter.call("status_summary", AdmissionPriority.CHEAP, () -> sleep(1));
+        }
+        assertThat(limit(registry)).isEqualTo(8);
+
+        // Then every query takes far longer, for as long as it takes the limit to come down
+        AtomicBoolean slow = new AtomicBoolean(true);
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 8; i++) {
+                clients.submit(() -> {
+                    while (slow.get()) {
+                        limiter.call("status_summary", AdmissionPriority.CHEAP, () -> sleep(30));
+                    }
+                });
+            }
+            try {
+                await().atMost(Duration.ofSeconds(10)).until(() -> limit(registry) == 2);
+            } finally {
+                // Or closing the executor waits on clients that never stop
+                slow.set(false);
+            }
+        }
+    }
+
+    private static Void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private static double limit(MeterRegistry registry) {
+        return registry.get("analytics.db.admission.limit").gauge().value();
+    }
+
+    private static double queued(MeterRegistry registry) {
+        return registry.get("analytics.db.admission.queued").tag("priority", "cheap").gauge().value();
+    }
+}
@@ -0,0 +1,211 @@
+package com.ecommerce.analytics;
+
+import com.ecommerce.analytics.dto.AnalyticsMetric;
+import com.ecommerce.analytics.dto.DateRangeDTO;
+import com.ecommerce.analytics.service.CachedAnalyticsService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+import static com.ecommerce.analytics.jooq.Tables.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+        properties = {"app.analytics.cache.ttl=1h", "app.analytics.cache.max-stale=2h"})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@Testcontainers
+@WithMockUser
+public class EncodedBodyCacheTest {
+
+    // Enough categories for the sales by category body to pass the gzip threshold
+    private static final int CATEGORIES = 40;
+
+    @Container
+    @SuppressWarnings("resource")
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:16")
+            .withDatabaseName("test-db")
+            .withUsername("test")
+            .withPassword("test")
+            .withInitScript("init_scheme.sql");
+
+    @DynamicPropertySource
+    static void setDatasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.jooq.sql-dialect", () -> "POSTGRES");
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CachedAnalyticsService cachedAnalyticsService;
+
+    @BeforeEach
+    void setUp() {
+        dsl.truncate(ORDER_ITEMS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDERS).restartIdentity().cascade().execute();
+        dsl.truncate(PRODUCTS).restartIdentity().cascade().execute();
+        dsl.truncate(CUSTOMERS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDER_STATUSES).restartIdentity().cascade().execute();
+
+        // Statuses
+        dsl.insertInto(ORDER_STATUSES)
+                .set(ORDER_STATUSES.STATUS_NAME, "Delivered")
+                .execute();
+
+        // Customer
+        int c_user = dsl.insertInto(CUSTOMERS, CUSTOMERS.FIRST_NAME, CUSTOMERS.LAST_NAME, CUSTOMERS.EMAIL, CUSTOMERS.JOIN_DATE)
+                .values("Test", "User", "test@user.com", LocalDate.now())
+                .returning(CUSTOMERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test customer id"))
+                .getId();
+
+        // Orders
+        int o1 = dsl.insertInto(ORDERS, ORDERS.CUSTOMER_ID, ORDERS.ORDER_DATE, ORDERS.STATUS_ID)
+                .values(c_user, LocalDate.now(), 1)
+                .returning(ORDERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test order id"))
+                .getId();
+
+        // One product per category, each bought once
+        for (int i = 0; i < CATEGORIES; i++) {
+            int productId = dsl.insertInto(PRODUCTS, PRODUCTS.NAME, PRODUCTS.PRICE, PRODUCTS.CATEGORY)
+                    .values("Product " + i, new BigDecimal("10.00"), "Category number " + i)
+                    .returning(PRODUCTS.ID)
+                    .fetchOptional()
+                    .orElseThrow(() -> new NoSuchElementException("Fail to get new test product id"))
+                    .getId();
+            dsl.insertInto(ORDER_ITEMS)
+                    .columns(ORDER_ITEMS.ORDER_ID, ORDER_ITEMS.PRODUCT_ID, ORDER_ITEMS.QUANTITY, ORDER_ITEMS.PRICE_AT_PURCHASE)
+                    .values(o1, productId, 1, new BigDecimal("10.00"))
+                    .execute();
+        }
+
+        // Let the notifications sent by the setup go out before anything is cached
+        await().pollDelay(Duration.ofMillis(500)).until(() -> true);
+        cachedAnalyticsService.invalidateAll();
+    }
+
+    @Test
+    public void testHits_WriteTheBytesEncodedOnce() throws Exception {
+
+        MockHttpServletResponse first = mockMvc.perform(get("/v1/analytics/sales-by-category"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(jsonPath("$.length()").value(CATEGORIES))
+                .andReturn().getResponse();
+
+        byte[] expected = objectMapper.writeValueAsBytes(cachedAnalyticsService.getSalesByCategory(DateRangeDTO.ALL_TIME));
+        assertThat(first.getContentAsByteArray()).isEqualTo(expected);
+        assertThat(first.getContentLength()).isEqualTo(expected.length);
+
+        byte[] encoded = cachedAnalyticsService.getEncoded(AnalyticsMetric.SALES_BY_CATEGORY, null, DateRangeDTO.ALL_TIME)
+                .result().json();
+        assertThat(cachedAnalyticsService.getEncoded(AnalyticsMetric.SALES_BY_CATEGORY, null, DateRangeDTO.ALL_TIME)
+                .result().json()).isSameAs(encoded);
+
+        // A reloaded result is encoded anew
+        cachedAnalyticsService.invalidateAll();
+        assertThat(cachedAnalyticsService.getEncoded(AnalyticsMetric.SALES_BY_CATEGORY, null, DateRangeDTO.ALL_TIME)
+                .result().json()).isNotSameAs(encoded).isEqualTo(expected);
+    }
+
+    @Test
+    public void testAcceptEncoding_GzipsLargeBodies() throws Exception {
+
+        MockHttpServletResponse identity = mockMvc.perform(get("/v1/analytics/sales-by-category"))
+                .andReturn().getResponse();
+        byte[] plain = identity.getContentAsByteArray();
+
+        MockHttpServletResponse gzipped = mockMvc.perform(get("/v1/analytics/sales-by-category")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip, br"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT_ENCODING)))
+                .andExpect(header().string(HttpHeaders.VARY, containsString("X-API-Key")))
+                .andReturn().getResponse();
+
+        byte[] body = gzipped.getContentAsByteArray();
+        assertThat(gzipped.getContentLength()).isEqualTo(body.length);
+        assertThat(body.length).isLessThan(plain.length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertThat(in.readAllBytes()).isEqualTo(plain);
+        }
+
+        // Other bytes, so another strong tag, and each revalidates only the encoding it was sent with
+        String gzipTag = gzipped.getHeader(HttpHeaders.ETAG);
+        assertThat(gzipTag).endsWith("-json-gz\"").isNotEqualTo(identity.getHeader(HttpHeaders.ETAG));
+        mockMvc.perform(get("/v1/analytics/sales-by-category")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, gzipTag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/v1/analytics/sales-by-category").header(HttpHeaders.IF_NONE_MATCH, gzipTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, identity.getHeader(HttpHeaders.ETAG)));
+
+        mockMvc.perform(get("/v1/analytics/sales-by-category").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+
+        // A single status row is not worth compressing
+        mockMvc.perform(get("/v1/analytics/status-summary").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(jsonPath("$[0].orderCount").value(1));
+    }
+
+    @Test
+    public void testOtherMediaTypes_AreStillNegotiated() throws Exception {
+
+        mockMvc.perform(get("/v1/analytics/top-spenders").accept("application/x-protobuf"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-protobuf"));
+
+        mockMvc.perform(get("/v1/analytics/top-spenders").accept(MediaType.TEXT_HTML))
+                .andExpect(status().isNotAcceptable());
+
+        mockMvc.perform(get("/v1/analytics/top-spenders").accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].totalSpend").value(400.0));
+    }
+}
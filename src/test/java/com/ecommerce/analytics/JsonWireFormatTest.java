@@ -0,0 +1,103 @@
+package com.ecommerce.analytics;
+
+import com.ecommerce.analytics.dto.*;
+import com.fasterxml.jackson.core.json.JsonWriteFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.JsonTest;
+import org.springframework.core.io.ClassPathResource;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The golden files hold what the list endpoints wrote before their rows got hand-written serializers, every byte
+// of the JSON clients parse has to stay as it was. Only the Jackson configuration is started, no database
+@JsonTest
+public class JsonWireFormatTest {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void testSalesByCategory_MatchesGoldenFile() throws Exception {
+
+        assertMatchesGoldenFile("golden/sales-by-category.json", List.of(
+                new SalesByCategoryDTO("Electronics", 115000),
+                new SalesByCategoryDTO("Books & \"Media\"", 5),
+                new SalesByCategoryDTO("Zoë's Garden ✿", 0),
+                new SalesByCategoryDTO("Refunds", -50),
+                new SalesByCategoryDTO("Chargebacks", -12345),
+                new SalesByCategoryDTO(null, Long.MAX_VALUE),
+                new SalesByCategoryDTO("", Long.MIN_VALUE)));
+    }
+
+    @Test
+    public void testTopSpenders_MatchesGoldenFile() throws Exception {
+
+        assertMatchesGoldenFile("golden/top-spenders.json", List.of(
+                new TopSendersDTO(1, "ada@example.com", "Ada Lovelace", 110000),
+                new TopSendersDTO(2, "tab\there@example.com", "</script> \\ \u0001", 99),
+                new TopSendersDTO(3, "zoe@example.com", "Zoë 😀 Ångström", 100),
+                new TopSendersDTO(null, null, null, -1)));
+    }
+
+    @Test
+    public void testTopSellingProducts_MatchesGoldenFile() throws Exception {
+
+        assertMatchesGoldenFile("golden/top-selling-products.json", List.of(
+                new TopSellingProductsDTO(7, "Laptop", 4L),
+                new TopSellingProductsDTO(Integer.MAX_VALUE, "Über \"Mouse\"", Long.MAX_VALUE),
+                new TopSellingProductsDTO(null, null, null)));
+    }
+
+    @Test
+    public void testStatusSummary_MatchesGoldenFile() throws Exception {
+
+        assertMatchesGoldenFile("golden/status-summary.json", List.of(
+                new StatusSummaryDTO("Delivered", 1L),
+                new StatusSummaryDTO("Canceled", 0L),
+                new StatusSummaryDTO(null, null)));
+    }
+
+    @Test
+    public void testProductRankByCategory_MatchesGoldenFile() throws Exception {
+
+        assertMatchesGoldenFile("golden/product-rank-by-category.json", List.of(
+                new ProductRankByCategoryDTO(1, "Laptop", "Electronics", new BigDecimal("12"), 1),
+                new ProductRankByCategoryDTO(2, "Mouse", "Electronics", new BigDecimal("1E+3"), 2),
+                new ProductRankByCategoryDTO(3, "Guide", "Books", new BigDecimal("0.50"), 1),
+                new ProductRankByCategoryDTO(null, null, null, null, null)));
+    }
+
+    @Test
+    public void testEmptyLists_AreEmptyArrays() throws Exception {
+
+        assertThat(objectMapper.writeValueAsString(List.<SalesByCategoryDTO>of())).isEqualTo("[]");
+        assertThat(objectMapper.writeValueAsString(List.<TopSendersDTO>of())).isEqualTo("[]");
+    }
+
+    @Test
+    public void testNumbersAsStrings_QuotesCents() throws Exception {
+
+        String json = objectMapper.writer()
+                .with(JsonWriteFeature.WRITE_NUMBERS_AS_STRINGS)
+                .writeValueAsString(List.of(
+                        new SalesByCategoryDTO("Electronics", 115000),
+                        new SalesByCategoryDTO("Refunds", -50)));
+
+        assertThat(json).isEqualTo("[{\"category\":\"Electronics\",\"totalSales\":\"1150.00\"},"
+                + "{\"category\":\"Refunds\",\"totalSales\":\"-0.50\"}]");
+    }
+
+    private void assertMatchesGoldenFile(String path, List<?> rows) throws Exception {
+        byte[] expected = new ClassPathResource(path).getContentAsByteArray();
+        byte[] actual = objectMapper.writeValueAsBytes(rows);
+        // Compared as text first for a readable diff, then as bytes since that is the promise
+        assertThat(new String(actual, StandardCharsets.UTF_8)).isEqualTo(new String(expected, StandardCharsets.UTF_8));
+        assertThat(actual).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,207 @@
+package com.ecommerce.analytics;
+
+import com.ecommerce.analytics.dto.DateRangeDTO;
+import com.ecommerce.analytics.repository.AnalyticsRepository;
+import com.ecommerce.analytics.service.CachedAnalyticsService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.web.server.ResponseStatusException;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import static com.ecommerce.analytics.constants.AnalyticsConstants.MAX_LIMIT;
+import static com.ecommerce.analytics.jooq.Tables.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.threads.virtual.enabled=true",
+        "app.analytics.cache.enabled=false",
+        "app.analytics.db.max-concurrent-queries=8",
+        "app.analytics.db.admission.min-limit=1",
+        "app.analytics.db.admission.max-queued-expensive=4"
+})
+@ActiveProfiles("test")
+@Testcontainers
+public class LoadSheddingTest {
+
+    // Every query in flight adds this much to each one's latency, like a database running out of headroom
+    private static final long MILLIS_PER_RUNNING_QUERY = 5;
+
+    @Container
+    @SuppressWarnings("resource")
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:16")
+            .withDatabaseName("test-db")
+            .withUsername("test")
+            .withPassword("test")
+            .withInitScript("init_scheme.sql");
+
+    @DynamicPropertySource
+    static void setDatasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.jooq.sql-dialect", () -> "POSTGRES");
+    }
+
+    @Autowired
+    private DSLContext dsl;
+
+    @MockitoSpyBean
+    private AnalyticsRepository analyticsRepository;
+
+    @Autowired
+    private CachedAnalyticsService cachedAnalyticsService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        dsl.truncate(ORDER_ITEMS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDERS).restartIdentity().cascade().execute();
+        dsl.truncate(PRODUCTS).restartIdentity().cascade().execute();
+        dsl.truncate(CUSTOMERS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDER_STATUSES).restartIdentity().cascade().execute();
+
+        // Statuses
+        dsl.insertInto(ORDER_STATUSES)
+                .set(ORDER_STATUSES.STATUS_NAME, "Delivered")
+                .execute();
+
+        // Products
+        int p_book = dsl.insertInto(PRODUCTS, PRODUCTS.NAME, PRODUCTS.PRICE, PRODUCTS.CATEGORY)
+                .values("JOOQ Guide", new BigDecimal("25.00"), "Books")
+                .returning(PRODUCTS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test product id"))
+                .getId();
+
+        // Customer
+        int c_user = dsl.insertInto(CUSTOMERS, CUSTOMERS.FIRST_NAME, CUSTOMERS.LAST_NAME, CUSTOMERS.EMAIL, CUSTOMERS.JOIN_DATE)
+                .values("Test", "User", "test@user.com", LocalDate.now())
+                .returning(CUSTOMERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test customer id"))
+                .getId();
+
+        // Orders
+        int o1 = dsl.insertInto(ORDERS, ORDERS.CUSTOMER_ID, ORDERS.ORDER_DATE, ORDERS.STATUS_ID)
+                .values(c_user, LocalDate.now(), 1)
+                .returning(ORDERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test order id"))
+                .getId();
+
+        // Order Items
+        dsl.insertInto(ORDER_ITEMS)
+                .columns(ORDER_ITEMS.ORDER_ID, ORDER_ITEMS.PRODUCT_ID, ORDER_ITEMS.QUANTITY, ORDER_ITEMS.PRICE_AT_PURCHASE)
+                .values(o1, p_book, 4, new BigDecimal("25.00"))
+                .execute();
+
+        doAnswer(invocation -> {
+            int queries = running.incrementAndGet();
+            try {
+                Thread.sleep(MILLIS_PER_RUNNING_QUERY * queries);
+                return invocation.callRealMethod();
+            } finally {
+                running.decrementAndGet();
+            }
+        }).when(analyticsRepository).getOrderCountByStatusName(any(DateRangeDTO.class));
+        doAnswer(invocation -> {
+            int queries = running.incrementAndGet();
+            try {
+                Thread.sleep(MILLIS_PER_RUNNING_QUERY * queries);
+                return invocation.callRealMethod();
+            } finally {
+                running.decrementAndGet();
+            }
+        }).when(analyticsRepository).getTopSpenders(anyInt(), any(DateRangeDTO.class));
+    }
+
+    @Test
+    public void testBigReport_ShedsExpensiveQueriesWhileCheapOnesFlow() {
+
+        // Quiet traffic first, so the limiter knows what latency an unloaded database has
+        for (int i = 0; i < 100; i++) {
+            cachedAnalyticsService.getOrderCountByStatusName(DateRangeDTO.ALL_TIME);
+        }
+        assertThat(gauge("analytics.db.admission.limit")).isEqualTo(8);
+
+        // A report fans out top spenders at the largest limit while dashboards keep polling the status summary
+        List<CompletableFuture<HttpStatus>> reports = new ArrayList<>();
+        List<CompletableFuture<HttpStatus>> dashboards = new ArrayList<>();
+        AtomicInteger lowestLimit = new AtomicInteger(Integer.MAX_VALUE);
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?> sampling = clients.submit(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    lowestLimit.accumulateAndGet((int) gauge("analytics.db.admission.limit"), Math::min);
+                    LockSupport.parkNanos(Duration.ofMillis(1).toNanos());
+                }
+            });
+            for (int i = 0; i < 100; i++) {
+                reports.add(request(clients, () -> cachedAnalyticsService.getTopSenders(MAX_LIMIT, DateRangeDTO.ALL_TIME)));
+                dashboards.add(request(clients, () -> cachedAnalyticsService.getOrderCountByStatusName(DateRangeDTO.ALL_TIME)));
+            }
+            CompletableFuture.allOf(reports.toArray(CompletableFuture[]::new)).join();
+            CompletableFuture.allOf(dashboards.toArray(CompletableFuture[]::new)).join();
+            sampling.cancel(true);
+        }
+
+        assertThat(dashboards).allMatch(status -> status.join() == HttpStatus.OK);
+        assertThat(reports).anyMatch(status -> status.join() == HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(reports).anyMatch(status -> status.join() == HttpStatus.OK);
+
+        assertThat(meterRegistry.find("analytics.db.admission.rejected").tag("priority", "cheap").counter()).isNull();
+        Counter rejected = meterRegistry.get("analytics.db.admission.rejected").tag("endpoint", "top_spenders").counter();
+        assertThat(rejected.count()).isEqualTo(reports.stream().filter(status -> status.join() != HttpStatus.OK).count());
+
+        // Latency climbed with every query let in, so the limit came down from the pool size
+        assertThat(lowestLimit.get()).isLessThan(8);
+        assertThat(gauge("analytics.db.admission.queued")).isZero();
+    }
+
+    private static CompletableFuture<HttpStatus> request(ExecutorService clients, Supplier<?> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                call.get();
+                return HttpStatus.OK;
+            } catch (ResponseStatusException e) {
+                return HttpStatus.valueOf(e.getStatusCode().value());
+            }
+        }, clients);
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauges().stream().mapToDouble(gauge -> gauge.value()).sum();
+    }
+}
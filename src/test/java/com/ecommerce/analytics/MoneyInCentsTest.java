@@ -0,0 +1,149 @@
+package com.ecommerce.analytics;
+
+import com.ecommerce.analytics.dto.DateRangeDTO;
+import com.ecommerce.analytics.dto.SalesByCategoryDTO;
+import com.ecommerce.analytics.dto.TopSendersDTO;
+import com.ecommerce.analytics.repository.AnalyticsRepository;
+import com.ecommerce.analytics.repository.RollupRepository;
+import com.ecommerce.analytics.seed.BulkDataGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+import static com.ecommerce.analytics.jooq.Tables.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "app.analytics.cents-columns.enabled=true")
+@ActiveProfiles("test")
+@Testcontainers
+public class MoneyInCentsTest {
+
+    private static final LocalDate END_DATE = LocalDate.of(2025, 6, 30);
+    private static final DateRangeDTO LAST_MONTH = new DateRangeDTO(END_DATE.minusDays(29), END_DATE);
+
+    @SuppressWarnings("resource")
+    @Container
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:16")
+            .withDatabaseName("test-db")
+            .withUsername("test")
+            .withPassword("test")
+            .withInitScript("init_scheme.sql");
+
+    @DynamicPropertySource
+    static void setDatasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.jooq.sql-dialect", () -> "POSTGRES");
+    }
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Autowired
+    private AnalyticsRepository analyticsRepository;
+
+    @Autowired
+    private BulkDataGenerator bulkDataGenerator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Safe to run again, so every test can start from it
+        String script = new ClassPathResource("db/money_in_cents.sql").getContentAsString(StandardCharsets.UTF_8);
+        dsl.connection(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(script);
+            }
+        });
+        bulkDataGenerator.generate(0.001, 42, END_DATE);
+    }
+
+    // Other tests may share the database and insert fractional prices
+    @AfterEach
+    void tearDown() {
+        dsl.execute("""
+                ALTER TABLE products DROP CONSTRAINT products_price_whole_cents, DROP COLUMN price_cents;
+                ALTER TABLE order_items DROP CONSTRAINT order_items_price_at_purchase_whole_cents,
+                    DROP COLUMN price_at_purchase_cents;
+                ALTER TABLE daily_product_sales DROP COLUMN sales_cents;
+                ALTER TABLE daily_category_sales DROP COLUMN sales_cents;
+                ALTER TABLE daily_customer_spend DROP COLUMN spend_cents;
+                """);
+    }
+
+    @Test
+    public void testCentsColumns_SumToTheSameMoneyAsNumeric() {
+
+        RollupRepository numericRollups = new RollupRepository(dsl, false);
+        AnalyticsRepository numericRollupPath = new AnalyticsRepository(dsl, numericRollups, true, false, false);
+        AnalyticsRepository numericRawPath = new AnalyticsRepository(dsl, numericRollups, false, false, false);
+        AnalyticsRepository centsRawPath = new AnalyticsRepository(dsl, new RollupRepository(dsl, true), false, false, true);
+
+        for (DateRangeDTO range : new DateRangeDTO[]{DateRangeDTO.ALL_TIME, LAST_MONTH}) {
+            var salesByCategory = analyticsRepository.getSalesByCategory(range);
+            assertThat(salesByCategory).isNotEmpty();
+            assertThat(salesByCategory).isEqualTo(numericRollupPath.getSalesByCategory(range));
+            assertThat(salesByCategory).isEqualTo(numericRawPath.getSalesByCategory(range));
+            assertThat(salesByCategory).isEqualTo(centsRawPath.getSalesByCategory(range));
+
+            var topSpenders = analyticsRepository.getTopSpenders(20, range);
+            assertThat(topSpenders).isNotEmpty();
+            assertThat(topSpenders).isEqualTo(numericRollupPath.getTopSpenders(20, range));
+            assertThat(topSpenders).isEqualTo(numericRawPath.getTopSpenders(20, range));
+            assertThat(topSpenders).isEqualTo(centsRawPath.getTopSpenders(20, range));
+        }
+    }
+
+    @Test
+    public void testFractionalCents_AreRejected() {
+
+        int productId = dsl.select(PRODUCTS.ID).from(PRODUCTS).limit(1).fetchSingle(PRODUCTS.ID);
+
+        assertThatThrownBy(() -> dsl.update(PRODUCTS)
+                .set(PRODUCTS.PRICE, new BigDecimal("19.995"))
+                .where(PRODUCTS.ID.eq(productId))
+                .execute())
+                .isInstanceOf(DataIntegrityViolationException.class)
+                .hasMessageContaining("products_price_whole_cents");
+
+        // A trailing zero is still whole cents
+        dsl.update(PRODUCTS)
+                .set(PRODUCTS.PRICE, new BigDecimal("19.990"))
+                .where(PRODUCTS.ID.eq(productId))
+                .execute();
+        assertThat(dsl.fetchValue("SELECT price_cents FROM products WHERE id = {0}", productId)).isEqualTo(1999L);
+    }
+
+    @Test
+    public void testCents_AreWrittenAsDecimals() throws Exception {
+
+        assertThat(objectMapper.writeValueAsString(new SalesByCategoryDTO("Books", 115005)))
+                .isEqualTo("{\"category\":\"Books\",\"totalSales\":1150.05}");
+        assertThat(objectMapper.writeValueAsString(new TopSendersDTO(1, "a@b.c", "A B", -50)))
+                .isEqualTo("{\"customerId\":1,\"email\":\"a@b.c\",\"fullName\":\"A B\",\"totalSpend\":-0.50}");
+        assertThat(objectMapper.writeValueAsString(new TopSendersDTO(1, "a@b.c", "A B", -12345)))
+                .contains("\"totalSpend\":-123.45");
+    }
+}
@@ -0,0 +1,309 @@
+package com.ecommerce.analytics;
+
+import com.ecommerce.analytics.ingest.OrderBatchWriter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.ecommerce.analytics.jooq.Tables.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+        properties = {"app.ingest.queue-capacity=4", "app.ingest.batch-size=2", "app.ingest.max-latency=20ms",
+                "app.ingest.retry-after=3s"})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@Testcontainers
+@WithMockUser
+public class OrderIngestionTest {
+
+    @Container
+    @SuppressWarnings("resource")
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:16")
+            .withDatabaseName("test-db")
+            .withUsername("test")
+            .withPassword("test")
+            .withInitScript("init_scheme.sql");
+
+    @DynamicPropertySource
+    static void setDatasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.jooq.sql-dialect", () -> "POSTGRES");
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockitoSpyBean
+    private OrderBatchWriter batchWriter;
+
+    private int c_user;
+    private int p_laptop;
+    private int p_book;
+
+    @BeforeEach
+    void setUp() {
+        dsl.truncate(ORDER_ITEMS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDERS).restartIdentity().cascade().execute();
+        dsl.truncate(PRODUCTS).restartIdentity().cascade().execute();
+        dsl.truncate(CUSTOMERS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDER_STATUSES).restartIdentity().cascade().execute();
+
+        // Statuses
+        dsl.insertInto(ORDER_STATUSES)
+                .set(ORDER_STATUSES.STATUS_NAME, "Processing")
+                .execute();
+
+        // Products
+        p_laptop = dsl.insertInto(PRODUCTS, PRODUCTS.NAME, PRODUCTS.PRICE, PRODUCTS.CATEGORY)
+                .values("Laptop", new BigDecimal("1000.00"), "Electronics")
+                .returning(PRODUCTS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test product id"))
+                .getId();
+
+        p_book = dsl.insertInto(PRODUCTS, PRODUCTS.NAME, PRODUCTS.PRICE, PRODUCTS.CATEGORY)
+                .values("JOOQ Guide", new BigDecimal("25.00"), "Books")
+                .returning(PRODUCTS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test product id"))
+                .getId();
+
+        // Customer
+        c_user = dsl.insertInto(CUSTOMERS, CUSTOMERS.FIRST_NAME, CUSTOMERS.LAST_NAME, CUSTOMERS.EMAIL, CUSTOMERS.JOIN_DATE)
+                .values("Ivan", "Ivanov", "ivan@test.com", LocalDate.now())
+                .returning(CUSTOMERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test customer id"))
+                .getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reset(batchWriter);
+    }
+
+    @Test
+    void acceptedOrdersAreWrittenWithExactPricesAndRollups() throws Exception {
+        String body = """
+                [
+                  {"customerId": %d, "orderDate": "2025-01-15", "statusId": 1,
+                   "items": [{"productId": %d, "quantity": 1, "priceAtPurchase": 999.995},
+                             {"productId": %d, "quantity": 3, "priceAtPurchase": 0.00001}]},
+                  {"orderDate": "2025-01-16", "statusId": 1,
+                   "items": [{"productId": %d, "quantity": 2, "priceAtPurchase": 123456789.12}]}
+                ]
+                """.formatted(c_user, p_laptop, p_book, p_book);
+
+        mockMvc.perform(post("/v1/ingest/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.acceptedOrders").value(2));
+
+        await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> assertThat(dsl.fetchCount(ORDER_ITEMS)).isEqualTo(3));
+
+        assertThat(dsl.fetchCount(ORDERS, ORDERS.CUSTOMER_ID.isNull())).isEqualTo(1);
+        assertThat(dsl.select(ORDER_ITEMS.PRICE_AT_PURCHASE).from(ORDER_ITEMS).orderBy(ORDER_ITEMS.ID)
+                .fetch(ORDER_ITEMS.PRICE_AT_PURCHASE))
+                .containsExactly(new BigDecimal("999.995"), new BigDecimal("0.00001"), new BigDecimal("123456789.12"));
+
+        // Rollup triggers fire for COPY as they do for INSERT
+        assertThat(dsl.select(DAILY_PRODUCT_SALES.SALES).from(DAILY_PRODUCT_SALES)
+                .where(DAILY_PRODUCT_SALES.PRODUCT_ID.eq(p_book))
+                .and(DAILY_PRODUCT_SALES.SALES_DATE.eq(LocalDate.parse("2025-01-16")))
+                .fetchOne(DAILY_PRODUCT_SALES.SALES))
+                .isEqualByComparingTo("246913578.24");
+
+        // The next plain insert must not collide with the ids drawn for the batch
+        int nextId = dsl.insertInto(ORDERS, ORDERS.ORDER_DATE, ORDERS.STATUS_ID)
+                .values(LocalDate.parse("2025-01-17"), 1)
+                .returning(ORDERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test order id"))
+                .getId();
+        assertThat(nextId).isEqualTo(3);
+    }
+
+    @Test
+    void fullQueueAnswersTooManyRequests() throws Exception {
+        CountDownLatch released = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            released.await(10, TimeUnit.SECONDS);
+            return invocation.callRealMethod();
+        }).when(batchWriter).write(any());
+
+        String twoOrders = """
+                [
+                  {"customerId": %d, "orderDate": "2025-01-15", "statusId": 1,
+                   "items": [{"productId": %d, "quantity": 1, "priceAtPurchase": 10}]},
+                  {"customerId": %d, "orderDate": "2025-01-15", "statusId": 1,
+                   "items": [{"productId": %d, "quantity": 1, "priceAtPurchase": 10}]}
+                ]
+                """.formatted(c_user, p_book, c_user, p_book);
+
+        try {
+            mockMvc.perform(post("/v1/ingest/orders").contentType(MediaType.APPLICATION_JSON).content(twoOrders))
+                    .andExpect(status().isAccepted());
+            mockMvc.perform(post("/v1/ingest/orders").contentType(MediaType.APPLICATION_JSON).content(twoOrders))
+                    .andExpect(status().isAccepted());
+
+            mockMvc.perform(post("/v1/ingest/orders").contentType(MediaType.APPLICATION_JSON).content(twoOrders))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().string("Retry-After", "3"));
+        } finally {
+            released.countDown();
+        }
+
+        await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> assertThat(dsl.fetchCount(ORDERS)).isEqualTo(4));
+    }
+
+    @Test
+    void unknownReferencesAreRejected() throws Exception {
+        String unknownProduct = """
+                [
+                  {"customerId": %d, "orderDate": "2025-01-15", "statusId": 1,
+                   "items": [{"productId": %d, "quantity": 1, "priceAtPurchase": 10}]},
+                  {"customerId": %d, "orderDate": "2025-01-15", "statusId": 1,
+                   "items": [{"productId": 9999, "quantity": 1, "priceAtPurchase": 10}]}
+                ]
+                """.formatted(c_user, p_book, c_user);
+        mockMvc.perform(post("/v1/ingest/orders").contentType(MediaType.APPLICATION_JSON).content(unknownProduct))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/v1/ingest/orders").contentType(MediaType.APPLICATION_JSON).content("""
+                        [{"customerId": 9999, "orderDate": "2025-01-15", "statusId": 1,
+                          "items": [{"productId": %d, "quantity": 1, "priceAtPurchase": 10}]}]
+                        """.formatted(p_book)))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/v1/ingest/orders").contentType(MediaType.APPLICATION_JSON).content("""
+                        [{"orderDate": "2025-01-15", "statusId": 99,
+                          "items": [{"productId": %d, "quantity": 1, "priceAtPurchase": 10}]}]
+                        """.formatted(p_book)))
+                .andExpect(status().isBadRequest());
+
+        verify(batchWriter, never()).write(any());
+    }
+
+    @Test
+    void orderRejectedByTheDatabaseIsDroppedAlone() throws Exception {
+        double failedBefore = meterRegistry.counter("analytics.ingest.orders", "result", "failed").count();
+
+        // The laptop goes away between the request and the write
+        AtomicBoolean deleted = new AtomicBoolean();
+        doAnswer(invocation -> {
+            if (deleted.compareAndSet(false, true)) {
+                dsl.deleteFrom(PRODUCTS).where(PRODUCTS.ID.eq(p_laptop)).execute();
+            }
+            return invocation.callRealMethod();
+        }).when(batchWriter).write(any());
+
+        String body = """
+                [
+                  {"customerId": %d, "orderDate": "2025-01-15", "statusId": 1,
+                   "items": [{"productId": %d, "quantity": 1, "priceAtPurchase": 10}]},
+                  {"customerId": %d, "orderDate": "2025-01-15", "statusId": 1,
+                   "items": [{"productId": %d, "quantity": 1, "priceAtPurchase": 10}]}
+                ]
+                """.formatted(c_user, p_book, c_user, p_laptop);
+
+        mockMvc.perform(post("/v1/ingest/orders").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isAccepted());
+
+        await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> assertThat(meterRegistry.counter("analytics.ingest.orders", "result", "failed").count())
+                        .isEqualTo(failedBefore + 1));
+
+        assertThat(dsl.fetchCount(ORDERS)).isEqualTo(1);
+        assertThat(dsl.fetchCount(ORDER_ITEMS, ORDER_ITEMS.PRODUCT_ID.eq(p_book))).isEqualTo(1);
+    }
+
+    @Test
+    void transientFailuresRetryTheWholeBatch() throws Exception {
+        double failedBefore = meterRegistry.counter("analytics.ingest.orders", "result", "failed").count();
+
+        doThrow(new SQLTransientConnectionException("Connection is not available, request timed out"))
+                .doThrow(new SQLException("An I/O error occurred while sending to the backend", "08006"))
+                .doCallRealMethod()
+                .when(batchWriter).write(any());
+
+        String body = """
+                [
+                  {"customerId": %d, "orderDate": "2025-01-15", "statusId": 1,
+                   "items": [{"productId": %d, "quantity": 1, "priceAtPurchase": 10}]},
+                  {"customerId": %d, "orderDate": "2025-01-15", "statusId": 1,
+                   "items": [{"productId": %d, "quantity": 1, "priceAtPurchase": 10}]}
+                ]
+                """.formatted(c_user, p_book, c_user, p_laptop);
+
+        mockMvc.perform(post("/v1/ingest/orders").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isAccepted());
+
+        await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> assertThat(dsl.fetchCount(ORDERS)).isEqualTo(2));
+
+        verify(batchWriter, times(3)).write(argThat(orders -> orders.size() == 2));
+        assertThat(meterRegistry.counter("analytics.ingest.orders", "result", "failed").count()).isEqualTo(failedBefore);
+    }
+
+    @Test
+    void invalidOrdersAreRejected() throws Exception {
+        mockMvc.perform(post("/v1/ingest/orders").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/v1/ingest/orders").contentType(MediaType.APPLICATION_JSON).content("""
+                        [{"orderDate": "2025-01-15", "statusId": 1,
+                          "items": [{"productId": %d, "quantity": 0, "priceAtPurchase": 10}]}]
+                        """.formatted(p_book)))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/v1/ingest/orders").contentType(MediaType.APPLICATION_JSON).content("""
+                        [{"orderDate": "2025-01-15", "statusId": 1, "items": []}]
+                        """))
+                .andExpect(status().isBadRequest());
+
+        verify(batchWriter, never()).write(any());
+    }
+}
@@ -0,0 +1,176 @@
+package com.ecommerce.analytics;
+
+import com.ecommerce.analytics.dto.DateRangeDTO;
+import com.ecommerce.analytics.dto.OrderValueHistogramBucketDTO;
+import com.ecommerce.analytics.dto.OrderValuePercentilesDTO;
+import com.ecommerce.analytics.repository.AnalyticsRepository;
+import com.ecommerce.analytics.seed.BulkDataGenerator;
+import com.ecommerce.analytics.service.AnalyticsService;
+import com.ecommerce.analytics.service.ApproximateAnalyticsService;
+import com.ecommerce.analytics.sketch.OrderValueDigests;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static com.ecommerce.analytics.jooq.Tables.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.awaitility.Awaitility.await;
+import static org.jooq.impl.DSL.field;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+@Testcontainers
+public class OrderValueDistributionTest {
+
+    private static final LocalDate END_DATE = LocalDate.of(2025, 6, 30);
+    private static final DateRangeDTO LAST_QUARTER = new DateRangeDTO(END_DATE.minusDays(89), END_DATE);
+
+    // Allowed distance between the requested and the actual fraction of orders at or below an estimate
+    private static final double RANK_ERROR = 0.02;
+
+    @SuppressWarnings("resource")
+    @Container
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:16")
+            .withDatabaseName("test-db")
+            .withUsername("test")
+            .withPassword("test")
+            .withInitScript("init_scheme.sql");
+
+    @DynamicPropertySource
+    static void setDatasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.jooq.sql-dialect", () -> "POSTGRES");
+    }
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Autowired
+    private BulkDataGenerator bulkDataGenerator;
+
+    @Autowired
+    private ApproximateAnalyticsService approximateAnalyticsService;
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private AnalyticsRepository analyticsRepository;
+
+    @Autowired
+    private OrderValueDigests orderValueDigests;
+
+    @BeforeEach
+    void setUp() {
+        // 3,000 orders over two years, a handful per day, so nearly every answer is a merge of many digests
+        bulkDataGenerator.generate(0.003, 42, END_DATE);
+        orderValueDigests.invalidateAll();
+    }
+
+    @Test
+    public void testPercentiles_WithinRankErrorOfExactOrderTotals() {
+
+        for (DateRangeDTO range : List.of(DateRangeDTO.ALL_TIME, LAST_QUARTER)) {
+            OrderValuePercentilesDTO percentiles = approximateAnalyticsService.getOrderValuePercentiles(range);
+            long orders = ordersAtOrBelow(null, range);
+
+            assertThat(percentiles.getOrderCount()).isEqualTo(orders);
+            assertThat(percentiles.getMean()).isEqualByComparingTo(analyticsRepository.getAverageOrderValue(range).value1());
+            assertThat(ordersAtOrBelow(percentiles.getMin(), range)).isPositive();
+            assertThat(ordersAtOrBelow(percentiles.getMin().subtract(new BigDecimal("0.01")), range)).isZero();
+            assertThat(ordersAtOrBelow(percentiles.getMax(), range)).isEqualTo(orders);
+
+            assertThat((double) ordersAtOrBelow(percentiles.getMedian(), range) / orders).isCloseTo(0.5, within(RANK_ERROR));
+            assertThat((double) ordersAtOrBelow(percentiles.getP90(), range) / orders).isCloseTo(0.9, within(RANK_ERROR));
+            assertThat((double) ordersAtOrBelow(percentiles.getP99(), range) / orders).isCloseTo(0.99, within(RANK_ERROR));
+        }
+    }
+
+    @Test
+    public void testHistogram_CoversEveryOrderInContiguousBuckets() {
+
+        List<OrderValueHistogramBucketDTO> histogram = approximateAnalyticsService.getOrderValueHistogram(20, DateRangeDTO.ALL_TIME);
+        long orders = ordersAtOrBelow(null, DateRangeDTO.ALL_TIME);
+
+        assertThat(histogram).hasSize(20);
+        assertThat(histogram.stream().mapToLong(OrderValueHistogramBucketDTO::getOrderCount).sum()).isEqualTo(orders);
+        for (int i = 1; i < histogram.size(); i++) {
+            assertThat(histogram.get(i).getLowerBound()).isEqualByComparingTo(histogram.get(i - 1).getUpperBound());
+        }
+
+        // Every cumulative count is within the rank error of the exact one
+        long cumulative = 0;
+        for (OrderValueHistogramBucketDTO bucket : histogram) {
+            cumulative += bucket.getOrderCount();
+            long exact = ordersAtOrBelow(bucket.getUpperBound(), DateRangeDTO.ALL_TIME);
+            assertThat((double) Math.abs(cumulative - exact) / orders).isLessThanOrEqualTo(RANK_ERROR);
+        }
+
+        // Out of range bucket counts fall back to the default
+        assertThat(approximateAnalyticsService.getOrderValueHistogram(0, DateRangeDTO.ALL_TIME)).hasSize(10);
+        assertThat(approximateAnalyticsService.getOrderValueHistogram(1000, DateRangeDTO.ALL_TIME)).hasSize(100);
+    }
+
+    @Test
+    public void testAverageOrderValue_FromDigestsMatchesRepository() {
+
+        assertThat(analyticsService.getAverageOrderValue(DateRangeDTO.ALL_TIME).getAverageOrderValue())
+                .isEqualByComparingTo(analyticsRepository.getAverageOrderValue(DateRangeDTO.ALL_TIME).value1());
+        assertThat(analyticsService.getAverageOrderValue(LAST_QUARTER).getAverageOrderValue())
+                .isEqualByComparingTo(analyticsRepository.getAverageOrderValue(LAST_QUARTER).value1());
+        assertThat(analyticsService.getAverageOrderValue(new DateRangeDTO(END_DATE.plusDays(1), null)).getAverageOrderValue())
+                .isNull();
+    }
+
+    @Test
+    public void testNewOrder_ReachesDigestOfItsDay() {
+
+        // Load the digests first, so the order has to arrive through a change notification
+        assertThat(approximateAnalyticsService.getOrderValuePercentiles(DateRangeDTO.ALL_TIME).getOrderCount()).isPositive();
+
+        int orderId = dsl.insertInto(ORDERS, ORDERS.ORDER_DATE, ORDERS.STATUS_ID)
+                .values(END_DATE, 1)
+                .returning(ORDERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test order id"))
+                .getId();
+        dsl.insertInto(ORDER_ITEMS, ORDER_ITEMS.ORDER_ID, ORDER_ITEMS.PRODUCT_ID, ORDER_ITEMS.QUANTITY, ORDER_ITEMS.PRICE_AT_PURCHASE)
+                .values(orderId, 1, 1, new BigDecimal("1000000.00"))
+                .execute();
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(approximateAnalyticsService.getOrderValuePercentiles(DateRangeDTO.ALL_TIME).getMax())
+                        .isEqualByComparingTo("1000000.00"));
+        assertThat(analyticsService.getAverageOrderValue(DateRangeDTO.ALL_TIME).getAverageOrderValue())
+                .isEqualByComparingTo(analyticsRepository.getAverageOrderValue(DateRangeDTO.ALL_TIME).value1());
+    }
+
+    // Exact number of orders in range whose total is at most the given value, or all of them for null
+    private long ordersAtOrBelow(BigDecimal value, DateRangeDTO range) {
+        return dsl.fetchValue(field("""
+                        (SELECT count(*) FROM (
+                            SELECT sum(oi.quantity * oi.price_at_purchase) AS total
+                            FROM order_items oi JOIN orders o ON o.id = oi.order_id
+                            WHERE o.order_date BETWEEN coalesce({0}, '-infinity'::date) AND coalesce({1}, 'infinity'::date)
+                            GROUP BY oi.order_id) totals
+                         WHERE {2}::numeric IS NULL OR total <= {2}::numeric)""",
+                Long.class, range.getFrom(), range.getTo(), value));
+    }
+}
@@ -0,0 +1,221 @@
+package com.ecommerce.analytics;
+
+import com.ecommerce.analytics.dto.DateRangeDTO;
+import com.ecommerce.analytics.dto.ProductRankByCategoryDTO;
+import com.ecommerce.analytics.ranking.CategoryRankIndex;
+import com.ecommerce.analytics.repository.AnalyticsRepository;
+import org.assertj.core.api.recursive.comparison.RecursiveComparisonConfiguration;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static com.ecommerce.analytics.constants.AnalyticsConstants.MAX_LIMIT;
+import static com.ecommerce.analytics.jooq.Tables.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@Testcontainers
+@WithMockUser
+public class ProductRankByCategoryTest {
+
+    @Container
+    @SuppressWarnings("resource")
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:16")
+            .withDatabaseName("test-db")
+            .withUsername("test")
+            .withPassword("test")
+            .withInitScript("init_scheme.sql");
+
+    @DynamicPropertySource
+    static void setDatasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.jooq.sql-dialect", () -> "POSTGRES");
+    }
+
+    private static final LocalDate DAY_1 = LocalDate.of(2025, 3, 1);
+    private static final LocalDate DAY_2 = LocalDate.of(2025, 3, 2);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Autowired
+    private CategoryRankIndex categoryRankIndex;
+
+    @Autowired
+    private AnalyticsRepository analyticsRepository;
+
+    private int c_user;
+    // books.get(i) sold i + 1 on DAY_1, one more product than the index keeps per category
+    private final List<Integer> books = new ArrayList<>();
+    private int g_chess;
+    private int g_go;
+
+    @BeforeEach
+    void setUp() {
+        dsl.truncate(ORDER_ITEMS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDERS).restartIdentity().cascade().execute();
+        dsl.truncate(PRODUCTS).restartIdentity().cascade().execute();
+        dsl.truncate(CUSTOMERS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDER_STATUSES).restartIdentity().cascade().execute();
+
+        // Statuses
+        dsl.insertInto(ORDER_STATUSES)
+                .set(ORDER_STATUSES.STATUS_NAME, "Delivered")
+                .execute();
+
+        // Products
+        books.clear();
+        for (int i = 1; i <= MAX_LIMIT + 1; i++) {
+            books.add(product("Book " + i, "Books"));
+        }
+        g_chess = product("Chess", "Games");
+        g_go = product("Go", "Games");
+
+        // Customer
+        c_user = dsl.insertInto(CUSTOMERS, CUSTOMERS.FIRST_NAME, CUSTOMERS.LAST_NAME, CUSTOMERS.EMAIL, CUSTOMERS.JOIN_DATE)
+                .values("Ivan", "Ivanov", "ivan@test.com", LocalDate.now())
+                .returning(CUSTOMERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test customer id"))
+                .getId();
+
+        // Orders
+        Map<Integer, Integer> bookQuantities = new LinkedHashMap<>();
+        for (int i = 0; i < books.size(); i++) {
+            bookQuantities.put(books.get(i), i + 1);
+        }
+        order(DAY_1, bookQuantities);
+        order(DAY_1, Map.of(g_chess, 2, g_go, 1));
+        order(DAY_2, Map.of(g_go, 5));
+
+        categoryRankIndex.invalidateAll();
+    }
+
+    @Test
+    void limitAppliesPerCategory() throws Exception {
+        mockMvc.perform(post("/v1/analytics/product-rank-by-category")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"limit\": 2}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(4))
+                .andExpect(jsonPath("$[0].category").value("Books"))
+                .andExpect(jsonPath("$[0].productId").value(books.get(MAX_LIMIT)))
+                .andExpect(jsonPath("$[0].totalQuantitySold").value(MAX_LIMIT + 1))
+                .andExpect(jsonPath("$[0].categoryRank").value(1))
+                .andExpect(jsonPath("$[1].productId").value(books.get(MAX_LIMIT - 1)))
+                .andExpect(jsonPath("$[1].categoryRank").value(2))
+                .andExpect(jsonPath("$[2].category").value("Games"))
+                .andExpect(jsonPath("$[2].productName").value("Go"))
+                .andExpect(jsonPath("$[2].totalQuantitySold").value(6))
+                .andExpect(jsonPath("$[3].productName").value("Chess"))
+                .andExpect(jsonPath("$[3].categoryRank").value(2));
+    }
+
+    @Test
+    void dateRangeIsRankedFromItsDays() throws Exception {
+        mockMvc.perform(post("/v1/analytics/product-rank-by-category")
+                        .param("from", DAY_1.toString())
+                        .param("to", DAY_1.toString())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"limit\": 1}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].productName").value("Chess"))
+                .andExpect(jsonPath("$[1].totalQuantitySold").value(2));
+    }
+
+    @Test
+    void indexMatchesTheDatabaseAcrossChanges() {
+        // Load first, so every change below has to arrive through a notification
+        assertMatchesDatabase();
+        assertThat(categoryRankIndex.top(MAX_LIMIT)).noneMatch(row -> row.getProductId().equals(books.get(0)));
+
+        // The unlisted book overtakes every listed one and pushes the last out
+        order(DAY_2, Map.of(books.get(0), 500));
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            ProductRankByCategoryDTO first = categoryRankIndex.top(1).get(0);
+            assertThat(first.getProductId()).isEqualTo(books.get(0));
+            assertThat(first.getTotalQuantitySold()).isEqualByComparingTo("501");
+        });
+        assertMatchesDatabase();
+        assertThat(categoryRankIndex.top(MAX_LIMIT)).noneMatch(row -> row.getProductId().equals(books.get(1)));
+
+        // A listed book losing its sales makes room the index cannot fill from memory
+        dsl.deleteFrom(ORDER_ITEMS)
+                .where(ORDER_ITEMS.PRODUCT_ID.eq(books.get(MAX_LIMIT)))
+                .execute();
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(categoryRankIndex.top(MAX_LIMIT)).noneMatch(row -> row.getProductId().equals(books.get(MAX_LIMIT))));
+        assertMatchesDatabase();
+        assertThat(categoryRankIndex.top(MAX_LIMIT)).anyMatch(row -> row.getProductId().equals(books.get(1)));
+
+        // Renames come with the products notification, which reloads everything
+        dsl.update(PRODUCTS).set(PRODUCTS.NAME, "Shogi").where(PRODUCTS.ID.eq(g_chess)).execute();
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(categoryRankIndex.top(MAX_LIMIT)).anyMatch(row -> row.getProductName().equals("Shogi")));
+        assertMatchesDatabase();
+    }
+
+    private void assertMatchesDatabase() {
+        List<ProductRankByCategoryDTO> expected = analyticsRepository.getProductRankByCategory(MAX_LIMIT, DateRangeDTO.ALL_TIME)
+                .map(row -> new ProductRankByCategoryDTO(row.value1(), row.value2(), row.value3(), row.value4(), row.value5()));
+        assertThat(categoryRankIndex.top(MAX_LIMIT))
+                .usingRecursiveFieldByFieldElementComparator(RecursiveComparisonConfiguration.builder()
+                        .withComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                        .build())
+                .containsExactlyElementsOf(expected);
+    }
+
+    private int product(String name, String category) {
+        return dsl.insertInto(PRODUCTS, PRODUCTS.NAME, PRODUCTS.PRICE, PRODUCTS.CATEGORY)
+                .values(name, new BigDecimal("10.00"), category)
+                .returning(PRODUCTS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test product id"))
+                .getId();
+    }
+
+    private void order(LocalDate orderDate, Map<Integer, Integer> quantities) {
+        int orderId = dsl.insertInto(ORDERS, ORDERS.CUSTOMER_ID, ORDERS.ORDER_DATE, ORDERS.STATUS_ID)
+                .values(c_user, orderDate, 1)
+                .returning(ORDERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test order id"))
+                .getId();
+
+        var items = dsl.insertInto(ORDER_ITEMS, ORDER_ITEMS.ORDER_ID, ORDER_ITEMS.PRODUCT_ID, ORDER_ITEMS.QUANTITY, ORDER_ITEMS.PRICE_AT_PURCHASE);
+        quantities.forEach((productId, quantity) -> items.values(orderId, productId, quantity, new BigDecimal("10.00")));
+        items.execute();
+    }
+}
@@ -0,0 +1,277 @@
+package com.ecommerce.analytics;
+
+import com.ecommerce.analytics.dto.DateRangeDTO;
+import com.ecommerce.analytics.repository.AnalyticsRepository;
+import com.ecommerce.analytics.repository.RollupRepository;
+import org.jooq.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+import static com.ecommerce.analytics.jooq.Tables.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The analytics repository runs against the raw tables here so both paths can be compared side by side
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "app.analytics.rollup.enabled=false")
+@ActiveProfiles("test")
+@Testcontainers
+public class RollupRepositoryTest {
+
+    @SuppressWarnings("resource")
+    @Container
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:16")
+            .withDatabaseName("test-db")
+            .withUsername("test")
+            .withPassword("test")
+            .withInitScript("init_scheme.sql");
+
+    @DynamicPropertySource
+    static void setDatasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.jooq.sql-dialect", () -> "POSTGRES");
+    }
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Autowired
+    private AnalyticsRepository analyticsRepository;
+
+    @Autowired
+    private RollupRepository rollupRepository;
+
+    private int p_laptop;
+    private int p_mouse;
+    private int p_book;
+    private int c_user;
+    private int c_other;
+    private int o1;
+    private int o2;
+
+    @BeforeEach
+    void setUp() {
+        dsl.truncate(ORDER_ITEMS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDERS).restartIdentity().cascade().execute();
+        dsl.truncate(PRODUCTS).restartIdentity().cascade().execute();
+        dsl.truncate(CUSTOMERS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDER_STATUSES).restartIdentity().cascade().execute();
+
+        // Statuses
+        dsl.insertInto(ORDER_STATUSES)
+                .set(ORDER_STATUSES.STATUS_NAME, "Processing")
+                .execute();
+
+        dsl.insertInto(ORDER_STATUSES)
+                .set(ORDER_STATUSES.STATUS_NAME, "Delivered")
+                .execute();
+
+        // Products
+        p_laptop = dsl.insertInto(PRODUCTS, PRODUCTS.NAME, PRODUCTS.PRICE, PRODUCTS.CATEGORY)
+                .values("Laptop", new BigDecimal("1000.00"), "Electronics")
+                .returning(PRODUCTS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test product id"))
+                .getId();
+
+        p_mouse = dsl.insertInto(PRODUCTS, PRODUCTS.NAME, PRODUCTS.PRICE, PRODUCTS.CATEGORY)
+                .values("Mouse", new BigDecimal("75.00"), "Electronics")
+                .returning(PRODUCTS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test product id"))
+                .getId();
+
+        p_book = dsl.insertInto(PRODUCTS, PRODUCTS.NAME, PRODUCTS.PRICE, PRODUCTS.CATEGORY)
+                .values("JOOQ Guide", new BigDecimal("25.00"), "Books")
+                .returning(PRODUCTS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test product id"))
+                .getId();
+
+        // Customers
+        c_user = dsl.insertInto(CUSTOMERS, CUSTOMERS.FIRST_NAME, CUSTOMERS.LAST_NAME, CUSTOMERS.EMAIL, CUSTOMERS.JOIN_DATE)
+                .values("Test", "User", "test@user.com", LocalDate.now())
+                .returning(CUSTOMERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test customer id"))
+                .getId();
+
+        c_other = dsl.insertInto(CUSTOMERS, CUSTOMERS.FIRST_NAME, CUSTOMERS.LAST_NAME, CUSTOMERS.EMAIL, CUSTOMERS.JOIN_DATE)
+                .values("Other", "User", "other@user.com", LocalDate.now())
+                .returning(CUSTOMERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test customer id"))
+                .getId();
+
+        // Orders
+        o1 = dsl.insertInto(ORDERS, ORDERS.CUSTOMER_ID, ORDERS.ORDER_DATE, ORDERS.STATUS_ID)
+                .values(c_user, LocalDate.now().minusDays(1), 1)
+                .returning(ORDERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test order id"))
+                .getId();
+
+        o2 = dsl.insertInto(ORDERS, ORDERS.CUSTOMER_ID, ORDERS.ORDER_DATE, ORDERS.STATUS_ID)
+                .values(c_other, LocalDate.now(), 2)
+                .returning(ORDERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test order id"))
+                .getId();
+
+        // Order Items
+        dsl.insertInto(ORDER_ITEMS)
+                .columns(ORDER_ITEMS.ORDER_ID, ORDER_ITEMS.PRODUCT_ID, ORDER_ITEMS.QUANTITY, ORDER_ITEMS.PRICE_AT_PURCHASE)
+                .values(o1, p_laptop, 1, new BigDecimal("1000.00"))
+                .values(o1, p_mouse, 2, new BigDecimal("75.00"))
+                .values(o2, p_book, 4, new BigDecimal("25.00"))
+                .values(o2, p_mouse, 1, new BigDecimal("70.50"))
+                .execute();
+    }
+
+    @Test
+    public void testRollups_MatchRawQueriesAfterInserts() {
+
+        assertRollupsMatchRawQueries();
+
+        assertThat(salesByCategory(rollupRepository.getSalesByCategory(DateRangeDTO.ALL_TIME)).get("Electronics"))
+                .isEqualTo(122050L);
+    }
+
+    @Test
+    public void testRollups_MatchRawQueriesAfterItemUpdatesAndDeletes() {
+
+        dsl.update(ORDER_ITEMS)
+                .set(ORDER_ITEMS.QUANTITY, 7)
+                .where(ORDER_ITEMS.PRODUCT_ID.eq(p_book))
+                .execute();
+
+        dsl.update(ORDER_ITEMS)
+                .set(ORDER_ITEMS.ORDER_ID, o2)
+                .where(ORDER_ITEMS.PRODUCT_ID.eq(p_laptop))
+                .execute();
+
+        dsl.deleteFrom(ORDER_ITEMS)
+                .where(ORDER_ITEMS.PRODUCT_ID.eq(p_mouse))
+                .and(ORDER_ITEMS.ORDER_ID.eq(o1))
+                .execute();
+
+        assertRollupsMatchRawQueries();
+    }
+
+    @Test
+    public void testRollups_MatchRawQueriesAfterOrderChanges() {
+
+        dsl.update(ORDERS)
+                .set(ORDERS.CUSTOMER_ID, c_other)
+                .set(ORDERS.ORDER_DATE, LocalDate.now().minusDays(30))
+                .where(ORDERS.ID.eq(o1))
+                .execute();
+
+        assertRollupsMatchRawQueries();
+
+        dsl.deleteFrom(ORDERS)
+                .where(ORDERS.ID.eq(o2))
+                .execute();
+
+        assertRollupsMatchRawQueries();
+    }
+
+    @Test
+    public void testRollups_MatchRawQueriesAfterProductAndCustomerChanges() {
+
+        dsl.update(PRODUCTS)
+                .set(PRODUCTS.CATEGORY, "Accessories")
+                .where(PRODUCTS.ID.eq(p_mouse))
+                .execute();
+
+        assertRollupsMatchRawQueries();
+
+        dsl.deleteFrom(PRODUCTS)
+                .where(PRODUCTS.ID.eq(p_laptop))
+                .execute();
+
+        dsl.deleteFrom(CUSTOMERS)
+                .where(CUSTOMERS.ID.eq(c_user))
+                .execute();
+
+        assertRollupsMatchRawQueries();
+    }
+
+    @Test
+    public void testRebuild_ReproducesIncrementalRollups() {
+
+        dsl.update(PRODUCTS)
+                .set(PRODUCTS.CATEGORY, "Accessories")
+                .where(PRODUCTS.ID.eq(p_mouse))
+                .execute();
+
+        Map<String, Long> incremental = salesByCategory(rollupRepository.getSalesByCategory(DateRangeDTO.ALL_TIME));
+
+        rollupRepository.rebuild();
+
+        assertThat(salesByCategory(rollupRepository.getSalesByCategory(DateRangeDTO.ALL_TIME)))
+                .isEqualTo(incremental);
+        assertRollupsMatchRawQueries();
+    }
+
+    @Test
+    public void testRollups_MatchRawQueriesWithinDateRanges() {
+
+        LocalDate today = LocalDate.now();
+
+        dsl.update(ORDERS)
+                .set(ORDERS.ORDER_DATE, today.minusDays(30))
+                .where(ORDERS.ID.eq(o1))
+                .execute();
+
+        assertRollupsMatchRawQueries(new DateRangeDTO(today.minusDays(7), today));
+        assertRollupsMatchRawQueries(new DateRangeDTO(today.minusDays(30), today.minusDays(30)));
+        assertRollupsMatchRawQueries(new DateRangeDTO(today.minusDays(10), null));
+        assertRollupsMatchRawQueries(new DateRangeDTO(null, today.minusDays(10)));
+
+        assertThat(salesByCategory(rollupRepository.getSalesByCategory(new DateRangeDTO(today.minusDays(7), today))))
+                .containsOnlyKeys("Electronics", "Books");
+        assertThat(rollupRepository.getTopSellingProducts(100, new DateRangeDTO(today.plusDays(1), null))).isEmpty();
+    }
+
+    private void assertRollupsMatchRawQueries() {
+        assertRollupsMatchRawQueries(DateRangeDTO.ALL_TIME);
+    }
+
+    private void assertRollupsMatchRawQueries(DateRangeDTO range) {
+        assertThat(salesByCategory(rollupRepository.getSalesByCategory(range)))
+                .isEqualTo(salesByCategory(analyticsRepository.getSalesByCategory(range)));
+
+        assertThat(rollupRepository.getTopSellingProducts(100, range).intoMap(Record3::value1, Record3::value3))
+                .usingRecursiveComparison()
+                .withComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                .isEqualTo(analyticsRepository.getTopSellingProducts(100, range).intoMap(Record3::value1, Record3::value3));
+
+        assertThat(rollupRepository.getTopSpenders(100, range).intoMap(Record4::value1, Record4::value4))
+                .isEqualTo(analyticsRepository.getTopSpenders(100, range).intoMap(Record4::value1, Record4::value4));
+    }
+
+    private Map<String, Long> salesByCategory(Result<Record2<String, Long>> result) {
+        return result
+                .stream()
+                .collect(Collectors.toMap(
+                        Record2::value1,
+                        Record2::value2
+                ));
+    }
+}
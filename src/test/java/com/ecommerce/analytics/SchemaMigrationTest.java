@@ -0,0 +1,172 @@
+package com.ecommerce.analytics;
+
+import com.ecommerce.analytics.dto.DateRangeDTO;
+import com.ecommerce.analytics.migration.SchemaMigrator;
+import com.ecommerce.analytics.repository.AnalyticsRepository;
+import com.ecommerce.analytics.seed.BulkDataGenerator;
+import org.jooq.*;
+import org.jooq.impl.DefaultExecuteListenerProvider;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.jooq.impl.DSL.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"app.analytics.rollup.enabled=false", "app.analytics.cache.enabled=false"})
+@ActiveProfiles("test")
+@Testcontainers
+public class SchemaMigrationTest {
+
+    private static final LocalDate END_DATE = LocalDate.of(2025, 6, 30);
+    private static final DateRangeDTO LAST_WEEK = new DateRangeDTO(END_DATE.minusDays(6), END_DATE);
+
+    @SuppressWarnings("resource")
+    @Container
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:16")
+            .withDatabaseName("test-db")
+            .withUsername("test")
+            .withPassword("test")
+            .withInitScript("init_scheme.sql");
+
+    @DynamicPropertySource
+    static void setDatasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.jooq.sql-dialect", () -> "POSTGRES");
+    }
+
+    // Keeps every query the repository runs, so the test can ask Postgres how it plans exactly that query
+    @TestConfiguration
+    static class QueryRecorderConfig {
+
+        @Bean
+        QueryRecorder queryRecorder() {
+            return new QueryRecorder();
+        }
+
+        @Bean
+        ExecuteListenerProvider queryRecorderProvider(QueryRecorder queryRecorder) {
+            return new DefaultExecuteListenerProvider(queryRecorder);
+        }
+    }
+
+    static class QueryRecorder implements ExecuteListener {
+
+        private final List<Query> queries = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void executeStart(ExecuteContext ctx) {
+            if (ctx.query() != null) {
+                queries.add(ctx.query());
+            }
+        }
+    }
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Autowired
+    private SchemaMigrator schemaMigrator;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private BulkDataGenerator bulkDataGenerator;
+
+    @Autowired
+    private AnalyticsRepository analyticsRepository;
+
+    @Autowired
+    private QueryRecorder queryRecorder;
+
+    @Test
+    public void testMigrations_AreAppliedOnceAndGuardedAgainstEdits() throws Exception {
+
+        assertThat(dsl.fetchValue("SELECT array_agg(version ORDER BY version) FROM schema_migrations"))
+                .isEqualTo(new Integer[]{1, 2});
+        assertThat(dsl.fetchValue("SELECT to_regclass('idx_orders_order_date')")).isNull();
+
+        // Built concurrently, an index whose build failed would be left behind invalid
+        assertThat(dsl.fetchValue("SELECT count(*) FROM pg_index WHERE indisvalid AND indexrelid IN ("
+                + "'idx_orders_order_date_covering'::regclass, 'idx_order_items_order_id'::regclass, "
+                + "'idx_order_items_product_id'::regclass, 'idx_orders_status_id'::regclass, "
+                + "'idx_orders_customer_id'::regclass)")).isEqualTo(5L);
+
+        // Starting again finds nothing to do
+        schemaMigrator.afterPropertiesSet();
+        assertThat(dsl.fetchCount(table(name("schema_migrations")))).isEqualTo(2);
+
+        dsl.execute("UPDATE schema_migrations SET checksum = checksum + 1 WHERE version = 1");
+        try {
+            assertThatThrownBy(schemaMigrator::afterPropertiesSet)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("V1");
+        } finally {
+            dsl.execute("UPDATE schema_migrations SET checksum = checksum - 1 WHERE version = 1");
+        }
+    }
+
+    @Test
+    public void testDuplicateVersions_FailBeforeAnythingRuns() {
+
+        SchemaMigrator duplicates = new SchemaMigrator(dataSource, "classpath:db/duplicate-migrations");
+        assertThatThrownBy(duplicates::afterPropertiesSet)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("V2");
+        assertThat(dsl.fetchCount(table(name("schema_migrations")))).isEqualTo(2);
+    }
+
+    @Test
+    public void testDateBoundedQueries_ReadOnlyTheCoveringIndexes() {
+
+        // Two years of orders, the last week is a small slice of it
+        bulkDataGenerator.generate(0.01, 42, END_DATE);
+        dsl.execute("VACUUM ANALYZE orders, order_items");
+
+        String statusSummary = plan(() -> analyticsRepository.getOrderCountByStatusName(LAST_WEEK));
+        assertThat(statusSummary).contains("Index Only Scan using idx_orders_order_date_covering");
+
+        String salesByCategory = plan(() -> analyticsRepository.getSalesByCategory(LAST_WEEK));
+        assertThat(salesByCategory)
+                .contains("Index Only Scan using idx_orders_order_date_covering")
+                .contains("Index Only Scan using idx_order_items_order_id")
+                .doesNotContain("Seq Scan on order_items");
+
+        // Postgres may also walk orders in customer order for the join to customers, either way through an index
+        String topSpenders = plan(() -> analyticsRepository.getTopSpenders(10, LAST_WEEK));
+        assertThat(topSpenders)
+                .contains("Index Only Scan using idx_order_items_order_id")
+                .doesNotContain("Seq Scan on orders")
+                .doesNotContain("Seq Scan on order_items");
+
+        String averageOrderValue = plan(() -> analyticsRepository.getAverageOrderValue(LAST_WEEK));
+        assertThat(averageOrderValue)
+                .contains("Index Only Scan using idx_order_items_order_id")
+                .doesNotContain("Seq Scan on order_items");
+    }
+
+    private String plan(Runnable call) {
+        queryRecorder.queries.clear();
+        call.run();
+        assertThat(queryRecorder.queries).hasSize(1);
+        return dsl.explain(queryRecorder.queries.getFirst()).plan();
+    }
+}
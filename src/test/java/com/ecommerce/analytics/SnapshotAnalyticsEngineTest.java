@@ -0,0 +1,284 @@
+package com.ecommerce.analytics;
+
+import com.ecommerce.analytics.dto.*;
+import com.ecommerce.analytics.repository.AnalyticsRepository;
+import com.ecommerce.analytics.snapshot.SnapshotAnalyticsEngine;
+import org.jooq.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+import static com.ecommerce.analytics.jooq.Tables.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"app.analytics.engine=snapshot", "app.analytics.snapshot.refresh-interval=1h"})
+@ActiveProfiles("test")
+@Testcontainers
+public class SnapshotAnalyticsEngineTest {
+
+    @SuppressWarnings("resource")
+    @Container
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:16")
+            .withDatabaseName("test-db")
+            .withUsername("test")
+            .withPassword("test")
+            .withInitScript("init_scheme.sql");
+
+    @DynamicPropertySource
+    static void setDatasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.jooq.sql-dialect", () -> "POSTGRES");
+    }
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Autowired
+    private AnalyticsRepository analyticsRepository;
+
+    @Autowired
+    private SnapshotAnalyticsEngine snapshotAnalyticsEngine;
+
+    private int p_laptop;
+    private int p_mouse;
+    private int c_user;
+    private int o1;
+
+    @BeforeEach
+    void setUp() {
+        dsl.truncate(ORDER_ITEMS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDERS).restartIdentity().cascade().execute();
+        dsl.truncate(PRODUCTS).restartIdentity().cascade().execute();
+        dsl.truncate(CUSTOMERS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDER_STATUSES).restartIdentity().cascade().execute();
+
+        // Statuses
+        dsl.insertInto(ORDER_STATUSES)
+                .set(ORDER_STATUSES.STATUS_NAME, "Processing")
+                .execute();
+
+        dsl.insertInto(ORDER_STATUSES)
+                .set(ORDER_STATUSES.STATUS_NAME, "Canceled")
+                .execute();
+
+        dsl.insertInto(ORDER_STATUSES)
+                .set(ORDER_STATUSES.STATUS_NAME, "Delivered")
+                .execute();
+
+        // Products
+        p_laptop = dsl.insertInto(PRODUCTS, PRODUCTS.NAME, PRODUCTS.PRICE, PRODUCTS.CATEGORY)
+                .values("Laptop", new BigDecimal("1000.00"), "Electronics")
+                .returning(PRODUCTS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test product id"))
+                .getId();
+
+        p_mouse = dsl.insertInto(PRODUCTS, PRODUCTS.NAME, PRODUCTS.PRICE, PRODUCTS.CATEGORY)
+                .values("Mouse", new BigDecimal("75.00"), "Electronics")
+                .returning(PRODUCTS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test product id"))
+                .getId();
+
+        int p_book = dsl.insertInto(PRODUCTS, PRODUCTS.NAME, PRODUCTS.PRICE, PRODUCTS.CATEGORY)
+                .values("JOOQ Guide", new BigDecimal("25.00"), "Books")
+                .returning(PRODUCTS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test product id"))
+                .getId();
+
+        // Customer
+        c_user = dsl.insertInto(CUSTOMERS, CUSTOMERS.FIRST_NAME, CUSTOMERS.LAST_NAME, CUSTOMERS.EMAIL, CUSTOMERS.JOIN_DATE)
+                .values("Test", "User", "test@user.com", LocalDate.now())
+                .returning(CUSTOMERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test customer id"))
+                .getId();
+
+        // Orders
+        o1 = dsl.insertInto(ORDERS, ORDERS.CUSTOMER_ID, ORDERS.ORDER_DATE, ORDERS.STATUS_ID)
+                .values(c_user, LocalDate.now(), 2)
+                .returning(ORDERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test order id"))
+                .getId();
+
+        int o2 = dsl.insertInto(ORDERS, ORDERS.CUSTOMER_ID, ORDERS.ORDER_DATE, ORDERS.STATUS_ID)
+                .values(c_user, LocalDate.now(), 3)
+                .returning(ORDERS.ID)
+                .fetchOptional()
+                .orElseThrow(() -> new NoSuchElementException("Fail to get new test order id"))
+                .getId();
+
+        // Order Items
+        dsl.insertInto(ORDER_ITEMS)
+                .columns(ORDER_ITEMS.ORDER_ID, ORDER_ITEMS.PRODUCT_ID, ORDER_ITEMS.QUANTITY, ORDER_ITEMS.PRICE_AT_PURCHASE)
+                .values(o1, p_laptop, 1, new BigDecimal("1000.00"))
+                .values(o1, p_mouse, 2, new BigDecimal("75.00"))
+                .values(o2, p_book, 4, new BigDecimal("25.00"))
+                .execute();
+    }
+
+    @Test
+    public void testEngine_MatchesRepositoryAfterInserts() {
+
+        snapshotAnalyticsEngine.refresh();
+
+        assertEngineMatchesRepository();
+        assertThat(snapshotAnalyticsEngine.getAverageOrderValue().getAverageOrderValue())
+                .isEqualByComparingTo(new BigDecimal("625.00"));
+    }
+
+    @Test
+    public void testEngine_MatchesRepositoryAfterUpdatesAndDeletes() {
+
+        dsl.update(ORDER_ITEMS)
+                .set(ORDER_ITEMS.QUANTITY, 5)
+                .where(ORDER_ITEMS.PRODUCT_ID.eq(p_mouse))
+                .execute();
+
+        dsl.update(PRODUCTS)
+                .set(PRODUCTS.CATEGORY, "Accessories")
+                .where(PRODUCTS.ID.eq(p_mouse))
+                .execute();
+
+        dsl.update(ORDERS)
+                .set(ORDERS.STATUS_ID, 1)
+                .where(ORDERS.ID.eq(o1))
+                .execute();
+
+        dsl.deleteFrom(PRODUCTS)
+                .where(PRODUCTS.ID.eq(p_laptop))
+                .execute();
+
+        snapshotAnalyticsEngine.refresh();
+        assertEngineMatchesRepository();
+
+        dsl.deleteFrom(ORDERS)
+                .where(ORDERS.ID.eq(o1))
+                .execute();
+
+        dsl.deleteFrom(CUSTOMERS)
+                .where(CUSTOMERS.ID.eq(c_user))
+                .execute();
+
+        snapshotAnalyticsEngine.refresh();
+        assertEngineMatchesRepository();
+    }
+
+    @Test
+    public void testEngine_MixedPriceScales() {
+
+        dsl.insertInto(ORDER_ITEMS)
+                .columns(ORDER_ITEMS.ORDER_ID, ORDER_ITEMS.PRODUCT_ID, ORDER_ITEMS.QUANTITY, ORDER_ITEMS.PRICE_AT_PURCHASE)
+                .values(o1, p_mouse, 3, new BigDecimal("19.999"))
+                .values(o1, p_laptop, 1, new BigDecimal("1000"))
+                .execute();
+
+        snapshotAnalyticsEngine.refresh();
+
+        assertEngineMatchesRepository();
+    }
+
+    @Test
+    public void testEngine_PricesBeyondLongRange() {
+
+        // Postgres keeps the 20 decimals, and at that scale the laptop price no longer fits a long
+        dsl.insertInto(ORDER_ITEMS)
+                .columns(ORDER_ITEMS.ORDER_ID, ORDER_ITEMS.PRODUCT_ID, ORDER_ITEMS.QUANTITY, ORDER_ITEMS.PRICE_AT_PURCHASE)
+                .values(o1, p_mouse, 3, new BigDecimal("19.99000000000000000000"))
+                .execute();
+
+        snapshotAnalyticsEngine.refresh();
+
+        assertEngineMatchesRepository();
+    }
+
+    @Test
+    public void testEngine_SumsBeyondLongRange() {
+
+        // Fits a long in thousandths of a unit, two of them do not
+        dsl.insertInto(ORDER_ITEMS)
+                .columns(ORDER_ITEMS.ORDER_ID, ORDER_ITEMS.PRODUCT_ID, ORDER_ITEMS.QUANTITY, ORDER_ITEMS.PRICE_AT_PURCHASE)
+                .values(o1, p_laptop, 2, new BigDecimal("5000000000000000.005"))
+                .execute();
+
+        snapshotAnalyticsEngine.refresh();
+
+        assertEngineMatchesRepository();
+    }
+
+    @Test
+    public void testEngine_EmptyTables() {
+
+        dsl.truncate(ORDER_ITEMS).restartIdentity().cascade().execute();
+        dsl.truncate(ORDERS).restartIdentity().cascade().execute();
+
+        snapshotAnalyticsEngine.refresh();
+
+        assertThat(snapshotAnalyticsEngine.getSalesByCategory()).isEmpty();
+        assertThat(snapshotAnalyticsEngine.getTopSellingProducts(10)).isEmpty();
+        assertThat(snapshotAnalyticsEngine.getTopSenders(10)).isEmpty();
+        assertThat(snapshotAnalyticsEngine.getOrderCountByStatusName()).isEmpty();
+        assertThat(snapshotAnalyticsEngine.getAverageOrderValue().getAverageOrderValue()).isNull();
+    }
+
+    private void assertEngineMatchesRepository() {
+        assertThat(snapshotAnalyticsEngine.isReady()).isTrue();
+
+        assertThat(snapshotAnalyticsEngine.getSalesByCategory()
+                .stream()
+                .collect(Collectors.toMap(SalesByCategoryDTO::getCategory, SalesByCategoryDTO::getTotalSales)))
+                .usingRecursiveComparison()
+                .withComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                .isEqualTo(analyticsRepository.getSalesByCategory().intoMap(Record2::value1, Record2::value2));
+
+        assertThat(snapshotAnalyticsEngine.getTopSellingProducts(100)
+                .stream()
+                .collect(Collectors.toMap(TopSellingProductsDTO::getProductId, TopSellingProductsDTO::getTotalQuantitySold)))
+                .isEqualTo(analyticsRepository.getTopSellingProducts(100)
+                        .stream()
+                        .collect(Collectors.toMap(Record3::value1, record -> record.value3().longValue())));
+
+        assertThat(snapshotAnalyticsEngine.getTopSellingProducts(1))
+                .extracting(TopSellingProductsDTO::getProductId)
+                .containsExactly(analyticsRepository.getTopSellingProducts(1).get(0).value1());
+
+        assertThat(snapshotAnalyticsEngine.getTopSenders(100)
+                .stream()
+                .collect(Collectors.toMap(TopSendersDTO::getCustomerId, TopSendersDTO::getTotalSpend)))
+                .usingRecursiveComparison()
+                .withComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                .isEqualTo(analyticsRepository.getTopSpenders(100).intoMap(Record4::value1, Record4::value4));
+
+        Map<String, Long> statusCounts = snapshotAnalyticsEngine.getOrderCountByStatusName()
+                .stream()
+                .collect(Collectors.toMap(StatusSummaryDTO::getStatusName, StatusSummaryDTO::getOrderCount));
+        assertThat(statusCounts)
+                .isEqualTo(analyticsRepository.getOrderCountByStatusName().intoMap(Record2::value1, Record2::value2));
+
+        BigDecimal expectedAverage = analyticsRepository.getAverageOrderValue().value1();
+        BigDecimal average = snapshotAnalyticsEngine.getAverageOrderValue().getAverageOrderValue();
+        if (expectedAverage == null) {
+            assertThat(average).isNull();
+        } else {
+            assertThat(average).isEqualByComparingTo(expectedAverage);
+        }
+    }
+}
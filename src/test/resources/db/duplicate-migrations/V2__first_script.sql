@@ -0,0 +1,2 @@
+-- Shares its version with V2__second_script.sql
+SELECT 1;
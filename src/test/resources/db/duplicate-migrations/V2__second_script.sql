@@ -0,0 +1,2 @@
+-- Shares its version with V2__first_script.sql
+SELECT 2;